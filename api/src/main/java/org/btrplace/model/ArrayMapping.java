@@ -0,0 +1,866 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link Mapping} backed by arrays indexed by the element identifiers.
+ * <p>
+ * It is designed for large models whose identifiers are dense, such as the ones
+ * provided by {@link DefaultElementBuilder}. The memory usage is proportional to the biggest identifier.
+ * Negative identifiers are not supported.
+ * <p>
+ * The elements in each state are stored in arrays, the VMs hosted by a node in a doubly-linked list
+ * that is embedded inside the VM arrays. As a consequence, all the update methods have a O(1) complexity.
+ * {@link #getRunningVMs()}, {@link #getSleepingVMs()}, {@link #getReadyVMs()}, {@link #getAllVMs()},
+ * {@link #getOnlineNodes()}, {@link #getOfflineNodes()} and {@link #getAllNodes()} return unmodifiable,
+ * live views that are maintained incrementally. Their iterators are fail-fast.
+ * <p>
+ * {@link #copy()} has a O(1) complexity: the copy shares the arrays of the mapping. The arrays
+ * about the VMs, the nodes, and the hosted VMs are then copied in bulk by the first mapping
+ * that modifies them.
+ *
+ * @author Fabien Hermenier
+ */
+public class ArrayMapping extends AbstractMapping {
+
+    private static final int NONE = -1;
+
+    private static final int RUNNING_STATE = 0;
+
+    private static final int SLEEPING_STATE = 1;
+
+    private static final int READY_STATE = 2;
+
+    private static final int ONLINE_STATE = 0;
+
+    private static final int OFFLINE_STATE = 1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final int VM_ARRAYS = 1;
+
+    private static final int NODE_ARRAYS = 2;
+
+    private static final int HOST_ARRAYS = 4;
+
+    private static final int ALL_ARRAYS = VM_ARRAYS | NODE_ARRAYS | HOST_ARRAYS;
+
+    /**
+     * The VMs, by identifier.
+     */
+    private VM[] vmRefs;
+
+    /**
+     * The state of each VM.
+     */
+    private int[] vmState;
+
+    /**
+     * The host of each running or sleeping VM.
+     */
+    private int[] vmHost;
+
+    /**
+     * The position of each VM inside the members of its state.
+     */
+    private int[] vmPos;
+
+    /**
+     * The next VM on the same host and with the same state.
+     */
+    private int[] nextVM;
+
+    /**
+     * The previous VM on the same host and with the same state.
+     */
+    private int[] prevVM;
+
+    /**
+     * The VMs by state (running, sleeping, ready).
+     */
+    private Members[] vms;
+
+    /**
+     * The nodes, by identifier.
+     */
+    private Node[] nodeRefs;
+
+    /**
+     * The state of each node.
+     */
+    private int[] nodeState;
+
+    /**
+     * The position of each node inside the members of its state.
+     */
+    private int[] nodePos;
+
+    /**
+     * The first VM hosted by each node, by state (running, sleeping).
+     */
+    private int[][] firstVM;
+
+    /**
+     * The number of VMs hosted by each node, by state (running, sleeping).
+     */
+    private int[][] nbHosted;
+
+    /**
+     * The nodes by state (online, offline).
+     */
+    private Members[] nodes;
+
+    /**
+     * Incremented at each modification to make the iterators fail-fast.
+     */
+    private int modCount;
+
+    /**
+     * The groups of arrays that can be modified in place. The other ones are shared with a copy.
+     */
+    private int owned = ALL_ARRAYS;
+
+    private final Set<VM> runningVMs = new StateView<>(VM.class, RUNNING_STATE);
+
+    private final Set<VM> sleepingVMs = new StateView<>(VM.class, SLEEPING_STATE);
+
+    private final Set<VM> readyVMs = new StateView<>(VM.class, READY_STATE);
+
+    private final Set<VM> allVMs = new StateView<>(VM.class, RUNNING_STATE, SLEEPING_STATE, READY_STATE);
+
+    private final Set<Node> onlineNodes = new StateView<>(Node.class, ONLINE_STATE);
+
+    private final Set<Node> offlineNodes = new StateView<>(Node.class, OFFLINE_STATE);
+
+    private final Set<Node> allNodes = new StateView<>(Node.class, ONLINE_STATE, OFFLINE_STATE);
+
+    /**
+     * Create a new mapping.
+     */
+    public ArrayMapping() {
+        vmRefs = new VM[INITIAL_CAPACITY];
+        vmState = filled(INITIAL_CAPACITY);
+        vmHost = filled(INITIAL_CAPACITY);
+        vmPos = new int[INITIAL_CAPACITY];
+        nextVM = filled(INITIAL_CAPACITY);
+        prevVM = filled(INITIAL_CAPACITY);
+        vms = new Members[]{new Members(), new Members(), new Members()};
+
+        nodeRefs = new Node[INITIAL_CAPACITY];
+        nodeState = filled(INITIAL_CAPACITY);
+        nodePos = new int[INITIAL_CAPACITY];
+        firstVM = new int[][]{filled(INITIAL_CAPACITY), filled(INITIAL_CAPACITY)};
+        nbHosted = new int[2][INITIAL_CAPACITY];
+        nodes = new Members[]{new Members(), new Members()};
+    }
+
+    /**
+     * Make a new mapping from an existing one.
+     *
+     * @param m the mapping to copy
+     */
+    public ArrayMapping(Mapping m) {
+        this();
+        MappingUtils.fill(m, this);
+    }
+
+    private static int[] filled(int size) {
+        int[] a = new int[size];
+        Arrays.fill(a, NONE);
+        return a;
+    }
+
+    private static int[] grow(int[] a, int size, int def) {
+        int[] b = Arrays.copyOf(a, size);
+        if (def != 0) {
+            Arrays.fill(b, a.length, size, def);
+        }
+        return b;
+    }
+
+    private static int newCapacity(int length, int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Unsupported negative identifier: " + id);
+        }
+        return Math.max(id + 1, length + (length >> 1));
+    }
+
+    /**
+     * Copy the given groups of arrays if they are shared.
+     *
+     * @param groups the groups to modify
+     */
+    private void own(int groups) {
+        int missing = groups & ~owned;
+        if ((missing & VM_ARRAYS) != 0) {
+            vmRefs = vmRefs.clone();
+            vmState = vmState.clone();
+            vmHost = vmHost.clone();
+            vmPos = vmPos.clone();
+            nextVM = nextVM.clone();
+            prevVM = prevVM.clone();
+            vms = new Members[]{vms[0].copy(), vms[1].copy(), vms[2].copy()};
+        }
+        if ((missing & NODE_ARRAYS) != 0) {
+            nodeRefs = nodeRefs.clone();
+            nodeState = nodeState.clone();
+            nodePos = nodePos.clone();
+            nodes = new Members[]{nodes[0].copy(), nodes[1].copy()};
+        }
+        if ((missing & HOST_ARRAYS) != 0) {
+            firstVM = new int[][]{firstVM[0].clone(), firstVM[1].clone()};
+            nbHosted = new int[][]{nbHosted[0].clone(), nbHosted[1].clone()};
+        }
+        owned |= missing;
+    }
+
+    private void ensureVM(int id) {
+        if (id >= 0 && id < vmState.length) {
+            return;
+        }
+        int size = newCapacity(vmState.length, id);
+        vmRefs = Arrays.copyOf(vmRefs, size);
+        vmState = grow(vmState, size, NONE);
+        vmHost = grow(vmHost, size, NONE);
+        vmPos = grow(vmPos, size, 0);
+        nextVM = grow(nextVM, size, NONE);
+        prevVM = grow(prevVM, size, NONE);
+    }
+
+    private void ensureNode(int id) {
+        if (id >= 0 && id < nodeState.length) {
+            return;
+        }
+        int size = newCapacity(nodeState.length, id);
+        own(HOST_ARRAYS);
+        nodeRefs = Arrays.copyOf(nodeRefs, size);
+        nodeState = grow(nodeState, size, NONE);
+        nodePos = grow(nodePos, size, 0);
+        for (int s = RUNNING_STATE; s <= SLEEPING_STATE; s++) {
+            firstVM[s] = grow(firstVM[s], size, NONE);
+            nbHosted[s] = grow(nbHosted[s], size, 0);
+        }
+    }
+
+    private int vmState(int id) {
+        return id >= 0 && id < vmState.length ? vmState[id] : NONE;
+    }
+
+    private int nodeState(int id) {
+        return id >= 0 && id < nodeState.length ? nodeState[id] : NONE;
+    }
+
+    /**
+     * Remove a VM from its current state and host, if any.
+     */
+    private void detach(int id) {
+        int s = vmState[id];
+        if (s == NONE) {
+            return;
+        }
+        vms[s].remove(id, vmPos);
+        if (s != READY_STATE) {
+            int h = vmHost[id];
+            int p = prevVM[id];
+            int n = nextVM[id];
+            if (p == NONE) {
+                firstVM[s][h] = n;
+            } else {
+                nextVM[p] = n;
+            }
+            if (n != NONE) {
+                prevVM[n] = p;
+            }
+            nbHosted[s][h]--;
+            vmHost[id] = NONE;
+            nextVM[id] = NONE;
+            prevVM[id] = NONE;
+        }
+        vmState[id] = NONE;
+    }
+
+    /**
+     * Put a detached VM into a given state.
+     */
+    private void attach(int id, int s, int host) {
+        vmState[id] = s;
+        vms[s].add(id, vmPos);
+        if (s != READY_STATE) {
+            int first = firstVM[s][host];
+            vmHost[id] = host;
+            prevVM[id] = NONE;
+            nextVM[id] = first;
+            if (first != NONE) {
+                prevVM[first] = id;
+            }
+            firstVM[s][host] = id;
+            nbHosted[s][host]++;
+        }
+    }
+
+    private boolean place(VM vm, int s, Node n) {
+        int nId = n.id();
+        if (nodeState(nId) != ONLINE_STATE) {
+            return false;
+        }
+        int id = vm.id();
+        if (vmState(id) == s && vmHost[id] == nId) {
+            return true;
+        }
+        own(VM_ARRAYS | HOST_ARRAYS);
+        ensureVM(id);
+        detach(id);
+        vmRefs[id] = vm;
+        attach(id, s, nId);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean addRunningVM(VM vm, Node n) {
+        return place(vm, RUNNING_STATE, n);
+    }
+
+    @Override
+    public boolean addSleepingVM(VM vm, Node n) {
+        return place(vm, SLEEPING_STATE, n);
+    }
+
+    @Override
+    public boolean addReadyVM(VM vm) {
+        int id = vm.id();
+        if (vmState(id) != READY_STATE) {
+            own(VM_ARRAYS | HOST_ARRAYS);
+            ensureVM(id);
+            detach(id);
+            vmRefs[id] = vm;
+            attach(id, READY_STATE, NONE);
+            modCount++;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(VM vm) {
+        int id = vm.id();
+        if (vmState(id) == NONE) {
+            return false;
+        }
+        own(VM_ARRAYS | HOST_ARRAYS);
+        detach(id);
+        vmRefs[id] = null;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Node n) {
+        int id = n.id();
+        int s = nodeState(id);
+        if (s == NONE) {
+            return false;
+        }
+        if (s == ONLINE_STATE && (nbHosted[RUNNING_STATE][id] > 0 || nbHosted[SLEEPING_STATE][id] > 0)) {
+            return false;
+        }
+        own(NODE_ARRAYS);
+        nodes[s].remove(id, nodePos);
+        nodeRefs[id] = null;
+        nodeState[id] = NONE;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean addOnlineNode(Node n) {
+        int id = n.id();
+        int s = nodeState(id);
+        if (s != ONLINE_STATE) {
+            own(NODE_ARRAYS);
+            ensureNode(id);
+            if (s == OFFLINE_STATE) {
+                nodes[OFFLINE_STATE].remove(id, nodePos);
+            }
+            nodeRefs[id] = n;
+            nodeState[id] = ONLINE_STATE;
+            nodes[ONLINE_STATE].add(id, nodePos);
+            modCount++;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addOfflineNode(Node n) {
+        int id = n.id();
+        int s = nodeState(id);
+        if (s == ONLINE_STATE && (nbHosted[RUNNING_STATE][id] > 0 || nbHosted[SLEEPING_STATE][id] > 0)) {
+            return false;
+        }
+        if (s != OFFLINE_STATE) {
+            own(NODE_ARRAYS);
+            ensureNode(id);
+            if (s == ONLINE_STATE) {
+                nodes[ONLINE_STATE].remove(id, nodePos);
+            }
+            nodeRefs[id] = n;
+            nodeState[id] = OFFLINE_STATE;
+            nodes[OFFLINE_STATE].add(id, nodePos);
+            modCount++;
+        }
+        return true;
+    }
+
+    @Override
+    public Set<Node> getOnlineNodes() {
+        return onlineNodes;
+    }
+
+    @Override
+    public Set<Node> getOfflineNodes() {
+        return offlineNodes;
+    }
+
+    @Override
+    public Set<VM> getRunningVMs() {
+        return runningVMs;
+    }
+
+    @Override
+    public boolean isRunning(VM v) {
+        return vmState(v.id()) == RUNNING_STATE;
+    }
+
+    @Override
+    public boolean isSleeping(VM v) {
+        return vmState(v.id()) == SLEEPING_STATE;
+    }
+
+    @Override
+    public boolean isReady(VM v) {
+        return vmState(v.id()) == READY_STATE;
+    }
+
+    @Override
+    public boolean isOnline(Node n) {
+        return nodeState(n.id()) == ONLINE_STATE;
+    }
+
+    @Override
+    public boolean isOffline(Node n) {
+        return nodeState(n.id()) == OFFLINE_STATE;
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs() {
+        return sleepingVMs;
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs(Node n) {
+        return new HostedView(n.id(), SLEEPING_STATE);
+    }
+
+    @Override
+    public Set<VM> getRunningVMs(Node n) {
+        return new HostedView(n.id(), RUNNING_STATE);
+    }
+
+    @Override
+    public Set<VM> getReadyVMs() {
+        return readyVMs;
+    }
+
+    @Override
+    public Set<VM> getAllVMs() {
+        return allVMs;
+    }
+
+    @Override
+    public Set<Node> getAllNodes() {
+        return allNodes;
+    }
+
+    @Override
+    public Node getVMLocation(VM vm) {
+        int id = vm.id();
+        int s = vmState(id);
+        if (s == RUNNING_STATE || s == SLEEPING_STATE) {
+            return nodeRefs[vmHost[id]];
+        }
+        return null;
+    }
+
+    @Override
+    public Set<VM> getRunningVMs(Collection<Node> ns) {
+        return hosted(ns, RUNNING_STATE);
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs(Collection<Node> ns) {
+        return hosted(ns, SLEEPING_STATE);
+    }
+
+    private Set<VM> hosted(Collection<Node> ns, int s) {
+        Set<VM> res = new HashSet<>();
+        for (Node n : ns) {
+            int nId = n.id();
+            if (nodeState(nId) == ONLINE_STATE) {
+                for (int v = firstVM[s][nId]; v != NONE; v = nextVM[v]) {
+                    res.add(vmRefs[v]);
+                }
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public Mapping copy() {
+        ArrayMapping m = new ArrayMapping();
+        m.copyFrom(this);
+        return m;
+    }
+
+    /**
+     * Replace the content of this mapping by the one of another mapping.
+     * The arrays are shared until one of the mappings modifies them.
+     *
+     * @param o the mapping to copy
+     */
+    void copyFrom(ArrayMapping o) {
+        vmRefs = o.vmRefs;
+        vmState = o.vmState;
+        vmHost = o.vmHost;
+        vmPos = o.vmPos;
+        nextVM = o.nextVM;
+        prevVM = o.prevVM;
+        vms = o.vms;
+        nodeRefs = o.nodeRefs;
+        nodeState = o.nodeState;
+        nodePos = o.nodePos;
+        firstVM = o.firstVM;
+        nbHosted = o.nbHosted;
+        nodes = o.nodes;
+        owned = 0;
+        o.owned = 0;
+        modCount++;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ArrayMapping) {
+            ArrayMapping m = (ArrayMapping) o;
+            if (vmState == m.vmState && vmHost == m.vmHost && nodeState == m.nodeState) {
+                //Unmodified copies
+                return true;
+            }
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    @Override
+    public boolean contains(VM vm) {
+        return vmState(vm.id()) != NONE;
+    }
+
+    @Override
+    public boolean contains(Node n) {
+        return nodeState(n.id()) != NONE;
+    }
+
+    @Override
+    public void clear() {
+        own(ALL_ARRAYS);
+        clearAllVMs();
+        for (Members m : nodes) {
+            for (int i = 0; i < m.size; i++) {
+                nodeRefs[m.ids[i]] = null;
+                nodeState[m.ids[i]] = NONE;
+            }
+            m.size = 0;
+        }
+    }
+
+    @Override
+    public void clearNode(Node u) {
+        int nId = u.id();
+        if (nodeState(nId) != ONLINE_STATE) {
+            return;
+        }
+        own(VM_ARRAYS | HOST_ARRAYS);
+        for (int s = RUNNING_STATE; s <= SLEEPING_STATE; s++) {
+            while (firstVM[s][nId] != NONE) {
+                int id = firstVM[s][nId];
+                detach(id);
+                vmRefs[id] = null;
+            }
+        }
+        modCount++;
+    }
+
+    @Override
+    public void clearAllVMs() {
+        own(VM_ARRAYS | HOST_ARRAYS);
+        for (Members m : vms) {
+            for (int i = 0; i < m.size; i++) {
+                int id = m.ids[i];
+                vmRefs[id] = null;
+                vmState[id] = NONE;
+                vmHost[id] = NONE;
+                nextVM[id] = NONE;
+                prevVM[id] = NONE;
+            }
+            m.size = 0;
+        }
+        for (int s = RUNNING_STATE; s <= SLEEPING_STATE; s++) {
+            Arrays.fill(firstVM[s], NONE);
+            Arrays.fill(nbHosted[s], 0);
+        }
+        modCount++;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+
+        for (Node n : getOnlineNodes()) {
+            buf.append(n);
+            buf.append(':');
+            if (this.getRunningVMs(n).isEmpty() && this.getSleepingVMs(n).isEmpty()) {
+                buf.append(" - ");
+            }
+            for (VM vm : this.getRunningVMs(n)) {
+                buf.append(' ').append(vm);
+            }
+            for (VM vm : this.getSleepingVMs(n)) {
+                buf.append(" (").append(vm).append(')');
+            }
+            buf.append('\n');
+        }
+
+        for (Node n : getOfflineNodes()) {
+            buf.append('(').append(n).append(")\n");
+        }
+
+        buf.append("READY");
+
+        for (VM vm : this.getReadyVMs()) {
+            buf.append(' ').append(vm);
+        }
+
+        return buf.append('\n').toString();
+    }
+
+    @Override
+    public int getNbNodes() {
+        return nodes[ONLINE_STATE].size + nodes[OFFLINE_STATE].size;
+    }
+
+    @Override
+    public int getNbVMs() {
+        return vms[RUNNING_STATE].size + vms[SLEEPING_STATE].size + vms[READY_STATE].size;
+    }
+
+    /**
+     * The identifiers of the elements in a given state.
+     * An element is removed by moving the last one at its position.
+     */
+    private static final class Members {
+
+        private int[] ids = new int[INITIAL_CAPACITY];
+
+        private int size;
+
+        void add(int id, int[] pos) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            pos[id] = size;
+            ids[size++] = id;
+        }
+
+        void remove(int id, int[] pos) {
+            int p = pos[id];
+            int last = ids[--size];
+            ids[p] = last;
+            pos[last] = p;
+        }
+
+        Members copy() {
+            Members m = new Members();
+            m.ids = Arrays.copyOf(ids, Math.max(size, INITIAL_CAPACITY));
+            m.size = size;
+            return m;
+        }
+    }
+
+    /**
+     * A live view on the elements in some states.
+     *
+     * @param <E> the element type
+     */
+    private final class StateView<E extends Element> extends AbstractSet<E> {
+
+        private final Class<E> type;
+
+        private final int[] states;
+
+        StateView(Class<E> type, int... states) {
+            this.type = type;
+            this.states = states;
+        }
+
+        @SuppressWarnings("unchecked")
+        private E get(int id) {
+            return (E) (type == VM.class ? vmRefs[id] : nodeRefs[id]);
+        }
+
+        private Members[] members() {
+            return type == VM.class ? vms : nodes;
+        }
+
+        @Override
+        public int size() {
+            int nb = 0;
+            Members[] ms = members();
+            for (int s : states) {
+                nb += ms[s].size;
+            }
+            return nb;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!type.isInstance(o)) {
+                return false;
+            }
+            int id = ((Element) o).id();
+            int st = type == VM.class ? vmState(id) : nodeState(id);
+            for (int s : states) {
+                if (s == st) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+
+                private final int expected = modCount;
+
+                private int state = 0;
+
+                private int idx = 0;
+
+                @Override
+                public boolean hasNext() {
+                    Members[] ms = members();
+                    while (state < states.length && idx >= ms[states[state]].size) {
+                        state++;
+                        idx = 0;
+                    }
+                    return state < states.length;
+                }
+
+                @Override
+                public E next() {
+                    if (expected != modCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return get(members()[states[state]].ids[idx++]);
+                }
+            };
+        }
+    }
+
+    /**
+     * A live view on the VMs hosted by a node with a given state.
+     */
+    private final class HostedView extends AbstractSet<VM> {
+
+        private final int node;
+
+        private final int state;
+
+        HostedView(int node, int state) {
+            this.node = node;
+            this.state = state;
+        }
+
+        @Override
+        public int size() {
+            return nodeState(node) == ONLINE_STATE ? nbHosted[state][node] : 0;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof VM)) {
+                return false;
+            }
+            int id = ((VM) o).id();
+            return vmState(id) == state && vmHost[id] == node;
+        }
+
+        @Override
+        public Iterator<VM> iterator() {
+            return new Iterator<VM>() {
+
+                private final int expected = modCount;
+
+                private int cur = nodeState(node) == ONLINE_STATE ? firstVM[state][node] : NONE;
+
+                @Override
+                public boolean hasNext() {
+                    return cur != NONE;
+                }
+
+                @Override
+                public VM next() {
+                    if (expected != modCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (cur == NONE) {
+                        throw new NoSuchElementException();
+                    }
+                    int id = cur;
+                    cur = nextVM[id];
+                    return vmRefs[id];
+                }
+            };
+        }
+    }
+}
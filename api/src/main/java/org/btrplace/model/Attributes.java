@@ -20,6 +20,7 @@ package org.btrplace.model;
 
 import org.btrplace.Copyable;
 
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -118,6 +119,40 @@ public interface Attributes extends Copyable<Attributes> {
      */
     int get(Element e, String k, int def);
 
+    /**
+     * Get an attribute value as an integer for many elements.
+     *
+     * @param elems the elements
+     * @param k     the attribute identifier
+     * @param def   the value to use for the elements that do not have the attribute
+     * @return the values, in the order of {@code elems}
+     */
+    default int[] get(List<? extends Element> elems, String k, int def) {
+        int[] out = new int[elems.size()];
+        int i = 0;
+        for (Element e : elems) {
+            out[i++] = get(e, k, def);
+        }
+        return out;
+    }
+
+    /**
+     * Get an attribute value as a double for many elements.
+     *
+     * @param elems the elements
+     * @param k     the attribute identifier
+     * @param def   the value to use for the elements that do not have the attribute
+     * @return the values, in the order of {@code elems}
+     */
+    default double[] get(List<? extends Element> elems, String k, double def) {
+        double[] out = new double[elems.size()];
+        int i = 0;
+        for (Element e : elems) {
+            out[i++] = get(e, k, def);
+        }
+        return out;
+    }
+
     /**
      * Check if an attribute is set for a given element.
      *
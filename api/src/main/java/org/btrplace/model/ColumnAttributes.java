@@ -0,0 +1,607 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * An {@link Attributes} that stores the values of each key in a column of primitive arrays
+ * indexed by the element identifiers.
+ * <p>
+ * Each column has one array per type of value (integer, double, boolean, and string) and one bitset per type
+ * to indicate the elements having a value of that type. The VMs and the nodes have their own columns.
+ * The memory usage is then proportional to the biggest identifier. Negative identifiers are not supported.
+ * <p>
+ * The getters behave like the ones of {@link DefaultAttributes}. The bulk getters read a column directly.
+ * {@link #copy()} has a O(k) complexity, with k the number of keys: the columns are shared with the copy
+ * and copied in bulk by the first instance that modifies them.
+ *
+ * @author Fabien Hermenier
+ */
+public class ColumnAttributes implements Attributes {
+
+    private Table vms;
+
+    private Table nodes;
+
+    /**
+     * Make a new empty list of attributes.
+     */
+    public ColumnAttributes() {
+        vms = new Table();
+        nodes = new Table();
+    }
+
+    private Table table(Element e) {
+        if (e instanceof VM) {
+            return vms;
+        } else if (e instanceof Node) {
+            return nodes;
+        }
+        return null;
+    }
+
+    /**
+     * Get the column associated to a key for a modification.
+     *
+     * @param e    the element
+     * @param k    the key
+     * @param make {@code true} to create the column if it does not exist
+     * @return the column. {@code null} if the element is not supported or if the column does not exist
+     * and {@code make} is {@code false}
+     */
+    private Column writable(Element e, String k, boolean make) {
+        Table t = table(e);
+        if (t == null) {
+            return null;
+        }
+        if (e.id() < 0) {
+            throw new IllegalArgumentException("Unsupported negative identifier for '" + e + "'");
+        }
+        return t.writable(k, make);
+    }
+
+    private Column readable(Element e, String k) {
+        Table t = table(e);
+        return t == null ? null : t.columns.get(k);
+    }
+
+    /**
+     * Account a new value for an element.
+     *
+     * @param e   the element
+     * @param had {@code true} iff the element had a value for the key
+     * @return {@code had}
+     */
+    private boolean added(Element e, boolean had) {
+        if (!had) {
+            table(e).count(e.id(), 1);
+        }
+        return had;
+    }
+
+    @Override
+    public boolean put(Element e, String k, boolean b) {
+        Column c = writable(e, k, true);
+        return c != null && added(e, c.put(e.id(), b));
+    }
+
+    @Override
+    public boolean put(Element e, String k, String s) {
+        Column c = writable(e, k, true);
+        return c != null && added(e, c.put(e.id(), s));
+    }
+
+    @Override
+    public boolean put(Element e, String k, double d) {
+        Column c = writable(e, k, true);
+        return c != null && added(e, c.put(e.id(), d));
+    }
+
+    @Override
+    public boolean put(Element e, String k, int d) {
+        Column c = writable(e, k, true);
+        return c != null && added(e, c.put(e.id(), d));
+    }
+
+    @Override
+    public Object get(Element e, String k) {
+        Column c = readable(e, k);
+        return c == null ? null : c.get(e.id());
+    }
+
+    @Override
+    public boolean get(Element e, String k, boolean def) {
+        Column c = readable(e, k);
+        if (c == null || !c.isSet(e.id())) {
+            return def;
+        }
+        if (c.booleans.get(e.id())) {
+            return c.boolValues.get(e.id());
+        }
+        return (Boolean) c.get(e.id());
+    }
+
+    @Override
+    public String get(Element e, String k, String def) {
+        Column c = readable(e, k);
+        if (c == null || !c.isSet(e.id())) {
+            return def;
+        }
+        return (String) c.get(e.id());
+    }
+
+    @Override
+    public double get(Element e, String k, double def) {
+        Column c = readable(e, k);
+        return c == null ? def : c.getDouble(e.id(), def);
+    }
+
+    @Override
+    public int get(Element e, String k, int def) {
+        Column c = readable(e, k);
+        return c == null ? def : c.getInt(e.id(), def);
+    }
+
+    @Override
+    public int[] get(List<? extends Element> elems, String k, int def) {
+        int[] out = new int[elems.size()];
+        Column vc = vms.columns.get(k);
+        Column nc = nodes.columns.get(k);
+        int i = 0;
+        for (Element e : elems) {
+            Column c = e instanceof VM ? vc : e instanceof Node ? nc : null;
+            out[i++] = c == null ? def : c.getInt(e.id(), def);
+        }
+        return out;
+    }
+
+    @Override
+    public double[] get(List<? extends Element> elems, String k, double def) {
+        double[] out = new double[elems.size()];
+        Column vc = vms.columns.get(k);
+        Column nc = nodes.columns.get(k);
+        int i = 0;
+        for (Element e : elems) {
+            Column c = e instanceof VM ? vc : e instanceof Node ? nc : null;
+            out[i++] = c == null ? def : c.getDouble(e.id(), def);
+        }
+        return out;
+    }
+
+    @Override
+    public boolean isSet(Element e, String k) {
+        Column c = readable(e, k);
+        return c != null && c.isSet(e.id());
+    }
+
+    @Override
+    public boolean unset(Element e, String k) {
+        if (!isSet(e, k)) {
+            return false;
+        }
+        Table t = table(e);
+        t.writable(k, false).unset(e.id());
+        t.count(e.id(), -1);
+        t.dropIfEmpty(k);
+        return true;
+    }
+
+    @Override
+    public Set<Element> getDefined() {
+        Set<Element> s = new HashSet<>();
+        vms.defined(s, VM::new);
+        nodes.defined(s, Node::new);
+        return s;
+    }
+
+    @Override
+    public Set<String> getKeys(Element e) {
+        Table t = table(e);
+        if (t == null || !t.isDefined(e.id())) {
+            return Collections.emptySet();
+        }
+        Set<String> s = new HashSet<>();
+        for (Map.Entry<String, Column> c : t.columns.entrySet()) {
+            if (c.getValue().isSet(e.id())) {
+                s.add(c.getKey());
+            }
+        }
+        return s;
+    }
+
+    @Override
+    public boolean castAndPut(Element e, String k, String v) {
+        String x = v.toLowerCase().trim();
+        if ("true".equals(x)) {
+            return put(e, k, true);
+        } else if ("false".equals(x)) {
+            return put(e, k, false);
+        }
+        try {
+            return put(e, k, Integer.parseInt(x));
+        } catch (NumberFormatException ignored) {
+            //Not an int
+        }
+
+        try {
+            return put(e, k, Double.parseDouble(x));
+        } catch (NumberFormatException ignored) {
+            //not a double either
+        }
+
+        return put(e, k, v);
+    }
+
+    @Override
+    public void clear() {
+        vms = new Table();
+        nodes = new Table();
+    }
+
+    @Override
+    public void clear(Element e) {
+        Table t = table(e);
+        if (t == null || !t.isDefined(e.id())) {
+            return;
+        }
+        for (String k : new ArrayList<>(t.columns.keySet())) {
+            if (t.columns.get(k).isSet(e.id())) {
+                t.writable(k, false).unset(e.id());
+                t.dropIfEmpty(k);
+            }
+        }
+        t.count(e.id(), -t.counts[e.id()]);
+    }
+
+    @Override
+    public Attributes copy() {
+        ColumnAttributes cpy = new ColumnAttributes();
+        cpy.vms = vms.share();
+        cpy.nodes = nodes.share();
+        return cpy;
+    }
+
+    @Override
+    public int hashCode() {
+        //Consistent with DefaultAttributes
+        return Objects.hash(vms.hash(VM::new), nodes.hash(Node::new));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof Attributes)) {
+            return false;
+        }
+        return DefaultAttributes.sameAttributes(this, (Attributes) o);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        vms.print(b, VM::new);
+        nodes.print(b, Node::new);
+        return b.toString();
+    }
+
+    /**
+     * The columns for one kind of element.
+     */
+    private static final class Table {
+
+        private Map<String, Column> columns;
+
+        /**
+         * The number of keys having a value, by element identifier.
+         */
+        private int[] counts;
+
+        private boolean shared;
+
+        Table() {
+            columns = new HashMap<>();
+            counts = new int[0];
+        }
+
+        private Table(Table t) {
+            columns = new HashMap<>(t.columns);
+            counts = t.counts;
+            shared = true;
+        }
+
+        /**
+         * Share the table with a copy of the attributes.
+         *
+         * @return a copy of the table that shares the columns and the counters
+         */
+        Table share() {
+            shared = true;
+            for (Column c : columns.values()) {
+                c.share();
+            }
+            return new Table(this);
+        }
+
+        Column writable(String k, boolean make) {
+            Column c = columns.get(k);
+            if (c == null) {
+                if (make) {
+                    c = new Column();
+                    columns.put(k, c);
+                }
+                return c;
+            }
+            Column w = c.writable();
+            if (w != c) {
+                columns.put(k, w);
+            }
+            return w;
+        }
+
+        void dropIfEmpty(String k) {
+            if (columns.get(k).isEmpty()) {
+                columns.remove(k);
+            }
+        }
+
+        void count(int id, int delta) {
+            if (shared) {
+                counts = counts.clone();
+                shared = false;
+            }
+            if (id >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(id + 1, counts.length + (counts.length >> 1)));
+            }
+            counts[id] += delta;
+        }
+
+        boolean isDefined(int id) {
+            return id >= 0 && id < counts.length && counts[id] > 0;
+        }
+
+        <E extends Element> void defined(Set<Element> s, IntFunction<E> f) {
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] > 0) {
+                    s.add(f.apply(id));
+                }
+            }
+        }
+
+        /**
+         * Same value than the hashcode of the {@code Map<E, Map<String, Object>>} used by {@link DefaultAttributes}.
+         */
+        <E extends Element> int hash(IntFunction<E> f) {
+            int h = 0;
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] > 0) {
+                    int vh = 0;
+                    for (Map.Entry<String, Column> c : columns.entrySet()) {
+                        if (c.getValue().isSet(id)) {
+                            vh += c.getKey().hashCode() ^ c.getValue().get(id).hashCode();
+                        }
+                    }
+                    h += f.apply(id).hashCode() ^ vh;
+                }
+            }
+            return h;
+        }
+
+        <E extends Element> void print(StringBuilder b, IntFunction<E> f) {
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] > 0) {
+                    b.append(f.apply(id)).append(':');
+                    for (Map.Entry<String, Column> c : columns.entrySet()) {
+                        if (c.getValue().isSet(id)) {
+                            Object val = c.getValue().get(id);
+                            b.append(" <").append(c.getKey()).append(',');
+                            if (val instanceof String) {
+                                b.append('"').append(val).append('"');
+                            } else {
+                                b.append(val);
+                            }
+                            b.append('>');
+                        }
+                    }
+                    b.append('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * The values of a key.
+     * A value has a single type so an element is declared inside at most one of the type bitsets.
+     */
+    private static final class Column {
+
+        private final BitSet ints;
+
+        private final BitSet doubles;
+
+        private final BitSet booleans;
+
+        private final BitSet strings;
+
+        private int[] intValues;
+
+        private double[] doubleValues;
+
+        private final BitSet boolValues;
+
+        private String[] stringValues;
+
+        private boolean shared;
+
+        Column() {
+            ints = new BitSet();
+            doubles = new BitSet();
+            booleans = new BitSet();
+            strings = new BitSet();
+            intValues = new int[0];
+            doubleValues = new double[0];
+            boolValues = new BitSet();
+            stringValues = new String[0];
+        }
+
+        private Column(Column c) {
+            ints = (BitSet) c.ints.clone();
+            doubles = (BitSet) c.doubles.clone();
+            booleans = (BitSet) c.booleans.clone();
+            strings = (BitSet) c.strings.clone();
+            intValues = c.intValues.clone();
+            doubleValues = c.doubleValues.clone();
+            boolValues = (BitSet) c.boolValues.clone();
+            stringValues = c.stringValues.clone();
+        }
+
+        boolean isSet(int id) {
+            return id >= 0 && (ints.get(id) || doubles.get(id) || booleans.get(id) || strings.get(id));
+        }
+
+        boolean isEmpty() {
+            return ints.isEmpty() && doubles.isEmpty() && booleans.isEmpty() && strings.isEmpty();
+        }
+
+        Object get(int id) {
+            if (id < 0) {
+                return null;
+            } else if (ints.get(id)) {
+                return intValues[id];
+            } else if (doubles.get(id)) {
+                return doubleValues[id];
+            } else if (booleans.get(id)) {
+                return boolValues.get(id);
+            } else if (strings.get(id)) {
+                return stringValues[id];
+            }
+            return null;
+        }
+
+        int getInt(int id, int def) {
+            if (id >= 0 && ints.get(id)) {
+                return intValues[id];
+            } else if (!isSet(id)) {
+                return def;
+            }
+            //Same failure than a cast
+            return (Integer) get(id);
+        }
+
+        double getDouble(int id, double def) {
+            if (id < 0) {
+                return def;
+            } else if (doubles.get(id)) {
+                return doubleValues[id];
+            } else if (ints.get(id)) {
+                return intValues[id];
+            } else if (!isSet(id)) {
+                return def;
+            }
+            return (Double) get(id);
+        }
+
+        /**
+         * Remove the value of an element.
+         *
+         * @param id the element identifier
+         * @return {@code true} iff there was a value
+         */
+        boolean unset(int id) {
+            boolean had = isSet(id);
+            ints.clear(id);
+            doubles.clear(id);
+            booleans.clear(id);
+            if (strings.get(id)) {
+                strings.clear(id);
+                stringValues[id] = null;
+            }
+            return had;
+        }
+
+        boolean put(int id, int v) {
+            boolean had = unset(id);
+            if (id >= intValues.length) {
+                intValues = Arrays.copyOf(intValues, grow(intValues.length, id));
+            }
+            intValues[id] = v;
+            ints.set(id);
+            return had;
+        }
+
+        boolean put(int id, double v) {
+            boolean had = unset(id);
+            if (id >= doubleValues.length) {
+                doubleValues = Arrays.copyOf(doubleValues, grow(doubleValues.length, id));
+            }
+            doubleValues[id] = v;
+            doubles.set(id);
+            return had;
+        }
+
+        boolean put(int id, boolean v) {
+            boolean had = unset(id);
+            boolValues.set(id, v);
+            booleans.set(id);
+            return had;
+        }
+
+        boolean put(int id, String v) {
+            boolean had = unset(id);
+            if (id >= stringValues.length) {
+                stringValues = Arrays.copyOf(stringValues, grow(stringValues.length, id));
+            }
+            stringValues[id] = v;
+            strings.set(id);
+            return had;
+        }
+
+        private static int grow(int length, int id) {
+            return Math.max(id + 1, length + (length >> 1));
+        }
+
+        /**
+         * Share the column with a copy of the attributes.
+         */
+        void share() {
+            shared = true;
+        }
+
+        /**
+         * Get a column that can be modified.
+         *
+         * @return this column if it is not shared, a copy otherwise
+         */
+        Column writable() {
+            return shared ? new Column(this) : this;
+        }
+    }
+}
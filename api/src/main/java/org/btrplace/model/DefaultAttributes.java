@@ -22,6 +22,9 @@ import java.util.*;
 
 /**
  * Default implementation for {@link Attributes}.
+ * <p>
+ * {@link #copy()} has a O(1) complexity: the attributes are shared with the copy.
+ * The attributes of an element are copied by the first instance that modifies them.
  *
  * @author Fabien Hermenier
  */
@@ -30,32 +33,74 @@ public class DefaultAttributes implements Attributes {
     private Map<VM, Map<String, Object>> vmAttrs;
     private Map<Node, Map<String, Object>> nodeAttrs;
 
+    /**
+     * {@code true} when {@link #vmAttrs} and {@link #nodeAttrs} can be modified in place.
+     */
+    private boolean ownedMaps;
+
+    /**
+     * The elements having attributes that can be modified in place.
+     * {@code null} when all of them can be modified in place.
+     */
+    private Set<Element> ownedElements;
+
     /**
      * Make a new empty list of attributes.
      */
     public DefaultAttributes() {
         vmAttrs = new HashMap<>();
         nodeAttrs = new HashMap<>();
+        ownedMaps = true;
     }
 
-    private boolean putObject(Element e, String k, Object v) {
-        Map<String, Object> m;
+    private void ownMaps() {
+        if (!ownedMaps) {
+            vmAttrs = new HashMap<>(vmAttrs);
+            nodeAttrs = new HashMap<>(nodeAttrs);
+            ownedMaps = true;
+        }
+    }
+
+    /**
+     * Get the attributes of an element for a modification.
+     *
+     * @param e    the element
+     * @param make {@code true} to create the attributes if they do not exist
+     * @return the attributes. {@code null} if they do not exist and {@code make} is {@code false}
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> writable(Element e, boolean make) {
+        Map<Element, Map<String, Object>> attrs;
         if (e instanceof VM) {
-            m = vmAttrs.get(e);
-            if (m == null) {
-                m = new HashMap<>();
-                vmAttrs.put((VM) e, m);
-            }
+            attrs = (Map) vmAttrs;
         } else if (e instanceof Node) {
-            m = nodeAttrs.get(e);
-            if (m == null) {
-                m = new HashMap<>();
-                nodeAttrs.put((Node) e, m);
-            }
+            attrs = (Map) nodeAttrs;
         } else {
-            return false;
+            return null;
+        }
+        Map<String, Object> m = attrs.get(e);
+        if (m == null && !make) {
+            return null;
+        }
+        if (m != null && (ownedElements == null || ownedElements.contains(e))) {
+            return m;
+        }
+        m = m == null ? new HashMap<>() : new HashMap<>(m);
+        ownMaps();
+        if (e instanceof VM) {
+            vmAttrs.put((VM) e, m);
+        } else {
+            nodeAttrs.put((Node) e, m);
         }
-        return m.put(k, v) != null;
+        if (ownedElements != null) {
+            ownedElements.add(e);
+        }
+        return m;
+    }
+
+    private boolean putObject(Element e, String k, Object v) {
+        Map<String, Object> m = writable(e, true);
+        return m != null && m.put(k, v) != null;
     }
 
     @Override
@@ -73,43 +118,32 @@ public class DefaultAttributes implements Attributes {
 
     @Override
     public int get(Element e, String k, int def) {
-        if (isSet(e, k)) {
-            return (int) get(e, k);
-        }
-        return def;
+        Object o = get(e, k);
+        return o == null ? def : (int) o;
     }
 
     @Override
     public double get(Element e, String k, double def) {
-        if (isSet(e, k)) {
-            try {
-                return (int) get(e, k);
-            } catch (ClassCastException ex) {
-                //Not an integer
-            }
-            //Try the double
-            return (double) get(e, k);
+        Object o = get(e, k);
+        if (o == null) {
+            return def;
         }
-        return def;
-
+        if (o instanceof Integer) {
+            return (int) o;
+        }
+        return (double) o;
     }
 
     @Override
     public String get(Element e, String k, String def) {
-        if (isSet(e, k)) {
-            return (String) get(e, k);
-        }
-        return def;
-
+        Object o = get(e, k);
+        return o == null ? def : (String) o;
     }
 
     @Override
     public boolean get(Element e, String k, boolean def) {
-        if (isSet(e, k)) {
-            return (Boolean) get(e, k);
-        }
-        return def;
-
+        Object o = get(e, k);
+        return o == null ? def : (Boolean) o;
     }
 
     @Override
@@ -127,28 +161,26 @@ public class DefaultAttributes implements Attributes {
 
     @Override
     public boolean unset(Element e, String k) {
-        Map<String, Object> m;
-        if (e instanceof Node) {
-            m = nodeAttrs.get(e);
-        } else if (e instanceof VM) {
-            m = vmAttrs.get(e);
-        } else {
+        if (!isSet(e, k)) {
             return false;
         }
-        return m != null && m.remove(k) != null;
+        Map<String, Object> m = writable(e, false);
+        m.remove(k);
+        if (m.isEmpty()) {
+            clear(e);
+        }
+        return true;
     }
 
     @Override
     public Attributes copy() {
         DefaultAttributes cpy = new DefaultAttributes();
-        for (Map.Entry<VM, Map<String, Object>> e : vmAttrs.entrySet()) {
-            cpy.vmAttrs.put(e.getKey(), new HashMap<>(e.getValue()));
-        }
-
-        for (Map.Entry<Node, Map<String, Object>> e : nodeAttrs.entrySet()) {
-            cpy.nodeAttrs.put(e.getKey(), new HashMap<>(e.getValue()));
-        }
-
+        cpy.vmAttrs = vmAttrs;
+        cpy.nodeAttrs = nodeAttrs;
+        cpy.ownedMaps = false;
+        cpy.ownedElements = new HashSet<>();
+        ownedMaps = false;
+        ownedElements = new HashSet<>();
         return cpy;
     }
 
@@ -192,17 +224,40 @@ public class DefaultAttributes implements Attributes {
 
     @Override
     public boolean equals(Object o) {
-        if (o == null) {
-            return false;
-        }
         if (o == this) {
             return true;
         }
-        if (!o.getClass().equals(getClass())) {
+        if (o instanceof DefaultAttributes) {
+            DefaultAttributes that = (DefaultAttributes) o;
+            return vmAttrs.equals(that.vmAttrs) && nodeAttrs.equals(that.nodeAttrs);
+        }
+        return o instanceof Attributes && sameAttributes(this, (Attributes) o);
+    }
+
+    /**
+     * Check if two attributes have the same content, whatever their implementation.
+     *
+     * @param a the first attributes
+     * @param b the second attributes
+     * @return {@code true} iff the same elements have the same values for the same keys
+     */
+    static boolean sameAttributes(Attributes a, Attributes b) {
+        Set<Element> defined = a.getDefined();
+        if (!defined.equals(b.getDefined())) {
             return false;
         }
-        DefaultAttributes that = (DefaultAttributes) o;
-        return vmAttrs.equals(that.vmAttrs) && nodeAttrs.equals(that.nodeAttrs);
+        for (Element e : defined) {
+            Set<String> keys = a.getKeys(e);
+            if (!keys.equals(b.getKeys(e))) {
+                return false;
+            }
+            for (String k : keys) {
+                if (!a.get(e, k).equals(b.get(e, k))) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
     @Override
@@ -215,8 +270,10 @@ public class DefaultAttributes implements Attributes {
 
     @Override
     public void clear() {
-        this.vmAttrs.clear();
-        this.nodeAttrs.clear();
+        vmAttrs = new HashMap<>();
+        nodeAttrs = new HashMap<>();
+        ownedMaps = true;
+        ownedElements = null;
     }
 
     @Override
@@ -277,9 +334,11 @@ public class DefaultAttributes implements Attributes {
 
     @Override
     public void clear(Element e) {
-        if (e instanceof VM) {
+        if (e instanceof VM && vmAttrs.containsKey(e)) {
+            ownMaps();
             this.vmAttrs.remove(e);
-        } else if (e instanceof Node) {
+        } else if (e instanceof Node && nodeAttrs.containsKey(e)) {
+            ownMaps();
             this.nodeAttrs.remove(e);
         }
     }
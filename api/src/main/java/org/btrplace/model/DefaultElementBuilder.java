@@ -23,6 +23,8 @@ import java.util.BitSet;
 /**
  * Default implementation of {@link ElementBuilder}.
  * For a thread-safe implementation, see {@link SynchronizedElementBuilder}
+ * <p>
+ * A copy shares the used identifiers until one of the builders makes a new element.
  *
  * @author Fabien Hermenier
  */
@@ -36,6 +38,11 @@ public class DefaultElementBuilder implements ElementBuilder {
 
     private int nextVMId;
 
+    /**
+     * {@code true} if the identifiers are shared with a copy.
+     */
+    private boolean shared;
+
     /**
      * New builder.
      */
@@ -44,8 +51,17 @@ public class DefaultElementBuilder implements ElementBuilder {
         usedVMIds = new BitSet();
     }
 
+    private void own() {
+        if (shared) {
+            usedVMIds = (BitSet) usedVMIds.clone();
+            usedNodeIds = (BitSet) usedNodeIds.clone();
+            shared = false;
+        }
+    }
+
     @Override
     public VM newVM() {
+        own();
         int id = nextVMId++;
         if (id < 0) {
             //We look for holes in the bitset
@@ -57,6 +73,7 @@ public class DefaultElementBuilder implements ElementBuilder {
 
     @Override
     public Node newNode() {
+        own();
         int id = nextNodeId++;
         if (id < 0) {
             //We look for holes in the bitset
@@ -69,6 +86,7 @@ public class DefaultElementBuilder implements ElementBuilder {
     @Override
     public VM newVM(int id) {
         if (!usedVMIds.get(id)) {
+            own();
             usedVMIds.set(id);
             nextVMId = Math.max(nextVMId, id + 1);
             return new VM(id);
@@ -79,6 +97,7 @@ public class DefaultElementBuilder implements ElementBuilder {
     @Override
     public Node newNode(int id) {
         if (!usedNodeIds.get(id)) {
+            own();
             usedNodeIds.set(id);
             nextVMId = Math.max(nextVMId, id + 1);
             return new Node(id);
@@ -91,8 +110,10 @@ public class DefaultElementBuilder implements ElementBuilder {
         DefaultElementBuilder c = new DefaultElementBuilder();
         c.nextVMId = nextVMId;
         c.nextNodeId = nextNodeId;
-        c.usedVMIds = (BitSet) usedVMIds.clone();
-        c.usedNodeIds = (BitSet) usedNodeIds.clone();
+        c.usedVMIds = usedVMIds;
+        c.usedNodeIds = usedNodeIds;
+        c.shared = true;
+        shared = true;
         return c;
     }
 
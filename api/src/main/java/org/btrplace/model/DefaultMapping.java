@@ -20,6 +20,7 @@ package org.btrplace.model;
 
 import gnu.trove.map.hash.TIntIntHashMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
 import gnu.trove.set.hash.THashSet;
 
 import java.util.Collection;
@@ -34,6 +35,12 @@ import java.util.Set;
  * {@link #getRunningVMs(Collection)}, {@link #getSleepingVMs(java.util.Collection)} have a O(n) complexity.
  * <p>
  * Methods {@code is*()} have a O(1) complexity.
+ * <p>
+ * {@link #copy()} has a O(1) complexity: the copy shares the internal structures of the mapping.
+ * A structure is copied by the first mapping that modifies it. The sets of VMs hosted by the nodes
+ * are copied one by one so only the modified nodes are materialised.
+ * The sets returned by a mapping are unmodifiable as they may be shared with its copies. They are
+ * not guaranteed to reflect the modifications of the mapping once it has been copied.
  *
  * @author Fabien Hermenier
  */
@@ -49,6 +56,22 @@ public class DefaultMapping extends AbstractMapping {
 
     private static final int OFFLINE_STATE = 1;
 
+    private static final int ONLINE_NODES = 1;
+
+    private static final int OFFLINE_NODES = 2;
+
+    private static final int STATES = 4;
+
+    private static final int PLACES = 8;
+
+    private static final int READY_VMS = 16;
+
+    private static final int RUNNING_HOSTS = 32;
+
+    private static final int SLEEPING_HOSTS = 64;
+
+    private static final int ALL = 127;
+
     /**
      * The node by states (online, offline)
      */
@@ -74,6 +97,17 @@ public class DefaultMapping extends AbstractMapping {
      */
     private TIntObjectHashMap<Set<VM>>[] host;
 
+    /**
+     * The structures that can be modified in place. The other ones are shared with a copy.
+     */
+    private int owned;
+
+    /**
+     * The nodes having a set of hosted VMs that can be modified in place, by state (running or sleeping).
+     * {@code null} when all the sets can be modified in place.
+     */
+    private TIntHashSet[] ownedHosts;
+
     /**
      * Create a new mapping.
      */
@@ -93,6 +127,7 @@ public class DefaultMapping extends AbstractMapping {
         host[SLEEPING_STATE] = new TIntObjectHashMap<>();
 
         st = new TIntIntHashMap(100, 0.5f, -1, -1);
+        owned = ALL;
     }
 
     /**
@@ -105,6 +140,94 @@ public class DefaultMapping extends AbstractMapping {
         MappingUtils.fill(m, this);
     }
 
+    /**
+     * Make a mapping that shares the structures of another one.
+     *
+     * @param m the mapping to share
+     */
+    @SuppressWarnings("unchecked")
+    private DefaultMapping(DefaultMapping m) {
+        nodeState = new Set[]{m.nodeState[ONLINE_STATE], m.nodeState[OFFLINE_STATE]};
+        st = m.st;
+        place = m.place;
+        vmReady = m.vmReady;
+        host = new TIntObjectHashMap[]{m.host[RUNNING_STATE], m.host[SLEEPING_STATE]};
+        owned = 0;
+        ownedHosts = new TIntHashSet[]{new TIntHashSet(), new TIntHashSet()};
+        m.owned = 0;
+        m.ownedHosts = new TIntHashSet[]{new TIntHashSet(), new TIntHashSet()};
+    }
+
+    private Set<Node> nodes(int state) {
+        int flag = state == ONLINE_STATE ? ONLINE_NODES : OFFLINE_NODES;
+        if ((owned & flag) == 0) {
+            nodeState[state] = new THashSet<>(nodeState[state]);
+            owned |= flag;
+        }
+        return nodeState[state];
+    }
+
+    private TIntIntHashMap states() {
+        if ((owned & STATES) == 0) {
+            st = new TIntIntHashMap(st);
+            owned |= STATES;
+        }
+        return st;
+    }
+
+    private TIntObjectHashMap<Node> places() {
+        if ((owned & PLACES) == 0) {
+            place = new TIntObjectHashMap<>(place);
+            owned |= PLACES;
+        }
+        return place;
+    }
+
+    private Set<VM> ready() {
+        if ((owned & READY_VMS) == 0) {
+            vmReady = new THashSet<>(vmReady);
+            owned |= READY_VMS;
+        }
+        return vmReady;
+    }
+
+    private TIntObjectHashMap<Set<VM>> hosts(int state) {
+        int flag = state == RUNNING_STATE ? RUNNING_HOSTS : SLEEPING_HOSTS;
+        if ((owned & flag) == 0) {
+            host[state] = new TIntObjectHashMap<>(host[state]);
+            owned |= flag;
+        }
+        return host[state];
+    }
+
+    /**
+     * Get the modifiable set of VMs hosted by a node.
+     *
+     * @param state the state of the VMs
+     * @param nId   the node identifier
+     * @param make  {@code true} to create the set if it does not exist
+     * @return the set. {@code null} if it does not exist and {@code make} is {@code false}
+     */
+    private Set<VM> hosted(int state, int nId, boolean make) {
+        Set<VM> on = host[state].get(nId);
+        if (on == null) {
+            if (!make) {
+                return null;
+            }
+            on = new THashSet<>();
+            hosts(state).put(nId, on);
+        } else if (ownedHosts != null && !ownedHosts[state].contains(nId)) {
+            on = new THashSet<>(on);
+            hosts(state).put(nId, on);
+        } else {
+            return on;
+        }
+        if (ownedHosts != null) {
+            ownedHosts[state].add(nId);
+        }
+        return on;
+    }
+
     @Override
     public boolean isRunning(VM v) {
         return st.get(v.id()) == RUNNING_STATE;
@@ -139,35 +262,31 @@ public class DefaultMapping extends AbstractMapping {
 
         int vmId = vm.id();
         int nId = n.id();
-        Set<VM> on = host[RUNNING_STATE].get(nId);
-        if (on == null) {
-            on = new THashSet<>();
-            host[RUNNING_STATE].put(nId, on);
-        }
         switch (st.get(vmId)) {
             case RUNNING_STATE:
-                old = place.put(vmId, n);
+                old = place.get(vmId);
                 if (!old.equals(n)) {
-                    host[RUNNING_STATE].get(old.id()).remove(vm);
-                    on.add(vm);
+                    places().put(vmId, n);
+                    hosted(RUNNING_STATE, old.id(), false).remove(vm);
+                    hosted(RUNNING_STATE, nId, true).add(vm);
                 }
                 break;
             case SLEEPING_STATE:
-                old = place.put(vmId, n);
-                host[SLEEPING_STATE].get(old.id()).remove(vm);
-                on.add(vm);
-                st.put(vmId, RUNNING_STATE);
+                old = places().put(vmId, n);
+                hosted(SLEEPING_STATE, old.id(), false).remove(vm);
+                hosted(RUNNING_STATE, nId, true).add(vm);
+                states().put(vmId, RUNNING_STATE);
                 break;
             case READY_STATE:
-                place.put(vmId, n);
-                on.add(vm);
-                vmReady.remove(vm);
-                st.put(vmId, RUNNING_STATE);
+                places().put(vmId, n);
+                hosted(RUNNING_STATE, nId, true).add(vm);
+                ready().remove(vm);
+                states().put(vmId, RUNNING_STATE);
                 break;
             default:
-                place.put(vmId, n);
-                on.add(vm);
-                st.put(vmId, RUNNING_STATE);
+                places().put(vmId, n);
+                hosted(RUNNING_STATE, nId, true).add(vm);
+                states().put(vmId, RUNNING_STATE);
                 break;
         }
         return true;
@@ -180,78 +299,75 @@ public class DefaultMapping extends AbstractMapping {
         }
         int nId = n.id();
         int vmId = vm.id();
-        Set<VM> on = host[SLEEPING_STATE].get(nId);
-        if (on == null) {
-            on = new THashSet<>();
-            host[SLEEPING_STATE].put(nId, on);
-        }
         Node old;
         switch (st.get(vmId)) {
             case RUNNING_STATE:
                 //If was running, sync the state
-                old = place.put(vmId, n);
-                host[RUNNING_STATE].get(old.id()).remove(vm);
-                on.add(vm);
-                st.put(vmId, SLEEPING_STATE);
+                old = places().put(vmId, n);
+                hosted(RUNNING_STATE, old.id(), false).remove(vm);
+                hosted(SLEEPING_STATE, nId, true).add(vm);
+                states().put(vmId, SLEEPING_STATE);
                 break;
             case SLEEPING_STATE:
                 //If was sleeping, sync the state
-                old = place.put(vmId, n);
+                old = place.get(vmId);
                 if (!old.equals(n)) {
-                    host[SLEEPING_STATE].get(old.id()).remove(vm);
-                    on.add(vm);
+                    places().put(vmId, n);
+                    hosted(SLEEPING_STATE, old.id(), false).remove(vm);
+                    hosted(SLEEPING_STATE, nId, true).add(vm);
                 }
                 break;
             case READY_STATE:
-                place.put(vmId, n);
-                on.add(vm);
-                vmReady.remove(vm);
-                st.put(vmId, SLEEPING_STATE);
+                places().put(vmId, n);
+                hosted(SLEEPING_STATE, nId, true).add(vm);
+                ready().remove(vm);
+                states().put(vmId, SLEEPING_STATE);
                 break;
             default:
                 //it's a new VM
-                place.put(vmId, n);
-                host[SLEEPING_STATE].get(nId).add(vm);
-                st.put(vmId, SLEEPING_STATE);
+                places().put(vmId, n);
+                hosted(SLEEPING_STATE, nId, true).add(vm);
+                states().put(vmId, SLEEPING_STATE);
                 break;
         }
-        st.put(vm.id(), SLEEPING_STATE);
         return true;
     }
 
     @Override
     public boolean addReadyVM(VM vm) {
-
-        Node n = place.remove(vm.id());
         int state = st.get(vm.id());
+        if (state == READY_STATE) {
+            return true;
+        }
+        Node n = places().remove(vm.id());
         if (state == RUNNING_STATE) {
             //If was running, sync the state
-            host[RUNNING_STATE].get(n.id()).remove(vm);
+            hosted(RUNNING_STATE, n.id(), false).remove(vm);
         } else if (state == SLEEPING_STATE) {
                 //If was sleeping, sync the state
-                host[SLEEPING_STATE].get(n.id()).remove(vm);
+                hosted(SLEEPING_STATE, n.id(), false).remove(vm);
         }
-        st.put(vm.id(), READY_STATE);
-        vmReady.add(vm);
+        states().put(vm.id(), READY_STATE);
+        ready().add(vm);
         return true;
     }
 
     @Override
     public boolean remove(VM vm) {
         if (place.containsKey(vm.id())) {
-            Node n = this.place.remove(vm.id());
+            Node n = places().remove(vm.id());
             //The VM exists and is already placed
             if (st.get(vm.id()) == RUNNING_STATE) {
-                host[RUNNING_STATE].get(n.id()).remove(vm);
+                hosted(RUNNING_STATE, n.id(), false).remove(vm);
             } else if (st.get(vm.id()) == SLEEPING_STATE) {
-                host[SLEEPING_STATE].get(n.id()).remove(vm);
+                hosted(SLEEPING_STATE, n.id(), false).remove(vm);
             }
-            st.remove(vm.id());
+            states().remove(vm.id());
             return true;
         } else if (st.get(vm.id()) == READY_STATE) {
 
-            vmReady.remove(vm);
-            st.remove(vm.id());
+            ready().remove(vm);
+            states().remove(vm.id());
             return true;
         }
         return false;
@@ -266,26 +382,32 @@ public class DefaultMapping extends AbstractMapping {
                 if (!on.isEmpty()) {
                     return false;
                 }
-                host[RUNNING_STATE].remove(nId);
             }
 
-            on = host[SLEEPING_STATE].get(nId);
+            Set<VM> sleeping = host[SLEEPING_STATE].get(nId);
+            if (sleeping != null && !sleeping.isEmpty()) {
+                return false;
+            }
             if (on != null) {
-                if (!on.isEmpty()) {
-                    return false;
-                }
-                host[SLEEPING_STATE].remove(nId);
+                hosts(RUNNING_STATE).remove(nId);
+            }
+            if (sleeping != null) {
+                hosts(SLEEPING_STATE).remove(nId);
             }
-            return nodeState[ONLINE_STATE].remove(n);
+            return nodes(ONLINE_STATE).remove(n);
         }
 
-        return nodeState[OFFLINE_STATE].remove(n);
+        return nodeState[OFFLINE_STATE].contains(n) && nodes(OFFLINE_STATE).remove(n);
     }
 
     @Override
     public boolean addOnlineNode(Node n) {
-        nodeState[OFFLINE_STATE].remove(n);
-        nodeState[ONLINE_STATE].add(n);
+        if (nodeState[OFFLINE_STATE].contains(n)) {
+            nodes(OFFLINE_STATE).remove(n);
+        }
+        if (!nodeState[ONLINE_STATE].contains(n)) {
+            nodes(ONLINE_STATE).add(n);
+        }
         return true;
     }
 
@@ -301,20 +423,22 @@ public class DefaultMapping extends AbstractMapping {
             if (on != null && !on.isEmpty()) {
                 return false;
             }
-            nodeState[ONLINE_STATE].remove(n);
+            nodes(ONLINE_STATE).remove(n);
+        }
+        if (!nodeState[OFFLINE_STATE].contains(n)) {
+            nodes(OFFLINE_STATE).add(n);
         }
-        nodeState[OFFLINE_STATE].add(n);
         return true;
     }
 
     @Override
     public Set<Node> getOnlineNodes() {
-        return nodeState[ONLINE_STATE];
+        return Collections.unmodifiableSet(nodeState[ONLINE_STATE]);
     }
 
     @Override
     public Set<Node> getOfflineNodes() {
-        return nodeState[OFFLINE_STATE];
+        return Collections.unmodifiableSet(nodeState[OFFLINE_STATE]);
     }
 
     @Override
@@ -333,7 +457,7 @@ public class DefaultMapping extends AbstractMapping {
         if (in == null) {
             return Collections.emptySet();
         }
-        return in;
+        return Collections.unmodifiableSet(in);
     }
 
     @Override
@@ -342,12 +466,12 @@ public class DefaultMapping extends AbstractMapping {
         if (in == null) {
             return Collections.emptySet();
         }
-        return in;
+        return Collections.unmodifiableSet(in);
     }
 
     @Override
     public Set<VM> getReadyVMs() {
-        return vmReady;
+        return Collections.unmodifiableSet(vmReady);
     }
 
     @Override
@@ -400,9 +524,31 @@ public class DefaultMapping extends AbstractMapping {
 
     @Override
     public Mapping copy() {
+        //Shares the structures
         return new DefaultMapping(this);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof DefaultMapping) {
+            DefaultMapping m = (DefaultMapping) o;
+            if (st == m.st && place == m.place && vmReady == m.vmReady
+                    && nodeState[ONLINE_STATE] == m.nodeState[ONLINE_STATE]
+                    && nodeState[OFFLINE_STATE] == m.nodeState[OFFLINE_STATE]
+                    && host[RUNNING_STATE] == m.host[RUNNING_STATE]
+                    && host[SLEEPING_STATE] == m.host[SLEEPING_STATE]) {
+                //Unmodified copies
+                return true;
+            }
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
     @Override
     public boolean contains(Node n) {
         return nodeState[OFFLINE_STATE].contains(n) || nodeState[ONLINE_STATE].contains(n);
@@ -415,40 +561,39 @@ public class DefaultMapping extends AbstractMapping {
 
     @Override
     public void clear() {
-        for (Set<Node> s : nodeState) {
-            s.clear();
-        }
-        st.clear();
-        vmReady.clear();
-        place.clear();
-        for (TIntObjectHashMap<Set<VM>> h : host) {
-            h.clear();
-        }
+        clearAllVMs();
+        nodeState[ONLINE_STATE] = new THashSet<>();
+        nodeState[OFFLINE_STATE] = new THashSet<>();
+        owned = ALL;
     }
 
     @Override
     public void clearNode(Node u) {
         //Get the VMs on the node
-        for (TIntObjectHashMap<Set<VM>> h : host) {
-            Set<VM> s = h.get(u.id());
-            if (s != null) {
+        for (int state = RUNNING_STATE; state <= SLEEPING_STATE; state++) {
+            Set<VM> s = host[state].get(u.id());
+            if (s != null && !s.isEmpty()) {
                 for (VM vm : s) {
-                    place.remove(vm.id());
-                    st.remove(vm.id());
+                    places().remove(vm.id());
+                    states().remove(vm.id());
+                }
+                hosts(state).put(u.id(), new THashSet<>());
+                if (ownedHosts != null) {
+                    ownedHosts[state].add(u.id());
                 }
-                s.clear();
             }
         }
     }
 
     @Override
     public void clearAllVMs() {
-        place.clear();
-        st.clear();
-        vmReady.clear();
-        for (TIntObjectHashMap<Set<VM>> h : host) {
-            h.clear();
-        }
+        place = new TIntObjectHashMap<>();
+        st = new TIntIntHashMap(100, 0.5f, -1, -1);
+        vmReady = new THashSet<>();
+        host[RUNNING_STATE] = new TIntObjectHashMap<>();
+        host[SLEEPING_STATE] = new TIntObjectHashMap<>();
+        owned |= PLACES | STATES | READY_VMS | RUNNING_HOSTS | SLEEPING_HOSTS;
+        ownedHosts = null;
     }
 
     @Override
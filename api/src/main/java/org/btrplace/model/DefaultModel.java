@@ -24,6 +24,10 @@ import java.util.*;
 
 /**
  * Default implementation for a {@link Model}.
+ * <p>
+ * With the default mapping, element builder, attributes and the {@link org.btrplace.model.view.ShareableResource}
+ * views, {@link #copy()} makes a copy-on-write snapshot: the structures are shared with the copy
+ * and copied only once modified, by any of the two models.
  *
  * @author Fabien Hermenier
  */
@@ -50,9 +54,20 @@ public class DefaultModel implements Model {
      * @param eb the builder to use
      */
     public DefaultModel(ElementBuilder eb) {
+        this(eb, new DefaultMapping());
+    }
+
+    /**
+     * Make a new instance relying on a given element builder and a given mapping.
+     * For large models, consider a {@link ArrayMapping}.
+     *
+     * @param eb  the builder to use
+     * @param map the mapping to use. The copies of the model will use a copy of it
+     */
+    public DefaultModel(ElementBuilder eb, Mapping map) {
         this.resources = new HashMap<>();
         attrs = new DefaultAttributes();
-        cfg = new DefaultMapping();
+        cfg = map;
         elemBuilder = eb;
     }
 
@@ -129,8 +144,7 @@ public class DefaultModel implements Model {
 
     @Override
     public Model copy() {
-        DefaultModel m = new DefaultModel(elemBuilder.copy());
-        MappingUtils.fill(cfg, m.cfg);
+        DefaultModel m = new DefaultModel(elemBuilder.copy(), cfg.copy());
         for (ModelView rc : resources.values()) {
             m.attach(rc.copy());
         }
@@ -34,12 +34,18 @@ public final class MappingUtils {
 
     /**
      * Fill a destination mapping with all the elements
-     * in a source mapping
+     * in a source mapping.
+     * When both mappings are {@link ArrayMapping} and the destination is empty, the arrays are copied in bulk.
      *
      * @param src the mapping to copy
      * @param dst the destination mapping
      */
     public static void fill(Mapping src, Mapping dst) {
+        if (src instanceof ArrayMapping && dst instanceof ArrayMapping
+                && dst.getNbNodes() == 0 && dst.getNbVMs() == 0) {
+            ((ArrayMapping) dst).copyFrom((ArrayMapping) src);
+            return;
+        }
         for (Node off : src.getOfflineNodes()) {
             dst.addOfflineNode(off);
         }
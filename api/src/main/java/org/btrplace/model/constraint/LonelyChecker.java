@@ -123,4 +123,15 @@ public class LonelyChecker extends AllowAllConstraintChecker<Lonely> {
         }
         return true;
     }
+
+    /**
+     * {@inheritDoc}
+     * Any VM that arrives on a node may break the isolation.
+     *
+     * @return {@code true}
+     */
+    @Override
+    public boolean isGlobal() {
+        return true;
+    }
 }
@@ -132,4 +132,15 @@ public class RunningCapacityChecker extends AllowAllConstraintChecker<RunningCap
         }
         return true;
     }
+
+    /**
+     * {@inheritDoc}
+     * The running VMs are tracked whatever their host.
+     *
+     * @return {@code true}
+     */
+    @Override
+    public boolean isGlobal() {
+        return true;
+    }
 }
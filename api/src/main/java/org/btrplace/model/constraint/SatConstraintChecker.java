@@ -228,4 +228,15 @@ public interface SatConstraintChecker<C extends SatConstraint> {
      * @return a non-null constraint
      */
     C getConstraint();
+
+    /**
+     * Indicates if the checker must be notified about all the actions and events.
+     * By default, a {@link org.btrplace.plan.ReconfigurationPlanChecker} only notifies
+     * a checker about the actions and the events that involve the VMs or the nodes of its constraint.
+     *
+     * @return {@code true} to be notified about all the actions and events
+     */
+    default boolean isGlobal() {
+        return false;
+    }
 }
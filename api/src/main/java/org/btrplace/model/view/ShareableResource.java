@@ -19,15 +19,14 @@
 package org.btrplace.model.view;
 
 import gnu.trove.impl.Constants;
-import gnu.trove.map.hash.TObjectIntHashMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.procedure.TIntIntProcedure;
 import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.VM;
 
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
+import java.util.function.IntFunction;
 
 /**
  * A view to denote a resource that nodes share among the VMs they host
@@ -47,6 +46,13 @@ import java.util.Set;
  * <p>
  * By default, if there is no {@link org.btrplace.model.constraint.Overbook} constraint for a node, a conservative ratio
  * of <b>1</b> is used. This means one unit of virtual resources consumes one unit of physical resources.
+ * <p>
+ * The values are stored in arrays indexed by the element identifiers. The bulk accessors
+ * {@link #getConsumptions(List)} and {@link #getCapacities(List)} retrieve the values of many elements at once.
+ * {@link #copy()} has a O(1) complexity: the arrays are shared until the first modification of the
+ * VM consumptions or the node capacities. When the identifiers are sparse, for example with a few elements having
+ * very large identifiers, the values are stored in hash maps instead, so the memory usage stays proportional
+ * to the number of values.
  *
  * @author Fabien Hermenier
  */
@@ -58,8 +64,8 @@ public class ShareableResource implements ModelView {
      */
     public static final String VIEW_ID_BASE = "ShareableResource.";
 
-    private TObjectIntHashMap<VM> vmsConsumption;
-    private TObjectIntHashMap<Node> nodesCapacity;
+    private Column vmsConsumption;
+    private Column nodesCapacity;
 
     private String viewId;
 
@@ -85,8 +91,8 @@ public class ShareableResource implements ModelView {
      * @param defConsumption the VM default consumption
      */
     public ShareableResource(String id, int defCapacity, int defConsumption) {
-        vmsConsumption = new TObjectIntHashMap<>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, defConsumption);
-        nodesCapacity = new TObjectIntHashMap<>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, defCapacity);
+        vmsConsumption = new Column(defConsumption);
+        nodesCapacity = new Column(defCapacity);
         if (defCapacity < 0) {
             throw new IllegalArgumentException("The '" + rcId + "' default capacity must be >= 0");
         }
@@ -105,7 +111,7 @@ public class ShareableResource implements ModelView {
      * @return its consumption if it was defined otherwise the default value.
      */
     public int getConsumption(VM vm) {
-        return vmsConsumption.get(vm);
+        return vmsConsumption.get(vm.id());
     }
 
     /**
@@ -115,7 +121,61 @@ public class ShareableResource implements ModelView {
      * @return its capacity if it was defined otherwise the default value.
      */
     public int getCapacity(Node n) {
-        return nodesCapacity.get(n);
+        return nodesCapacity.get(n.id());
+    }
+
+    /**
+     * Get the consumption of many VMs.
+     *
+     * @param vms the VMs
+     * @return the consumptions, in the order of the VMs. The default value is used for the undefined consumptions
+     */
+    public int[] getConsumptions(List<VM> vms) {
+        int[] out = new int[vms.size()];
+        int i = 0;
+        for (VM v : vms) {
+            out[i++] = vmsConsumption.get(v.id());
+        }
+        return out;
+    }
+
+    /**
+     * Get the consumption of many VMs.
+     *
+     * @param ids the VM identifiers
+     * @param out the array to fill. Its length must be at least equal to the number of identifiers
+     * @return {@code out}
+     */
+    public int[] getConsumptions(int[] ids, int[] out) {
+        vmsConsumption.get(ids, out);
+        return out;
+    }
+
+    /**
+     * Get the capacity of many nodes.
+     *
+     * @param nodes the nodes
+     * @return the capacities, in the order of the nodes. The default value is used for the undefined capacities
+     */
+    public int[] getCapacities(List<Node> nodes) {
+        int[] out = new int[nodes.size()];
+        int i = 0;
+        for (Node n : nodes) {
+            out[i++] = nodesCapacity.get(n.id());
+        }
+        return out;
+    }
+
+    /**
+     * Get the capacity of many nodes.
+     *
+     * @param ids the node identifiers
+     * @param out the array to fill. Its length must be at least equal to the number of identifiers
+     * @return {@code out}
+     */
+    public int[] getCapacities(int[] ids, int[] out) {
+        nodesCapacity.get(ids, out);
+        return out;
     }
 
     /**
@@ -124,7 +184,7 @@ public class ShareableResource implements ModelView {
      * @return a set that may be empty
      */
     public Set<VM> getDefinedVMs() {
-        return vmsConsumption.keySet();
+        return vmsConsumption.keys(VM::new);
     }
 
     /**
@@ -133,7 +193,7 @@ public class ShareableResource implements ModelView {
      * @return a set that may be empty
      */
     public Set<Node> getDefinedNodes() {
-        return nodesCapacity.keySet();
+        return nodesCapacity.keys(Node::new);
     }
 
     /**
@@ -147,7 +207,11 @@ public class ShareableResource implements ModelView {
         if (val < 0) {
             throw new IllegalArgumentException("The '" + rcId + "' consumption of '" + vm + "' must be >= 0");
         }
-        vmsConsumption.put(vm, val);
+        if (vm.id() < 0) {
+            throw new IllegalArgumentException("Unsupported identifier for '" + vm + "'");
+        }
+        vmsConsumption = vmsConsumption.writable();
+        vmsConsumption.set(vm.id(), val);
         return this;
     }
 
@@ -162,7 +226,11 @@ public class ShareableResource implements ModelView {
         if (val < 0) {
             throw new IllegalArgumentException("The '" + rcId + "' capacity of '" + n + "' must be >= 0");
         }
-        nodesCapacity.put(n, val);
+        if (n.id() < 0) {
+            throw new IllegalArgumentException("Unsupported identifier for '" + n + "'");
+        }
+        nodesCapacity = nodesCapacity.writable();
+        nodesCapacity.set(n.id(), val);
         return this;
     }
 
@@ -172,7 +240,10 @@ public class ShareableResource implements ModelView {
      * @param vm the VM
      */
     public void unset(VM vm) {
-        vmsConsumption.remove(vm);
+        if (vmsConsumption.defined(vm.id())) {
+            vmsConsumption = vmsConsumption.writable();
+            vmsConsumption.unset(vm.id());
+        }
     }
 
     /**
@@ -181,7 +252,10 @@ public class ShareableResource implements ModelView {
      * @param n the node
      */
     public void unset(Node n) {
-        nodesCapacity.remove(n);
+        if (nodesCapacity.defined(n.id())) {
+            nodesCapacity = nodesCapacity.writable();
+            nodesCapacity.unset(n.id());
+        }
     }
 
 
@@ -192,7 +266,7 @@ public class ShareableResource implements ModelView {
      * @return {@code true} iff the consumption is defined.
      */
     public boolean consumptionDefined(VM vm) {
-        return vmsConsumption.containsKey(vm);
+        return vmsConsumption.defined(vm.id());
     }
 
     /**
@@ -202,7 +276,7 @@ public class ShareableResource implements ModelView {
      * @return {@code true} iff the capacity is defined}.
      */
     public boolean capacityDefined(Node n) {
-        return nodesCapacity.containsKey(n);
+        return nodesCapacity.defined(n.id());
     }
 
     /**
@@ -230,7 +304,7 @@ public class ShareableResource implements ModelView {
      * @return the value.
      */
     public int getDefaultConsumption() {
-        return vmsConsumption.getNoEntryValue();
+        return vmsConsumption.noValue;
     }
 
     /**
@@ -239,7 +313,7 @@ public class ShareableResource implements ModelView {
      * @return the value.
      */
     public int getDefaultCapacity() {
-        return nodesCapacity.getNoEntryValue();
+        return nodesCapacity.noValue;
     }
 
     @Override
@@ -257,8 +331,7 @@ public class ShareableResource implements ModelView {
                 !this.nodesCapacity.equals(that.nodesCapacity)) {
             return false;
         }
-        return rcId.equals(that.getResourceIdentifier()) && getDefaultCapacity() == that.getDefaultCapacity()
-                && getDefaultConsumption() == that.getDefaultConsumption();
+        return rcId.equals(that.getResourceIdentifier());
     }
 
     @Override
@@ -268,36 +341,28 @@ public class ShareableResource implements ModelView {
 
     @Override
     public ShareableResource copy() {
-        ShareableResource rc = new ShareableResource(rcId, nodesCapacity.getNoEntryValue(), vmsConsumption.getNoEntryValue());
-        vmsConsumption.forEachEntry((vm, c) -> {
-            rc.vmsConsumption.put(vm, c);
-            return true;
-        });
-        nodesCapacity.forEachEntry((n, c) -> {
-            rc.nodesCapacity.put(n, c);
-            return true;
-        });
+        ShareableResource rc = new ShareableResource(rcId, nodesCapacity.noValue, vmsConsumption.noValue);
+        rc.vmsConsumption = vmsConsumption.share();
+        rc.nodesCapacity = nodesCapacity.share();
         return rc;
     }
 
     @Override
     public String toString() {
         StringBuilder buf = new StringBuilder("rc:").append(rcId).append(':');
-        for (Iterator<Node> ite = nodesCapacity.keySet().iterator(); ite.hasNext(); ) {
-            Node n = ite.next();
-            int c = nodesCapacity.get(n);
-            buf.append("<node ").append(n).append(',').append(c).append('>');
-            if (ite.hasNext()) {
+        int[] ids = nodesCapacity.ids();
+        for (int x = 0; x < ids.length; x++) {
+            if (x > 0) {
                 buf.append(',');
             }
+            buf.append("<node ").append(new Node(ids[x])).append(',').append(nodesCapacity.get(ids[x])).append('>');
         }
-        for (Iterator<VM> ite = vmsConsumption.keySet().iterator(); ite.hasNext(); ) {
-            VM vm = ite.next();
-            int c = vmsConsumption.get(vm);
-            buf.append("<VM ").append(vm).append(',').append(c).append('>');
-            if (ite.hasNext()) {
+        ids = vmsConsumption.ids();
+        for (int x = 0; x < ids.length; x++) {
+            if (x > 0) {
                 buf.append(',');
             }
+            buf.append("<VM ").append(new VM(ids[x])).append(',').append(vmsConsumption.get(ids[x])).append('>');
         }
         return buf.toString();
     }
@@ -318,8 +383,8 @@ public class ShareableResource implements ModelView {
     public int sumConsumptions(Collection<VM> ids, boolean undef) {
         int s = 0;
         for (VM u : ids) {
-            if (consumptionDefined(u) || undef) {
-                s += vmsConsumption.get(u);
+            if (undef || vmsConsumption.defined(u.id())) {
+                s += vmsConsumption.get(u.id());
             }
         }
         return s;
@@ -335,8 +400,8 @@ public class ShareableResource implements ModelView {
     public int sumCapacities(Collection<Node> ids, boolean undef) {
         int s = 0;
         for (Node u : ids) {
-            if (capacityDefined(u) || undef) {
-                s += nodesCapacity.get(u);
+            if (undef || nodesCapacity.defined(u.id())) {
+                s += nodesCapacity.get(u.id());
             }
         }
         return s;
@@ -351,4 +416,217 @@ public class ShareableResource implements ModelView {
     public static ShareableResource get(Model mo, String id) {
         return (ShareableResource) mo.getView(VIEW_ID_BASE + id);
     }
+
+    /**
+     * The values of one kind of element, indexed by the element identifiers.
+     * An undefined value is stored as the default one.
+     * When the identifiers are too sparse, the array would be mostly empty so the values
+     * are stored in a hash map instead.
+     * A shared column must be copied before being modified.
+     */
+    private static final class Column {
+
+        /**
+         * The array length under which the identifiers are never considered as sparse.
+         */
+        private static final int DENSE_MIN_LENGTH = 1 << 16;
+
+        /**
+         * The maximum ratio between the array length and the number of values.
+         */
+        private static final int MAX_SPARSENESS = 8;
+
+        private final int noValue;
+
+        private int[] values;
+
+        private BitSet defined;
+
+        /**
+         * The values when the identifiers are sparse. {@code null} when the arrays are used.
+         */
+        private TIntIntHashMap sparse;
+
+        private boolean shared;
+
+        Column(int noValue) {
+            this.noValue = noValue;
+            values = new int[0];
+            defined = new BitSet();
+        }
+
+        private Column(Column c) {
+            noValue = c.noValue;
+            if (c.sparse != null) {
+                sparse = newMap(noValue, c.sparse.size());
+                sparse.putAll(c.sparse);
+            } else {
+                values = c.values.clone();
+                defined = (BitSet) c.defined.clone();
+            }
+        }
+
+        private static TIntIntHashMap newMap(int noValue, int capacity) {
+            return new TIntIntHashMap(Math.max(capacity, Constants.DEFAULT_CAPACITY), Constants.DEFAULT_LOAD_FACTOR, -1, noValue);
+        }
+
+        int get(int id) {
+            if (sparse != null) {
+                return sparse.get(id);
+            }
+            return id >= 0 && id < values.length ? values[id] : noValue;
+        }
+
+        void get(int[] ids, int[] out) {
+            if (sparse != null) {
+                for (int i = 0; i < ids.length; i++) {
+                    out[i] = sparse.get(ids[i]);
+                }
+                return;
+            }
+            int[] vals = values;
+            for (int i = 0; i < ids.length; i++) {
+                int id = ids[i];
+                out[i] = id >= 0 && id < vals.length ? vals[id] : noValue;
+            }
+        }
+
+        boolean defined(int id) {
+            if (sparse != null) {
+                return sparse.containsKey(id);
+            }
+            return id >= 0 && defined.get(id);
+        }
+
+        int size() {
+            return sparse != null ? sparse.size() : defined.cardinality();
+        }
+
+        void set(int id, int v) {
+            if (sparse == null && id >= values.length) {
+                int from = values.length;
+                int to = Math.max(id + 1, from + (from >> 1));
+                if (to > DENSE_MIN_LENGTH && to / MAX_SPARSENESS > defined.cardinality()) {
+                    toSparse();
+                } else {
+                    values = Arrays.copyOf(values, to);
+                    Arrays.fill(values, from, values.length, noValue);
+                }
+            }
+            if (sparse != null) {
+                sparse.put(id, v);
+                return;
+            }
+            values[id] = v;
+            defined.set(id);
+        }
+
+        /**
+         * Move the values from the arrays to the hash map.
+         */
+        private void toSparse() {
+            sparse = newMap(noValue, defined.cardinality());
+            for (int i = defined.nextSetBit(0); i >= 0; i = defined.nextSetBit(i + 1)) {
+                sparse.put(i, values[i]);
+            }
+            values = null;
+            defined = null;
+        }
+
+        void unset(int id) {
+            if (sparse != null) {
+                sparse.remove(id);
+            } else if (defined(id)) {
+                defined.clear(id);
+                values[id] = noValue;
+            }
+        }
+
+        /**
+         * Get the defined identifiers.
+         *
+         * @return the identifiers, sorted increasingly
+         */
+        int[] ids() {
+            if (sparse != null) {
+                int[] ids = sparse.keys();
+                Arrays.sort(ids);
+                return ids;
+            }
+            return defined.stream().toArray();
+        }
+
+        <E> Set<E> keys(IntFunction<E> f) {
+            Set<E> s = new HashSet<>(size() * 4 / 3 + 1);
+            if (sparse != null) {
+                sparse.forEachKey(i -> s.add(f.apply(i)));
+                return s;
+            }
+            for (int i = defined.nextSetBit(0); i >= 0; i = defined.nextSetBit(i + 1)) {
+                s.add(f.apply(i));
+            }
+            return s;
+        }
+
+        /**
+         * Apply a function on each defined identifier and its value until it returns {@code false}.
+         *
+         * @return {@code false} iff the function returned {@code false}
+         */
+        private boolean forEach(TIntIntProcedure f) {
+            if (sparse != null) {
+                return sparse.forEachEntry(f);
+            }
+            for (int i = defined.nextSetBit(0); i >= 0; i = defined.nextSetBit(i + 1)) {
+                if (!f.execute(i, values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Share the column with a copy of the resource.
+         *
+         * @return this column, now shared
+         */
+        Column share() {
+            shared = true;
+            return this;
+        }
+
+        /**
+         * Get a column that can be modified.
+         *
+         * @return this column if it is not shared, a copy otherwise
+         */
+        Column writable() {
+            return shared ? new Column(this) : this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Column that = (Column) o;
+            if (noValue != that.noValue || size() != that.size()) {
+                return false;
+            }
+            return forEach((i, v) -> that.defined(i) && that.get(i) == v);
+        }
+
+        @Override
+        public int hashCode() {
+            int[] h = {noValue};
+            forEach((i, v) -> {
+                h[0] += i ^ v;
+                return true;
+            });
+            return h[0];
+        }
+    }
 }
@@ -18,17 +18,29 @@
 
 package org.btrplace.model.view.network;
 
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
 import org.btrplace.model.Node;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Default implementation of {@link Routing}.
  * Allows to retrieve physical path (L2) between network elements by looking at physical connections.
- *
+ * <p>
+ * The path between two nodes is the shortest path, in terms of switch hops, between their switches.
+ * The routing tables are built lazily: the first query from a switch computes the hops to every other
+ * switch using a breadth-first search. The paths are then stored as arrays of link indexes that are
+ * shared by all the nodes connected to the same pair of switches.
+ * The routing is thread-safe so it can be queried concurrently.
+ * <p>
  * If instantiated manually, it should be first attached to an existing network view,
  * see {@link #setNetwork(Network)}.
  *
@@ -37,51 +49,52 @@ import java.util.List;
  */
 public class DefaultRouting extends Routing {
 
+    private volatile Index index;
+
     /**
-     * Recursive method to get the first physical path found from a switch to a destination node
+     * Get the index of the network. It is rebuilt if links were added since the last call.
      *
-     * @param   currentPath the current or initial path containing the link(s) crossed
-     * @param   sw the current switch to browse
-     * @param   dst the destination node to reach
-     * @return  the ordered list of links that make the path to dst
+     * @return the index
      */
-    private LinkedHashMap<Link, Boolean> getFirstPhysicalPath(LinkedHashMap<Link, Boolean> currentPath, Switch sw, Node dst) {
-
-        // Iterate through the current switch's links
-        for (Link l : net.getConnectedLinks(sw)) {
-            // Wrong link
-            if (currentPath.keySet().contains(l)) {
-                continue;
-            }
-
-            /*
-             * Go through the link and track the direction for full-duplex purpose
-             * From switch to element => false : DownLink
-             * From element to switch => true : UpLink
-             */
-            currentPath.put(l, !l.getSwitch().equals(sw));
-
-            // Check what is after
-            if (l.getElement() instanceof Node) {
-                // Node found, path complete
-                if (l.getElement().equals(dst)) {
-                    return currentPath;
+    private Index getIndex() {
+        Index idx = index;
+        if (idx == null || idx.nbLinks != net.getLinks().size()) {
+            synchronized (this) {
+                idx = index;
+                if (idx == null || idx.nbLinks != net.getLinks().size()) {
+                    idx = new Index(net);
+                    index = idx;
                 }
             }
-            else {
-                // Go to the next switch
-                LinkedHashMap<Link, Boolean>  recall = getFirstPhysicalPath(
-                        currentPath, l.getSwitch().equals(sw) ? (Switch) l.getElement() : l.getSwitch(), dst);
-                // Return the complete path if found
-                if (!recall.isEmpty()) {
-                    return recall;
-                }
-            }
-            // Wrong link, go back
-            currentPath.remove(l);
         }
-        // No path found through this switch
-        return new LinkedHashMap<>();
+        return idx;
+    }
+
+    /**
+     * Get the route between two nodes.
+     *
+     * @param n1 the source node
+     * @param n2 the destination node
+     * @return the route. Each link index is shifted by one bit, the lower bit is set when the link
+     * is crossed from its element to its switch. {@code null} if there is no route
+     */
+    private int[] getRoute(Index idx, Node n1, Node n2) {
+        if (!idx.accessLinks.containsKey(n1.id()) || !idx.accessLinks.containsKey(n2.id())) {
+            return null;
+        }
+        int l1 = idx.accessLinks.get(n1.id());
+        int l2 = idx.accessLinks.get(n2.id());
+        int[] hops = idx.getHops(idx.switchIndex(idx.links[l1].getSwitch()), idx.switchIndex(idx.links[l2].getSwitch()));
+        if (hops == null) {
+            return null;
+        }
+        int[] route = new int[hops.length + 2];
+        // From the node to its switch
+        route[0] = l1 << 1 | 1;
+        System.arraycopy(hops, 0, route, 1, hops.length);
+        // From the switch to the node
+        route[route.length - 1] = l2 << 1;
+        return route;
     }
 
     @Override
@@ -89,57 +102,34 @@ public class DefaultRouting extends Routing {
         if (net == null || n1.equals(n2)) {
             return Collections.emptyList();
         }
-
-        // Initialize the cache
-        if (routingCache == null) {
-            int cacheSize = net.getConnectedNodes().size();
-            routingCache = new LinkedHashMap[cacheSize][cacheSize]; // OK for the warning
+        Index idx = getIndex();
+        int[] route = getRoute(idx, n1, n2);
+        if (route == null) {
+            return Collections.emptyList();
         }
-
-        // Fill the cache if needed
-        if (routingCache[n1.id()][n2.id()] == null) {
-            // Create an initial path from the node to its switch => true : UpLink
-            LinkedHashMap<Link, Boolean> initialPath = new LinkedHashMap<>();
-            initialPath.put(net.getConnectedLinks(n1).get(0), true);
-            // Get the first physical path found between the two nodes
-            routingCache[n1.id()][n2.id()] =
-                    getFirstPhysicalPath(
-                            initialPath, // Only one link per node
-                            net.getConnectedLinks(n1).get(0).getSwitch(), // A node is always connected to a switch
-                            n2
-                    );
+        List<Link> path = new ArrayList<>(route.length);
+        for (int r : route) {
+            path.add(idx.links[r >> 1]);
         }
-
-        return new ArrayList<>(routingCache[n1.id()][n2.id()].keySet());
+        return path;
     }
 
     @Override
     public LinkDirection getLinkDirection(Node n1, Node n2, Link l) {
-        if (n1.equals(n2)) {
+        if (net == null || n1.equals(n2)) {
             return LinkDirection.NONE;
         }
-
-        // Initialize the cache (should be already done)
-        if (routingCache == null) {
-            int cacheSize = net.getConnectedNodes().size();
-            routingCache = new LinkedHashMap[cacheSize][cacheSize]; // OK for the warning
-        }
-
-        // Fill the appropriate cache entry from getPath method if needed
-        if (routingCache[n1.id()][n2.id()] == null) {
-            getPath(n1, n2);
-        }
-
-        // Link is not on route!
-        if (!routingCache[n1.id()][n2.id()].containsKey(l)) {
+        Index idx = getIndex();
+        int[] route = getRoute(idx, n1, n2);
+        if (route == null) {
             return LinkDirection.NONE;
         }
-
-        // Return the direction if the given link in on path
-        if (routingCache[n1.id()][n2.id()].containsKey(l)) {
-            return routingCache[n1.id()][n2.id()].get(l) ?
-                    LinkDirection.DOWNLINK : LinkDirection.UPLINK;
+        for (int r : route) {
+            if (idx.links[r >> 1].equals(l)) {
+                return (r & 1) == 1 ? LinkDirection.DOWNLINK : LinkDirection.UPLINK;
+            }
         }
+        // Link is not on route!
         return LinkDirection.NONE;
     }
 
@@ -149,4 +139,150 @@ public class DefaultRouting extends Routing {
         clone.net = net; // Do not associate view->routing, only routing->view
         return clone;
     }
+
+    /**
+     * The routing tables of a network.
+     */
+    private static class Index {
+
+        private final int nbLinks;
+
+        private final Link[] links;
+
+        /**
+         * The index of each switch, by switch identifier.
+         */
+        private final TIntIntHashMap switches;
+
+        /**
+         * For each switch, the indexes of the links to other switches.
+         */
+        private final int[][] adjacency;
+
+        /**
+         * The index of the link connecting each node to its switch, by node identifier.
+         */
+        private final TIntIntHashMap accessLinks;
+
+        /**
+         * For each source switch that was queried, the link used to reach every switch.
+         */
+        private final Map<Integer, int[]> parents;
+
+        /**
+         * The routes between pairs of switches.
+         */
+        private final Map<Long, int[]> hops;
+
+        Index(Network net) {
+            List<Link> ls = net.getLinks();
+            nbLinks = ls.size();
+            links = ls.toArray(new Link[nbLinks]);
+            switches = new TIntIntHashMap(net.getSwitches().size(), 0.5f, -1, -1);
+            for (Switch s : net.getSwitches()) {
+                addSwitch(s);
+            }
+            // Switches that are only known through their links
+            for (Link l : links) {
+                addSwitch(l.getSwitch());
+                if (l.getElement() instanceof Switch) {
+                    addSwitch((Switch) l.getElement());
+                }
+            }
+            accessLinks = new TIntIntHashMap(nbLinks, 0.5f, -1, -1);
+            TIntArrayList[] adj = new TIntArrayList[switches.size()];
+            for (int i = 0; i < adj.length; i++) {
+                adj[i] = new TIntArrayList();
+            }
+            for (int i = 0; i < links.length; i++) {
+                Link l = links[i];
+                if (l.getElement() instanceof Node) {
+                    // Only one link per node
+                    accessLinks.putIfAbsent(((Node) l.getElement()).id(), i);
+                } else if (l.getElement() instanceof Switch) {
+                    adj[switchIndex(l.getSwitch())].add(i);
+                    adj[switchIndex((Switch) l.getElement())].add(i);
+                }
+            }
+            adjacency = new int[adj.length][];
+            for (int i = 0; i < adj.length; i++) {
+                adjacency[i] = adj[i].toArray();
+            }
+            parents = new ConcurrentHashMap<>();
+            hops = new ConcurrentHashMap<>();
+        }
+
+        private void addSwitch(Switch s) {
+            if (!switches.containsKey(s.id())) {
+                switches.put(s.id(), switches.size());
+            }
+        }
+
+        private int switchIndex(Switch s) {
+            return switches.get(s.id());
+        }
+
+        /**
+         * Get the other end of a link between two switches.
+         */
+        private int otherEnd(Link l, int sw) {
+            int a = switchIndex(l.getSwitch());
+            return a == sw ? switchIndex((Switch) l.getElement()) : a;
+        }
+
+        /**
+         * Compute the link used to reach every switch from a given one.
+         * The source switch is marked with {@code -1}, unreachable switches with {@code -2}.
+         */
+        private int[] bfs(int src) {
+            int[] parent = new int[adjacency.length];
+            Arrays.fill(parent, -2);
+            parent[src] = -1;
+            Deque<Integer> queue = new ArrayDeque<>();
+            queue.add(src);
+            while (!queue.isEmpty()) {
+                int cur = queue.poll();
+                for (int l : adjacency[cur]) {
+                    int next = otherEnd(links[l], cur);
+                    if (parent[next] == -2) {
+                        parent[next] = l;
+                        queue.add(next);
+                    }
+                }
+            }
+            return parent;
+        }
+
+        /**
+         * Get the route between two switches.
+         *
+         * @return the route. {@code null} if the destination cannot be reached
+         */
+        private int[] getHops(int src, int dst) {
+            if (src == dst) {
+                return new int[0];
+            }
+            long key = (long) src << 32 | dst;
+            int[] route = hops.get(key);
+            if (route == null) {
+                int[] parent = parents.computeIfAbsent(src, this::bfs);
+                if (parent[dst] == -2) {
+                    return null;
+                }
+                TIntArrayList rev = new TIntArrayList();
+                int cur = dst;
+                while (cur != src) {
+                    int l = parent[cur];
+                    int prev = otherEnd(links[l], cur);
+                    // Track the direction for full-duplex purpose
+                    rev.add(l << 1 | (switchIndex(links[l].getSwitch()) == prev ? 0 : 1));
+                    cur = prev;
+                }
+                rev.reverse();
+                route = rev.toArray();
+                hops.put(key, route);
+            }
+            return route;
+        }
+    }
 }
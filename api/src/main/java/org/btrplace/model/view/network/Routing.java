@@ -22,7 +22,6 @@ import org.btrplace.Copyable;
 import org.btrplace.model.Node;
 
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
 
 /**
@@ -58,7 +57,6 @@ public abstract class Routing implements Copyable<Routing> {
     }
 
     protected Network net;
-    protected LinkedHashMap<Link, Boolean>[][] routingCache;
 
     /**
      * Set the network view (recursively).
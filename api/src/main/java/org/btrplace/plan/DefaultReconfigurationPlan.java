@@ -26,6 +26,13 @@ import java.util.*;
 /**
  * Default implementation for {@link ReconfigurationPlan}.
  * By default, the instance relies on a {@link TimeBasedPlanApplier} to check for the plan applicability.
+ * <p>
+ * The plan maintains its actions sorted by their starting moment, its duration, and
+ * the dependencies between the actions. The resulting model is computed once, until an action is added,
+ * the applier is changed, or the origin model is modified. {@link #getResult()} returns a copy of it,
+ * so the callers can modify the model they get.
+ * <p>
+ * The set of actions is not modifiable directly. Use {@link #add(Action)} to add an action.
  *
  * @author Fabien Hermenier
  */
@@ -35,11 +42,29 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
 
     private Set<Action> actions;
 
-    private DependenciesExtractor depsExtractor;
+    /**
+     * The actions, sorted by starting moment once {@link #sorted} is {@code true}.
+     */
+    private List<Action> byStart;
 
-    private static Comparator<Action> startFirstComparator = new TimedBasedActionComparator(true, true);
+    private boolean sorted;
 
-    private ReconfigurationPlanApplier applier = new TimeBasedPlanApplier();
+    private int duration;
+
+    /**
+     * The dependencies of the actions. Computed lazily.
+     */
+    private Map<Action, Set<Action>> dependencies;
+
+    /**
+     * The resulting model, when {@link #applied} is not {@code null}.
+     */
+    private Model result;
+
+    /**
+     * A copy of the origin model when the resulting model was computed.
+     */
+    private Model applied;
 
     private static Comparator<Action> sorter = (o1, o2) -> {
         int diffStart = o1.getStart() - o2.getStart();
@@ -49,6 +74,8 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
         return diffStart;
     };
 
+    private ReconfigurationPlanApplier applier = new TimeBasedPlanApplier();
+
     /**
      * Make a new plan that starts from a given model.
      *
@@ -57,8 +84,10 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
     public DefaultReconfigurationPlan(Model m) {
         this.src = m;
         this.actions = new HashSet<>();
+        this.byStart = new ArrayList<>();
+        sorted = true;
         //Dependency management is performed lazily.
-        this.depsExtractor = null;
+        this.dependencies = null;
     }
 
     @Override
@@ -69,9 +98,16 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
     @Override
     public boolean add(Action a) {
         boolean ret = this.actions.add(a);
-        if (ret && depsExtractor != null) {
-            //We only track dependencies incrementally if already started
-            a.visit(depsExtractor);
+        if (ret) {
+            if (sorted && !byStart.isEmpty() && sorter.compare(byStart.get(byStart.size() - 1), a) > 0) {
+                //Out of order. The actions will be sorted on demand.
+                sorted = false;
+            }
+            byStart.add(a);
+            duration = Math.max(duration, a.getEnd());
+            dependencies = null;
+            applied = null;
+            result = null;
         }
         return ret;
     }
@@ -83,18 +119,32 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
 
     @Override
     public int getDuration() {
-        int m = 0;
-        for (Action a : actions) {
-            if (a.getEnd() > m) {
-                m = a.getEnd();
-            }
-        }
-        return m;
+        return duration;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @return an unmodifiable set. Use {@link #add(Action)} to add actions
+     */
     @Override
     public Set<Action> getActions() {
-        return actions;
+        return Collections.unmodifiableSet(actions);
+    }
+
+    /**
+     * Get the actions sorted by their starting moment then their ending moment.
+     * Simultaneous actions are kept in their insertion order.
+     *
+     * @return an unmodifiable list
+     */
+    private List<Action> sorted() {
+        if (!sorted) {
+            //Stable sort
+            byStart.sort(sorter);
+            sorted = true;
+        }
+        return Collections.unmodifiableList(byStart);
     }
 
     /**
@@ -105,22 +155,27 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
      */
     @Override
     public Iterator<Action> iterator() {
-        Set<Action> sorted = new TreeSet<>(startFirstComparator);
-        sorted.addAll(actions);
-        return sorted.iterator();
+        return sorted().iterator();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @return a copy of the resulting model, or {@code null} if the plan cannot be applied
+     */
     @Override
     public Model getResult() {
-        return applier.apply(this);
+        if (applied == null || !applied.equals(src)) {
+            result = applier.apply(this);
+            applied = src.copy();
+        }
+        return result == null ? null : result.copy();
     }
 
     @Override
     public String toString() {
-        List<Action> l = new ArrayList<>(actions);
-        Collections.sort(l, sorter);
         StringJoiner joiner = new StringJoiner("\n");
-        for (Action a : l) {
+        for (Action a : sorted()) {
             joiner.add(String.format("%d:%d %s", a.getStart(), a.getEnd(), a.toString()));
         }
         return joiner.toString();
@@ -128,7 +183,7 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
 
     @Override
     public boolean isApplyable() {
-        return applier.apply(this) != null;
+        return getResult() != null;
     }
 
     @Override
@@ -151,14 +206,16 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
 
     @Override
     public Set<Action> getDirectDependencies(Action a) {
-        if (depsExtractor == null) {
-            //Track dependencies of all the already registered actions
-            depsExtractor = new DependenciesExtractor(src);
+        if (dependencies == null) {
+            //Extract the dependencies of all the actions at once
+            DependenciesExtractor ex = new DependenciesExtractor(src);
             for (Action x : actions) {
-                x.visit(depsExtractor);
+                x.visit(ex);
             }
+            dependencies = ex.getDependencies();
         }
-        return depsExtractor.getDependencies(a);
+        Set<Action> deps = dependencies.get(a);
+        return deps == null ? Collections.emptySet() : deps;
     }
 
     @Override
@@ -169,5 +226,7 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
     @Override
     public void setReconfigurationApplier(ReconfigurationPlanApplier ra) {
         this.applier = ra;
+        applied = null;
+        result = null;
     }
 }
@@ -175,4 +175,37 @@ public class DependenciesExtractor implements ActionVisitor {
         }
         return pre;
     }
+
+    /**
+     * Get the dependencies of all the visited actions.
+     * The freeing actions of each node are sorted once by their ending moment, so the dependencies
+     * of a demanding action are a prefix of this order.
+     *
+     * @return the dependencies of each action that has at least one dependency. The sets are unmodifiable
+     */
+    public Map<Action, Set<Action>> getDependencies() {
+        Map<Node, List<Action>> byEnd = new HashMap<>();
+        Map<Action, Set<Action>> deps = new HashMap<>();
+        for (Map.Entry<Action, Node> e : demandingNodes.entrySet()) {
+            Action a = e.getKey();
+            List<Action> free = byEnd.computeIfAbsent(e.getValue(), n -> {
+                List<Action> l = new ArrayList<>(getFreeings(n));
+                l.sort(Comparator.comparingInt(Action::getEnd));
+                return l;
+            });
+            Set<Action> pre = new HashSet<>();
+            for (Action action : free) {
+                if (action.getEnd() > a.getStart()) {
+                    break;
+                }
+                if (!action.equals(a)) {
+                    pre.add(action);
+                }
+            }
+            if (!pre.isEmpty()) {
+                deps.put(a, Collections.unmodifiableSet(pre));
+            }
+        }
+        return deps;
+    }
 }
@@ -18,15 +18,19 @@
 
 package org.btrplace.plan;
 
+import gnu.trove.list.array.TIntArrayList;
 import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
 import org.btrplace.model.constraint.SatConstraint;
 import org.btrplace.model.constraint.SatConstraintChecker;
 import org.btrplace.plan.event.*;
 import org.btrplace.scheduler.SchedulerException;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.PriorityQueue;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
 
 /**
  * Checker to verify if a reconfiguration plan satisfies a set of
@@ -38,6 +42,14 @@ import java.util.PriorityQueue;
  * <p>
  * Actions start and end moment are notified in the increasing order of their associated moment with
  * a priority given to the end moments.
+ * <p>
+ * By default, a checker is only notified about the actions and the events that involve the VMs or the nodes
+ * of its constraint, unless it is {@link SatConstraintChecker#isGlobal() global}. The checkers are indexed
+ * by element when the checking starts. Use {@link #setIndexed(boolean)} to notify every checker about every action.
+ * <p>
+ * With a parallelism greater than 1 (see {@link #setParallelism(int)}), the checkers that share no elements
+ * are split into groups that replay the plan concurrently in the {@link ForkJoinPool#commonPool() common pool}.
+ * The reported violation is the one a sequential checking would report.
  *
  * @author Fabien Hermenier
  */
@@ -49,6 +61,34 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
     private static final TimedBasedActionComparator ENDS_CMP = new TimedBasedActionComparator(false, true);
     private List<SatConstraintChecker<?>> checkers;
 
+    private boolean indexed = true;
+
+    private int parallelism = 1;
+
+    /**
+     * The registration rank of each checker, when the checker is a group of another one.
+     */
+    private int[] ranks;
+
+    /**
+     * The position of the checkers to notify for any action.
+     */
+    private TIntArrayList globals;
+
+    /**
+     * The position of the checkers to notify for the actions involving a given VM.
+     */
+    private Map<VM, TIntArrayList> byVM;
+
+    /**
+     * The position of the checkers to notify for the actions involving a given node.
+     */
+    private Map<Node, TIntArrayList> byNode;
+
+    private TIntArrayList positions = new TIntArrayList();
+
+    private List<SatConstraintChecker<?>> selected = new ArrayList<>();
+
     /**
      * Make a new instance.
      */
@@ -56,6 +96,50 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
         checkers = new ArrayList<>();
     }
 
+    /**
+     * Indicates if the checkers are only notified about the actions and the events involving their elements.
+     *
+     * @param b {@code true} to dispatch the actions and the events using an index of the elements.
+     *          {@code false} to notify every checker about every action and event
+     * @return the current checker
+     */
+    public ReconfigurationPlanChecker setIndexed(boolean b) {
+        indexed = b;
+        return this;
+    }
+
+    /**
+     * Indicates if the checkers are only notified about the actions and the events involving their elements.
+     *
+     * @return {@code true} iff the actions and the events are dispatched using an index of the elements
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Set the maximum number of groups of checkers that verify a plan concurrently.
+     *
+     * @param n a number >= 1. {@code 1} to check the plan sequentially
+     * @return the current checker
+     */
+    public ReconfigurationPlanChecker setParallelism(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("The parallelism must be >= 1");
+        }
+        parallelism = n;
+        return this;
+    }
+
+    /**
+     * Get the maximum number of groups of checkers that verify a plan concurrently.
+     *
+     * @return a number >= 1
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
     /**
      * Add an additional checker.
      *
@@ -78,7 +162,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(Allocate a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : notified(a.getVM(), a.getHost(), null)) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -92,7 +176,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(AllocateEvent a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : notified(a.getVM(), null, null)) {
             if (!c.consume(a)) {
                 return c.getConstraint();
             }
@@ -102,17 +186,24 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(SubstitutedVMEvent a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : notified(a.getVM(), null, null)) {
             if (!c.consume(a)) {
                 return c.getConstraint();
             }
         }
+        if (indexed) {
+            //The checkers of the substituted VM now focus on the new VM
+            TIntArrayList l = byVM.get(a.getVM());
+            if (l != null) {
+                byVM.computeIfAbsent(a.getNewVM(), k -> new TIntArrayList()).addAll(l);
+            }
+        }
         return null;
     }
 
     @Override
     public SatConstraint visit(BootNode a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : notified(null, a.getNode(), null)) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -127,7 +218,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(BootVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : notified(a.getVM(), a.getDestinationNode(), null)) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -142,7 +233,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(ForgeVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : notified(a.getVM(), null, null)) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -157,7 +248,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(KillVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : notified(a.getVM(), a.getNode(), null)) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -171,7 +262,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(MigrateVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : notified(a.getVM(), a.getSourceNode(), a.getDestinationNode())) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -185,7 +276,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(ResumeVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : notified(a.getVM(), a.getSourceNode(), a.getDestinationNode())) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -199,7 +290,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(ShutdownNode a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : notified(null, a.getNode(), null)) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -213,7 +304,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(ShutdownVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : notified(a.getVM(), a.getNode(), null)) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -227,7 +318,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(SuspendVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : notified(a.getVM(), a.getSourceNode(), a.getDestinationNode())) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -249,69 +340,309 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
         if (checkers.isEmpty()) {
             return;
         }
+        List<Step> steps = steps(p);
+        if (parallelism > 1 && checkers.size() > 1) {
+            checkInParallel(p, steps);
+            return;
+        }
+        Violation v = replay(p.getOrigin(), steps);
+        if (v == null) {
+            v = checkModel(result(p), false);
+        }
+        if (v != null) {
+            throw v.ex;
+        }
+    }
 
-        checkModel(p.getOrigin(), true);
-
-        if (!p.getActions().isEmpty()) {
-            PriorityQueue<Action> starts = new PriorityQueue<>(p.getActions().size(), STARTS_CMP);
-            PriorityQueue<Action> ends = new PriorityQueue<>(p.getActions().size(), ENDS_CMP);
-            starts.addAll(p.getActions());
-            ends.addAll(p.getActions());
-
-            //Starts the actions
-            int curMoment = starts.peek().getStart();
-            while (!starts.isEmpty() || !ends.isEmpty()) {
-                Action a = ends.peek();
-                while (a != null && a.getEnd() == curMoment) {
-                    ends.remove();
-                    startingEvent = false;
-                    visitAndThrowOnViolation(a);
-                    visitEvents(a, Action.Hook.POST);
-                    a = ends.peek();
-                }
-                a = starts.peek();
+    /**
+     * Check the plan using independent groups of checkers in parallel.
+     * The violation that is reported is the one a sequential checking would report.
+     */
+    private void checkInParallel(ReconfigurationPlan p, List<Step> steps) throws SatConstraintViolationException {
+        List<ReconfigurationPlanChecker> parts = partition();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        Violation v = first(pool, parts, c -> c.replay(p.getOrigin(), steps));
+        if (v == null) {
+            Model mo = result(p);
+            v = first(pool, parts, c -> c.checkModel(mo, false));
+        }
+        if (v != null) {
+            throw v.ex;
+        }
+    }
+
+    private static Violation first(ForkJoinPool pool, List<ReconfigurationPlanChecker> parts, Function<ReconfigurationPlanChecker, Violation> f) {
+        List<ForkJoinTask<Violation>> tasks = new ArrayList<>(parts.size());
+        for (ReconfigurationPlanChecker c : parts) {
+            tasks.add(pool.submit(() -> f.apply(c)));
+        }
+        Violation first = null;
+        for (ForkJoinTask<Violation> t : tasks) {
+            Violation v = t.join();
+            if (v != null && (first == null || v.compareTo(first) < 0)) {
+                first = v;
+            }
+        }
+        return first;
+    }
 
-                while (a != null && a.getStart() == curMoment) {
-                    starts.remove();
-                    startingEvent = true;
-                    visitEvents(a, Action.Hook.PRE);
-                    visitAndThrowOnViolation(a);
-                    a = starts.peek();
+    /**
+     * Split the checkers into groups that can be checked independently.
+     * The connected components of the checkers that share elements are dispatched
+     * among at most {@link #getParallelism()} groups, the biggest components first.
+     *
+     * @return the groups of checkers
+     */
+    private List<ReconfigurationPlanChecker> partition() {
+        int[] parent = new int[checkers.size()];
+        Map<VM, Integer> vmOwner = new HashMap<>();
+        Map<Node, Integer> nodeOwner = new HashMap<>();
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+            SatConstraintChecker<?> c = checkers.get(i);
+            SatConstraint cstr = c.getConstraint();
+            if (cstr == null || c.isGlobal()) {
+                continue;
+            }
+            for (VM v : cstr.getInvolvedVMs()) {
+                Integer o = vmOwner.putIfAbsent(v, i);
+                if (o != null) {
+                    union(parent, o, i);
                 }
-                int nextEnd = Integer.MAX_VALUE;
-                if (!ends.isEmpty()) {
-                    nextEnd = ends.peek().getEnd();
+            }
+            for (Node n : cstr.getInvolvedNodes()) {
+                Integer o = nodeOwner.putIfAbsent(n, i);
+                if (o != null) {
+                    union(parent, o, i);
                 }
-                int nextStart = Integer.MAX_VALUE;
-                if (!starts.isEmpty()) {
-                    nextStart = starts.peek().getStart();
+            }
+        }
+        Map<Integer, TIntArrayList> components = new HashMap<>();
+        for (int i = 0; i < parent.length; i++) {
+            components.computeIfAbsent(find(parent, i), k -> new TIntArrayList()).add(i);
+        }
+        List<TIntArrayList> sorted = new ArrayList<>(components.values());
+        sorted.sort((x, y) -> y.size() - x.size());
+
+        TIntArrayList[] groups = new TIntArrayList[Math.min(parallelism, sorted.size())];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = new TIntArrayList();
+        }
+        for (TIntArrayList comp : sorted) {
+            TIntArrayList smallest = groups[0];
+            for (TIntArrayList g : groups) {
+                if (g.size() < smallest.size()) {
+                    smallest = g;
                 }
+            }
+            smallest.addAll(comp);
+        }
+        List<ReconfigurationPlanChecker> parts = new ArrayList<>(groups.length);
+        for (TIntArrayList g : groups) {
+            g.sort();
+            ReconfigurationPlanChecker c = new ReconfigurationPlanChecker();
+            c.indexed = indexed;
+            c.ranks = g.toArray();
+            for (int r : c.ranks) {
+                c.checkers.add(checkers.get(r));
+            }
+            parts.add(c);
+        }
+        return parts;
+    }
+
+    private static int find(int[] parent, int i) {
+        int x = i;
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
 
-                curMoment = Math.min(nextEnd, nextStart);
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra != rb) {
+            parent[Math.max(ra, rb)] = Math.min(ra, rb);
+        }
+    }
+
+    /**
+     * Order the start and the end moments of the actions.
+     */
+    private static List<Step> steps(ReconfigurationPlan p) {
+        List<Step> steps = new ArrayList<>(p.getSize() * 2);
+        if (p.getActions().isEmpty()) {
+            return steps;
+        }
+        PriorityQueue<Action> starts = new PriorityQueue<>(p.getActions().size(), STARTS_CMP);
+        PriorityQueue<Action> ends = new PriorityQueue<>(p.getActions().size(), ENDS_CMP);
+        starts.addAll(p.getActions());
+        ends.addAll(p.getActions());
+
+        //Starts the actions
+        int curMoment = starts.peek().getStart();
+        while (!starts.isEmpty() || !ends.isEmpty()) {
+            Action a = ends.peek();
+            while (a != null && a.getEnd() == curMoment) {
+                ends.remove();
+                steps.add(new Step(a, false));
+                a = ends.peek();
+            }
+            a = starts.peek();
+
+            while (a != null && a.getStart() == curMoment) {
+                starts.remove();
+                steps.add(new Step(a, true));
+                a = starts.peek();
+            }
+            int nextEnd = Integer.MAX_VALUE;
+            if (!ends.isEmpty()) {
+                nextEnd = ends.peek().getEnd();
             }
+            int nextStart = Integer.MAX_VALUE;
+            if (!starts.isEmpty()) {
+                nextStart = starts.peek().getStart();
+            }
+
+            curMoment = Math.min(nextEnd, nextStart);
         }
+        return steps;
+    }
+
+    private static Model result(ReconfigurationPlan p) {
         Model mo = p.getResult();
         if (mo == null) {
             throw new SchedulerException(p.getOrigin(), "The resulting reconfiguration plan is not applyable");
         }
-        checkModel(mo, false);
+        return mo;
+    }
+
+    /**
+     * Notify the checkers about the origin model then about the actions and their events.
+     *
+     * @param origin the origin model
+     * @param steps  the ordered moments of the actions
+     * @return the first violation. {@code null} if there is none
+     */
+    private Violation replay(Model origin, List<Step> steps) {
+        if (indexed) {
+            index();
+        }
+        Violation v = checkModel(origin, true);
+        if (v != null) {
+            return v;
+        }
+        for (int i = 0; i < steps.size(); i++) {
+            Step st = steps.get(i);
+            Action a = st.action;
+            startingEvent = st.start;
+            if (st.start) {
+                int nb = 0;
+                for (Event e : a.getEvents(Action.Hook.PRE)) {
+                    SatConstraint c = (SatConstraint) e.visit(this);
+                    if (c != null) {
+                        return new Violation(1, i, nb, rank(c), new ContinuousViolationException(c, a));
+                    }
+                    nb++;
+                }
+                SatConstraint c = (SatConstraint) a.visit(this);
+                if (c != null) {
+                    return new Violation(1, i, nb, rank(c), new ContinuousViolationException(c, a));
+                }
+            } else {
+                //The end of an action is never a violation
+                a.visit(this);
+                int nb = 0;
+                for (Event e : a.getEvents(Action.Hook.POST)) {
+                    SatConstraint c = (SatConstraint) e.visit(this);
+                    if (c != null) {
+                        return new Violation(1, i, nb, rank(c), new ContinuousViolationException(c, a));
+                    }
+                    nb++;
+                }
+            }
+        }
+        return null;
     }
 
-    private void visitAndThrowOnViolation(Action a) throws SatConstraintViolationException {
-        SatConstraint c = (SatConstraint) a.visit(this);
-        if (c != null) {
-            throw new ContinuousViolationException(c, a);
+    /**
+     * Get the registration rank of the checker associated to a constraint.
+     */
+    private int rank(SatConstraint c) {
+        for (int i = 0; i < checkers.size(); i++) {
+            if (checkers.get(i).getConstraint() == c) {
+                return ranks == null ? i : ranks[i];
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Index the checkers by the elements of their constraint.
+     */
+    private void index() {
+        globals = new TIntArrayList();
+        byVM = new HashMap<>();
+        byNode = new HashMap<>();
+        for (int i = 0; i < checkers.size(); i++) {
+            SatConstraintChecker<?> c = checkers.get(i);
+            SatConstraint cstr = c.getConstraint();
+            if (cstr == null || c.isGlobal()) {
+                globals.add(i);
+                continue;
+            }
+            for (VM v : cstr.getInvolvedVMs()) {
+                byVM.computeIfAbsent(v, k -> new TIntArrayList()).add(i);
+            }
+            for (Node n : cstr.getInvolvedNodes()) {
+                byNode.computeIfAbsent(n, k -> new TIntArrayList()).add(i);
+            }
         }
     }
 
-    private void visitEvents(Action a, Action.Hook k) throws SatConstraintViolationException {
-        SatConstraint c;
-        for (Event e : a.getEvents(k)) {
-            c = (SatConstraint) e.visit(this);
-            if (c != null) {
-                throw new ContinuousViolationException(c, a);
+    /**
+     * Get the checkers to notify about an action or an event.
+     * The checkers are returned in their registration order.
+     *
+     * @param v  the involved VM. May be {@code null}
+     * @param n1 an involved node. May be {@code null}
+     * @param n2 another involved node. May be {@code null}
+     * @return the checkers to notify
+     */
+    private List<SatConstraintChecker<?>> notified(VM v, Node n1, Node n2) {
+        if (!indexed) {
+            return checkers;
+        }
+        positions.resetQuick();
+        positions.addAll(globals);
+        if (v != null) {
+            collect(byVM.get(v));
+        }
+        if (n1 != null) {
+            collect(byNode.get(n1));
+        }
+        if (n2 != null) {
+            collect(byNode.get(n2));
+        }
+        positions.sort();
+        selected.clear();
+        int prev = -1;
+        for (int i = 0; i < positions.size(); i++) {
+            int x = positions.getQuick(i);
+            if (x != prev) {
+                selected.add(checkers.get(x));
+                prev = x;
             }
         }
+        return selected;
+    }
+
+    private void collect(TIntArrayList l) {
+        if (l != null) {
+            positions.addAll(l);
+        }
     }
 
     /**
@@ -320,21 +651,72 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
      * @param mo    the model to check
      * @param start {@code true} iff the model corresponds to the origin model. Otherwise it is considered
      *              to be the resulting model
-     * @throws SatConstraintViolationException if at least one constraint is violated.
+     * @return the first violation. {@code null} if there is none
      */
-    private void checkModel(Model mo, boolean start) throws SatConstraintViolationException {
-        for (SatConstraintChecker<?> c : checkers) {
-            if (start && !c.startsWith(mo)) {
-                SatConstraint cs = c.getConstraint();
-                if (cs != null) {
-                    throw new DiscreteViolationException(c.getConstraint(), mo);
-                }
-            } else if (!start && !c.endsWith(mo)) {
-                SatConstraint cs = c.getConstraint();
-                if (cs != null) {
-                    throw new DiscreteViolationException(c.getConstraint(), mo);
-                }
+    private Violation checkModel(Model mo, boolean start) {
+        for (int i = 0; i < checkers.size(); i++) {
+            SatConstraintChecker<?> c = checkers.get(i);
+            boolean ok = start ? c.startsWith(mo) : c.endsWith(mo);
+            SatConstraint cs = c.getConstraint();
+            if (!ok && cs != null) {
+                return new Violation(start ? 0 : 2, 0, 0, ranks == null ? i : ranks[i], new DiscreteViolationException(cs, mo));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The moment an action starts or ends.
+     */
+    private static final class Step {
+
+        private final Action action;
+
+        private final boolean start;
+
+        Step(Action a, boolean start) {
+            this.action = a;
+            this.start = start;
+        }
+    }
+
+    /**
+     * A violation and its position in a sequential checking.
+     * Violations are ordered by phase (origin model, actions, resulting model), moment,
+     * event, then by the registration rank of the checker.
+     */
+    private static final class Violation implements Comparable<Violation> {
+
+        private final int phase;
+
+        private final int step;
+
+        private final int event;
+
+        private final int rank;
+
+        private final SatConstraintViolationException ex;
+
+        Violation(int phase, int step, int event, int rank, SatConstraintViolationException ex) {
+            this.phase = phase;
+            this.step = step;
+            this.event = event;
+            this.rank = rank;
+            this.ex = ex;
+        }
+
+        @Override
+        public int compareTo(Violation o) {
+            if (phase != o.phase) {
+                return Integer.compare(phase, o.phase);
+            }
+            if (step != o.step) {
+                return Integer.compare(step, o.step);
+            }
+            if (event != o.event) {
+                return Integer.compare(event, o.event);
             }
+            return Integer.compare(rank, o.rank);
         }
     }
 }
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.model;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link ArrayMapping}.
+ * The tests of {@link DefaultMappingTest} are run against an {@link ArrayMapping}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ArrayMappingTest extends DefaultMappingTest {
+
+    @Override
+    protected Mapping newMapping() {
+        return new ArrayMapping();
+    }
+
+    @Test
+    public void testLiveViews() {
+        Mapping m = new ArrayMapping();
+        Set<VM> running = m.getRunningVMs();
+        Set<Node> online = m.getOnlineNodes();
+        Node n = new Node(1000);
+        VM v = new VM(5000);
+        m.addOnlineNode(n);
+        m.addRunningVM(v, n);
+        Assert.assertEquals(online.size(), 1);
+        Assert.assertTrue(online.contains(n));
+        Assert.assertTrue(running.contains(v));
+        Assert.assertTrue(m.getAllVMs().contains(v));
+        Assert.assertEquals(m.getVMLocation(v), n);
+
+        m.addSleepingVM(v, n);
+        Assert.assertTrue(running.isEmpty());
+        Assert.assertEquals(m.getSleepingVMs(n).size(), 1);
+        Assert.assertTrue(m.getSleepingVMs().contains(v));
+        Assert.assertFalse(m.addOfflineNode(n));
+    }
+
+    @Test(expectedExceptions = ConcurrentModificationException.class)
+    public void testFailFast() {
+        Mapping m = new ArrayMapping();
+        Node n = new Node(0);
+        m.addOnlineNode(n);
+        m.addRunningVM(new VM(0), n);
+        m.addRunningVM(new VM(1), n);
+        Iterator<VM> ite = m.getRunningVMs(n).iterator();
+        ite.next();
+        m.addReadyVM(new VM(0));
+        ite.next();
+    }
+
+    @Test
+    public void testHostedListConsistency() {
+        Mapping m = new ArrayMapping();
+        Node n0 = new Node(0);
+        Node n1 = new Node(1);
+        m.on(n0, n1);
+        for (int i = 0; i < 100; i++) {
+            m.addRunningVM(new VM(i), i % 2 == 0 ? n0 : n1);
+        }
+        //Move the VMs in the middle, at the head and at the tail of the lists.
+        m.addRunningVM(new VM(50), n1);
+        m.addRunningVM(new VM(98), n1);
+        m.addRunningVM(new VM(0), n1);
+        m.remove(new VM(1));
+        Assert.assertEquals(m.getRunningVMs(n0).size(), 47);
+        Assert.assertEquals(m.getRunningVMs(n1).size(), 52);
+        int nb = 0;
+        for (VM v : m.getRunningVMs(n1)) {
+            Assert.assertEquals(m.getVMLocation(v), n1);
+            nb++;
+        }
+        Assert.assertEquals(nb, 52);
+        Assert.assertEquals(m.getRunningVMs().size(), 99);
+        Assert.assertEquals(new DefaultMapping(m), m);
+    }
+
+    @Test
+    public void testBulkCopy() {
+        Mapping m = new ArrayMapping();
+        Node n = new Node(3);
+        m.on(n).off(new Node(7)).run(n, new VM(2)).sleep(n, new VM(9)).ready(new VM(4));
+        Mapping c = m.copy();
+        Assert.assertEquals(c, m);
+        Assert.assertEquals(c.hashCode(), m.hashCode());
+        c.addReadyVM(new VM(2));
+        Assert.assertTrue(m.isRunning(new VM(2)));
+        Assert.assertFalse(c.equals(m));
+
+        Model mo = new DefaultModel(new DefaultElementBuilder(), new ArrayMapping());
+        MappingUtils.fill(m, mo.getMapping());
+        Assert.assertEquals(mo.getMapping(), m);
+        Assert.assertTrue(mo.copy().getMapping() instanceof ArrayMapping);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeIdentifier() {
+        new ArrayMapping().addReadyVM(new VM(-1));
+    }
+
+    /**
+     * The arrays grow past their initial capacity while the elements are added.
+     */
+    @Test
+    public void testGrowth() {
+        Mapping m = new ArrayMapping();
+        Mapping ref = new DefaultMapping();
+        int nbNodes = 100;
+        int nbVMs = 5000;
+        for (Mapping x : new Mapping[]{m, ref}) {
+            for (int i = 0; i < nbNodes; i++) {
+                x.addOnlineNode(new Node(i));
+            }
+            for (int i = 0; i < nbVMs; i++) {
+                Node n = new Node(i % nbNodes);
+                if (i % 3 == 0) {
+                    x.addRunningVM(new VM(i), n);
+                } else if (i % 3 == 1) {
+                    x.addSleepingVM(new VM(i), n);
+                } else {
+                    x.addReadyVM(new VM(i));
+                }
+            }
+        }
+        Assert.assertEquals(m.getNbVMs(), nbVMs);
+        Assert.assertEquals(m.getRunningVMs().size(), ref.getRunningVMs().size());
+        Assert.assertEquals(m.getSleepingVMs().size(), ref.getSleepingVMs().size());
+        Assert.assertEquals(m.getReadyVMs().size(), ref.getReadyVMs().size());
+        for (int i = 0; i < nbNodes; i++) {
+            Node n = new Node(i);
+            Assert.assertEquals(m.getRunningVMs(n), ref.getRunningVMs(n));
+            Assert.assertEquals(m.getSleepingVMs(n), ref.getSleepingVMs(n));
+        }
+        Assert.assertEquals(m, ref);
+        Assert.assertEquals(m.hashCode(), ref.hashCode());
+    }
+
+    /**
+     * The identifiers are not necessarily dense.
+     */
+    @Test
+    public void testSparseIdentifiers() {
+        Mapping m = new ArrayMapping();
+        Node far = new Node(100000);
+        Node near = new Node(2);
+        VM v = new VM(250000);
+        VM w = new VM(7);
+        m.on(far, near).run(far, v).sleep(near, w);
+        Assert.assertEquals(m.getVMLocation(v), far);
+        Assert.assertEquals(m.getVMLocation(w), near);
+        Assert.assertEquals(m.getNbNodes(), 2);
+        Assert.assertEquals(m.getNbVMs(), 2);
+        Assert.assertFalse(m.contains(new VM(100000)));
+        Assert.assertFalse(m.contains(new VM(1000000)));
+        Assert.assertFalse(m.isOnline(new Node(1000000)));
+        Assert.assertTrue(m.getRunningVMs(new Node(1000000)).isEmpty());
+        Assert.assertFalse(m.getRunningVMs(far).contains(new VM(1000000)));
+        Assert.assertNull(m.getVMLocation(new VM(1000000)));
+
+        Assert.assertTrue(m.remove(v));
+        Assert.assertFalse(m.contains(v));
+        Assert.assertTrue(m.getRunningVMs(far).isEmpty());
+        Assert.assertTrue(m.remove(far));
+        Assert.assertEquals(m, new DefaultMapping(m));
+    }
+
+    /**
+     * The views of a mapping stay live once the mapping is copied. The copy has its own views.
+     */
+    @Test
+    public void testLiveViewsAfterCopy() {
+        Mapping m = new ArrayMapping();
+        Node n = new Node(0);
+        m.on(n).run(n, new VM(0), new VM(1));
+        Set<VM> running = m.getRunningVMs();
+        Set<VM> hosted = m.getRunningVMs(n);
+        Mapping c = m.copy();
+        Set<VM> cRunning = c.getRunningVMs();
+
+        c.addReadyVM(new VM(0));
+        Assert.assertEquals(running.size(), 2);
+        Assert.assertEquals(hosted.size(), 2);
+        Assert.assertEquals(cRunning.size(), 1);
+
+        m.remove(new VM(1));
+        Assert.assertEquals(running.size(), 1);
+        Assert.assertFalse(hosted.contains(new VM(1)));
+        Assert.assertTrue(c.isRunning(new VM(1)));
+        Assert.assertEquals(cRunning.size(), 1);
+    }
+
+    @Test(expectedExceptions = ConcurrentModificationException.class)
+    public void testFailFastStateView() {
+        Mapping m = new ArrayMapping();
+        m.on(new Node(0), new Node(1));
+        Iterator<Node> ite = m.getOnlineNodes().iterator();
+        ite.next();
+        m.addOfflineNode(new Node(1));
+        ite.next();
+    }
+
+    @Test(expectedExceptions = ConcurrentModificationException.class)
+    public void testFailFastAllVMs() {
+        Mapping m = new ArrayMapping();
+        m.ready(new VM(0), new VM(1));
+        Iterator<VM> ite = m.getAllVMs().iterator();
+        ite.next();
+        m.remove(new VM(1));
+        ite.next();
+    }
+}
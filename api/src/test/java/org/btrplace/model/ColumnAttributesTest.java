@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.model;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link ColumnAttributes}.
+ * The tests of {@link DefaultAttributesTest} are run against a {@link ColumnAttributes}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ColumnAttributesTest extends DefaultAttributesTest {
+
+    @Override
+    protected Attributes newAttributes() {
+        return new ColumnAttributes();
+    }
+
+    @Test
+    public void testTypeChange() {
+        Attributes attrs = new ColumnAttributes();
+        VM v = new VM(3);
+        Assert.assertFalse(attrs.put(v, "foo", 5));
+        Assert.assertTrue(attrs.put(v, "foo", "bar"));
+        Assert.assertEquals(attrs.get(v, "foo"), "bar");
+    }
+
+    @Test
+    public void testSameIdentifiers() {
+        Attributes attrs = new ColumnAttributes();
+        attrs.put(new VM(0), "foo", 1);
+        attrs.put(new Node(0), "foo", true);
+        Assert.assertEquals(attrs.get(new VM(0), "foo", -1), 1);
+        Assert.assertTrue(attrs.get(new Node(0), "foo", false));
+        Assert.assertEquals(attrs.getDefined().size(), 2);
+        attrs.clear(new VM(0));
+        Assert.assertFalse(attrs.isSet(new VM(0), "foo"));
+        Assert.assertTrue(attrs.isSet(new Node(0), "foo"));
+    }
+
+    @Test
+    public void testCrossImplementations() {
+        Attributes attrs = new ColumnAttributes();
+        Attributes ref = new DefaultAttributes();
+        for (Attributes a : new Attributes[]{attrs, ref}) {
+            a.put(new VM(7), "migrate", 12);
+            a.put(new VM(7), "clone", true);
+            a.put(new Node(2), "boot", 3.5);
+            a.put(new Node(4), "template", "small");
+        }
+        Assert.assertEquals(attrs, ref);
+        Assert.assertEquals(ref, attrs);
+        Assert.assertEquals(attrs.hashCode(), ref.hashCode());
+        attrs.put(new Node(4), "template", "large");
+        Assert.assertNotEquals(attrs, ref);
+        Assert.assertNotEquals(ref, attrs);
+
+        Model mo = new DefaultModel();
+        mo.setAttributes(attrs);
+        Assert.assertTrue(mo.copy().getAttributes() instanceof ColumnAttributes);
+        Assert.assertEquals(mo.copy(), mo);
+    }
+
+    @Test
+    public void testCopyOnWrite() {
+        Attributes attrs = new ColumnAttributes();
+        attrs.put(new VM(1), "foo", 1);
+        Attributes cpy = attrs.copy();
+        cpy.put(new VM(1), "foo", 2);
+        cpy.put(new VM(2), "bar", 2);
+        attrs.put(new VM(1), "baz", 3);
+        Assert.assertEquals(attrs.get(new VM(1), "foo", -1), 1);
+        Assert.assertFalse(attrs.isSet(new VM(2), "bar"));
+        Assert.assertFalse(cpy.isSet(new VM(1), "baz"));
+        Assert.assertEquals(cpy.getDefined().size(), 2);
+        Assert.assertEquals(attrs.getDefined().size(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeIdentifier() {
+        new ColumnAttributes().put(new VM(-1), "foo", 1);
+    }
+
+    /**
+     * The columns grow while the values are added, one type at a time.
+     */
+    @Test
+    public void testGrowth() {
+        Attributes attrs = new ColumnAttributes();
+        int nb = 1000;
+        for (int i = 0; i < nb; i++) {
+            VM v = new VM(i);
+            switch (i % 4) {
+                case 0:
+                    attrs.put(v, "foo", i);
+                    break;
+                case 1:
+                    attrs.put(v, "foo", i / 2.0);
+                    break;
+                case 2:
+                    attrs.put(v, "foo", i % 3 == 0);
+                    break;
+                default:
+                    attrs.put(v, "foo", "v" + i);
+                    break;
+            }
+            attrs.put(new Node(nb - i), "bar", i);
+        }
+        for (int i = 0; i < nb; i++) {
+            Object o = attrs.get(new VM(i), "foo");
+            switch (i % 4) {
+                case 0:
+                    Assert.assertEquals(o, i);
+                    break;
+                case 1:
+                    Assert.assertEquals(o, i / 2.0);
+                    break;
+                case 2:
+                    Assert.assertEquals(o, i % 3 == 0);
+                    break;
+                default:
+                    Assert.assertEquals(o, "v" + i);
+                    break;
+            }
+            Assert.assertEquals(attrs.get(new Node(nb - i), "bar", -1), i);
+        }
+        Assert.assertEquals(attrs.getDefined().size(), 2 * nb);
+        Assert.assertFalse(attrs.isSet(new VM(nb), "foo"));
+        Assert.assertFalse(attrs.isSet(new Node(0), "foo"));
+    }
+
+    /**
+     * Unsetting a value clears its presence bits only. The other elements and the copies keep their values.
+     */
+    @Test
+    public void testPresenceAfterUnset() {
+        Attributes attrs = new ColumnAttributes();
+        VM v = new VM(2);
+        VM w = new VM(3);
+        attrs.put(v, "foo", true);
+        attrs.put(w, "foo", true);
+        Attributes cpy = attrs.copy();
+        Assert.assertTrue(attrs.unset(v, "foo"));
+        Assert.assertFalse(attrs.isSet(v, "foo"));
+        Assert.assertNull(attrs.get(v, "foo"));
+        Assert.assertFalse(attrs.get(v, "foo", false));
+        Assert.assertTrue(attrs.get(w, "foo", false));
+        Assert.assertTrue(cpy.get(v, "foo", false));
+        Assert.assertEquals(attrs.getDefined().size(), 1);
+
+        //A stale boolean value must not be read through another type
+        attrs.put(v, "foo", 4);
+        Assert.assertEquals(attrs.get(v, "foo"), 4);
+        Assert.assertTrue(attrs.unset(v, "foo"));
+        Assert.assertTrue(attrs.unset(w, "foo"));
+        Assert.assertTrue(attrs.getDefined().isEmpty());
+        Assert.assertEquals(attrs, new ColumnAttributes());
+        Assert.assertEquals(attrs.hashCode(), new ColumnAttributes().hashCode());
+        Assert.assertEquals(cpy.getDefined().size(), 2);
+    }
+}
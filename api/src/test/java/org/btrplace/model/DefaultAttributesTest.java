@@ -23,6 +23,7 @@ import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -37,9 +38,18 @@ public class DefaultAttributesTest {
     private static List<VM> vms = Util.newVMs(mo, 10);
     private static List<Node> nodes = Util.newNodes(mo, 10);
 
+    /**
+     * Make the attributes to test.
+     *
+     * @return empty attributes
+     */
+    protected Attributes newAttributes() {
+        return new DefaultAttributes();
+    }
+
     @Test
     public void testInstantiation() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
         Assert.assertFalse(attrs.toString().contains("null"));
         Assert.assertTrue(attrs.getDefined().isEmpty());
     }
@@ -47,7 +57,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testPutAndGetString() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
 
         Assert.assertFalse(attrs.put(vms.get(0), "foo", "bar"));
         Assert.assertEquals(attrs.get(vms.get(0), "foo", ""), "bar");
@@ -60,7 +70,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testPutAndGetDouble() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
 
         Assert.assertFalse(attrs.put(vms.get(0), "foo", 17.3));
         Assert.assertEquals(attrs.get(vms.get(0), "foo", 8.5), 17.3);
@@ -69,7 +79,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testPutAndGetBoolean() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
 
         Assert.assertFalse(attrs.put(vms.get(0), "foo", true));
         Assert.assertEquals(attrs.get(vms.get(0), "foo", false), true);
@@ -80,7 +90,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testCastAndPut() {
-        DefaultAttributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
 
         attrs.castAndPut(vms.get(0), "foo", "foo");
         Assert.assertEquals(attrs.get(vms.get(0), "foo").getClass(), String.class);
@@ -102,7 +112,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testPutAndGetString", "testInstantiation"})
     public void testIsSet() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
         Assert.assertFalse(attrs.isSet(vms.get(0), "foo"));
         attrs.put(vms.get(0), "foo", "bar");
         Assert.assertTrue(attrs.isSet(vms.get(0), "foo"));
@@ -111,7 +121,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testPutAndGetString", "testInstantiation"})
     public void testUnset() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
 
         Assert.assertFalse(attrs.unset(vms.get(0), "foo"));
         attrs.put(vms.get(0), "foo", "bar");
@@ -122,7 +132,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testUnset"})
     public void testClone() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
         List<Node> l = new ArrayList<>();
         for (int i = 0; i < 5; i++) {
             Node u = mo.newNode();
@@ -140,7 +150,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testUnset", "testClone"})
     public void testEqualsHashCode() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
         for (int i = 0; i < 5; i++) {
             attrs.put(nodes.get(0), Integer.toString(i), i);
             attrs.put(vms.get(0), Integer.toString(i), i);
@@ -158,7 +168,7 @@ public class DefaultAttributesTest {
 
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testClear() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
         for (int i = 0; i < 5; i++) {
             attrs.put(nodes.get(i), Integer.toString(i), i);
             attrs.put(vms.get(i), Integer.toString(i), i);
@@ -177,7 +187,7 @@ public class DefaultAttributesTest {
 
     @Test
     public void testGetKeys() {
-        Attributes attrs = new DefaultAttributes();
+        Attributes attrs = newAttributes();
         VM u = vms.get(0);
         attrs.put(u, "foo", 1);
         attrs.put(u, "bar", 1);
@@ -187,4 +197,69 @@ public class DefaultAttributesTest {
         Assert.assertEquals(attrs.getKeys(mo.newVM()).size(), 0);
         Assert.assertEquals(attrs.getKeys(mo.newNode()).size(), 0);
     }
+
+    @Test
+    public void testGetNumbers() {
+        Attributes attrs = newAttributes();
+        VM u = vms.get(0);
+        attrs.put(u, "i", 5);
+        attrs.put(u, "d", 2.5);
+        attrs.put(u, "s", "foo");
+        Assert.assertEquals(attrs.get(u, "i", 0.5), 5.0);
+        Assert.assertEquals(attrs.get(u, "d", 0.5), 2.5);
+        Assert.assertEquals(attrs.get(u, "i", -1), 5);
+        Assert.assertTrue(Arrays.equals(attrs.get(Arrays.asList(vms.get(1), u), "i", -1), new int[]{-1, 5}));
+        Assert.assertTrue(Arrays.equals(attrs.get(Arrays.asList(u, nodes.get(0)), "d", 1.5), new double[]{2.5, 1.5}));
+        try {
+            attrs.get(u, "s", 0.5);
+            Assert.fail();
+        } catch (ClassCastException ex) {
+            //Not a number
+        }
+    }
+
+    @Test
+    public void testUnsetLast() {
+        Attributes attrs = newAttributes();
+        attrs.put(vms.get(0), "foo", 1);
+        attrs.unset(vms.get(0), "foo");
+        Assert.assertTrue(attrs.getDefined().isEmpty());
+        Assert.assertEquals(attrs, newAttributes());
+    }
+
+    @Test
+    public void testSparseIdentifiers() {
+        Attributes attrs = newAttributes();
+        VM far = new VM(100000);
+        VM near = new VM(3);
+        attrs.put(far, "foo", 7);
+        attrs.put(near, "foo", 1.5);
+        Assert.assertEquals(attrs.get(far, "foo", -1), 7);
+        Assert.assertEquals(attrs.get(near, "foo", -1.0), 1.5);
+        Assert.assertFalse(attrs.isSet(new VM(50000), "foo"));
+        Assert.assertEquals(attrs.get(new VM(200000), "foo", -1), -1);
+        Assert.assertEquals(attrs.getDefined().size(), 2);
+        Assert.assertTrue(Arrays.equals(attrs.get(Arrays.asList(far, new VM(4), near), "foo", 0.5), new double[]{7, 0.5, 1.5}));
+    }
+
+    @Test(dependsOnMethods = {"testUnset"})
+    public void testUnsetThenPut() {
+        Attributes attrs = newAttributes();
+        VM u = vms.get(0);
+        attrs.put(u, "foo", 5);
+        attrs.put(u, "bar", true);
+        Assert.assertTrue(attrs.unset(u, "foo"));
+        Assert.assertFalse(attrs.unset(u, "foo"));
+        Assert.assertNull(attrs.get(u, "foo"));
+        Assert.assertEquals(attrs.get(u, "foo", -1), -1);
+        Assert.assertEquals(attrs.getKeys(u), Collections.singleton("bar"));
+
+        //A new value of another type
+        Assert.assertFalse(attrs.put(u, "foo", "baz"));
+        Assert.assertEquals(attrs.get(u, "foo"), "baz");
+        Assert.assertTrue(attrs.unset(u, "bar"));
+        Assert.assertFalse(attrs.put(u, "bar", false));
+        Assert.assertFalse(attrs.get(u, "bar", true));
+        Assert.assertEquals(attrs.getDefined().size(), 1);
+    }
 }
@@ -36,12 +36,21 @@ public class DefaultMappingTest {
     private static List<VM> vms = Util.newVMs(10);
     private static List<Node> ns = Util.newNodes(10);
 
+    /**
+     * Make the mapping to test.
+     *
+     * @return an empty mapping
+     */
+    protected Mapping newMapping() {
+        return new DefaultMapping();
+    }
+
     /**
      * Create an empty mapping and check all the getters.
      */
     @Test
     public void testInstantiation() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         //Global getters
         Assert.assertTrue(c.getAllNodes().isEmpty());
@@ -76,7 +85,7 @@ public class DefaultMappingTest {
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testOnlineNode() {
 
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         c.addOnlineNode(ns.get(0));
         //Basic getters for online
@@ -108,7 +117,7 @@ public class DefaultMappingTest {
      */
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testOfflineNode() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         //Add an offline node
         Assert.assertTrue(c.addOfflineNode(ns.get(1)));
         Assert.assertEquals(c.getNbNodes(), 1);
@@ -127,7 +136,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testRunningVM", "testSleeping", "testOnlineNode", "testOfflineNode"})
     public void testRemoveNode() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         //Remove empty online node
         c.addOnlineNode(ns.get(0));
@@ -172,7 +181,7 @@ public class DefaultMappingTest {
      */
     @Test(dependsOnMethods = {"testOfflineNode", "testOnlineNode"})
     public void testRunningVM() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOnlineNode(ns.get(0));
         c.addOfflineNode(ns.get(1));
 
@@ -215,7 +224,7 @@ public class DefaultMappingTest {
      */
     @Test(dependsOnMethods = {"testOfflineNode", "testOnlineNode"})
     public void testSleeping() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOnlineNode(ns.get(0));
         c.addOfflineNode(ns.get(1));
 
@@ -246,7 +255,7 @@ public class DefaultMappingTest {
      */
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testWaiting() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addReadyVM(vms.get(0));
         Assert.assertTrue(c.getAllVMs().size() == 1 && c.getAllVMs().contains(vms.get(0)));
         Assert.assertTrue(c.getReadyVMs().size() == 1 && c.isReady(vms.get(0)));
@@ -261,7 +270,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testOfflineNode", "testOnlineNode"})
     public void testSwitchNodeState() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         //Set online then offline then online. Everything is ok
         c.addOnlineNode(ns.get(0));
@@ -295,7 +304,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testRunningVM"})
     public void testReplaceRunningVM() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOnlineNode(ns.get(0));
         c.addOnlineNode(ns.get(1));
         c.addOfflineNode(ns.get(2));
@@ -341,7 +350,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testSleeping"})
     public void testReplaceSleepingVM() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         c.addOnlineNode(ns.get(0));
         c.addSleepingVM(vms.get(0), ns.get(0));
@@ -395,7 +404,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testClear", "testWaiting", "testRunningVM", "testSleeping"})
     public void testReplaceWaitingVM() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addReadyVM(vms.get(0));
         c.addOnlineNode(ns.get(0));
         Assert.assertEquals(c.getNbVMs(), 1);
@@ -425,7 +434,7 @@ public class DefaultMappingTest {
 
     @Test
     public void testToString() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         c.addOnlineNode(ns.get(0));
         c.addRunningVM(vms.get(0), ns.get(0));
@@ -447,7 +456,7 @@ public class DefaultMappingTest {
 
     @Test
     public void testClone() {
-        Mapping c1 = new DefaultMapping();
+        Mapping c1 = newMapping();
 
         c1.addOnlineNode(ns.get(0));
         c1.addOnlineNode(ns.get(1));
@@ -473,7 +482,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testClone"})
     public void testEquals() {
-        Mapping c1 = new DefaultMapping();
+        Mapping c1 = newMapping();
 
         c1.addOnlineNode(ns.get(0));
         c1.addOnlineNode(ns.get(1));
@@ -512,7 +521,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testOnlineNode", "testOfflineNode", "testRunningVM", "testWaiting", "testSleeping"})
     public void testClear() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOfflineNode(ns.get(1));
         c.addOnlineNode(ns.get(0));
         c.addRunningVM(vms.get(0), ns.get(0));
@@ -536,7 +545,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testOnlineNode", "testOfflineNode", "testRunningVM", "testWaiting", "testSleeping"})
     public void testClearAllVMs() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOfflineNode(ns.get(0));
         c.addOnlineNode(ns.get(1));
         c.addRunningVM(vms.get(0), ns.get(1));
@@ -559,7 +568,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testClearNode() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOnlineNode(ns.get(0));
         c.addOnlineNode(ns.get(1));
         c.addRunningVM(vms.get(0), ns.get(0));
@@ -576,7 +585,7 @@ public class DefaultMappingTest {
 
     @Test
     public void testGetRunningVMsOnOfflineNodes() {
-        Mapping m = new DefaultMapping();
+        Mapping m = newMapping();
         m.addOnlineNode(ns.get(0));
         m.addOnlineNode(ns.get(1));
         m.addRunningVM(vms.get(0), ns.get(0));
@@ -590,4 +599,65 @@ public class DefaultMappingTest {
         nodes.add(ns.get(2));
         Assert.assertTrue(m.getRunningVMs(nodes).isEmpty());
     }
+
+    @Test
+    public void testCopyOnWrite() {
+        Mapping m = newMapping();
+        m.on(ns.get(0), ns.get(1)).off(ns.get(2))
+                .run(ns.get(0), vms.get(0), vms.get(1))
+                .sleep(ns.get(1), vms.get(2))
+                .ready(vms.get(3));
+        Mapping ref = new DefaultMapping(m);
+        Mapping c1 = m.copy();
+        Mapping c2 = c1.copy();
+
+        //Modifications of the copies are not visible elsewhere
+        c1.addRunningVM(vms.get(0), ns.get(1));
+        c1.addOnlineNode(ns.get(2));
+        c2.addReadyVM(vms.get(2));
+        c2.remove(vms.get(3));
+        Assert.assertEquals(m, ref);
+        Assert.assertEquals(c1.getVMLocation(vms.get(0)), ns.get(1));
+        Assert.assertTrue(c1.isSleeping(vms.get(2)));
+        Assert.assertTrue(c2.isRunning(vms.get(0)));
+        Assert.assertEquals(c2.getRunningVMs(ns.get(0)).size(), 2);
+        Assert.assertFalse(c2.contains(vms.get(3)));
+
+        //Modifications of the original are not visible in the copies
+        Mapping c3 = m.copy();
+        m.addSleepingVM(vms.get(1), ns.get(1));
+        m.clearNode(ns.get(0));
+        Assert.assertEquals(c3, ref);
+        Assert.assertEquals(c3.getRunningVMs(ns.get(0)).size(), 2);
+        Assert.assertTrue(m.getRunningVMs(ns.get(0)).isEmpty());
+        Assert.assertEquals(m.getSleepingVMs(ns.get(1)).size(), 2);
+
+        c3.clear();
+        Assert.assertEquals(c3.getNbNodes(), 0);
+        Assert.assertEquals(m.getNbNodes(), 3);
+    }
+
+    /**
+     * The sets returned by a copy may be shared with the original mapping.
+     */
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testUnmodifiableNodes() {
+        Mapping m = newMapping();
+        m.on(ns.get(0));
+        m.copy().getOnlineNodes().add(ns.get(1));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testUnmodifiableHostedVMs() {
+        Mapping m = newMapping();
+        m.on(ns.get(0)).run(ns.get(0), vms.get(0));
+        m.copy().getRunningVMs(ns.get(0)).add(vms.get(1));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testUnmodifiableReadyVMs() {
+        Mapping m = newMapping();
+        m.ready(vms.get(0));
+        m.copy().getReadyVMs().remove(vms.get(0));
+    }
 }
@@ -23,12 +23,15 @@ import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.view.network.Link;
 import org.btrplace.model.view.network.Network;
+import org.btrplace.model.view.network.Routing;
 import org.btrplace.model.view.network.StaticRouting;
 import org.btrplace.model.view.network.Switch;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * Unit tests for {@link org.btrplace.model.view.network.Network}.
@@ -68,6 +71,58 @@ public class NetworkTest {
         Assert.assertTrue(net.getRouting().getPath(n1, n2).containsAll(net.getLinks()));
     }
 
+    /**
+     * Test the default routing implementation on a 2-level tree with a redundant core link.
+     */
+    @Test
+    public void defaultRoutingTest() {
+        Model mo = new DefaultModel();
+        Network net = new Network();
+        Switch core = net.newSwitch();
+        Switch e1 = net.newSwitch();
+        Switch e2 = net.newSwitch();
+        Switch e3 = net.newSwitch();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        Node n4 = mo.newNode();
+        Node alone = mo.newNode();
+        Link l1 = net.connect(1000, e1, n1);
+        Link l2 = net.connect(1000, e1, n2);
+        Link l3 = net.connect(1000, e2, n3);
+        Link l4 = net.connect(1000, e3, n4);
+        Link c1 = net.connect(10000, core, e1);
+        Link c2 = net.connect(10000, core, e2);
+        Link c3 = net.connect(10000, core, e3);
+        //A redundant link between e2 and e3 that is not used from e1
+        Link r = net.connect(10000, e2, e3);
+        mo.attach(net);
+        Routing routing = net.getRouting();
+
+        Assert.assertTrue(routing.getPath(n1, n1).isEmpty());
+        Assert.assertEquals(routing.getPath(n1, n2), Arrays.asList(l1, l2));
+        Assert.assertEquals(routing.getPath(n1, n3), Arrays.asList(l1, c1, c2, l3));
+        Assert.assertEquals(routing.getPath(n3, n1), Arrays.asList(l3, c2, c1, l1));
+        //Shortest path
+        Assert.assertEquals(routing.getPath(n3, n4), Arrays.asList(l3, r, l4));
+        Assert.assertEquals(routing.getMaxBW(n1, n3), 1000);
+        //Not connected
+        Assert.assertTrue(routing.getPath(n1, alone).isEmpty());
+
+        Assert.assertEquals(routing.getLinkDirection(n1, n3, l1), Routing.LinkDirection.DOWNLINK);
+        Assert.assertEquals(routing.getLinkDirection(n1, n3, c1), Routing.LinkDirection.DOWNLINK);
+        Assert.assertEquals(routing.getLinkDirection(n1, n3, c2), Routing.LinkDirection.UPLINK);
+        Assert.assertEquals(routing.getLinkDirection(n1, n3, l3), Routing.LinkDirection.UPLINK);
+        Assert.assertEquals(routing.getLinkDirection(n1, n3, l4), Routing.LinkDirection.NONE);
+        Assert.assertEquals(routing.getLinkDirection(n1, alone, l1), Routing.LinkDirection.NONE);
+
+        //The tables are updated when the network changes
+        Node n5 = mo.newNode();
+        Link l5 = net.connect(1000, e3, n5);
+        List<Link> path = routing.getPath(n1, n5);
+        Assert.assertEquals(path, Arrays.asList(l1, c1, c3, l5));
+    }
+
     /**
      * Test the static routing implementation.
      */
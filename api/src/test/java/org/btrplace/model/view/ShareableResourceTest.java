@@ -22,6 +22,8 @@ import org.btrplace.model.*;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -184,6 +186,31 @@ public class ShareableResourceTest {
         Assert.assertEquals(rc1, rc2);
     }
 
+    @Test(dependsOnMethods = {"testClone"})
+    public void testCopyOnWrite() {
+        ShareableResource rc1 = new ShareableResource("foo", 1, 1);
+        rc1.setConsumption(vms.get(0), 3).setCapacity(nodes.get(0), 10);
+        ShareableResource rc2 = rc1.copy();
+        ShareableResource rc3 = rc2.copy();
+
+        rc2.setConsumption(vms.get(0), 4);
+        Assert.assertEquals(rc1.getConsumption(vms.get(0)), 3);
+        Assert.assertEquals(rc3.getConsumption(vms.get(0)), 3);
+        //The capacities are still shared
+        Assert.assertEquals(rc2.getCapacity(nodes.get(0)), 10);
+
+        rc1.setCapacity(nodes.get(0), 5);
+        rc1.unset(vms.get(0));
+        Assert.assertEquals(rc2.getCapacity(nodes.get(0)), 10);
+        Assert.assertEquals(rc3.getCapacity(nodes.get(0)), 10);
+        Assert.assertTrue(rc3.consumptionDefined(vms.get(0)));
+        Assert.assertFalse(rc1.consumptionDefined(vms.get(0)));
+
+        rc3.setCapacity(nodes.get(1), 7);
+        Assert.assertFalse(rc2.capacityDefined(nodes.get(1)));
+        Assert.assertEquals(rc3.getConsumption(vms.get(0)), 3);
+    }
+
     @Test
     public void testSubstitution() {
         ShareableResource rc = new ShareableResource("foo");
@@ -193,4 +220,53 @@ public class ShareableResourceTest {
         Assert.assertTrue(rc.substituteVM(vms.get(2), vms.get(6)));
         Assert.assertEquals(rc.getConsumption(vms.get(6)), 0);
     }
+
+    @Test(dependsOnMethods = {"testInstantiation", "testDefinition"})
+    public void testBulkAccessors() {
+        ShareableResource rc = new ShareableResource("foo", 4, 1);
+        rc.setConsumption(vms.get(1), 3);
+        rc.setCapacity(nodes.get(2), 10);
+        rc.setCapacity(new Node(1000), 7);
+        Assert.assertEquals(rc.getConsumptions(vms.subList(0, 3)), new int[]{1, 3, 1});
+        Assert.assertEquals(rc.getCapacities(Arrays.asList(nodes.get(2), new Node(1000), new Node(500))), new int[]{10, 7, 4});
+
+        int[] ids = {vms.get(1).id(), 5000, vms.get(0).id()};
+        Assert.assertEquals(rc.getConsumptions(ids, new int[3]), new int[]{3, 1, 1});
+        ids = new int[]{1000, nodes.get(2).id()};
+        Assert.assertEquals(rc.getCapacities(ids, new int[2]), new int[]{7, 10});
+
+        rc.unset(new Node(1000));
+        Assert.assertEquals(rc.getCapacity(new Node(1000)), 4);
+        Assert.assertEquals(rc.getDefinedNodes(), Collections.singleton(nodes.get(2)));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadIdentifier() {
+        new ShareableResource("foo").setConsumption(new VM(-1), 3);
+    }
+
+    @Test
+    public void testSparseIdentifiers() {
+        ShareableResource rc = new ShareableResource("foo", 4, 1);
+        VM big = new VM(2_000_000_000);
+        rc.setConsumption(vms.get(0), 3).setConsumption(big, 7);
+        Assert.assertEquals(rc.getConsumption(big), 7);
+        Assert.assertEquals(rc.getConsumption(vms.get(0)), 3);
+        Assert.assertEquals(rc.getConsumption(new VM(1_000_000_000)), 1);
+        Assert.assertEquals(rc.getDefinedVMs(), new HashSet<>(Arrays.asList(vms.get(0), big)));
+        Assert.assertTrue(rc.toString().endsWith("<VM " + big + ",7>"));
+
+        //Same content, dense storage
+        ShareableResource dense = new ShareableResource("foo", 4, 1);
+        dense.setConsumption(vms.get(0), 3);
+        rc.unset(big);
+        Assert.assertEquals(rc, dense);
+        Assert.assertEquals(rc.hashCode(), dense.hashCode());
+
+        ShareableResource cpy = rc.copy();
+        cpy.setConsumption(big, 8);
+        Assert.assertNotEquals(cpy, rc);
+        Assert.assertEquals(cpy.getConsumption(big), 8);
+        Assert.assertFalse(rc.consumptionDefined(big));
+    }
 }
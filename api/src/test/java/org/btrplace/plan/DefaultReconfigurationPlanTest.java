@@ -19,6 +19,7 @@
 package org.btrplace.plan;
 
 import org.btrplace.model.*;
+import org.btrplace.model.view.ShareableResource;
 import org.btrplace.plan.event.Action;
 import org.btrplace.plan.event.MigrateVM;
 import org.btrplace.plan.event.ShutdownNode;
@@ -26,9 +27,11 @@ import org.btrplace.plan.event.SuspendVM;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
-import java.util.List;
+import java.util.*;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -57,7 +60,10 @@ public class DefaultReconfigurationPlanTest {
 
         Model mo = new DefaultModel();
         when(ap.apply(p)).thenReturn(mo);
-        Assert.assertTrue(p.getResult() == mo);
+        Assert.assertEquals(p.getResult(), mo);
+        //Computed once
+        Assert.assertEquals(p.getResult(), mo);
+        verify(ap, times(1)).apply(p);
     }
 
 
@@ -175,4 +181,93 @@ Expected:
 1:2 {action=shutdown(node=node#1)}
          */
     }
+
+    @Test
+    public void testCachedResult() {
+        Model mo = new DefaultModel();
+        VM v = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1, n2).run(n1, v);
+        ShareableResource rc = new ShareableResource("cpu", 5, 3);
+        mo.attach(rc);
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        p.add(new MigrateVM(v, n1, n2, 0, 3));
+        Model res = p.getResult();
+        Assert.assertEquals(p.getResult(), res);
+        Assert.assertEquals(res.getMapping().getVMLocation(v), n2);
+
+        //The callers get a copy
+        res.getMapping().addRunningVM(v, n1);
+        Assert.assertEquals(p.getResult().getMapping().getVMLocation(v), n2);
+
+        //Invalidated by a new action
+        ShutdownNode s = new ShutdownNode(n1, 3, 5);
+        p.add(s);
+        Model res2 = p.getResult();
+        Assert.assertTrue(res2.getMapping().isOffline(n1));
+        Assert.assertEquals(p.getDuration(), 5);
+
+        //Invalidated by a modification of the origin
+        rc.setConsumption(v, 1);
+        Model res3 = p.getResult();
+        Assert.assertEquals(ShareableResource.get(res3, "cpu").getConsumption(v), 1);
+        Assert.assertEquals(p.getResult(), res3);
+    }
+
+    @Test
+    public void testOrderAfterLateInsertion() {
+        Model m = new DefaultModel();
+        List<VM> vms = Util.newVMs(m, 4);
+        DefaultReconfigurationPlan p = new DefaultReconfigurationPlan(m);
+        Action a1 = new MockAction(vms.get(0), 5, 7);
+        Action a2 = new MockAction(vms.get(1), 0, 4);
+        Action a3 = new MockAction(vms.get(2), 0, 2);
+        Action a4 = new MockAction(vms.get(3), 0, 2);
+        p.add(a1);
+        Assert.assertEquals(p.iterator().next(), a1);
+        p.add(a2);
+        p.add(a3);
+        p.add(a4);
+        List<Action> l = new ArrayList<>();
+        p.forEach(l::add);
+        //Simultaneous actions remain in their insertion order
+        Assert.assertEquals(l, Arrays.asList(a3, a4, a2, a1));
+        Assert.assertEquals(p.getDuration(), 7);
+    }
+
+    @Test
+    public void testBulkDependencies() {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 3);
+        List<VM> vms = Util.newVMs(mo, 3);
+        mo.getMapping().on(ns.get(0), ns.get(1), ns.get(2))
+                .run(ns.get(0), vms.get(0))
+                .run(ns.get(1), vms.get(1), vms.get(2));
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        //v1 and v2 leave n1 so v0 can arrive
+        Action m1 = new MigrateVM(vms.get(1), ns.get(1), ns.get(2), 0, 2);
+        Action m2 = new MigrateVM(vms.get(2), ns.get(1), ns.get(2), 0, 3);
+        Action m0 = new MigrateVM(vms.get(0), ns.get(0), ns.get(1), 3, 5);
+        //Once v0 left n0
+        Action s = new ShutdownNode(ns.get(0), 5, 6);
+        p.add(m1);
+        p.add(m2);
+        p.add(m0);
+        p.add(s);
+
+        Assert.assertEquals(p.getDirectDependencies(m0), new HashSet<>(Arrays.asList(m1, m2)));
+        Assert.assertTrue(p.getDirectDependencies(m1).isEmpty());
+        Assert.assertEquals(p.getDirectDependencies(s), Collections.singleton(m0));
+        Assert.assertTrue(p.getDirectDependencies(new ShutdownNode(ns.get(2), 0, 1)).isEmpty());
+
+        //Same result as an action-per-action extraction
+        DependenciesExtractor ex = new DependenciesExtractor(mo);
+        for (Action a : p) {
+            a.visit(ex);
+        }
+        for (Action a : p) {
+            Assert.assertEquals(p.getDirectDependencies(a), ex.getDependencies(a));
+        }
+    }
 }
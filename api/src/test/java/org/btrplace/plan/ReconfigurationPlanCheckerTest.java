@@ -19,14 +19,18 @@
 package org.btrplace.plan;
 
 import org.btrplace.model.*;
-import org.btrplace.model.constraint.SatConstraintChecker;
+import org.btrplace.model.constraint.*;
 import org.btrplace.plan.event.BootNode;
 import org.btrplace.plan.event.BootVM;
 import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.plan.event.RunningVMPlacement;
 import org.mockito.InOrder;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 
 import static org.mockito.Mockito.inOrder;
@@ -108,4 +112,122 @@ public class ReconfigurationPlanCheckerTest {
         order.verify(chk).endsWith(mo);
 
     }
+
+    @Test
+    public void testIndexedDispatch() throws SatConstraintViolationException {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 4);
+        List<VM> vms = Util.newVMs(mo, 2);
+        mo.getMapping().on(ns.get(0), ns.get(1), ns.get(2), ns.get(3))
+                .run(ns.get(2), vms.get(0))
+                .run(ns.get(1), vms.get(1));
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        p.add(new MigrateVM(vms.get(0), ns.get(2), ns.get(3), 0, 3));
+        p.add(new MigrateVM(vms.get(1), ns.get(1), ns.get(0), 3, 5));
+
+        int[] notified = new int[1];
+        AllowAllConstraintChecker<Fence> chk = new AllowAllConstraintChecker<Fence>(new Fence(vms.get(1), Collections.singleton(ns.get(0)))) {
+            @Override
+            public boolean startRunningVMPlacement(RunningVMPlacement a) {
+                notified[0]++;
+                return true;
+            }
+        };
+        ReconfigurationPlanChecker rc = new ReconfigurationPlanChecker();
+        Assert.assertTrue(rc.isIndexed());
+        rc.addChecker(chk);
+        rc.check(p);
+        Assert.assertEquals(notified[0], 1);
+
+        notified[0] = 0;
+        rc.setIndexed(false).check(p);
+        Assert.assertEquals(notified[0], 2);
+    }
+
+    @Test
+    public void testIndexedViolations() {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 3);
+        List<VM> vms = Util.newVMs(mo, 2);
+        mo.getMapping().on(ns.get(0), ns.get(1), ns.get(2))
+                .run(ns.get(0), vms.get(0))
+                .run(ns.get(1), vms.get(1));
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        p.add(new MigrateVM(vms.get(1), ns.get(1), ns.get(0), 0, 3));
+
+        //The lonely VM does not move but it must be notified about the arrival of another VM.
+        List<SatConstraint> cstrs = Arrays.asList(
+                new Fence(vms.get(0), Collections.singleton(ns.get(0))),
+                new Lonely(Collections.singleton(vms.get(0)), true));
+        for (boolean b : new boolean[]{true, false}) {
+            ReconfigurationPlanChecker rc = new ReconfigurationPlanChecker().setIndexed(b);
+            for (SatConstraint c : cstrs) {
+                rc.addChecker(c.getChecker());
+            }
+            try {
+                rc.check(p);
+                Assert.fail("The violation should have been detected");
+            } catch (SatConstraintViolationException ex) {
+                Assert.assertEquals(ex.getConstraint(), cstrs.get(1));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelCheck() throws SatConstraintViolationException {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 6);
+        List<VM> vms = Util.newVMs(mo, 6);
+        Mapping map = mo.getMapping();
+        for (int i = 0; i < ns.size(); i++) {
+            map.addOnlineNode(ns.get(i));
+            map.addRunningVM(vms.get(i), ns.get(i));
+        }
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        p.add(new MigrateVM(vms.get(0), ns.get(0), ns.get(1), 0, 3));
+        p.add(new MigrateVM(vms.get(2), ns.get(2), ns.get(3), 2, 4));
+        p.add(new MigrateVM(vms.get(4), ns.get(4), ns.get(5), 2, 4));
+
+        List<SatConstraint> ok = Arrays.asList(
+                new Fence(vms.get(0), Arrays.asList(ns.get(0), ns.get(1)), true),
+                new Fence(vms.get(2), Arrays.asList(ns.get(2), ns.get(3)), true),
+                new Running(vms.get(5)),
+                new Lonely(new HashSet<>(Arrays.asList(vms.get(2), vms.get(3)))));
+        ReconfigurationPlanChecker rc = new ReconfigurationPlanChecker().setParallelism(3);
+        Assert.assertEquals(rc.getParallelism(), 3);
+        for (SatConstraint c : ok) {
+            rc.addChecker(c.getChecker());
+        }
+        rc.check(p);
+
+        //Two continuous violations at the same moment, and a discrete one.
+        //The violation reported is the one of the sequential checking.
+        List<SatConstraint> ko = Arrays.asList(
+                new Ban(vms.get(5), Collections.singleton(ns.get(5))),
+                new Fence(vms.get(4), Collections.singleton(ns.get(4)), true),
+                new Fence(vms.get(2), Collections.singleton(ns.get(2)), true),
+                new Running(vms.get(1)));
+        SatConstraint expected = null;
+        for (int n : new int[]{1, 2, 4}) {
+            rc = new ReconfigurationPlanChecker().setParallelism(n);
+            for (SatConstraint c : ko) {
+                rc.addChecker(c.getChecker());
+            }
+            try {
+                rc.check(p);
+                Assert.fail("The violation should have been detected");
+            } catch (ContinuousViolationException ex) {
+                if (expected == null) {
+                    expected = ex.getConstraint();
+                    Assert.assertTrue(expected == ko.get(1) || expected == ko.get(2));
+                }
+                Assert.assertSame(ex.getConstraint(), expected);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadParallelism() {
+        new ReconfigurationPlanChecker().setParallelism(0);
+    }
 }
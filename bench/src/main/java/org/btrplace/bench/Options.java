@@ -19,6 +19,7 @@
 package org.btrplace.bench;
 
 import org.btrplace.json.JSON;
+import org.btrplace.json.binary.Binary;
 import org.btrplace.scheduler.choco.DefaultParameters;
 import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.extensions.env.ChunkedTrailing;
@@ -48,7 +49,7 @@ public class Options {
     @Option(name = "-t", aliases = "--timeout", usage = "Set a timeout (in sec)")
     private int timeout = 0;
 
-    @Option(name = "-i", aliases = "--instance", usage = "An instance  ('.json' or '.json.gz')", forbids = {"-l"})
+    @Option(name = "-i", aliases = "--instance", usage = "An instance  ('.json', '.json.gz' or '.bin')", forbids = {"-l"})
     private String instance;
 
     @Option(name = "-l", aliases = "--list", usage = "a list of instance files (one path per line)", forbids = {"-i"})
@@ -60,6 +61,9 @@ public class Options {
     @Option(name = "-c", aliases = "--chunked", usage = "Use the chunked memory environment (false by default)")
     private boolean chunk = false;
 
+    @Option(name = "-s", aliases = "--symmetries", usage = "Break the symmetries between interchangeable nodes and VMs")
+    private boolean symmetries = false;
+
 
     @Option(name = "-v", usage = "Set the verbosity level. With '-i' it controls the solver verbosity. With '-l' the bench progress")
     private int verbosity = 0;
@@ -73,7 +77,8 @@ public class Options {
         Parameters ps = new DefaultParameters()
                 .setTimeLimit(timeout)
                 .doRepair(repair)
-                .doOptimize(optimize);
+                .doOptimize(optimize)
+                .doSymmetryBreaking(symmetries);
 
         if (single()) {
             ps.setVerbosity(verbosity);
@@ -131,11 +136,16 @@ public class Options {
 
     /**
      * Make an instance.
+     * Files ending with {@link Binary#EXTENSION} are read using the binary format.
+     *
      * @param f the file that store the instance
      * @return the parsed instance. The instance label is the file name
      */
     public static LabelledInstance instance(File f) {
         String path = f.getAbsolutePath();
+        if (path.endsWith(Binary.EXTENSION)) {
+            return new LabelledInstance(path, Binary.readInstance(f));
+        }
         return new LabelledInstance(path, JSON.readInstance(f));
     }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.bench;
+
+import org.btrplace.json.JSON;
+import org.btrplace.model.Instance;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.btrplace.scheduler.choco.DefaultReconfigurationProblemBuilder;
+import org.btrplace.scheduler.choco.EquivalenceClasses;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.chocosolver.solver.search.measure.IMeasures;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compare the search space explored by the optimisation with and without the symmetry breaking
+ * of {@link EquivalenceClasses}.
+ * <p>
+ * For each instance, the equivalence classes are reported, then the instance is solved twice with the same
+ * time limit. The number of explored nodes, of backtracks, and the best objective value are reported
+ * for each run.
+ * <p>
+ * Usage: {@code SymmetryBench [timeout] [instance files]}. By default, the {@code wkld-tdsc} instances
+ * of the bench test resources are used.
+ *
+ * @author Fabien Hermenier
+ */
+public class SymmetryBench {
+
+    private SymmetryBench() {
+    }
+
+    /**
+     * Launcher.
+     *
+     * @param args the timeout in seconds, then the instance files
+     * @throws SchedulerException if an instance cannot be solved
+     */
+    public static void main(String[] args) throws SchedulerException {
+        int timeout = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        List<String> files = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : Arrays.asList(
+                "src/test/resources/wkld-tdsc/li/r3/p5000/c33/1.gz",
+                "src/test/resources/wkld-tdsc/nr/r3/p5000/c33/1.gz");
+        for (String f : files) {
+            Instance i = JSON.readInstance(new File(f));
+            System.out.println(f + ": " + i.getModel().getMapping().getNbNodes() + " node(s), "
+                    + i.getModel().getMapping().getNbVMs() + " VM(s), " + i.getSatConstraints().size() + " constraint(s)");
+            classes(i);
+            bench("reference", i, timeout, false);
+            bench("symmetry breaking", i, timeout, true);
+        }
+    }
+
+    private static void classes(Instance i) throws SchedulerException {
+        Set<VM> toRun = new HashSet<>();
+        for (SatConstraint c : i.getSatConstraints()) {
+            if (c instanceof Running) {
+                toRun.addAll(c.getInvolvedVMs());
+            }
+        }
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(i.getModel())
+                .setNextVMsStates(Collections.emptySet(), toRun, Collections.emptySet(), Collections.emptySet())
+                .build();
+        EquivalenceClasses eq = EquivalenceClasses.detect(rp, i);
+        System.out.println("\t" + eq + ": " + eq.getVMClasses().stream().mapToInt(List::size).sum() + " VM(s), "
+                + eq.getNodeClasses().stream().mapToInt(List::size).sum() + " node(s)");
+    }
+
+    private static void bench(String label, Instance i, int timeout, boolean symmetries) throws SchedulerException {
+        DefaultChocoScheduler s = new DefaultChocoScheduler();
+        s.doOptimize(true);
+        s.setTimeLimit(timeout);
+        s.doSymmetryBreaking(symmetries);
+        s.solve(i);
+        SolvingStatistics st = s.getStatistics();
+        IMeasures m = st.getMeasures();
+        System.out.println("\t" + label + ": " + m.getNodeCount() + " node(s), " + m.getBackTrackCount() + " backtrack(s), "
+                + "objective=" + (st.getSolutions().isEmpty() ? "-" : m.getBestSolutionValue())
+                + (st.completed() ? " (optimal)" : "") + ", " + (long) (m.getTimeCount() * 1000) + " ms");
+    }
+}
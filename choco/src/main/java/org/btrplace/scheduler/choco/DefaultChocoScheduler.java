@@ -30,6 +30,7 @@ import org.btrplace.plan.event.MigrateVM;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.constraint.ChocoMapper;
 import org.btrplace.scheduler.choco.duration.DurationEvaluators;
+import org.btrplace.scheduler.choco.lns.LNS;
 import org.btrplace.scheduler.choco.runner.InstanceSolver;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 import org.btrplace.scheduler.choco.runner.StagedSolvingStatistics;
@@ -58,6 +59,11 @@ public class DefaultChocoScheduler implements ChocoScheduler {
 
     private StagedSolvingStatistics stages;
 
+    /**
+     * {@code true} if the last instance with a network view was solved through a single problem.
+     */
+    private boolean singleProblem;
+
     /**
      * Make a new algorithm.
      *
@@ -117,6 +123,13 @@ public class DefaultChocoScheduler implements ChocoScheduler {
         // If a network view is attached, ensure that all the migrations' destination node are defined
         Network net = Network.get(mo);
         stages = null;
+        singleProblem = net != null && params.doStagedPlacement();
+        if (singleProblem) {
+            // A single problem. The network view is completed once the placement is fixed
+            ReconfigurationPlan p = runner.solve(params, i);
+            stages = new StagedSolvingStatistics(runner.getStatistics());
+            return p;
+        }
         if (net != null) {
             // The network view is useless to take placement decisions
             mo.detach(net);
@@ -188,7 +201,9 @@ public class DefaultChocoScheduler implements ChocoScheduler {
         if (stages == null) {
             return runner.getStatistics();
         }
-        stages.append(runner.getStatistics());
+        if (!singleProblem) {
+            stages.append(runner.getStatistics());
+        }
         return stages;
     }
 
@@ -277,4 +292,54 @@ public class DefaultChocoScheduler implements ChocoScheduler {
     public Parameters setEnvironmentFactory(EnvironmentFactory f) {
         return params.setEnvironmentFactory(f);
     }
+
+    @Override
+    public Parameters setSolutionRecording(SolutionRecording p) {
+        return params.setSolutionRecording(p);
+    }
+
+    @Override
+    public SolutionRecording getSolutionRecording() {
+        return params.getSolutionRecording();
+    }
+
+    @Override
+    public Parameters setWarmStart(WarmStart h) {
+        return params.setWarmStart(h);
+    }
+
+    @Override
+    public WarmStart getWarmStart() {
+        return params.getWarmStart();
+    }
+
+    @Override
+    public Parameters doStagedPlacement(boolean b) {
+        return params.doStagedPlacement(b);
+    }
+
+    @Override
+    public boolean doStagedPlacement() {
+        return params.doStagedPlacement();
+    }
+
+    @Override
+    public Parameters setLNS(LNS l) {
+        return params.setLNS(l);
+    }
+
+    @Override
+    public LNS getLNS() {
+        return params.getLNS();
+    }
+
+    @Override
+    public Parameters doSymmetryBreaking(boolean b) {
+        return params.doSymmetryBreaking(b);
+    }
+
+    @Override
+    public boolean doSymmetryBreaking() {
+        return params.doSymmetryBreaking();
+    }
 }
@@ -20,6 +20,7 @@ package org.btrplace.scheduler.choco;
 
 import org.btrplace.scheduler.choco.constraint.ChocoMapper;
 import org.btrplace.scheduler.choco.duration.DurationEvaluators;
+import org.btrplace.scheduler.choco.lns.LNS;
 import org.btrplace.scheduler.choco.transition.TransitionFactory;
 import org.btrplace.scheduler.choco.view.ChocoView;
 import org.btrplace.scheduler.choco.view.DefaultAliasedCumulatives;
@@ -44,6 +45,11 @@ import java.util.List;
  * <li>the {@link org.btrplace.scheduler.choco.view.Cumulatives} view is {@link org.btrplace.scheduler.choco.view.DefaultCumulatives}</li>
  * <li>the {@link org.btrplace.scheduler.choco.view.AliasedCumulatives} view is {@link org.btrplace.scheduler.choco.view.DefaultAliasedCumulatives}</li>
  * <li>The {@link IEnvironment} is the default choco trailing environment. For large scale experiment, use</li>
+ * <li>every computed solution is recorded, see {@link SolutionRecording#all()}</li>
+ * <li>no warm-start hint</li>
+ * <li>a model with a network view is solved by two successive problems, see {@link #doStagedPlacement(boolean)}</li>
+ * <li>no Large Neighborhood Search, see {@link #setLNS(LNS)}</li>
+ * <li>no symmetry breaking, see {@link #doSymmetryBreaking(boolean)}</li>
  * </ul>
  *
  * @author Fabien Hermenier
@@ -77,6 +83,16 @@ public class DefaultParameters implements Parameters {
 
     private int verbosityLevel;
 
+    private SolutionRecording recording = SolutionRecording.all();
+
+    private WarmStart warmStart;
+
+    private boolean stagedPlacement = false;
+
+    private LNS lns;
+
+    private boolean symmetryBreaking = false;
+
     /**
      * New set of parameters.
      */
@@ -110,6 +126,11 @@ public class DefaultParameters implements Parameters {
         views = ps.getChocoViews();
         mapper = ps.getMapper();
         envf = ps.getEnvironmentFactory();
+        recording = ps.getSolutionRecording();
+        warmStart = ps.getWarmStart();
+        stagedPlacement = ps.doStagedPlacement();
+        lns = ps.getLNS();
+        symmetryBreaking = ps.doSymmetryBreaking();
     }
 
     @Override
@@ -241,4 +262,59 @@ public class DefaultParameters implements Parameters {
         envf = f;
         return this;
     }
+
+    @Override
+    public DefaultParameters setSolutionRecording(SolutionRecording p) {
+        recording = p;
+        return this;
+    }
+
+    @Override
+    public SolutionRecording getSolutionRecording() {
+        return recording;
+    }
+
+    @Override
+    public DefaultParameters setWarmStart(WarmStart h) {
+        warmStart = h;
+        return this;
+    }
+
+    @Override
+    public WarmStart getWarmStart() {
+        return warmStart;
+    }
+
+    @Override
+    public DefaultParameters doStagedPlacement(boolean b) {
+        stagedPlacement = b;
+        return this;
+    }
+
+    @Override
+    public boolean doStagedPlacement() {
+        return stagedPlacement;
+    }
+
+    @Override
+    public DefaultParameters setLNS(LNS l) {
+        lns = l;
+        return this;
+    }
+
+    @Override
+    public LNS getLNS() {
+        return lns;
+    }
+
+    @Override
+    public DefaultParameters doSymmetryBreaking(boolean b) {
+        symmetryBreaking = b;
+        return this;
+    }
+
+    @Override
+    public boolean doSymmetryBreaking() {
+        return symmetryBreaking;
+    }
 }
@@ -38,7 +38,6 @@ import org.chocosolver.solver.constraints.IntConstraintFactory;
 import org.chocosolver.solver.objective.ObjectiveManager;
 import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
 import org.chocosolver.solver.search.loop.monitors.SMF;
-import org.chocosolver.solver.search.solution.AllSolutionsRecorder;
 import org.chocosolver.solver.search.solution.Solution;
 import org.chocosolver.solver.search.strategy.ISF;
 import org.chocosolver.solver.search.strategy.selectors.values.RealDomainMiddle;
@@ -141,7 +140,7 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
 
         IEnvironment env = ps.getEnvironmentFactory().build(m);
         solver = new Solver(env, "");
-        solver.set(new AllSolutionsRecorder(solver));
+        solver.set(new PolicySolutionsRecorder(solver, ps.getSolutionRecording()));
         start = VariableFactory.fixed(makeVarLabel("RP.start"), 0, solver);
         end = VariableFactory.bounded(makeVarLabel("RP.end"), 0, ps.getMaxEnd(), solver);
 
@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco;
+
+import org.btrplace.model.Element;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Among;
+import org.btrplace.model.constraint.Ban;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.Gather;
+import org.btrplace.model.constraint.Killed;
+import org.btrplace.model.constraint.Lonely;
+import org.btrplace.model.constraint.MaxOnline;
+import org.btrplace.model.constraint.NoDelay;
+import org.btrplace.model.constraint.Offline;
+import org.btrplace.model.constraint.Online;
+import org.btrplace.model.constraint.Overbook;
+import org.btrplace.model.constraint.Preserve;
+import org.btrplace.model.constraint.Quarantine;
+import org.btrplace.model.constraint.Ready;
+import org.btrplace.model.constraint.ResourceCapacity;
+import org.btrplace.model.constraint.Root;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.RunningCapacity;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.Sleeping;
+import org.btrplace.model.constraint.Split;
+import org.btrplace.model.constraint.SplitAmong;
+import org.btrplace.model.constraint.Spread;
+import org.btrplace.model.constraint.migration.Serialize;
+import org.btrplace.model.constraint.migration.Sync;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.NamingService;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.scheduler.choco.transition.VMTransition;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.ICF;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Detect the interchangeable nodes and VMs of a problem and break their symmetries.
+ * <p>
+ * Two VMs are equivalent when they have the same current state and host, the same next state, the same consumptions,
+ * the same attributes, and when they play the same role in the same constraints. Equivalent VMs are then
+ * placed in the order of their identifiers: {@code host(v1) <= host(v2)}.
+ * <p>
+ * Two nodes are equivalent when they host no VM, and have the same state, the same capacities, the same attributes,
+ * and the same role in the same constraints. Equivalent nodes are then filled in the order of their identifiers:
+ * the first node hosts at least as many VMs as the second one.
+ * <p>
+ * A solution can always be turned into a solution that satisfies these restrictions, with the same objective value, by
+ * swapping equivalent elements. The detection is conservative: an element involved in a constraint that is not
+ * known to be symmetric has no equivalent. The constraints on a single element are compared using their class
+ * and their parameters. When the model has a view other than {@link ShareableResource} or
+ * {@link NamingService}, no equivalence is detected.
+ *
+ * @author Fabien Hermenier
+ */
+public final class EquivalenceClasses {
+
+    /**
+     * The constraints where all the involved VMs play the same role.
+     */
+    private static final List<Class<?>> SYMMETRIC_VMS = Arrays.asList(
+            Spread.class, Gather.class, Lonely.class, Among.class, Serialize.class, Sync.class);
+
+    /**
+     * The constraints where all the involved nodes play the same role.
+     */
+    private static final List<Class<?>> SYMMETRIC_NODES = Arrays.asList(
+            Ban.class, Fence.class, RunningCapacity.class, ResourceCapacity.class, MaxOnline.class);
+
+    /**
+     * The constraints that only state the expected state of a single VM.
+     */
+    private static final List<Class<?>> VM_STATES = Arrays.asList(
+            Root.class, Running.class, Ready.class, Sleeping.class, Killed.class, NoDelay.class);
+
+    /**
+     * The constraints that only state the expected state of a single node.
+     */
+    private static final List<Class<?>> NODE_STATES = Arrays.asList(
+            Online.class, Offline.class, Quarantine.class);
+
+    private final List<List<VM>> vms;
+
+    private final List<List<Node>> nodes;
+
+    private EquivalenceClasses(List<List<VM>> vms, List<List<Node>> nodes) {
+        this.vms = vms;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Detect the equivalence classes of a problem.
+     *
+     * @param rp the problem
+     * @param i  the instance the problem is made from
+     * @return the detected classes
+     */
+    public static EquivalenceClasses detect(ReconfigurationProblem rp, Instance i) {
+        Model mo = rp.getSourceModel();
+        List<ShareableResource> rcs = new ArrayList<>();
+        for (ModelView v : mo.getViews()) {
+            if (v instanceof ShareableResource) {
+                rcs.add((ShareableResource) v);
+            } else if (!(v instanceof NamingService)) {
+                return new EquivalenceClasses(Collections.emptyList(), Collections.emptyList());
+            }
+        }
+        Map<Element, List<Object>> roles = roles(i.getSatConstraints());
+        Mapping map = mo.getMapping();
+
+        Map<List<Object>, List<VM>> byVM = new LinkedHashMap<>();
+        for (VM v : rp.getVMs()) {
+            List<Object> key = new ArrayList<>();
+            key.add(rp.getSourceState(v));
+            key.add(rp.getFutureState(v));
+            key.add(map.getVMLocation(v));
+            key.add(rp.getManageableVMs().contains(v));
+            for (ShareableResource rc : rcs) {
+                key.add(rc.getConsumption(v));
+            }
+            key.add(attributes(mo, v));
+            key.add(roles.getOrDefault(v, Collections.emptyList()));
+            byVM.computeIfAbsent(key, k -> new ArrayList<>()).add(v);
+        }
+
+        Map<List<Object>, List<Node>> byNode = new LinkedHashMap<>();
+        for (Node n : rp.getNodes()) {
+            if (!map.getRunningVMs(n).isEmpty() || !map.getSleepingVMs(n).isEmpty()) {
+                continue;
+            }
+            List<Object> key = new ArrayList<>();
+            key.add(rp.getSourceState(n));
+            for (ShareableResource rc : rcs) {
+                key.add(rc.getCapacity(n));
+            }
+            key.add(attributes(mo, n));
+            key.add(roles.getOrDefault(n, Collections.emptyList()));
+            byNode.computeIfAbsent(key, k -> new ArrayList<>()).add(n);
+        }
+        return new EquivalenceClasses(classes(byVM.values()), classes(byNode.values()));
+    }
+
+    private static <E extends Element> List<List<E>> classes(Collection<List<E>> groups) {
+        List<List<E>> res = new ArrayList<>();
+        for (List<E> g : groups) {
+            if (g.size() > 1) {
+                g.sort((a, b) -> a.id() - b.id());
+                res.add(Collections.unmodifiableList(g));
+            }
+        }
+        return Collections.unmodifiableList(res);
+    }
+
+    private static Map<String, Object> attributes(Model mo, Element e) {
+        Map<String, Object> res = new TreeMap<>();
+        for (String k : mo.getAttributes().getKeys(e)) {
+            res.put(k, mo.getAttributes().get(e, k));
+        }
+        return res;
+    }
+
+    /**
+     * Get the role of the elements in the constraints.
+     * The role of an element in a constraint is an identifier shared only by the elements that can be swapped.
+     */
+    private static Map<Element, List<Object>> roles(Collection<SatConstraint> cstrs) {
+        Map<Element, TreeSet<String>> res = new HashMap<>();
+        int idx = 0;
+        for (SatConstraint c : cstrs) {
+            Collection<VM> cVMs = c.getInvolvedVMs();
+            //Constraints on a single VM with the same parameters give the same role
+            String singleVM = cVMs.size() == 1 ? vmRole(c) : null;
+            for (VM v : cVMs) {
+                String role;
+                if (singleVM != null) {
+                    role = singleVM;
+                } else if (SYMMETRIC_VMS.contains(c.getClass())) {
+                    role = "#" + idx;
+                } else if (c instanceof Split) {
+                    role = "#" + idx + ":" + groupIndex(((Split) c).getSets(), v);
+                } else if (c instanceof SplitAmong) {
+                    role = "#" + idx + ":" + groupIndex(((SplitAmong) c).getGroupsOfVMs(), v);
+                } else {
+                    role = "#" + idx + ":" + v;
+                }
+                res.computeIfAbsent(v, k -> new TreeSet<>()).add(role);
+            }
+            Collection<Node> cNodes = c.getInvolvedNodes();
+            String singleNode = cNodes.size() == 1 ? nodeRole(c) : null;
+            for (Node n : cNodes) {
+                String role;
+                if (singleNode != null) {
+                    role = singleNode;
+                } else if (SYMMETRIC_NODES.contains(c.getClass())) {
+                    role = "#" + idx;
+                } else if (c instanceof Among) {
+                    role = "#" + idx + ":" + groupIndex(((Among) c).getGroupsOfNodes(), n);
+                } else if (c instanceof SplitAmong) {
+                    role = "#" + idx + ":" + groupIndex(((SplitAmong) c).getGroupsOfNodes(), n);
+                } else {
+                    role = "#" + idx + ":" + n;
+                }
+                res.computeIfAbsent(n, k -> new TreeSet<>()).add(role);
+            }
+            idx++;
+        }
+        Map<Element, List<Object>> roles = new HashMap<>();
+        res.forEach((e, s) -> roles.put(e, new ArrayList<>(s)));
+        return roles;
+    }
+
+    /**
+     * Get the role of the VM of a constraint that involves a single VM.
+     * The role is made from the class of the constraint and its parameters, so
+     * two VMs have the same role when the constraints only differ by the VM.
+     *
+     * @param c the constraint
+     * @return the role. {@code null} if the parameters of the constraint are not known
+     */
+    private static String vmRole(SatConstraint c) {
+        String role = c.getClass().getName() + ':' + c.isContinuous();
+        if (VM_STATES.contains(c.getClass())) {
+            return role;
+        } else if (c instanceof Ban || c instanceof Fence) {
+            return role + ':' + ids(c.getInvolvedNodes());
+        } else if (c instanceof Preserve) {
+            Preserve p = (Preserve) c;
+            return role + ':' + p.getResource() + ':' + p.getAmount();
+        }
+        return null;
+    }
+
+    /**
+     * Get the role of the node of a constraint that involves a single node.
+     * The role is made from the class of the constraint and its parameters, so
+     * two nodes have the same role when the constraints only differ by the node.
+     *
+     * @param c the constraint
+     * @return the role. {@code null} if the parameters of the constraint are not known
+     */
+    private static String nodeRole(SatConstraint c) {
+        String role = c.getClass().getName() + ':' + c.isContinuous();
+        if (NODE_STATES.contains(c.getClass())) {
+            return role;
+        } else if (c instanceof Ban || c instanceof Fence) {
+            return role + ':' + ids(c.getInvolvedVMs());
+        } else if (c instanceof RunningCapacity) {
+            return role + ':' + ((RunningCapacity) c).getAmount();
+        } else if (c instanceof MaxOnline) {
+            return role + ':' + ((MaxOnline) c).getAmount();
+        } else if (c instanceof ResourceCapacity) {
+            ResourceCapacity r = (ResourceCapacity) c;
+            return role + ':' + r.getResource() + ':' + r.getAmount();
+        } else if (c instanceof Overbook) {
+            Overbook o = (Overbook) c;
+            return role + ':' + o.getResource() + ':' + o.getRatio();
+        }
+        return null;
+    }
+
+    private static List<Integer> ids(Collection<? extends Element> elements) {
+        return elements.stream().map(Element::id).sorted().collect(Collectors.toList());
+    }
+
+    private static <E> int groupIndex(Collection<? extends Collection<E>> groups, E e) {
+        int i = 0;
+        for (Collection<E> g : groups) {
+            if (g.contains(e)) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the classes of equivalent VMs.
+     *
+     * @return a list of classes with at least 2 VMs each, ordered by identifier
+     */
+    public List<List<VM>> getVMClasses() {
+        return vms;
+    }
+
+    /**
+     * Get the classes of equivalent nodes.
+     *
+     * @return a list of classes with at least 2 nodes each, ordered by identifier
+     */
+    public List<List<Node>> getNodeClasses() {
+        return nodes;
+    }
+
+    /**
+     * Post the constraints that break the symmetries.
+     *
+     * @param rp the problem
+     * @return the number of posted constraints
+     */
+    public int inject(ReconfigurationProblem rp) {
+        Solver s = rp.getSolver();
+        int nb = 0;
+        for (List<VM> cl : vms) {
+            IntVar prev = null;
+            for (VM v : cl) {
+                VMTransition t = rp.getVMAction(v);
+                if (t == null || t.getDSlice() == null) {
+                    break;
+                }
+                IntVar h = t.getDSlice().getHoster();
+                if (prev != null) {
+                    s.post(ICF.arithm(prev, "<=", h));
+                    nb++;
+                }
+                prev = h;
+            }
+        }
+        List<IntVar> cards = rp.getNbRunningVMs();
+        for (List<Node> cl : nodes) {
+            for (int i = 1; i < cl.size(); i++) {
+                s.post(ICF.arithm(cards.get(rp.getNode(cl.get(i - 1))), ">=", cards.get(rp.getNode(cl.get(i)))));
+                nb++;
+            }
+        }
+        return nb;
+    }
+
+    @Override
+    public String toString() {
+        return vms.size() + " class(es) of VMs, " + nodes.size() + " class(es) of nodes";
+    }
+}
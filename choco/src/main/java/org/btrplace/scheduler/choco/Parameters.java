@@ -20,6 +20,7 @@ package org.btrplace.scheduler.choco;
 
 import org.btrplace.scheduler.choco.constraint.ChocoMapper;
 import org.btrplace.scheduler.choco.duration.DurationEvaluators;
+import org.btrplace.scheduler.choco.lns.LNS;
 import org.btrplace.scheduler.choco.transition.TransitionFactory;
 import org.btrplace.scheduler.choco.view.ChocoView;
 
@@ -224,4 +225,89 @@ public interface Parameters {
      * @return a list of views that may be empty
      */
     List<Class<? extends ChocoView>> getChocoViews();
+
+    /**
+     * Set the policy that states which of the computed solutions are recorded.
+     *
+     * @param p the policy to use
+     * @return the current instance
+     */
+    Parameters setSolutionRecording(SolutionRecording p);
+
+    /**
+     * Get the policy that states which of the computed solutions are recorded.
+     *
+     * @return the policy
+     */
+    SolutionRecording getSolutionRecording();
+
+    /**
+     * Set a hint to warm-start the solving process.
+     *
+     * @param h the hint. {@code null} for no hint
+     * @return the current instance
+     */
+    Parameters setWarmStart(WarmStart h);
+
+    /**
+     * Get the hint to warm-start the solving process.
+     *
+     * @return the hint. {@code null} if there is no hint
+     */
+    WarmStart getWarmStart();
+
+    /**
+     * State if the placement of the VMs is fixed by a first search phase, before solving the rest
+     * of the problem in a second phase on the same solver.
+     * The views that depend on the placement, such as the network view, are completed between the two phases.
+     * Otherwise, a model with a network view is solved twice: first without the view to compute the placement,
+     * then with the view and the placement from a new problem.
+     *
+     * @param b {@code true} to fix the placement in a first search phase
+     * @return the current instance
+     */
+    Parameters doStagedPlacement(boolean b);
+
+    /**
+     * Tell if the placement of the VMs is fixed by a first search phase.
+     *
+     * @return {@code true} iff the placement is fixed by a first search phase
+     * @see #doStagedPlacement(boolean)
+     */
+    boolean doStagedPlacement();
+
+    /**
+     * Set the Large Neighborhood Search to use to optimise the solutions.
+     * The search is not used when the placement is fixed by a first search phase.
+     * A search without limit on the number of neighborhoods requires a time limit.
+     *
+     * @param l the search configuration. {@code null} for a complete search only
+     * @return the current instance
+     * @see #doStagedPlacement(boolean)
+     */
+    Parameters setLNS(LNS l);
+
+    /**
+     * Get the Large Neighborhood Search to use to optimise the solutions.
+     *
+     * @return the search configuration. {@code null} if there is none
+     */
+    LNS getLNS();
+
+    /**
+     * State if the symmetries between interchangeable nodes and VMs must be broken.
+     * This reduces the search space without altering the optimal value.
+     *
+     * @param b {@code true} to break the symmetries
+     * @return the current instance
+     * @see EquivalenceClasses
+     */
+    Parameters doSymmetryBreaking(boolean b);
+
+    /**
+     * Indicate if the symmetries between interchangeable nodes and VMs are broken.
+     *
+     * @return {@code true} iff the symmetries are broken
+     */
+    boolean doSymmetryBreaking();
 }
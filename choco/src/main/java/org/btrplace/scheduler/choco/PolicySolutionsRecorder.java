@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco;
+
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+import org.chocosolver.solver.search.solution.ISolutionRecorder;
+import org.chocosolver.solver.search.solution.Solution;
+
+import java.util.List;
+
+/**
+ * A solution recorder that keeps the solutions with regards to a {@link SolutionRecording} policy.
+ *
+ * @author Fabien Hermenier
+ */
+class PolicySolutionsRecorder implements ISolutionRecorder {
+
+    private transient SolutionRecording.Buffer<Solution> solutions;
+
+    /**
+     * Make a new recorder and plug it into the solver.
+     *
+     * @param s the solver
+     * @param p the recording policy
+     */
+    PolicySolutionsRecorder(Solver s, SolutionRecording p) {
+        solutions = p.newBuffer();
+        s.plugMonitor((IMonitorSolution) () -> {
+            Solution sol = new Solution();
+            sol.record(s);
+            solutions.add(sol);
+        });
+    }
+
+    @Override
+    public Solution getLastSolution() {
+        return solutions.last();
+    }
+
+    @Override
+    public List<Solution> getSolutions() {
+        return solutions.get();
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A policy to state which of the computed solutions are recorded.
+ * <ul>
+ * <li>{@link #all()} records every solution. This is the default policy</li>
+ * <li>{@link #last()} only records the last solution</li>
+ * <li>{@link #best(int)} records the {@code k} best solutions</li>
+ * <li>{@link #everyNth(int)} records one solution every {@code n} solutions, plus the last one</li>
+ * </ul>
+ * When optimising, each new solution improves the previous one, so the best solutions are the last ones.
+ *
+ * @author Fabien Hermenier
+ */
+public final class SolutionRecording {
+
+    private static final SolutionRecording ALL = new SolutionRecording(-1, 1);
+
+    private static final SolutionRecording LAST = new SolutionRecording(1, 1);
+
+    /**
+     * The maximum number of solutions to keep. {@code -1} for no limit.
+     */
+    private final int max;
+
+    private final int period;
+
+    private SolutionRecording(int max, int period) {
+        this.max = max;
+        this.period = period;
+    }
+
+    /**
+     * Record every solution.
+     *
+     * @return the policy
+     */
+    public static SolutionRecording all() {
+        return ALL;
+    }
+
+    /**
+     * Only record the last solution.
+     *
+     * @return the policy
+     */
+    public static SolutionRecording last() {
+        return LAST;
+    }
+
+    /**
+     * Record the {@code k} best solutions.
+     *
+     * @param k the number of solutions to keep. Must be strictly positive
+     * @return the policy
+     */
+    public static SolutionRecording best(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("The number of solutions to keep must be strictly positive. Got " + k);
+        }
+        return new SolutionRecording(k, 1);
+    }
+
+    /**
+     * Record the first solution, then one solution every {@code n} solutions.
+     * The last solution is always recorded.
+     *
+     * @param n the recording period. Must be strictly positive
+     * @return the policy
+     */
+    public static SolutionRecording everyNth(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("The recording period must be strictly positive. Got " + n);
+        }
+        return new SolutionRecording(-1, n);
+    }
+
+    /**
+     * Get the maximum number of recorded solutions.
+     *
+     * @return a positive number. {@code -1} if there is no limit
+     */
+    public int getMaxSolutions() {
+        return max;
+    }
+
+    /**
+     * Get the recording period.
+     *
+     * @return a number >= 1
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Make a new buffer to record solutions with regards to this policy.
+     *
+     * @param <T> the type of the recorded elements
+     * @return an empty buffer
+     */
+    public <T> Buffer<T> newBuffer() {
+        return new Buffer<>(this);
+    }
+
+    @Override
+    public String toString() {
+        if (max < 0 && period == 1) {
+            return "all";
+        } else if (period > 1) {
+            return "every " + period + " solution(s)";
+        }
+        return max == 1 ? "last" : "best " + max;
+    }
+
+    /**
+     * A buffer that records solutions with regards to a policy.
+     * The buffer is not thread-safe.
+     *
+     * @param <T> the type of the recorded elements
+     */
+    public static class Buffer<T> {
+
+        private final SolutionRecording policy;
+
+        private final List<T> items;
+
+        private final List<T> view;
+
+        private int count;
+
+        /**
+         * {@code true} if the last element is only kept because it is the last one.
+         */
+        private boolean transientTail;
+
+        private Buffer(SolutionRecording p) {
+            policy = p;
+            items = new ArrayList<>();
+            view = Collections.unmodifiableList(items);
+            count = 0;
+            transientTail = false;
+        }
+
+        /**
+         * Add a new solution.
+         *
+         * @param e the solution
+         */
+        public void add(T e) {
+            count++;
+            if (transientTail) {
+                items.remove(items.size() - 1);
+            }
+            items.add(e);
+            transientTail = (count - 1) % policy.period != 0;
+            if (policy.max > 0 && items.size() > policy.max) {
+                items.remove(0);
+            }
+        }
+
+        /**
+         * Get the number of solutions that were added, recorded or not.
+         *
+         * @return a positive number
+         */
+        public int count() {
+            return count;
+        }
+
+        /**
+         * Get the last added solution.
+         *
+         * @return the solution. {@code null} if there was no solution
+         */
+        public T last() {
+            return items.isEmpty() ? null : items.get(items.size() - 1);
+        }
+
+        /**
+         * Get the recorded solutions.
+         *
+         * @return a list of solutions ordered by time. May be empty
+         */
+        public List<T> get() {
+            return view;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.scheduler.choco;
+
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A hint to warm-start the solving of an instance that is close to a previously solved one.
+ * <p>
+ * The hint states a preferred host for some VMs. The placement heuristics try these hosts
+ * first when they are still possible. The hint may also provide a bound for the objective.
+ * In that case, the solutions that are worse than the bound are not computed. The bound is then
+ * a hard restriction: a bound that is too tight leads to no solution. The bound is only enforced by the
+ * objectives that support it (see {@link org.btrplace.scheduler.choco.constraint.CObjective#enforcesBound()}).
+ * <p>
+ * A typical usage is to re-solve a datacenter with the plan computed at the previous round:
+ * {@code ps.setWarmStart(WarmStart.of(previousStatistics))}. The previous objective value is not a valid bound
+ * once the instance changed, so a bound must be stated explicitly using {@link #bound(int)}.
+ *
+ * @author Fabien Hermenier
+ */
+public final class WarmStart {
+
+    /**
+     * Denotes the absence of bound for the objective.
+     */
+    public static final int NO_BOUND = -1;
+
+    private final Map<VM, Node> placement;
+
+    private final int bound;
+
+    /**
+     * Make a new hint without bound.
+     *
+     * @param placement the preferred host of the VMs
+     */
+    public WarmStart(Map<VM, Node> placement) {
+        this(placement, NO_BOUND);
+    }
+
+    /**
+     * Make a new hint.
+     *
+     * @param placement the preferred host of the VMs
+     * @param bound     the bound for the objective. {@link #NO_BOUND} for no bound
+     */
+    public WarmStart(Map<VM, Node> placement, int bound) {
+        if (bound < 0 && bound != NO_BOUND) {
+            throw new IllegalArgumentException("The bound must be positive. Got " + bound);
+        }
+        this.placement = Collections.unmodifiableMap(new HashMap<>(placement));
+        this.bound = bound;
+    }
+
+    /**
+     * Make a hint from the placement of the running VMs in a model.
+     *
+     * @param mo the model
+     * @return the resulting hint, without bound
+     */
+    public static WarmStart of(Model mo) {
+        Mapping map = mo.getMapping();
+        Map<VM, Node> placement = new HashMap<>();
+        for (Node n : map.getOnlineNodes()) {
+            for (VM v : map.getRunningVMs(n)) {
+                placement.put(v, n);
+            }
+        }
+        return new WarmStart(placement);
+    }
+
+    /**
+     * Make a hint from the placement of the running VMs at the end of a plan.
+     *
+     * @param plan the plan
+     * @return the resulting hint, without bound
+     * @throws IllegalArgumentException if the plan cannot be applied
+     */
+    public static WarmStart of(ReconfigurationPlan plan) {
+        Model res = plan.getResult();
+        if (res == null) {
+            throw new IllegalArgumentException("The plan cannot be applied");
+        }
+        return of(res);
+    }
+
+    /**
+     * Make a hint from the last solution of a solving process.
+     *
+     * @param st the statistics of the solving process
+     * @return the resulting hint, without bound
+     * @throws IllegalArgumentException if the process did not compute any solution
+     */
+    public static WarmStart of(SolvingStatistics st) {
+        ReconfigurationPlan plan = st.lastSolution();
+        if (plan == null) {
+            throw new IllegalArgumentException("No solution to start from");
+        }
+        return of(plan);
+    }
+
+    /**
+     * Make a copy of this hint with a new bound.
+     *
+     * @param b the bound for the objective. {@link #NO_BOUND} for no bound
+     * @return a new hint
+     */
+    public WarmStart bound(int b) {
+        return new WarmStart(placement, b);
+    }
+
+    /**
+     * Get the preferred host of a VM.
+     *
+     * @param v the VM
+     * @return the node. {@code null} if there is no preference
+     */
+    public Node getHost(VM v) {
+        return placement.get(v);
+    }
+
+    /**
+     * Get the preferred host of all the VMs.
+     *
+     * @return an unmodifiable map
+     */
+    public Map<VM, Node> getPlacement() {
+        return placement;
+    }
+
+    /**
+     * Get the bound for the objective.
+     *
+     * @return a positive value or {@link #NO_BOUND}
+     */
+    public int getBound() {
+        return bound;
+    }
+
+    @Override
+    public String toString() {
+        return placement.size() + " hinted VM(s)" + (bound == NO_BOUND ? "" : ", bound: " + bound);
+    }
+}
@@ -26,10 +26,9 @@ import org.btrplace.model.constraint.Gather;
 import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
 import org.btrplace.scheduler.choco.Slice;
+import org.btrplace.scheduler.choco.extensions.AllEqual;
 import org.btrplace.scheduler.choco.transition.VMTransition;
 import org.chocosolver.solver.Cause;
-import org.chocosolver.solver.Solver;
-import org.chocosolver.solver.constraints.IntConstraintFactory;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.IntVar;
 
@@ -103,21 +102,26 @@ public class CGather implements ChocoConstraint {
     }
 
     private static boolean forceDiscreteCollocation(ReconfigurationProblem rp, List<Slice> dSlices) {
-        Solver s = rp.getSolver();
-        for (int i = 0; i < dSlices.size(); i++) {
-            for (int j = 0; j < i; j++) {
-                Slice s1 = dSlices.get(i);
-                Slice s2 = dSlices.get(j);
-                IntVar i1 = s1.getHoster();
-                IntVar i2 = s2.getHoster();
-                if (i1.isInstantiated() && !instantiateTo(rp, i2, i1.getLB(), s1, s2)) {
-                    return false;
-                } else if (i2.isInstantiated() && !instantiateTo(rp, i1, i2.getLB(), s1, s2)) {
-                    return false;
+        if (dSlices.size() < 2) {
+            return true;
+        }
+        //A VM with a known host pins the others
+        for (Slice s1 : dSlices) {
+            IntVar i1 = s1.getHoster();
+            if (i1.isInstantiated()) {
+                for (Slice s2 : dSlices) {
+                    if (s2 != s1 && !instantiateTo(rp, s2.getHoster(), i1.getValue(), s2, s1)) {
+                        return false;
+                    }
                 }
-                s.post(IntConstraintFactory.arithm(i1, "=", i2));
+                return true;
             }
         }
+        IntVar[] hosters = new IntVar[dSlices.size()];
+        for (int i = 0; i < hosters.length; i++) {
+            hosters[i] = dSlices.get(i).getHoster();
+        }
+        rp.getSolver().post(new AllEqual(hosters));
         return true;
     }
 
@@ -57,7 +57,7 @@ public class CLonely implements ChocoConstraint {
         //Remove non future-running VMs
         List<IntVar> myHosts = new ArrayList<>();
         List<IntVar> otherHosts = new ArrayList<>();
-        Collection<VM> vms = new HashSet<>();
+        Set<VM> vms = new HashSet<>();
         Set<VM> otherVMs = new HashSet<>();
         for (VM vm : rp.getFutureRunningVMs()) {
             IntVar host = rp.getVMAction(vm).getDSlice().getHoster();
@@ -76,45 +76,66 @@ public class CLonely implements ChocoConstraint {
                 rp.getNodes().size()));
 
         if (cstr.isContinuous()) {
-            //Get the position of all the others c-slices and their associated end moment
-            TIntArrayList otherPos = new TIntArrayList();
-            TIntArrayList minePos = new TIntArrayList();
-            List<IntVar> otherEnds = new ArrayList<>();
-            List<IntVar> mineEnds = new ArrayList<>();
-            Mapping map = rp.getSourceModel().getMapping();
-            for (Node n : map.getOnlineNodes()) {
-                for (VM vm : map.getRunningVMs(n)) {
-                    if (!vms.contains(vm)) {
-                        otherPos.add(rp.getNode(map.getVMLocation(vm)));
-                        VMTransition a = rp.getVMAction(vm);
-                        otherEnds.add(a.getCSlice().getEnd());
-                    } else {
-                        minePos.add(rp.getNode(map.getVMLocation(vm)));
-                        VMTransition a = rp.getVMAction(vm);
-                        mineEnds.add(a.getCSlice().getEnd());
-                    }
+            continuousRestriction(rp, vms, otherVMs);
+        }
+        return true;
+    }
+
+    /**
+     * Prevent the VMs of a group to be placed on a node until the other VMs left it, and conversely.
+     *
+     * @param rp       the problem
+     * @param vms      the future-running VMs of the group
+     * @param otherVMs the other future-running VMs
+     */
+    static void continuousRestriction(ReconfigurationProblem rp, Set<VM> vms, Collection<VM> otherVMs) {
+        Solver s = rp.getSolver();
+        //Get the position of all the others c-slices and their associated end moment
+        TIntArrayList otherPos = new TIntArrayList();
+        TIntArrayList minePos = new TIntArrayList();
+        List<IntVar> otherEnds = new ArrayList<>();
+        List<IntVar> mineEnds = new ArrayList<>();
+        Mapping map = rp.getSourceModel().getMapping();
+        for (Node n : map.getOnlineNodes()) {
+            for (VM vm : map.getRunningVMs(n)) {
+                if (!vms.contains(vm)) {
+                    otherPos.add(rp.getNode(map.getVMLocation(vm)));
+                    VMTransition a = rp.getVMAction(vm);
+                    otherEnds.add(a.getCSlice().getEnd());
+                } else {
+                    minePos.add(rp.getNode(map.getVMLocation(vm)));
+                    VMTransition a = rp.getVMAction(vm);
+                    mineEnds.add(a.getCSlice().getEnd());
                 }
             }
-            for (VM vm : vms) {
-                VMTransition a = rp.getVMAction(vm);
-                Precedences p = new Precedences(a.getDSlice().getHoster(),
-                        a.getDSlice().getStart(),
-                        otherPos.toArray(),
-                        otherEnds.toArray(new IntVar[otherEnds.size()]));
-                s.post(p);
-            }
+        }
+        for (VM vm : vms) {
+            VMTransition a = rp.getVMAction(vm);
+            Precedences p = new Precedences(a.getDSlice().getHoster(),
+                    a.getDSlice().getStart(),
+                    otherPos.toArray(),
+                    otherEnds.toArray(new IntVar[otherEnds.size()]));
+            s.post(p);
+        }
 
-            //TODO: The following reveals a model problem. Too many constraints!!
-            for (VM vm : otherVMs) {
-                VMTransition a = rp.getVMAction(vm);
-                Precedences p = new Precedences(a.getDSlice().getHoster(),
-                        a.getDSlice().getStart(),
-                        minePos.toArray(),
-                        mineEnds.toArray(new IntVar[mineEnds.size()]));
-                s.post(p);
-            }
+        //TODO: The following reveals a model problem. Too many constraints!!
+        for (VM vm : otherVMs) {
+            VMTransition a = rp.getVMAction(vm);
+            Precedences p = new Precedences(a.getDSlice().getHoster(),
+                    a.getDSlice().getStart(),
+                    minePos.toArray(),
+                    mineEnds.toArray(new IntVar[mineEnds.size()]));
+            s.post(p);
         }
-        return true;
+    }
+
+    /**
+     * Get the constraint this implementation relies on.
+     *
+     * @return the model-side constraint
+     */
+    Lonely getConstraint() {
+        return cstr;
     }
 
     @Override
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.constraint;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Lonely;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.extensions.DisjointMultiple;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Choco implementation of several {@link Lonely} constraints over disjoint sets of VMs.
+ * <p>
+ * Each group of VMs, plus the group of the VMs that are not involved in any constraint, must be hosted on
+ * disjoint sets of nodes. The future-running VMs are dispatched in their group in a single pass and a single
+ * {@link DisjointMultiple} is posted, instead of one {@link org.btrplace.scheduler.choco.extensions.Disjoint}
+ * per constraint.
+ *
+ * @author Fabien Hermenier
+ * @see ChocoMapper#aggregate(List)
+ */
+public class CLonelyGroups implements ChocoConstraint {
+
+    private List<Lonely> cstrs;
+
+    /**
+     * The group of each involved VM.
+     */
+    private Map<VM, Integer> groups;
+
+    /**
+     * Make a new constraint.
+     *
+     * @param cs the lonely constraints to rely on
+     * @throws IllegalArgumentException if a VM is involved in several constraints
+     */
+    public CLonelyGroups(List<Lonely> cs) {
+        cstrs = new ArrayList<>(cs);
+        groups = new HashMap<>();
+        for (int g = 0; g < cstrs.size(); g++) {
+            for (VM v : cstrs.get(g).getInvolvedVMs()) {
+                if (groups.put(v, g) != null) {
+                    throw new IllegalArgumentException("VM '" + v + "' is involved in several constraints");
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean inject(Parameters ps, ReconfigurationProblem rp) {
+        int nbGroups = cstrs.size();
+        //The last group is for the VMs that are not involved
+        List<List<VM>> vms = new ArrayList<>(nbGroups + 1);
+        List<List<IntVar>> hosts = new ArrayList<>(nbGroups + 1);
+        for (int g = 0; g <= nbGroups; g++) {
+            vms.add(new ArrayList<>());
+            hosts.add(new ArrayList<>());
+        }
+        for (VM vm : rp.getFutureRunningVMs()) {
+            int g = groups.getOrDefault(vm, nbGroups);
+            vms.get(g).add(vm);
+            hosts.get(g).add(rp.getVMAction(vm).getDSlice().getHoster());
+        }
+        IntVar[][] vs = new IntVar[nbGroups + 1][];
+        for (int g = 0; g <= nbGroups; g++) {
+            vs[g] = hosts.get(g).toArray(new IntVar[hosts.get(g).size()]);
+        }
+        rp.getSolver().post(new DisjointMultiple(vs, rp.getNodes().size()));
+
+        for (int g = 0; g < nbGroups; g++) {
+            if (cstrs.get(g).isContinuous()) {
+                List<VM> others = new ArrayList<>();
+                for (int o = 0; o <= nbGroups; o++) {
+                    if (o != g) {
+                        others.addAll(vms.get(o));
+                    }
+                }
+                CLonely.continuousRestriction(rp, new HashSet<>(vms.get(g)), others);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Set<VM> getMisPlacedVMs(Instance i) {
+        Set<VM> bad = new HashSet<>();
+        for (Lonely c : cstrs) {
+            bad.addAll(new CLonely(c).getMisPlacedVMs(i));
+        }
+        return bad;
+    }
+
+    @Override
+    public String toString() {
+        return cstrs.toString();
+    }
+}
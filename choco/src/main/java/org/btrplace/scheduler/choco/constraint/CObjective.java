@@ -31,4 +31,13 @@ public interface CObjective extends ChocoConstraint {
      * to allow to postpone the constraint posting to the last moment.
      */
     void postCostConstraints();
+
+    /**
+     * Indicate if the objective enforces the bound stated by the warm-start hint (see {@link org.btrplace.scheduler.choco.WarmStart#getBound()}).
+     *
+     * @return {@code true} iff the solutions that are worse than the bound are not computed
+     */
+    default boolean enforcesBound() {
+        return false;
+    }
 }
@@ -80,6 +80,15 @@ public class CQuarantine implements ChocoConstraint {
         return true;
     }
 
+    /**
+     * Get the constraint this implementation relies on.
+     *
+     * @return the model-side constraint
+     */
+    Quarantine getConstraint() {
+        return cstr;
+    }
+
     @Override
     public Set<VM> getMisPlacedVMs(Instance i) {
         return Collections.emptySet();
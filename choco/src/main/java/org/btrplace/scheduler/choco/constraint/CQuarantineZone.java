@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.constraint;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Quarantine;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Choco implementation of several {@link Quarantine} constraints.
+ * <p>
+ * The quarantined nodes form a zone. In a single pass over the future-running VMs,
+ * the VMs inside the zone are rooted while the others are disallowed to enter it.
+ *
+ * @author Fabien Hermenier
+ * @see ChocoMapper#aggregate(List)
+ */
+public class CQuarantineZone implements ChocoConstraint {
+
+    private List<Quarantine> cstrs;
+
+    /**
+     * Make a new constraint.
+     *
+     * @param cs the quarantine constraints to rely on
+     */
+    public CQuarantineZone(List<Quarantine> cs) {
+        cstrs = new ArrayList<>(cs);
+    }
+
+    @Override
+    public boolean inject(Parameters ps, ReconfigurationProblem rp) {
+        Set<Node> zone = new HashSet<>();
+        for (Quarantine q : cstrs) {
+            zone.addAll(q.getInvolvedNodes());
+        }
+        int[] idx = new int[zone.size()];
+        int i = 0;
+        for (Node n : zone) {
+            idx[i++] = rp.getNode(n);
+        }
+        Mapping map = rp.getSourceModel().getMapping();
+        for (VM vm : rp.getFutureRunningVMs()) {
+            IntVar d = rp.getVMAction(vm).getDSlice().getHoster();
+            Node n = map.getVMLocation(vm);
+            if (n != null && zone.contains(n)) {
+                try {
+                    d.instantiateTo(rp.getNode(n), Cause.Null);
+                } catch (ContradictionException e) {
+                    rp.getLogger().error("Unable to root " + vm + " on " + n, e);
+                    return false;
+                }
+            } else {
+                try {
+                    for (int nIdx : idx) {
+                        d.removeValue(nIdx, Cause.Null);
+                    }
+                } catch (ContradictionException e) {
+                    rp.getLogger().error("Unable to disallow " + vm + " to be hosted on " + zone, e);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Set<VM> getMisPlacedVMs(Instance i) {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public String toString() {
+        return cstrs.toString();
+    }
+}
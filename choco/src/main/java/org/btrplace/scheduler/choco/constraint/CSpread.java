@@ -27,6 +27,7 @@ import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
 import org.btrplace.scheduler.choco.Slice;
 import org.btrplace.scheduler.choco.extensions.ChocoUtils;
+import org.btrplace.scheduler.choco.extensions.DisjointSlices;
 import org.btrplace.scheduler.choco.transition.VMTransition;
 import org.chocosolver.solver.Solver;
 import org.chocosolver.solver.constraints.Arithmetic;
@@ -69,7 +70,8 @@ public class CSpread implements ChocoConstraint {
         //The lazy spread implementation for the placement
         s.post(IntConstraintFactory.alldifferent(running.toArray(new IntVar[running.size()]), "BC"));
 
-        if (cstr.isContinuous()) {
+        //A single pair of VMs is cheaper to state with reified constraints
+        if (cstr.isContinuous() && (cstr.getInvolvedVMs().size() <= 2 || !disjointSlices(rp))) {
             List<VM> vms = new ArrayList<>(cstr.getInvolvedVMs());
             for (int i = 0; i < vms.size(); i++) {
                 VM vm = vms.get(i);
@@ -117,6 +119,41 @@ public class CSpread implements ChocoConstraint {
         }
     }
 
+    /**
+     * Prevent the slices of the VMs to overlap on a node using {@link DisjointSlices}.
+     *
+     * @param rp the problem
+     * @return {@code false} if the hosting node of a consuming slice is not known. No constraint is posted then
+     */
+    private boolean disjointSlices(ReconfigurationProblem rp) {
+        int nb = cstr.getInvolvedVMs().size();
+        int[] cHosts = new int[nb];
+        IntVar[] cEnds = new IntVar[nb];
+        IntVar[] dHosts = new IntVar[nb];
+        IntVar[] dStarts = new IntVar[nb];
+        int i = 0;
+        for (VM vm : cstr.getInvolvedVMs()) {
+            VMTransition t = rp.getVMAction(vm);
+            Slice c = t.getCSlice();
+            Slice d = t.getDSlice();
+            cHosts[i] = -1;
+            if (c != null) {
+                if (!c.getHoster().isInstantiated()) {
+                    return false;
+                }
+                cHosts[i] = c.getHoster().getValue();
+                cEnds[i] = c.getEnd();
+            }
+            if (d != null) {
+                dHosts[i] = d.getHoster();
+                dStarts[i] = d.getStart();
+            }
+            i++;
+        }
+        rp.getSolver().post(new DisjointSlices(cHosts, cEnds, dHosts, dStarts));
+        return true;
+    }
+
     private List<IntVar> placementVariables(ReconfigurationProblem rp) {
         List<IntVar> running = new ArrayList<>();
         for (VM vmId : cstr.getInvolvedVMs()) {
@@ -18,6 +18,7 @@
 
 package org.btrplace.scheduler.choco.constraint;
 
+import org.btrplace.model.VM;
 import org.btrplace.model.constraint.*;
 import org.btrplace.model.constraint.migration.*;
 import org.btrplace.model.view.ModelView;
@@ -29,8 +30,13 @@ import org.btrplace.scheduler.choco.view.CNetwork;
 import org.btrplace.scheduler.choco.view.CShareableResource;
 import org.btrplace.scheduler.choco.view.ChocoView;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Mapper that allow to map {@link SatConstraint} and {@link org.btrplace.model.constraint.OptConstraint} to {@link ChocoConstraint}.
@@ -206,4 +212,52 @@ public class ChocoMapper {
             throw new IllegalArgumentException("No constructor '" + cc.getSimpleName() + "(" + c.getClass().getSimpleName() + ")' available", ex);
         }
     }
+
+    /**
+     * Aggregate the implementations that can be handled by a single one.
+     * The {@link CLonely} over disjoint sets of VMs are merged into a {@link CLonelyGroups} while
+     * the {@link CQuarantine} are merged into a {@link CQuarantineZone}.
+     * A merged implementation takes the place of the first implementation it replaces.
+     * Other implementations, including subclasses of the above, are left untouched.
+     *
+     * @param cs the implementations
+     * @return the aggregated implementations
+     */
+    public List<ChocoConstraint> aggregate(List<ChocoConstraint> cs) {
+        List<Lonely> lonelies = new ArrayList<>();
+        List<Quarantine> quarantines = new ArrayList<>();
+        Set<VM> alone = new HashSet<>();
+        int lonelyPos = -1;
+        int quarantinePos = -1;
+        List<ChocoConstraint> res = new ArrayList<>(cs.size());
+        for (ChocoConstraint c : cs) {
+            if (c.getClass() == CLonely.class) {
+                Lonely l = ((CLonely) c).getConstraint();
+                if (Collections.disjoint(alone, l.getInvolvedVMs())) {
+                    alone.addAll(l.getInvolvedVMs());
+                    lonelies.add(l);
+                    if (lonelyPos < 0) {
+                        lonelyPos = res.size();
+                        res.add(c);
+                    }
+                    continue;
+                }
+            } else if (c.getClass() == CQuarantine.class) {
+                quarantines.add(((CQuarantine) c).getConstraint());
+                if (quarantinePos < 0) {
+                    quarantinePos = res.size();
+                    res.add(c);
+                }
+                continue;
+            }
+            res.add(c);
+        }
+        if (lonelies.size() > 1) {
+            res.set(lonelyPos, new CLonelyGroups(lonelies));
+        }
+        if (quarantines.size() > 1) {
+            res.set(quarantinePos, new CQuarantineZone(quarantines));
+        }
+        return res;
+    }
 }
@@ -27,6 +27,7 @@ import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
 import org.btrplace.scheduler.choco.Slice;
+import org.btrplace.scheduler.choco.WarmStart;
 import org.btrplace.scheduler.choco.constraint.CObjective;
 import org.btrplace.scheduler.choco.transition.NodeTransition;
 import org.btrplace.scheduler.choco.transition.RelocatableVM;
@@ -50,6 +51,9 @@ import java.util.stream.Stream;
 
 /**
  * An objective that minimizes the time to repair a non-viable model.
+ * <p>
+ * When the parameters provide a {@link WarmStart} hint, the VMs are placed on their hinted
+ * host first, and the cost is restricted by the hinted bound, if any.
  *
  * @author Fabien Hermenier
  */
@@ -85,6 +89,10 @@ public class CMinMTTR implements CObjective {
         Constraint costConstraint = IntConstraintFactory.sum(costs, cost);
         costConstraints.clear();
         costConstraints.add(costConstraint);
+        WarmStart ws = ps.getWarmStart();
+        if (ws != null && ws.getBound() != WarmStart.NO_BOUND) {
+            costConstraints.add(IntConstraintFactory.arithm(cost, "<=", ws.getBound()));
+        }
 
         p.setObjective(true, cost);
 
@@ -133,7 +141,7 @@ public class CMinMTTR implements CObjective {
 
             IntVar[] scopes = dSlices(actions).map(Slice::getHoster).toArray(IntVar[]::new);
 
-            strategies.add(new IntStrategy(scopes, new MovingVMs(p, map, actions), new RandomVMPlacement(p, pla, true, ps.getRandomSeed())));
+            strategies.add(new IntStrategy(scopes, new MovingVMs(p, map, actions), placement(ps, pla)));
         }
 
         placeVMs(ps, strategies, badActions, schedHeuristic, pla);
@@ -172,7 +180,7 @@ public class CMinMTTR implements CObjective {
      * Try to place the VMs associated on the actions in a random node while trying first to stay on the current node
      */
     private void placeVMs(Parameters ps, List<AbstractStrategy<?>> strategies, List<VMTransition> actions, OnStableNodeFirst schedHeuristic, Map<IntVar, VM> map) {
-        IntValueSelector rnd = new RandomVMPlacement(rp, map, true, ps.getRandomSeed());
+        IntValueSelector rnd = placement(ps, map);
         if (!actions.isEmpty()) {
             IntVar[] hosts = dSlices(actions).map(Slice::getHoster).toArray(IntVar[]::new);
             if (hosts.length > 0) {
@@ -181,6 +189,18 @@ public class CMinMTTR implements CObjective {
         }
     }
 
+    /*
+     * Pick a random node while trying first the hinted node, then the current node
+     */
+    private IntValueSelector placement(Parameters ps, Map<IntVar, VM> map) {
+        IntValueSelector rnd = new RandomVMPlacement(rp, map, true, ps.getRandomSeed());
+        WarmStart ws = ps.getWarmStart();
+        if (ws != null && !ws.getPlacement().isEmpty()) {
+            return new HintedVMPlacement(rp, map, ws, rnd);
+        }
+        return rnd;
+    }
+
     @Override
     public Set<VM> getMisPlacedVMs(Instance i) {
         return Collections.emptySet();
@@ -199,6 +219,11 @@ public class CMinMTTR implements CObjective {
         }
     }
 
+    @Override
+    public boolean enforcesBound() {
+        return true;
+    }
+
 
     private static Stream<Slice> dSlices(List<VMTransition> l) {
         return l.stream().map(VMTransition::getDSlice).filter(Objects::nonNull);
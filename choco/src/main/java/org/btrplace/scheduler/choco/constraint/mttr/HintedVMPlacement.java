@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.scheduler.choco.constraint.mttr;
+
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.WarmStart;
+import org.chocosolver.solver.search.strategy.selectors.IntValueSelector;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.Map;
+
+/**
+ * A heuristic to place a VM on the host stated by a {@link WarmStart} hint.
+ * When there is no hinted host for the VM or if the host is no longer possible,
+ * the decision is delegated to another heuristic.
+ *
+ * @author Fabien Hermenier
+ */
+public class HintedVMPlacement implements IntValueSelector {
+
+    private ReconfigurationProblem rp;
+
+    private Map<IntVar, VM> vmPlacement;
+
+    private WarmStart hint;
+
+    private IntValueSelector fallback;
+
+    /**
+     * Make a new heuristic.
+     *
+     * @param p           the problem to rely on
+     * @param pVarMapping a map to indicate the VM associated to each of the placement variable
+     * @param h           the hint
+     * @param fallback    the heuristic to use when the hint cannot be followed
+     */
+    public HintedVMPlacement(ReconfigurationProblem p, Map<IntVar, VM> pVarMapping, WarmStart h, IntValueSelector fallback) {
+        rp = p;
+        vmPlacement = pVarMapping;
+        hint = h;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public int selectValue(IntVar x) {
+        VM vm = vmPlacement.get(x);
+        if (vm != null) {
+            Node n = hint.getHost(vm);
+            if (n != null) {
+                int idx = rp.getNode(n);
+                if (idx >= 0 && x.contains(idx)) {
+                    return idx;
+                }
+            }
+        }
+        return fallback.selectValue(x);
+    }
+}
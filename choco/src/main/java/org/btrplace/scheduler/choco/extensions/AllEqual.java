@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.extensions;
+
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.util.ESat;
+
+import java.util.BitSet;
+
+/**
+ * Enforces a set of variables to be instantiated to a same value.
+ * <p>
+ * This replaces one equality per pair of variables. At each propagation, the domain shared by all the
+ * variables is computed in one pass, then every domain is restricted to it.
+ * The filtering is arc-consistent.
+ *
+ * @author Fabien Hermenier
+ */
+public class AllEqual extends Constraint {
+
+    /**
+     * Make a new constraint.
+     *
+     * @param vs the variables
+     */
+    public AllEqual(IntVar[] vs) {
+        super("AllEqual", new AllEqualPropagator(vs));
+    }
+
+    /**
+     * Propagator for {@link AllEqual}.
+     */
+    static class AllEqualPropagator extends Propagator<IntVar> {
+
+        /**
+         * The values shared by all the variables, relatively to the lowest common bound.
+         */
+        private final BitSet shared = new BitSet();
+
+        /**
+         * New propagator.
+         *
+         * @param vs the variables
+         */
+        public AllEqualPropagator(IntVar[] vs) {
+            super(vs, PropagatorPriority.LINEAR, false);
+        }
+
+        @Override
+        public int getPropagationConditions(int vIdx) {
+            return IntEventType.INSTANTIATE.getMask() + IntEventType.BOUND.getMask() + IntEventType.REMOVE.getMask();
+        }
+
+        @Override
+        public void propagate(int evtmask) throws ContradictionException {
+            int lb = Integer.MIN_VALUE;
+            int ub = Integer.MAX_VALUE;
+            for (IntVar v : vars) {
+                if (v.isInstantiated()) {
+                    //Every variable takes the value
+                    int val = v.getValue();
+                    for (IntVar o : vars) {
+                        o.instantiateTo(val, this);
+                    }
+                    setPassive();
+                    return;
+                }
+                lb = Math.max(lb, v.getLB());
+                ub = Math.min(ub, v.getUB());
+            }
+            if (lb > ub) {
+                contradiction(null, "no shared value");
+            }
+            shared.clear();
+            IntVar first = vars[0];
+            for (int x = first.nextValue(lb - 1); x <= ub; x = first.nextValue(x)) {
+                shared.set(x - lb);
+            }
+            for (int i = 1; i < vars.length && !shared.isEmpty(); i++) {
+                for (int x = shared.nextSetBit(0); x >= 0; x = shared.nextSetBit(x + 1)) {
+                    if (!vars[i].contains(x + lb)) {
+                        shared.clear(x);
+                    }
+                }
+            }
+            if (shared.isEmpty()) {
+                contradiction(null, "no shared value");
+            }
+            int sLB = lb + shared.nextSetBit(0);
+            int sUB = lb + shared.length() - 1;
+            for (IntVar v : vars) {
+                v.updateLowerBound(sLB, this);
+                v.updateUpperBound(sUB, this);
+                if (v.hasEnumeratedDomain()) {
+                    for (int x = v.getLB(); x <= sUB; x = v.nextValue(x)) {
+                        if (!shared.get(x - lb)) {
+                            v.removeValue(x, this);
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        public ESat isEntailed() {
+            Integer val = null;
+            boolean all = true;
+            for (IntVar v : vars) {
+                if (!v.isInstantiated()) {
+                    all = false;
+                } else if (val == null) {
+                    val = v.getValue();
+                } else if (val != v.getValue()) {
+                    return ESat.FALSE;
+                }
+            }
+            return all ? ESat.TRUE : ESat.UNDEFINED;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.extensions;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.util.ESat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A constraint to state that, among a group of VMs, the consuming slice of a VM
+ * never overlaps on a node with the demanding slice of another VM.
+ * <p>
+ * For every pair of distinct VMs {@code i} and {@code j}, the constraint enforces
+ * {@code dHost[i] = cHost[j] => cEnd[j] <= dStart[i]}. The hosting node of a consuming slice must be known.
+ * <p>
+ * Instead of one reified constraint per pair of VMs, the propagator maintains for each node the two
+ * highest lower bounds of the consuming slices ends and the two lowest upper bounds of the demanding slices
+ * starts. A filtering pass is then near-linear in the number of VMs:
+ * <ul>
+ * <li>the start of a demanding slice placed on a node is not before the end of the consuming slices on that node</li>
+ * <li>the end of a consuming slice is not after the start of the demanding slices placed on its node</li>
+ * <li>a demanding slice cannot be placed on a node if it would have to start after its latest start</li>
+ * </ul>
+ *
+ * @author Fabien Hermenier
+ */
+public class DisjointSlices extends Constraint {
+
+    /**
+     * Make a new constraint.
+     * The arrays are indexed by VM. A VM without consuming slice has a negative hosting node and a {@code null} end.
+     * A VM without demanding slice has {@code null} hosting node and start.
+     *
+     * @param cHosts  the node hosting the consuming slice of each VM
+     * @param cEnds   the end of the consuming slice of each VM
+     * @param dHosts  the node hosting the demanding slice of each VM
+     * @param dStarts the start of the demanding slice of each VM
+     * @throws IllegalArgumentException if the arrays do not have the same length
+     */
+    public DisjointSlices(int[] cHosts, IntVar[] cEnds, IntVar[] dHosts, IntVar[] dStarts) {
+        super("DisjointSlices", new DisjointSlicesPropagator(cHosts, cEnds, dHosts, dStarts));
+    }
+
+    /**
+     * Propagator for {@link DisjointSlices}.
+     */
+    static class DisjointSlicesPropagator extends Propagator<IntVar> {
+
+        private static final int NONE = -1;
+
+        /**
+         * The slot of the node hosting the consuming slice of each VM. {@link #NONE} if there is no slice.
+         */
+        private final int[] cSlots;
+
+        private final IntVar[] cEnds;
+
+        private final IntVar[] dHosts;
+
+        private final IntVar[] dStarts;
+
+        /**
+         * The node associated to each slot.
+         */
+        private final int[] nodes;
+
+        /**
+         * The slot of each node hosting a consuming slice.
+         */
+        private final TIntIntHashMap slots;
+
+        /**
+         * Per slot, the two highest lower bounds of the consuming slices ends and the VM that owns the highest.
+         */
+        private final int[] maxEnd;
+        private final int[] maxEnd2;
+        private final int[] maxEndVM;
+
+        /**
+         * Per slot, the two lowest upper bounds of the starts of the demanding slices placed on the node,
+         * and the VM that owns the lowest.
+         */
+        private final int[] minStart;
+        private final int[] minStart2;
+        private final int[] minStartVM;
+
+        /**
+         * The slots sorted by decreasing {@link #maxEnd}.
+         */
+        private final long[] byEnd;
+
+        /**
+         * New propagator.
+         *
+         * @param cHosts  the node hosting the consuming slice of each VM
+         * @param cEnds   the end of the consuming slice of each VM
+         * @param dHosts  the node hosting the demanding slice of each VM
+         * @param dStarts the start of the demanding slice of each VM
+         */
+        public DisjointSlicesPropagator(int[] cHosts, IntVar[] cEnds, IntVar[] dHosts, IntVar[] dStarts) {
+            super(variables(cHosts, cEnds, dHosts, dStarts), PropagatorPriority.LINEAR, false);
+            this.cEnds = cEnds;
+            this.dHosts = dHosts;
+            this.dStarts = dStarts;
+            cSlots = new int[cHosts.length];
+            slots = new TIntIntHashMap(cHosts.length, 0.5f, NONE, NONE);
+            for (int i = 0; i < cHosts.length; i++) {
+                if (cHosts[i] < 0) {
+                    cSlots[i] = NONE;
+                    continue;
+                }
+                int s = slots.get(cHosts[i]);
+                if (s == NONE) {
+                    s = slots.size();
+                    slots.put(cHosts[i], s);
+                }
+                cSlots[i] = s;
+            }
+            int nbSlots = slots.size();
+            nodes = new int[nbSlots];
+            slots.forEachEntry((n, s) -> {
+                nodes[s] = n;
+                return true;
+            });
+            maxEnd = new int[nbSlots];
+            maxEnd2 = new int[nbSlots];
+            maxEndVM = new int[nbSlots];
+            minStart = new int[nbSlots];
+            minStart2 = new int[nbSlots];
+            minStartVM = new int[nbSlots];
+            byEnd = new long[nbSlots];
+        }
+
+        private static IntVar[] variables(int[] cHosts, IntVar[] cEnds, IntVar[] dHosts, IntVar[] dStarts) {
+            if (cHosts.length != cEnds.length || cHosts.length != dHosts.length || cHosts.length != dStarts.length) {
+                throw new IllegalArgumentException("The arrays must have the same length");
+            }
+            List<IntVar> l = new ArrayList<>();
+            for (int i = 0; i < cHosts.length; i++) {
+                if (cHosts[i] >= 0) {
+                    l.add(cEnds[i]);
+                }
+                if (dHosts[i] != null) {
+                    l.add(dHosts[i]);
+                    l.add(dStarts[i]);
+                }
+            }
+            return l.toArray(new IntVar[l.size()]);
+        }
+
+        @Override
+        public int getPropagationConditions(int vIdx) {
+            return IntEventType.BOUND.getMask() + IntEventType.INSTANTIATE.getMask();
+        }
+
+        @Override
+        public void propagate(int evtmask) throws ContradictionException {
+            boolean changed = true;
+            while (changed) {
+                computeBounds();
+                changed = filterPlaced();
+                changed |= filterEnds();
+                changed |= filterHosts();
+            }
+        }
+
+        /**
+         * Compute the bounds per slot.
+         */
+        private void computeBounds() {
+            Arrays.fill(maxEnd, Integer.MIN_VALUE);
+            Arrays.fill(maxEnd2, Integer.MIN_VALUE);
+            Arrays.fill(minStart, Integer.MAX_VALUE);
+            Arrays.fill(minStart2, Integer.MAX_VALUE);
+            for (int i = 0; i < cSlots.length; i++) {
+                int s = cSlots[i];
+                if (s != NONE) {
+                    int lb = cEnds[i].getLB();
+                    if (lb > maxEnd[s]) {
+                        maxEnd2[s] = maxEnd[s];
+                        maxEnd[s] = lb;
+                        maxEndVM[s] = i;
+                    } else if (lb > maxEnd2[s]) {
+                        maxEnd2[s] = lb;
+                    }
+                }
+                s = placedSlot(i);
+                if (s != NONE) {
+                    int ub = dStarts[i].getUB();
+                    if (ub < minStart[s]) {
+                        minStart2[s] = minStart[s];
+                        minStart[s] = ub;
+                        minStartVM[s] = i;
+                    } else if (ub < minStart2[s]) {
+                        minStart2[s] = ub;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Get the slot of the node hosting the demanding slice of a VM.
+         *
+         * @param i the VM index
+         * @return the slot. {@link #NONE} if the slice is not placed or if the node does not host any consuming slice
+         */
+        private int placedSlot(int i) {
+            if (dHosts[i] == null || !dHosts[i].isInstantiated()) {
+                return NONE;
+            }
+            return slots.get(dHosts[i].getValue());
+        }
+
+        /**
+         * A placed demanding slice cannot start before the end of the consuming slices of the other VMs on the node.
+         */
+        private boolean filterPlaced() throws ContradictionException {
+            boolean changed = false;
+            for (int i = 0; i < dHosts.length; i++) {
+                int s = placedSlot(i);
+                if (s != NONE) {
+                    int lb = maxEndVM[s] == i ? maxEnd2[s] : maxEnd[s];
+                    if (lb != Integer.MIN_VALUE) {
+                        changed |= dStarts[i].updateLowerBound(lb, this);
+                    }
+                }
+            }
+            return changed;
+        }
+
+        /**
+         * A consuming slice cannot end after the start of the demanding slices of the other VMs placed on the node.
+         */
+        private boolean filterEnds() throws ContradictionException {
+            boolean changed = false;
+            for (int j = 0; j < cSlots.length; j++) {
+                int s = cSlots[j];
+                if (s != NONE) {
+                    int ub = minStartVM[s] == j ? minStart2[s] : minStart[s];
+                    if (ub != Integer.MAX_VALUE) {
+                        changed |= cEnds[j].updateUpperBound(ub, this);
+                    }
+                }
+            }
+            return changed;
+        }
+
+        /**
+         * A demanding slice cannot be placed on a node where the consuming slices of the other VMs
+         * end after its latest start.
+         * The slots are visited by decreasing end, so the visit stops at the first slot that is compatible.
+         */
+        private boolean filterHosts() throws ContradictionException {
+            for (int s = 0; s < nodes.length; s++) {
+                //The highest ends first, the slot in the lowest bits
+                byEnd[s] = ((long) -Math.max(maxEnd[s], Integer.MIN_VALUE + 1) << 32) | s;
+            }
+            Arrays.sort(byEnd);
+            boolean changed = false;
+            for (int i = 0; i < dHosts.length; i++) {
+                IntVar h = dHosts[i];
+                if (h == null || h.isInstantiated()) {
+                    continue;
+                }
+                int ub = dStarts[i].getUB();
+                for (long k : byEnd) {
+                    int s = (int) k;
+                    if (maxEnd[s] <= ub) {
+                        break;
+                    }
+                    int lb = maxEndVM[s] == i ? maxEnd2[s] : maxEnd[s];
+                    if (lb > ub) {
+                        changed |= h.removeValue(nodes[s], this);
+                    }
+                }
+            }
+            return changed;
+        }
+
+        @Override
+        public ESat isEntailed() {
+            for (IntVar v : vars) {
+                if (!v.isInstantiated()) {
+                    return ESat.UNDEFINED;
+                }
+            }
+            computeBounds();
+            for (int i = 0; i < dHosts.length; i++) {
+                int s = placedSlot(i);
+                if (s != NONE) {
+                    int end = maxEndVM[s] == i ? maxEnd2[s] : maxEnd[s];
+                    if (end > dStarts[i].getValue()) {
+                        return ESat.FALSE;
+                    }
+                }
+            }
+            return ESat.TRUE;
+        }
+    }
+}
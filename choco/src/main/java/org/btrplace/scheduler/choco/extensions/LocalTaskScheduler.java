@@ -19,7 +19,6 @@
 package org.btrplace.scheduler.choco.extensions;
 
 
-import gnu.trove.map.hash.TIntIntHashMap;
 import org.chocosolver.memory.IStateBool;
 import org.chocosolver.memory.IStateIntVector;
 import org.chocosolver.solver.constraints.Propagator;
@@ -64,13 +63,42 @@ public class LocalTaskScheduler {
     private int[] startupFree;
     private int[] associateCTask;
     private int[] associateDTask;
-    private int[] sortedMinProfile;
 
-    private TIntIntHashMap[] profilesMin;
+    /**
+     * What is necessarily used on the resource.
+     */
+    private Profile profileMin;
+
+    /**
+     * Maximum possible usage on the resource.
+     */
+    private Profile profileMax;
+
+    /**
+     * The usage at startup, for the initial event of the profiles.
+     */
+    private int[] startupUsage;
+
+    /**
+     * The bounds of {@link #early} and {@link #last} at the last propagation.
+     */
+    private int[] bounds = new int[4];
 
-    private TIntIntHashMap[] profilesMax;
+    /**
+     * For each event of the profiles, the slice and its association state at the last propagation.
+     */
+    private int[] slices = new int[0];
+
+    /**
+     * {@code true} iff the slices or their association state changed since the last propagation.
+     */
+    private boolean slicesChanged;
 
-    private int[] sortedMaxProfile;
+    /**
+     * {@code true} iff the last propagation did not modify any variable. The propagation can then be skipped
+     * as long as the profiles and the bounds are unchanged.
+     */
+    private boolean stable;
 
     private int[][] capacities;
 
@@ -134,13 +162,11 @@ public class LocalTaskScheduler {
         //The amount of free resources at startup
 
         startupFree = new int[nbDims];
-        profilesMax = new TIntIntHashMap[nbDims];
-        profilesMin = new TIntIntHashMap[nbDims];
         for (int d = 0; d < nbDims; d++) {
             startupFree[d] = capacities[me][d];
-            profilesMax[d] = new TIntIntHashMap();
-            profilesMin[d] = new TIntIntHashMap();
         }
+        profileMin = new Profile(nbDims);
+        profileMax = new Profile(nbDims);
 
         int lastInf = outIdx.length == 0 ? 0 : Integer.MAX_VALUE;
         int lastSup = 0;
@@ -160,23 +186,11 @@ public class LocalTaskScheduler {
             }
         }
 
-        entailed = early.getSolver().getEnvironment().makeBool(false);
-    }
-
-    /**
-     * Translation for a relatives resources changes to an absolute free resources.
-     *
-     * @param changes       the map that indicates the free CPU variation
-     * @param sortedMoments the different moments sorted in ascending order
-     */
-    private static void toAbsoluteFreeResources(TIntIntHashMap changes, int[] sortedMoments) {
-        for (int i = 1; i < sortedMoments.length; i++) {
-            int t = sortedMoments[i];
-            int lastT = sortedMoments[i - 1];
-            int lastFree = changes.get(lastT);
-
-            changes.put(t, changes.get(t) + lastFree);
+        startupUsage = new int[nbDims];
+        for (int d = 0; d < nbDims; d++) {
+            startupUsage[d] = capacities[me][d] - startupFree[d];
         }
+        entailed = early.getSolver().getEnvironment().makeBool(false);
     }
 
 
@@ -189,6 +203,18 @@ public class LocalTaskScheduler {
             return;
         }
         boolean allInstantiated = computeProfiles();
+        if (stable && !slicesChanged && !profileMin.isChanged() && !profileMax.isChanged() && !boundsChanged()) {
+            //Same inputs than the last propagation, that was a fix point
+            if (allInstantiated) {
+                entailed.set(true);
+            }
+            return;
+        }
+        //Not a fix point until the filtering succeeded
+        stable = false;
+        profileMin.compute();
+        profileMax.compute();
+        summary();
 
         checkInvariant();
         if (allInstantiated) {
@@ -196,9 +222,26 @@ public class LocalTaskScheduler {
             return;
         }
 
-        updateCEndsSup(watchHosts);
-        updateDStartsInf(watchHosts);
-        updateDStartsSup(watchHosts);
+        boolean modified = updateCEndsSup(watchHosts);
+        modified |= updateDStartsInf(watchHosts);
+        modified |= updateDStartsSup(watchHosts);
+        stable = !modified;
+        boundsChanged();
+    }
+
+    /**
+     * Check if the bounds of {@link #early} and {@link #last} changed since the last call.
+     *
+     * @return {@code true} iff at least one bound changed
+     */
+    private boolean boundsChanged() {
+        boolean c = bounds[0] != early.getLB() || bounds[1] != early.getUB()
+                || bounds[2] != last.getLB() || bounds[3] != last.getUB();
+        bounds[0] = early.getLB();
+        bounds[1] = early.getUB();
+        bounds[2] = last.getLB();
+        bounds[3] = last.getUB();
+        return c;
     }
 
     /**
@@ -210,34 +253,23 @@ public class LocalTaskScheduler {
         return entailed.get();
     }
 
+    /**
+     * Declare the events of the profiles.
+     * Event 0 is the startup usage, then come the cSlices in the order of {@link #outIdx},
+     * then the dSlices in the order of {@link #vIn}.
+     *
+     * @return {@code true} iff all the slices are instantiated
+     * @throws ContradictionException if a bound update failed
+     */
     private boolean computeProfiles() throws ContradictionException {
 
         initProfile();
 
         boolean allinstantiated = insertCSlices();
         allinstantiated &= insertDSlices();
-
-        //Now transforms into an absolute profile
-        absoluteValues();
-
-        summary();
         return allinstantiated;
     }
 
-    private void absoluteValues() {
-        sortedMinProfile = profilesMin[0].keys();
-        Arrays.sort(sortedMinProfile);
-
-        sortedMaxProfile = profilesMax[0].keys();
-
-        Arrays.sort(sortedMaxProfile);
-
-        for (int d = 0; d < nbDims; d++) {
-            toAbsoluteFreeResources(profilesMin[d], sortedMinProfile);
-            toAbsoluteFreeResources(profilesMax[d], sortedMaxProfile);
-        }
-    }
-
     private boolean insertDSlices() throws ContradictionException {
         boolean allinstantiated = true;
         int lastSup = 0;
@@ -254,10 +286,10 @@ public class LocalTaskScheduler {
                 lastSup = tu;
             }
 
-            for (int d = 0; d < nbDims; d++) {
-                profilesMin[d].put(tu, profilesMin[d].get(tu) + dUsages[dt][d]);
-                profilesMax[d].put(tl, profilesMax[d].get(tl) + dUsages[dt][d]);
-            }
+            int id = 1 + outIdx.length + x;
+            track(id, associatedToCSliceOnCurrentNode(dt) ? -dt - 1 : dt);
+            profileMin.set(id, tu, dUsages[dt], 1);
+            profileMax.set(id, tl, dUsages[dt], 1);
         }
         early.updateUpperBound(lastSup, aCause);
         return allinstantiated;
@@ -267,7 +299,8 @@ public class LocalTaskScheduler {
         boolean allinstantiated = true;
         // the cTasks
         int lastInf = 0;
-        for (int ct : outIdx) {
+        for (int x = 0; x < outIdx.length; x++) {
+            int ct = outIdx[x];
 
             cEnds[ct].updateUpperBound(last.getUB(), aCause);
             allinstantiated &= cEnds[ct].isInstantiated() || associatedToDSliceOnCurrentNode(ct);
@@ -279,16 +312,14 @@ public class LocalTaskScheduler {
             // the cTask does not migrate and its demand increases on at least one dimension
             boolean increasing = associatedToDSliceOnCurrentNode(ct) && increase(ct, associateDTask[ct]);
 
-            for (int d = 0; d < nbDims; d++) {
-                int diff = cUsages[ct][d];
-                if (increasing) {
-                    profilesMax[d].put(tl, profilesMax[d].get(tl) - diff);
-                    profilesMin[d].put(tu, profilesMin[d].get(tu) - diff);
-                } else {
-                    //the cTask free resources (by migration or decreasing demand on dimensions
-                    profilesMin[d].put(tl, profilesMin[d].get(tl) - diff);
-                    profilesMax[d].put(tu, profilesMax[d].get(tu) - diff);
-                }
+            track(1 + x, associatedToDSliceOnCurrentNode(ct) ? 1 : 0);
+            if (increasing) {
+                profileMax.set(1 + x, tl, cUsages[ct], -1);
+                profileMin.set(1 + x, tu, cUsages[ct], -1);
+            } else {
+                //the cTask free resources (by migration or decreasing demand on dimensions
+                profileMin.set(1 + x, tl, cUsages[ct], -1);
+                profileMax.set(1 + x, tu, cUsages[ct], -1);
             }
         }
         last.updateLowerBound(lastInf, aCause);
@@ -296,15 +327,29 @@ public class LocalTaskScheduler {
     }
 
     private void initProfile() {
-        for (int d = 0; d < nbDims; d++) {
-            //What is necessarily used on the resource
-            profilesMin[d].clear();
-
-            //Maximum possible usage on the resource
-            profilesMax[d].clear();
+        int nb = 1 + outIdx.length + vIn.size();
+        profileMin.reset(nb);
+        profileMax.reset(nb);
+        profileMin.set(0, 0, startupUsage, 1);
+        profileMax.set(0, 0, startupUsage, 1);
+        if (slices.length != nb) {
+            slices = new int[nb];
+            slicesChanged = true;
+        } else {
+            slicesChanged = false;
+        }
+    }
 
-            profilesMax[d].put(0, capacities[me][d] - startupFree[d]);
-            profilesMin[d].put(0, capacities[me][d] - startupFree[d]);
+    /**
+     * Track the slice behind an event.
+     *
+     * @param id    the event identifier
+     * @param state the slice and its association state
+     */
+    private void track(int id, int state) {
+        if (slices[id] != state) {
+            slices[id] = state;
+            slicesChanged = true;
         }
     }
 
@@ -323,8 +368,8 @@ public class LocalTaskScheduler {
 
 
             for (int i = 0; i < nbDims; i++) {
-                LOGGER.debug("profileMin dim " + i + "=" + prettyProfile(sortedMinProfile, profilesMin[i]));
-                LOGGER.debug("profileMax dim " + i + "=" + prettyProfile(sortedMaxProfile, profilesMax[i]));
+                LOGGER.debug("profileMin dim " + i + "=" + profileMin.toString(i));
+                LOGGER.debug("profileMax dim " + i + "=" + profileMax.toString(i));
             }
             LOGGER.debug("/--- " + me + "---/");
         }
@@ -346,27 +391,13 @@ public class LocalTaskScheduler {
         return associateCTask[dSlice] != NO_ASSOCIATIONS && out.get(associateCTask[dSlice]);
     }
 
-    private static String prettyProfile(int[] ascMoments, TIntIntHashMap prof) {
-        StringBuilder b = new StringBuilder();
-        for (int i = 0; i < ascMoments.length; i++) {
-            int t = ascMoments[i];
-            b.append(t);
-            b.append(':');
-            b.append(prof.get(t));
-            if (i != ascMoments.length - 1) {
-                b.append(' ');
-            }
-        }
-        return b.toString();
-    }
-
     private boolean checkInvariant() throws ContradictionException {
-        for (int t : sortedMinProfile) {
+        for (int k = 0; k < profileMin.size(); k++) {
             for (int d = 0; d < nbDims; d++) {
-                if (profilesMin[d].get(t) > capacities[me][d]) {
+                if (profileMin.value(k, d) > capacities[me][d]) {
                     if (me == DEBUG || DEBUG == DEBUG_ALL) {
-                        LOGGER.debug("(" + me + ") Invalid min profile at " + t + " on dimension " + d
-                                + ": " + profilesMin[d].get(t) + " > " + capacities[me][d]);
+                        LOGGER.debug("(" + me + ") Invalid min profile at " + profileMin.moment(k) + " on dimension " + d
+                                + ": " + profileMin.value(k, d) + " > " + capacities[me][d]);
                     }
                     aCause.contradiction(early, "");
                 }
@@ -378,39 +409,41 @@ public class LocalTaskScheduler {
     // TODO: ou sont instanciees les dates des VMs qui restent sur le noeud ??
     // TODO: detecter si la capacite totale permet de faire passer tout le monde (et mettre passif dans ce cas)
 
-    private void updateDStartsInf(BitSet watchHosts) throws ContradictionException {
-
+    private boolean updateDStartsInf(BitSet watchHosts) throws ContradictionException {
+        boolean modified = false;
         for (int idx = 0; idx < vIn.size(); idx++) {
             int i = vIn.get(idx);
             if (!dStarts[i].isInstantiated() && !associatedToCSliceOnCurrentNode(i)) {
 
                 int lastT = -1;
-                for (int x = sortedMinProfile.length - 1; x >= 0; x--) {
-                    int t = sortedMinProfile[x];
+                for (int x = profileMin.size() - 1; x >= 0; x--) {
+                    int t = profileMin.moment(x);
                     if (t <= dStarts[i].getLB()) {
                         break;
                     }
-                    int prevT = sortedMinProfile[x - 1];
                     if (t <= dStarts[i].getUB()
-                            && exceedCapacity(profilesMin, prevT, dUsages[i])) {
+                            && profileMin.exceeds(x - 1, dUsages[i], capacities[me])) {
                         lastT = t;
                         break;
                     }
                 }
-                if (dStarts[i].updateLowerBound(Math.max(lastT, early.getLB()), aCause) && associateCTask[i] != NO_ASSOCIATIONS && dStarts[i].isInstantiated()) {
-                    watchHosts.set(cHosters[associateCTask[i]].getValue());
+                if (dStarts[i].updateLowerBound(Math.max(lastT, early.getLB()), aCause)) {
+                    modified = true;
+                    if (associateCTask[i] != NO_ASSOCIATIONS && dStarts[i].isInstantiated()) {
+                        watchHosts.set(cHosters[associateCTask[i]].getValue());
+                    }
                 }
             }
         }
+        return modified;
     }
 
-    private void updateDStartsSup(BitSet watchHosts) throws ContradictionException {
-
+    private boolean updateDStartsSup(BitSet watchHosts) throws ContradictionException {
+        boolean modified = false;
         int lastSup = -1;
-        for (int i = sortedMaxProfile.length - 1; i >= 0; i--) {
-            int t = sortedMaxProfile[i];
-            if (!exceedCapacity(profilesMax, t, capacities[me])) {
-                lastSup = t;
+        for (int k = profileMax.size() - 1; k >= 0; k--) {
+            if (!profileMax.exceeds(k, capacities[me], capacities[me])) {
+                lastSup = profileMax.moment(k);
             } else {
                 break;
             }
@@ -420,43 +453,44 @@ public class LocalTaskScheduler {
                 int i = vIn.get(x);
                 if (!dStarts[i].isInstantiated() && !associatedToCSliceOnCurrentNode(i)) {
                     int s = Math.max(dStarts[i].getLB(), lastSup);
-                    if (dStarts[i].updateUpperBound(s, aCause) && associateCTask[i] != NO_ASSOCIATIONS && dStarts[i].isInstantiated()) {
-                        watchHosts.set(cHosters[associateCTask[i]].getValue());
+                    if (dStarts[i].updateUpperBound(s, aCause)) {
+                        modified = true;
+                        if (associateCTask[i] != NO_ASSOCIATIONS && dStarts[i].isInstantiated()) {
+                            watchHosts.set(cHosters[associateCTask[i]].getValue());
+                        }
                     }
                 }
             }
         }
+        return modified;
     }
 
-    private void updateCEndsSup(BitSet watchHosts) throws ContradictionException {
+    private boolean updateCEndsSup(BitSet watchHosts) throws ContradictionException {
+        boolean modified = false;
         for (int i : outIdx) {
             if (!cEnds[i].isInstantiated() && !associatedToDSliceOnCurrentNode(i)) {
 
                 int lastT = -1;
-                for (int t : sortedMinProfile) {
+                for (int k = 0; k < profileMin.size(); k++) {
+                    int t = profileMin.moment(k);
                     if (t >= cEnds[i].getUB()) {
                         break;
                     } else if (t >= cEnds[i].getLB() &&
-                            exceedCapacity(profilesMin, t, cUsages[i])) {
+                            profileMin.exceeds(k, cUsages[i], capacities[me])) {
                         lastT = t;
                         break;
                     }
                 }
-                if (cEnds[i].updateUpperBound((lastT != -1) ? Math.min(lastT, last.getUB()) : last.getUB(), aCause) && associateDTask[i] != NO_ASSOCIATIONS && cEnds[i].isInstantiated()) {
-                    watchHosts.set(dHosters[associateDTask[i]].getValue());
+                if (cEnds[i].updateUpperBound((lastT != -1) ? Math.min(lastT, last.getUB()) : last.getUB(), aCause)) {
+                    modified = true;
+                    if (associateDTask[i] != NO_ASSOCIATIONS && cEnds[i].isInstantiated()) {
+                        watchHosts.set(dHosters[associateDTask[i]].getValue());
+                    }
                 }
 
             }
         }
-    }
-
-    private boolean exceedCapacity(TIntIntHashMap[] profiles, int t, int[] usage) {
-        for (int d = 0; d < nbDims; d++) {
-            if (profiles[d].get(t) + usage[d] > capacities[me][d]) {
-                return true;
-            }
-        }
-        return false;
+        return modified;
     }
 
 }
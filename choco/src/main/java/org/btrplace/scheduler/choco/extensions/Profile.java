@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.scheduler.choco.extensions;
+
+import java.util.Arrays;
+
+/**
+ * A multi-dimensional resource profile over time.
+ * <p>
+ * The profile is made of events. Each event has an identifier, a moment, and a variation
+ * of the resource usage for each dimension. The value of the profile at a given moment is the sum of the
+ * variations of the events that occurred before or at that moment.
+ * <p>
+ * The events are stored in primitive arrays that are reused from one computation to another.
+ * The events are kept sorted by moment between two computations. So when only a few events moved, the
+ * profile is updated by an insertion sort that is nearly linear.
+ *
+ * @author Fabien Hermenier
+ */
+public class Profile {
+
+    /**
+     * Above this ratio of moved events, the events are sorted from scratch.
+     */
+    private static final int FULL_SORT_RATIO = 16;
+
+    private final int nbDims;
+
+    /**
+     * The moment of each event, by identifier.
+     */
+    private int[] moments;
+
+    /**
+     * The variations of each event, by identifier. The variation of event {@code i} on dimension {@code d}
+     * is at {@code i * nbDims + d}.
+     */
+    private int[] deltas;
+
+    private int nbEvents;
+
+    /**
+     * The events sorted by moment. The moment is in the 32 upper bits, the identifier in the lower bits.
+     * Might contains identifiers that are no longer used.
+     */
+    private long[] sorted;
+
+    private int nbSorted;
+
+    /**
+     * The number of events that changed since the last computation.
+     */
+    private int nbMoved;
+
+    private boolean changed;
+
+    /**
+     * The distinct moments, in ascending order.
+     */
+    private int[] distinct;
+
+    /**
+     * The value of the profile at each distinct moment. The value at the k-th moment on dimension {@code d}
+     * is at {@code k * nbDims + d}.
+     */
+    private int[] values;
+
+    private int nbMoments;
+
+    /**
+     * Make a new empty profile.
+     *
+     * @param nbDims the number of dimensions
+     */
+    public Profile(int nbDims) {
+        this.nbDims = nbDims;
+        moments = new int[8];
+        deltas = new int[8 * nbDims];
+        sorted = new long[8];
+        distinct = new int[8];
+        values = new int[8 * nbDims];
+        changed = true;
+    }
+
+    /**
+     * Start the declaration of the events.
+     * The events that will not be declared again keep their previous moment and variations.
+     *
+     * @param nb the number of events. Their identifiers range from {@code 0} to {@code nb - 1}
+     */
+    public void reset(int nb) {
+        if (nb > moments.length) {
+            int c = Math.max(nb, moments.length * 2);
+            moments = Arrays.copyOf(moments, c);
+            deltas = Arrays.copyOf(deltas, c * nbDims);
+        }
+        if (nb != nbEvents) {
+            changed = true;
+            if (nb > nbEvents) {
+                //The new events are unknown so far
+                Arrays.fill(moments, nbEvents, nb, -1);
+            }
+        }
+        nbEvents = nb;
+        nbMoved = 0;
+    }
+
+    /**
+     * Declare an event.
+     *
+     * @param id     the event identifier
+     * @param t      the moment of the event. Must be positive
+     * @param usages the usage for each dimension
+     * @param factor the factor to apply to the usages to get the variation. Typically {@code 1} or {@code -1}
+     */
+    public void set(int id, int t, int[] usages, int factor) {
+        if (moments[id] != t) {
+            moments[id] = t;
+            nbMoved++;
+            changed = true;
+        }
+        int from = id * nbDims;
+        for (int d = 0; d < nbDims; d++) {
+            int v = factor * usages[d];
+            if (deltas[from + d] != v) {
+                deltas[from + d] = v;
+                changed = true;
+            }
+        }
+    }
+
+    /**
+     * Tell if an event moved, changed its variations, or if the number of events changed since the last
+     * computation.
+     *
+     * @return {@code true} iff the profile must be computed again
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * Compute the profile from the declared events.
+     * Nothing is done if there was no change since the last computation.
+     */
+    public void compute() {
+        if (!changed) {
+            return;
+        }
+        boolean incremental = nbMoved * FULL_SORT_RATIO <= nbEvents;
+        refreshKeys();
+        if (incremental) {
+            insertionSort(sorted, nbSorted);
+        } else {
+            Arrays.sort(sorted, 0, nbSorted);
+        }
+        sweep();
+        changed = false;
+    }
+
+    /**
+     * Update the keys of the sorted events with the current moments, drop the events that no longer exist
+     * and append the new ones.
+     */
+    private void refreshKeys() {
+        if (nbEvents > sorted.length) {
+            sorted = Arrays.copyOf(sorted, Math.max(nbEvents, sorted.length * 2));
+        }
+        int x = 0;
+        int known = 0;
+        for (int i = 0; i < nbSorted; i++) {
+            int id = (int) sorted[i];
+            if (id < nbEvents) {
+                sorted[x++] = key(moments[id], id);
+                known = Math.max(known, id + 1);
+            }
+        }
+        for (int id = known; id < nbEvents; id++) {
+            sorted[x++] = key(moments[id], id);
+        }
+        nbSorted = x;
+    }
+
+    private static long key(int t, int id) {
+        return ((long) t << 32) | id;
+    }
+
+    private static void insertionSort(long[] a, int size) {
+        for (int i = 1; i < size; i++) {
+            long k = a[i];
+            int j = i - 1;
+            while (j >= 0 && a[j] > k) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = k;
+        }
+    }
+
+    /**
+     * Accumulate the variations of the sorted events.
+     */
+    private void sweep() {
+        if (nbSorted > distinct.length) {
+            int c = Math.max(nbSorted, distinct.length * 2);
+            distinct = Arrays.copyOf(distinct, c);
+            values = Arrays.copyOf(values, c * nbDims);
+        }
+        nbMoments = 0;
+        for (int i = 0; i < nbSorted; i++) {
+            int t = (int) (sorted[i] >>> 32);
+            int id = (int) sorted[i];
+            int to;
+            if (nbMoments == 0 || distinct[nbMoments - 1] != t) {
+                //A new moment, starting from the previous value
+                to = nbMoments * nbDims;
+                if (nbMoments == 0) {
+                    Arrays.fill(values, 0, nbDims, 0);
+                } else {
+                    System.arraycopy(values, to - nbDims, values, to, nbDims);
+                }
+                distinct[nbMoments++] = t;
+            } else {
+                to = (nbMoments - 1) * nbDims;
+            }
+            int from = id * nbDims;
+            for (int d = 0; d < nbDims; d++) {
+                values[to + d] += deltas[from + d];
+            }
+        }
+    }
+
+    /**
+     * Get the number of distinct moments.
+     *
+     * @return a positive integer
+     */
+    public int size() {
+        return nbMoments;
+    }
+
+    /**
+     * Get a moment.
+     *
+     * @param k the moment index, in ascending order
+     * @return the moment
+     */
+    public int moment(int k) {
+        return distinct[k];
+    }
+
+    /**
+     * Get the value of the profile at a moment.
+     *
+     * @param k the moment index, in ascending order
+     * @param d the dimension
+     * @return the value
+     */
+    public int value(int k, int d) {
+        return values[k * nbDims + d];
+    }
+
+    /**
+     * Check if an additional usage at a given moment exceeds a capacity on at least one dimension.
+     *
+     * @param k      the moment index, in ascending order
+     * @param usages the additional usage for each dimension
+     * @param capas  the capacity for each dimension
+     * @return {@code true} iff the value plus the usage exceeds the capacity on one dimension
+     */
+    public boolean exceeds(int k, int[] usages, int[] capas) {
+        int from = k * nbDims;
+        for (int d = 0; d < nbDims; d++) {
+            if (values[from + d] + usages[d] > capas[d]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pretty print the profile on a dimension.
+     *
+     * @param d the dimension
+     * @return a formatted string
+     */
+    public String toString(int d) {
+        StringBuilder b = new StringBuilder();
+        for (int k = 0; k < nbMoments; k++) {
+            if (k > 0) {
+                b.append(' ');
+            }
+            b.append(distinct[k]).append(':').append(value(k, d));
+        }
+        return b.toString();
+    }
+}
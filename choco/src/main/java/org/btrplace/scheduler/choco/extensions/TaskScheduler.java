@@ -19,8 +19,6 @@
 package org.btrplace.scheduler.choco.extensions;
 
 
-import gnu.trove.map.hash.TIntIntHashMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
 import org.chocosolver.memory.IStateInt;
 import org.chocosolver.memory.IStateIntVector;
 import org.chocosolver.solver.constraints.Constraint;
@@ -31,7 +29,6 @@ import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.util.ESat;
 import org.chocosolver.util.tools.ArrayUtils;
 
-import java.util.Arrays;
 import java.util.BitSet;
 
 /**
@@ -186,10 +183,10 @@ public class TaskScheduler extends Constraint {
         /**
          * check dStart[dt] >= earlyStart[dHost[dt]] for all dTasks
          *
-         * @param changes the profile. Will be updated with the dSlices value
+         * @param nbEvents the number of events on each host. Will be updated with the dSlices
          * @return the satisfaction status
          */
-        private ESat checkDSlices(TIntIntHashMap[][] changes) {
+        private ESat checkDSlices(int[] nbEvents) {
             for (int dt = 0; dt < dHosters.length; dt++) {
                 if (!dHosters[dt].isInstantiated() || !dStarts[dt].isInstantiated()) {
                     return ESat.UNDEFINED;
@@ -199,9 +196,7 @@ public class TaskScheduler extends Constraint {
                 if (t < earlyStarts[h].getValue()) {
                     return ESat.FALSE;
                 }
-                for (int d = 0; d < nbDims; d++) {
-                    changes[h][d].put(t, changes[h][d].get(t) - dUsages[dt][d]);
-                }
+                nbEvents[h]++;
             }
             return ESat.TRUE;
         }
@@ -209,11 +204,11 @@ public class TaskScheduler extends Constraint {
         /**
          * check cEnd[ct] <= lastEnd[cHost[ct]] for all cTasks.
          *
-         * @param changes  will be modified
-         * @param initFree the initial amount of free resources
+         * @param nbEvents the number of events on each host. Will be updated with the cSlices
+         * @param startup  the usage at startup on each host. Will be updated with the cSlices
          * @return the satisfaction status
          */
-        private ESat checkCSlices(TIntIntHashMap[][] changes, int[][] initFree) {
+        private ESat checkCSlices(int[] nbEvents, int[][] startup) {
 
             for (int ct = 0; ct < cHosters.length; ct++) {
                 if (!cHosters[ct].isInstantiated() || !cEnds[ct].isInstantiated()) {
@@ -224,9 +219,9 @@ public class TaskScheduler extends Constraint {
                 if (t > lastEnds[h].getValue()) {
                     return ESat.FALSE;
                 }
+                nbEvents[h]++;
                 for (int d = 0; d < nbDims; d++) {
-                    changes[h][d].put(t, changes[h][d].get(t) + cUsages[ct][d]);
-                    initFree[h][d] -= cUsages[ct][d];
+                    startup[h][d] += cUsages[ct][d];
                 }
             }
             return ESat.TRUE;
@@ -235,57 +230,57 @@ public class TaskScheduler extends Constraint {
         /**
          * check resource profile on each host
          *
-         * @param changes  the resource profiles
-         * @param initFree the initial amount of free resources
+         * @param nbEvents the number of events on each host
+         * @param startup  the usage at startup on each host
          * @return the satisfaction status
          */
-        private ESat checkProfiles(TIntIntHashMap[][] changes, int[][] initFree) {
-            boolean ok = true;
+        private ESat checkProfiles(int[] nbEvents, int[][] startup) {
+            Profile[] profiles = new Profile[nbHosts];
+            //The next event identifier on each host. 0 is the startup event
+            int[] ids = new int[nbHosts];
             for (int h = 0; h < nbHosts; h++) {
-                TIntObjectHashMap<int[]> myChanges = myChanges(changes[h]);
-                int[] moments = myChanges.keys(new int[myChanges.size()]);
-                Arrays.sort(moments);
-                for (int t : moments) {
-                    boolean bad = false;
-                    for (int d = 0; d < nbDims; d++) {
-                        initFree[h][d] += myChanges.get(t)[d];
-                        if (initFree[h][d] < 0) {
-                            bad = true;
-                        }
-                    }
-                    if (bad) {
-                        ok = false;
-                        break;
+                profiles[h] = new Profile(nbDims);
+                profiles[h].reset(nbEvents[h] + 1);
+                profiles[h].set(ids[h]++, 0, startup[h], 1);
+            }
+            for (int ct = 0; ct < cHosters.length; ct++) {
+                int h = cHosters[ct].getValue();
+                profiles[h].set(ids[h]++, cEnds[ct].getValue(), cUsages[ct], -1);
+            }
+            for (int dt = 0; dt < dHosters.length; dt++) {
+                int h = dHosters[dt].getValue();
+                profiles[h].set(ids[h]++, dStarts[dt].getValue(), dUsages[dt], 1);
+            }
+            int[] none = new int[nbDims];
+            for (int h = 0; h < nbHosts; h++) {
+                Profile p = profiles[h];
+                p.compute();
+                for (int k = 0; k < p.size(); k++) {
+                    if (p.exceeds(k, none, capacities[h])) {
+                        return ESat.FALSE;
                     }
                 }
             }
-            return ESat.eval(ok);
+            return ESat.TRUE;
         }
 
         @Override
         public ESat isEntailed() {
 
-            //A hashmap to save the changes of each node (relatives to the previous moment) and each dimension
-            TIntIntHashMap[][] changes = new TIntIntHashMap[nbHosts][nbDims];
-            int[][] initFree = new int[nbHosts][];
-            for (int h = 0; h < nbHosts; h++) {
-                for (int d = 0; d < nbDims; d++) {
-                    changes[h][d] = new TIntIntHashMap();
-                }
-                initFree[h] = Arrays.copyOf(capacities[h], capacities[h].length);
-            }
+            int[] nbEvents = new int[nbHosts];
+            int[][] startup = new int[nbHosts][nbDims];
 
-            ESat sat = checkDSlices(changes);
+            ESat sat = checkDSlices(nbEvents);
             if (ESat.TRUE != sat) {
                 return sat;
             }
 
-            sat = checkCSlices(changes, initFree);
+            sat = checkCSlices(nbEvents, startup);
             if (ESat.TRUE != sat) {
                 return sat;
             }
 
-            return checkProfiles(changes, initFree);
+            return checkProfiles(nbEvents, startup);
         }
 
         @Override
@@ -314,30 +309,5 @@ public class TaskScheduler extends Constraint {
             watchDTask.set(d);
             return d < dHosters.length;
         }
-
-        private TIntObjectHashMap<int[]> myChanges(TIntIntHashMap[] change) {
-            TIntObjectHashMap<int[]> map = new TIntObjectHashMap<>();
-            for (int d = 0; d < nbDims; d++) {
-                for (int t : change[d].keys()) {
-                    int[] upd = map.get(t);
-                    if (upd == null) {
-                        upd = new int[nbDims];
-                        map.put(t, upd);
-                    }
-                    upd[d] += change[d].get(t);
-                }
-            }
-            return map;
-        }
-
-        private static String prettyChanges(TIntObjectHashMap<int[]> changes) {
-            int[] moments = changes.keys(new int[changes.size()]);
-            Arrays.sort(moments);
-            StringBuilder b = new StringBuilder();
-            for (int t : moments) {
-                b.append(t).append('=').append(Arrays.toString(changes.get(t))).append(' ');
-            }
-            return b.toString();
-        }
     }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.lns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The configuration of a Large Neighborhood Search.
+ * <p>
+ * Once a first solution is computed, the search is restarted with the placement of the VMs
+ * fixed to their host in the last solution, except for the VMs selected by a neighborhood.
+ * The neighborhoods are used in turn. The search moves to the next neighborhood when a solution is computed or
+ * after a given number of fails. Once the maximum number of neighborhoods is reached, the search
+ * continues without restarting over the whole problem.
+ * <p>
+ * The placement is fixed through decisions at the top of the search tree, so a neighborhood that has
+ * been fully explored does not prevent the solver to explore the rest of the search space.
+ * By default, the neighborhoods are {@link MisplacedVMs}, {@link RandomNodes} with 10 nodes
+ * and {@link NodePartitions} with 10 partitions, with a limit of 500 fails per neighborhood and
+ * at most {@value #DEFAULT_MAX_NEIGHBORHOODS} neighborhoods. Without a limit on the number of neighborhoods,
+ * the search may restart forever, so the solver then requires a time limit.
+ *
+ * @author Fabien Hermenier
+ */
+public class LNS {
+
+    /**
+     * Denotes the absence of limit.
+     */
+    public static final int NO_LIMIT = -1;
+
+    /**
+     * The default maximum number of neighborhoods.
+     */
+    public static final int DEFAULT_MAX_NEIGHBORHOODS = 100;
+
+    private List<Neighborhood> neighborhoods;
+
+    private int failLimit = 500;
+
+    private int maxNeighborhoods = DEFAULT_MAX_NEIGHBORHOODS;
+
+    /**
+     * Make a new configuration with the default neighborhoods.
+     */
+    public LNS() {
+        this(Arrays.asList(new MisplacedVMs(), new RandomNodes(10), new NodePartitions(10)));
+    }
+
+    /**
+     * Make a new configuration.
+     *
+     * @param ns the neighborhoods to use in turn
+     * @throws IllegalArgumentException if there is no neighborhood
+     */
+    public LNS(List<Neighborhood> ns) {
+        if (ns.isEmpty()) {
+            throw new IllegalArgumentException("At least one neighborhood is required");
+        }
+        neighborhoods = Collections.unmodifiableList(new ArrayList<>(ns));
+    }
+
+    /**
+     * Get the neighborhoods.
+     *
+     * @return a non-empty list
+     */
+    public List<Neighborhood> getNeighborhoods() {
+        return neighborhoods;
+    }
+
+    /**
+     * Set the number of fails after which the search moves to the next neighborhood.
+     *
+     * @param nb a strictly positive number
+     * @return {@code this}
+     * @throws IllegalArgumentException if the number is not strictly positive
+     */
+    public LNS setFailLimit(int nb) {
+        if (nb <= 0) {
+            throw new IllegalArgumentException("The fail limit must be strictly positive. Got " + nb);
+        }
+        failLimit = nb;
+        return this;
+    }
+
+    /**
+     * Get the number of fails after which the search moves to the next neighborhood.
+     *
+     * @return a strictly positive number
+     */
+    public int getFailLimit() {
+        return failLimit;
+    }
+
+    /**
+     * Set the maximum number of neighborhoods to explore, hence the maximum number of restarts.
+     *
+     * Without limit, the solver must have a time limit.
+     *
+     * @param nb a positive number. {@link #NO_LIMIT} for no limit
+     * @return {@code this}
+     * @throws IllegalArgumentException if the number is negative and not {@link #NO_LIMIT}
+     */
+    public LNS setMaxNeighborhoods(int nb) {
+        if (nb < 0 && nb != NO_LIMIT) {
+            throw new IllegalArgumentException("The maximum number of neighborhoods must be positive. Got " + nb);
+        }
+        maxNeighborhoods = nb;
+        return this;
+    }
+
+    /**
+     * Get the maximum number of neighborhoods to explore.
+     *
+     * @return a positive number. {@link #NO_LIMIT} if there is no limit
+     */
+    public int getMaxNeighborhoods() {
+        return maxNeighborhoods;
+    }
+
+    @Override
+    public String toString() {
+        return "lns(" + neighborhoods + ", failLimit=" + failLimit
+                + ", maxNeighborhoods=" + (maxNeighborhoods == NO_LIMIT ? "none" : Integer.toString(maxNeighborhoods)) + ")";
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.lns;
+
+import org.btrplace.model.VM;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.Slice;
+import org.btrplace.scheduler.choco.transition.VMTransition;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.loop.monitors.IMonitorContradiction;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+import org.chocosolver.solver.search.strategy.ISF;
+import org.chocosolver.solver.search.strategy.decision.Decision;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
+import org.chocosolver.solver.search.strategy.strategy.IntStrategy;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A search strategy that performs a Large Neighborhood Search.
+ * <p>
+ * The strategy records the placement of each solution. After a solution or once the fail limit is reached,
+ * the search is restarted and the VMs that are not selected by the next neighborhood are placed first, on their
+ * host in the last solution. The remaining decisions are taken by the decorated strategy.
+ * <p>
+ * The strategy must be plugged as a monitor of the solver as well, see {@link #install(ReconfigurationProblem, LNS, Set, long)}.
+ *
+ * @author Fabien Hermenier
+ */
+public class LNSStrategy extends AbstractStrategy<Variable> implements IMonitorSolution, IMonitorContradiction {
+
+    private final ReconfigurationProblem rp;
+
+    private final LNS lns;
+
+    private final AbstractStrategy<?> strategy;
+
+    private final Random rnd;
+
+    /**
+     * The hosting variable of each VM. {@code null} for the VMs that will not be running.
+     */
+    private final IntVar[] hosts;
+
+    /**
+     * The host of each VM in the last solution.
+     */
+    private final int[] placement;
+
+    /**
+     * The host to force for each VM. {@code -1} when the VM is relaxed.
+     */
+    private final int[] fixed;
+
+    private final BitSet misplaced;
+
+    private final BitSet relaxed;
+
+    private final IntStrategy fixing;
+
+    /**
+     * The VM to fix, set by the variable selector for the value selector.
+     */
+    private int current;
+
+    private boolean solved = false;
+
+    private boolean improved = false;
+
+    private long failsAtRestart;
+
+    private int nbNeighborhoods = 0;
+
+    private int next = 0;
+
+    /**
+     * New strategy.
+     *
+     * @param p    the problem to solve
+     * @param l    the configuration of the search
+     * @param vms  the VMs that are supposed to be misplaced
+     * @param seed the seed for the random number generator
+     * @param s    the strategy to decorate. {@code null} if there is none
+     */
+    public LNSStrategy(ReconfigurationProblem p, LNS l, Set<VM> vms, long seed, AbstractStrategy<?> s) {
+        super(p.getSolver().retrieveIntVars());
+        rp = p;
+        lns = l;
+        strategy = s;
+        rnd = new Random(seed);
+        List<VMTransition> actions = p.getVMActions();
+        hosts = new IntVar[actions.size()];
+        for (int i = 0; i < hosts.length; i++) {
+            Slice d = actions.get(i).getDSlice();
+            hosts[i] = d == null ? null : d.getHoster();
+        }
+        placement = new int[hosts.length];
+        fixed = new int[hosts.length];
+        Arrays.fill(fixed, -1);
+        misplaced = new BitSet(hosts.length);
+        for (VM v : vms) {
+            int idx = p.getVM(v);
+            if (idx >= 0) {
+                misplaced.set(idx);
+            }
+        }
+        relaxed = new BitSet(hosts.length);
+        IntVar[] candidates = Arrays.stream(hosts).filter(h -> h != null).toArray(IntVar[]::new);
+        fixing = ISF.custom(vars -> {
+            for (int i = 0; i < fixed.length; i++) {
+                if (fixed[i] >= 0 && !hosts[i].isInstantiated() && hosts[i].contains(fixed[i])) {
+                    current = i;
+                    return hosts[i];
+                }
+            }
+            return null;
+        }, x -> fixed[current], candidates);
+    }
+
+    /**
+     * Decorate the current strategy of a problem with a Large Neighborhood Search.
+     *
+     * @param p    the problem to solve
+     * @param l    the configuration of the search
+     * @param vms  the VMs that are supposed to be misplaced
+     * @param seed the seed for the random number generator
+     * @return the installed strategy
+     */
+    public static LNSStrategy install(ReconfigurationProblem p, LNS l, Set<VM> vms, long seed) {
+        Solver s = p.getSolver();
+        LNSStrategy lns = new LNSStrategy(p, l, vms, seed, s.getSearchLoop().getStrategy());
+        s.set(lns);
+        s.plugMonitor(lns);
+        return lns;
+    }
+
+    @Override
+    public void init() throws ContradictionException {
+        if (strategy != null) {
+            strategy.init();
+        }
+        fixing.init();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Decision<Variable> getDecision() {
+        Decision d = fixing.getDecision();
+        if (d == null && strategy != null) {
+            d = strategy.getDecision();
+        }
+        return d;
+    }
+
+    @Override
+    public void onSolution() {
+        for (int i = 0; i < hosts.length; i++) {
+            placement[i] = hosts[i] == null ? -1 : hosts[i].getValue();
+        }
+        solved = true;
+        //The restart is delayed to the next fail, once the solution is processed by every monitor
+        improved = true;
+    }
+
+    @Override
+    public void onContradiction(ContradictionException cex) {
+        if (!solved || isOver()) {
+            return;
+        }
+        Solver s = rp.getSolver();
+        if (improved || s.getMeasures().getFailCount() - failsAtRestart >= lns.getFailLimit()) {
+            nextNeighborhood();
+            improved = false;
+            failsAtRestart = s.getMeasures().getFailCount();
+            s.getSearchLoop().restart();
+        }
+    }
+
+    /**
+     * Check if the maximum number of neighborhoods has been explored.
+     */
+    private boolean isOver() {
+        return lns.getMaxNeighborhoods() != LNS.NO_LIMIT && nbNeighborhoods >= lns.getMaxNeighborhoods();
+    }
+
+    /**
+     * Select the VMs to fix for the next neighborhood.
+     * Once the last neighborhood is explored, nothing is fixed anymore.
+     */
+    private void nextNeighborhood() {
+        nbNeighborhoods++;
+        relaxed.clear();
+        if (isOver()) {
+            Arrays.fill(fixed, -1);
+            rp.getLogger().debug("LNS: {} neighborhood(s) explored. Exploring the whole problem", nbNeighborhoods - 1);
+            return;
+        }
+        List<Neighborhood> ns = lns.getNeighborhoods();
+        for (int k = 0; k < ns.size() && relaxed.isEmpty(); k++) {
+            ns.get(next).select(rp, placement, misplaced, rnd, relaxed);
+            next = (next + 1) % ns.size();
+        }
+        if (relaxed.isEmpty()) {
+            //No neighborhood applies, nothing is fixed
+            relaxed.set(0, fixed.length);
+        }
+        for (int i = 0; i < fixed.length; i++) {
+            fixed[i] = relaxed.get(i) ? -1 : placement[i];
+        }
+    }
+
+    /**
+     * Get the number of neighborhoods explored so far.
+     *
+     * @return a positive number
+     */
+    public int getNbNeighborhoods() {
+        return nbNeighborhoods;
+    }
+}
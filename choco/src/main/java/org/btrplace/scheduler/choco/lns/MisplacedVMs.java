@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.lns;
+
+import org.btrplace.scheduler.choco.MisplacedVMsEstimator;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * A neighborhood that relaxes the VMs that are supposed to be misplaced according to the
+ * {@link MisplacedVMsEstimator} of the constraints and the views.
+ *
+ * @author Fabien Hermenier
+ */
+public class MisplacedVMs implements Neighborhood {
+
+    @Override
+    public void select(ReconfigurationProblem rp, int[] placement, BitSet misplaced, Random rnd, BitSet relaxed) {
+        relaxed.or(misplaced);
+    }
+
+    @Override
+    public String toString() {
+        return "misplacedVMs";
+    }
+}
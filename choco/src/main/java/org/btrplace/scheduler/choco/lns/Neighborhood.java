@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.lns;
+
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * A neighborhood for a Large Neighborhood Search.
+ * A neighborhood selects the VMs that are free to change their placement while the others
+ * keep the host they have in the last solution.
+ * <p>
+ * The VMs are denoted by their index in the problem, see {@link ReconfigurationProblem#getVM(org.btrplace.model.VM)}.
+ * An implementation must be stateless as it may be used by several problems at the same time.
+ *
+ * @author Fabien Hermenier
+ */
+@FunctionalInterface
+public interface Neighborhood {
+
+    /**
+     * Select the VMs to relax.
+     *
+     * @param rp        the problem
+     * @param placement the host index of each VM in the last solution. {@code -1} for the VMs that will not be running
+     * @param misplaced the VMs that are supposed to be misplaced
+     * @param rnd       the random number generator to use
+     * @param relaxed   the VMs to relax. To fill
+     */
+    void select(ReconfigurationProblem rp, int[] placement, BitSet misplaced, Random rnd, BitSet relaxed);
+}
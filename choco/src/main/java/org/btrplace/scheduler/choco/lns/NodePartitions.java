@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.lns;
+
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * A neighborhood that relaxes all the VMs related to a partition of the nodes.
+ * The nodes are split into partitions of consecutive indexes. A random partition is picked
+ * and a VM is relaxed when it is currently hosted by a node of the partition or when it is placed on
+ * a node of the partition in the last solution.
+ *
+ * @author Fabien Hermenier
+ */
+public class NodePartitions implements Neighborhood {
+
+    private final int nbPartitions;
+
+    /**
+     * Make a new neighborhood.
+     *
+     * @param nb the number of partitions
+     * @throws IllegalArgumentException if the number is not strictly positive
+     */
+    public NodePartitions(int nb) {
+        if (nb <= 0) {
+            throw new IllegalArgumentException("The number of partitions must be strictly positive. Got " + nb);
+        }
+        nbPartitions = nb;
+    }
+
+    /**
+     * Get the number of partitions.
+     *
+     * @return a positive number
+     */
+    public int getNbPartitions() {
+        return nbPartitions;
+    }
+
+    @Override
+    public void select(ReconfigurationProblem rp, int[] placement, BitSet misplaced, Random rnd, BitSet relaxed) {
+        int nb = rp.getNodes().size();
+        int size = (nb + nbPartitions - 1) / nbPartitions;
+        if (size == 0) {
+            return;
+        }
+        int from = rnd.nextInt((nb + size - 1) / size) * size;
+        BitSet picked = new BitSet(nb);
+        picked.set(from, Math.min(nb, from + size));
+        relax(rp, placement, picked, relaxed);
+    }
+
+    /**
+     * Relax the VMs currently hosted by the given nodes or placed on them in the last solution.
+     *
+     * @param rp        the problem
+     * @param placement the host index of each VM in the last solution
+     * @param nodes     the node indexes
+     * @param relaxed   the VMs to relax
+     */
+    static void relax(ReconfigurationProblem rp, int[] placement, BitSet nodes, BitSet relaxed) {
+        for (int i = 0; i < placement.length; i++) {
+            int cur = rp.getCurrentVMLocation(i);
+            if ((placement[i] >= 0 && nodes.get(placement[i])) || (cur >= 0 && nodes.get(cur))) {
+                relaxed.set(i);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "nodePartitions(" + nbPartitions + ")";
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.lns;
+
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * A neighborhood that relaxes the VMs related to some random nodes.
+ * A VM is relaxed when it is currently hosted by a picked node or when it is placed on a picked node
+ * in the last solution.
+ *
+ * @author Fabien Hermenier
+ */
+public class RandomNodes implements Neighborhood {
+
+    private final int nbNodes;
+
+    /**
+     * Make a new neighborhood.
+     *
+     * @param nb the number of nodes to pick
+     * @throws IllegalArgumentException if the number is not strictly positive
+     */
+    public RandomNodes(int nb) {
+        if (nb <= 0) {
+            throw new IllegalArgumentException("The number of nodes must be strictly positive. Got " + nb);
+        }
+        nbNodes = nb;
+    }
+
+    /**
+     * Get the number of nodes to pick.
+     *
+     * @return a positive number
+     */
+    public int getNbNodes() {
+        return nbNodes;
+    }
+
+    @Override
+    public void select(ReconfigurationProblem rp, int[] placement, BitSet misplaced, Random rnd, BitSet relaxed) {
+        int nb = rp.getNodes().size();
+        BitSet picked = new BitSet(nb);
+        if (nbNodes >= nb) {
+            picked.set(0, nb);
+        } else {
+            while (picked.cardinality() < nbNodes) {
+                picked.set(rnd.nextInt(nb));
+            }
+        }
+        NodePartitions.relax(rp, placement, picked, relaxed);
+    }
+
+    @Override
+    public String toString() {
+        return "randomNodes(" + nbNodes + ")";
+    }
+}
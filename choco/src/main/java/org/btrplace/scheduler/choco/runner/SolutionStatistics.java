@@ -21,6 +21,8 @@ package org.btrplace.scheduler.choco.runner;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.chocosolver.solver.search.measure.IMeasures;
 
+import java.util.function.Supplier;
+
 /**
  * Store statistics about a solution.
  *
@@ -31,8 +33,12 @@ public class SolutionStatistics {
 
     private ReconfigurationPlan solution = null;
 
+    private Supplier<ReconfigurationPlan> builder;
+
     private IMeasures measures;
 
+    private long timestamp = System.currentTimeMillis();
+
     /**
      * Make a new statistics.
      *
@@ -44,14 +50,40 @@ public class SolutionStatistics {
         solution = plan;
     }
 
+    /**
+     * Make a new statistics where the plan is only built when it is requested.
+     * Until then, the builder keeps everything it refers to reachable. It is released once called.
+     *
+     * @param m       the solver measures at the moment of the solution
+     * @param builder the function that builds the resulting plan. It is called at most once
+     */
+    public SolutionStatistics(IMeasures m, Supplier<ReconfigurationPlan> builder) {
+        measures = m;
+        this.builder = builder;
+    }
+
     /**
      * Return the computed solution.
      * @return a plan that might be null
      */
-    public ReconfigurationPlan getReconfigurationPlan() {
+    public synchronized ReconfigurationPlan getReconfigurationPlan() {
+        if (builder != null) {
+            solution = builder.get();
+            builder = null;
+        }
         return solution;
     }
 
+    /**
+     * Get the moment the statistics were made, so the moment the solution was computed.
+     * Unlike the solver measures, this clock is shared by all the solvers.
+     *
+     * @return a moment in the epoch format
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
     /**
      * Return the solver measures at the moment the solution was computed.
      * @return solver measurement
@@ -24,6 +24,8 @@ import org.btrplace.scheduler.choco.Parameters;
 import org.chocosolver.solver.search.measure.IMeasures;
 
 import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Simple interface to get statistics about a solving process.
@@ -66,6 +68,24 @@ public interface SolvingStatistics {
      */
     List<SolutionStatistics> getSolutions();
 
+    /**
+     * Get how the objective value improved over time.
+     * The values are taken from the recorded solutions.
+     *
+     * @return the objective value of the solutions, indexed by their computation moment in milliseconds.
+     * Empty if there is no objective
+     */
+    default SortedMap<Long, Number> getImprovements() {
+        SortedMap<Long, Number> res = new TreeMap<>();
+        for (SolutionStatistics st : getSolutions()) {
+            IMeasures m = st.getMeasures();
+            if (m.hasObjective()) {
+                res.put((long) (m.getTimeCount() * 1000), m.getBestSolutionValue());
+            }
+        }
+        return res;
+    }
+
     /**
      * Get the number of VMs managed by the algorithm.
      *
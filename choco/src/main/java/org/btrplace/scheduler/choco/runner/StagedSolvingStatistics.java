@@ -21,6 +21,7 @@ package org.btrplace.scheduler.choco.runner;
 import org.btrplace.model.Instance;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.runner.single.SingleRunnerStatistics;
 import org.chocosolver.solver.search.measure.IMeasures;
 import org.chocosolver.solver.search.measure.MeasuresRecorder;
 
@@ -29,6 +30,9 @@ import java.util.List;
 
 /**
  * Aggregate the statistics of a multi-stage resolution.
+ * A stage is either a problem that is built then solved, or one of the two search phases
+ * of a problem where the placement is fixed first
+ * (see {@link Parameters#doStagedPlacement(boolean)}).
  *
  * @author Fabien Hermenier
  */
@@ -83,6 +87,33 @@ public class StagedSolvingStatistics implements SolvingStatistics {
         return stages.get(st);
     }
 
+    /**
+     * Get the duration of each stage.
+     * The duration of a problem includes its building, its specialisation and its solving.
+     * When the placement of a problem was fixed in a first search phase, the problem is split into
+     * two stages: the building, the specialisation and the placement phase, then the second search phase.
+     *
+     * @return the durations in milliseconds, in the stages order
+     */
+    public List<Long> getStageDurations() {
+        List<Long> durations = new ArrayList<>();
+        for (SolvingStatistics st : stages) {
+            long build = st.getCoreBuildDuration() + st.getSpecializationDuration();
+            long search = st.getMeasures() == null ? 0 : (long) (st.getMeasures().getTimeCount() * 1000);
+            long placement = -1;
+            if (st instanceof SingleRunnerStatistics) {
+                placement = ((SingleRunnerStatistics) st).getPlacementDuration();
+            }
+            if (placement >= 0) {
+                durations.add(build + placement);
+                durations.add(search - placement);
+            } else {
+                durations.add(build + search);
+            }
+        }
+        return durations;
+    }
+
     /**
      * Return the aggregated core problem build duration.
      *
@@ -147,6 +178,7 @@ public class StagedSolvingStatistics implements SolvingStatistics {
             b.append(st.toString()).append("\n");
             i++;
         }
+        b.append("Stage durations (ms): ").append(getStageDurations()).append("\n");
         return b.toString();
     }
 
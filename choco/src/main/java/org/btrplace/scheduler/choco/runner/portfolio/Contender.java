@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.scheduler.choco.runner.portfolio;
+
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.ICF;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+import org.chocosolver.solver.search.strategy.decision.Decision;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
+
+/**
+ * A search strategy that makes a problem take part to a race.
+ * <p>
+ * The decisions are taken by the decorated strategy. Before each decision, the objective is bounded by the
+ * best value computed by the other contenders, if it is better. When the race is over, the search is
+ * stopped by a failure.
+ * The objective value of each solution is offered to the race.
+ *
+ * @author Fabien Hermenier
+ */
+class Contender extends AbstractStrategy<Variable> implements IMonitorSolution {
+
+    private ReconfigurationProblem rp;
+
+    private Race race;
+
+    private AbstractStrategy<?> strategy;
+
+    /**
+     * The objective to share. {@code null} for a satisfaction problem.
+     */
+    private IntVar objective;
+
+    /**
+     * The best value known by the problem.
+     */
+    private Integer known;
+
+    private boolean interrupted = false;
+
+    /**
+     * New contender.
+     *
+     * @param p        the problem to solve
+     * @param r        the race
+     * @param s        the strategy to decorate. {@code null} if there is none
+     * @param optimize {@code true} to share the objective value of the solutions
+     */
+    Contender(ReconfigurationProblem p, Race r, AbstractStrategy<?> s, boolean optimize) {
+        super(p.getSolver().retrieveIntVars());
+        rp = p;
+        race = r;
+        strategy = s;
+        objective = optimize ? p.getObjective() : null;
+        p.getSolver().plugMonitor(this);
+    }
+
+    @Override
+    public void init() throws ContradictionException {
+        if (strategy != null) {
+            strategy.init();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Decision<Variable> getDecision() {
+        Solver s = rp.getSolver();
+        if (race.isOver()) {
+            if (!interrupted) {
+                interrupted = true;
+                rp.getLogger().debug("Race over. Stopping the search");
+                s.post(ICF.FALSE(s));
+            }
+        } else if (objective != null) {
+            Integer b = race.getBest();
+            if (b != null && (known == null || race.better(b, known))) {
+                known = b;
+                String op = race.maximize() ? ">=" : "<=";
+                s.post(ICF.arithm(objective, op, rp.getObjectiveAlterer().newBound(rp, b)));
+            }
+        }
+        return strategy == null ? null : (Decision) strategy.getDecision();
+    }
+
+    @Override
+    public void onSolution() {
+        if (objective != null) {
+            known = objective.getValue();
+            race.offer(known);
+        }
+    }
+
+    /**
+     * Tell if the search was stopped because another contender ended the race.
+     *
+     * @return {@code true} iff the search was stopped
+     */
+    boolean isInterrupted() {
+        return interrupted;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.scheduler.choco.runner.portfolio;
+
+import org.btrplace.model.Instance;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.extensions.env.ChunkedTrailing;
+import org.btrplace.scheduler.choco.runner.InstanceSolver;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+import org.chocosolver.solver.ResolutionPolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An instance solver that races several configurations of the solver on the whole instance.
+ * <p>
+ * Each contender solves the instance on its own thread with its own parameters (see {@link #configure(Parameters, int)}).
+ * The contenders share the best objective value computed so far, so each solution bounds the objective of the
+ * others. The race stops once a contender proved its result, or at the time limit.
+ * <p>
+ * The number of contenders equals the number of available cores by default.
+ * The contenders do not differ by their placement heuristic, see {@link #configure(Parameters, int)}.
+ *
+ * @author Fabien Hermenier
+ */
+public class PortfolioRunner implements InstanceSolver {
+
+    private int workersCount;
+
+    private PortfolioStatistics stats;
+
+    /**
+     * Make a new runner.
+     * The number of contenders is set to the number of available cores.
+     */
+    public PortfolioRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Make a new runner.
+     *
+     * @param nb the number of contenders
+     */
+    public PortfolioRunner(int nb) {
+        setWorkersCount(nb);
+    }
+
+    /**
+     * Get the number of contenders.
+     *
+     * @return a positive number
+     */
+    public int getWorkersCount() {
+        return workersCount;
+    }
+
+    /**
+     * Set the number of contenders.
+     *
+     * @param s a positive number
+     */
+    public void setWorkersCount(int s) {
+        if (s <= 0) {
+            throw new IllegalArgumentException("The number of workers must be positive");
+        }
+        this.workersCount = s;
+    }
+
+    /**
+     * Make the parameters of a contender.
+     * The first contender uses the given parameters. The others differ by:
+     * <ul>
+     * <li>the random seed, that drives the placement of the VMs</li>
+     * <li>the memory environment, one out of two relies on {@link ChunkedTrailing}</li>
+     * <li>the repair mode, that is reversed for one contender out of four</li>
+     * </ul>
+     * The placement heuristic is not varied: every contender uses the heuristic of the objective.
+     * Contenders with other heuristics can be made by overriding this method.
+     *
+     * @param ps  the parameters of the scheduler
+     * @param idx the contender index
+     * @return the parameters of the contender
+     */
+    protected Parameters configure(Parameters ps, int idx) {
+        Parameters p = new DefaultParameters(ps);
+        if (idx == 0) {
+            return p;
+        }
+        p.setRandomSeed(ps.getRandomSeed() + idx);
+        if (idx % 2 == 1) {
+            p.setEnvironmentFactory(mo -> new ChunkedTrailing());
+        }
+        if (idx % 4 >= 2) {
+            p.doRepair(!ps.doRepair());
+        }
+        return p;
+    }
+
+    @Override
+    public ReconfigurationPlan solve(Parameters ps, Instance i) throws SchedulerException {
+        long start = System.currentTimeMillis();
+        Race race = new Race();
+        List<Parameters> configs = new ArrayList<>(workersCount);
+        List<InstanceSolverRunner> runners = new ArrayList<>(workersCount);
+        Contender[] contenders = new Contender[workersCount];
+        for (int x = 0; x < workersCount; x++) {
+            int idx = x;
+            Parameters p = configure(ps, x);
+            configs.add(p);
+            //Each contender gets its own model. The copies share their content until it is modified
+            Instance cpy = new Instance(i.getModel().copy(), i.getSatConstraints(), i.getOptConstraint());
+            InstanceSolverRunner r = new InstanceSolverRunner(p, cpy);
+            r.setSolvingHook(rp -> {
+                race.setMaximize(rp.getResolutionPolicy() == ResolutionPolicy.MAXIMIZE);
+                contenders[idx] = new Contender(rp, race, rp.getSolver().getSearchLoop().getStrategy(), p.doOptimize());
+                rp.getSolver().set(contenders[idx]);
+            });
+            runners.add(r);
+        }
+
+        ExecutorService exe = Executors.newFixedThreadPool(workersCount);
+        try {
+            List<Future<SolvingStatistics>> futures = new ArrayList<>(workersCount);
+            for (int x = 0; x < workersCount; x++) {
+                InstanceSolverRunner r = runners.get(x);
+                boolean proves = proves(ps, configs.get(x));
+                futures.add(exe.submit(() -> {
+                    SolvingStatistics st = null;
+                    try {
+                        st = r.call();
+                        return st;
+                    } finally {
+                        //A failure or a proof ends the race
+                        if (st == null || (proves && st.completed())) {
+                            race.end();
+                        }
+                    }
+                }));
+            }
+            List<SolvingStatistics> results = new ArrayList<>(workersCount);
+            for (Future<SolvingStatistics> f : futures) {
+                try {
+                    results.add(f.get());
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    throw new SchedulerException(i.getModel(), cause == null ? ex.getMessage() : cause.getMessage(), ex);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new SchedulerException(i.getModel(), ex.getMessage(), ex);
+                }
+            }
+            boolean[] authoritative = new boolean[workersCount];
+            for (int x = 0; x < workersCount; x++) {
+                authoritative[x] = proves(ps, configs.get(x)) && (contenders[x] == null || !contenders[x].isInterrupted());
+            }
+            stats = new PortfolioStatistics(ps, i, start, results, authoritative, race.maximize());
+            return stats.lastSolution();
+        } finally {
+            exe.shutdownNow();
+        }
+    }
+
+    /**
+     * Check if the completion of a contender is a proof for the scheduler.
+     * A contender that only manages the mis-placed VMs does not prove anything when the scheduler
+     * manages all the VMs.
+     */
+    private static boolean proves(Parameters ps, Parameters contender) {
+        return ps.doRepair() || !contender.doRepair();
+    }
+
+    @Override
+    public SolvingStatistics getStatistics() throws SchedulerException {
+        return stats;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.scheduler.choco.runner.portfolio;
+
+import org.btrplace.model.Instance;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.runner.SolutionStatistics;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.chocosolver.solver.search.measure.IMeasures;
+import org.chocosolver.solver.search.measure.MeasuresRecorder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Merge the statistics of the contenders of a {@link PortfolioRunner}.
+ * <p>
+ * The solutions of the contenders are merged by the moment they were computed, relatively to the start of
+ * the portfolio, and only the improving ones are kept.
+ * The winner is the contender that computed the last of these solutions.
+ *
+ * @author Fabien Hermenier
+ */
+public class PortfolioStatistics implements SolvingStatistics {
+
+    private Parameters params;
+
+    private Instance instance;
+
+    private long start;
+
+    private List<SolvingStatistics> contenders;
+
+    private boolean[] authoritative;
+
+    private List<SolutionStatistics> solutions;
+
+    private int winner;
+
+    /**
+     * Make new statistics.
+     *
+     * @param ps       the scheduler parameters
+     * @param i        the solved instance
+     * @param st       the moment the computation started (epoch format)
+     * @param stats    the statistics of each contender
+     * @param proofs   for each contender, {@code true} if its completion proves the result
+     * @param maximize {@code true} if the objective was maximised
+     */
+    public PortfolioStatistics(Parameters ps, Instance i, long st, List<SolvingStatistics> stats, boolean[] proofs, boolean maximize) {
+        params = ps;
+        instance = i;
+        start = st;
+        contenders = stats;
+        authoritative = proofs;
+        merge(maximize);
+    }
+
+    private void merge(boolean maximize) {
+        List<SolutionStatistics> all = new ArrayList<>();
+        for (SolvingStatistics st : contenders) {
+            all.addAll(st.getSolutions());
+        }
+        //The search time of each contender starts with its own solver, so the solutions are ordered by wall-clock time
+        all.sort(Comparator.comparingLong(s -> s.getTimestamp() - start));
+        solutions = new ArrayList<>();
+        Integer best = null;
+        for (SolutionStatistics s : all) {
+            IMeasures m = s.getMeasures();
+            if (!m.hasObjective()) {
+                solutions.add(s);
+                continue;
+            }
+            int v = m.getBestSolutionValue().intValue();
+            if (best == null || (maximize ? v > best : v < best)) {
+                best = v;
+                solutions.add(s);
+            }
+        }
+        winner = 0;
+        if (!solutions.isEmpty()) {
+            SolutionStatistics last = solutions.get(solutions.size() - 1);
+            for (int x = 0; x < contenders.size(); x++) {
+                if (contenders.get(x).getSolutions().contains(last)) {
+                    winner = x;
+                }
+            }
+        } else {
+            for (int x = 0; x < contenders.size(); x++) {
+                if (authoritative[x] && contenders.get(x).completed()) {
+                    winner = x;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the statistics of each contender.
+     *
+     * @return a list of statistics, in the contenders order
+     */
+    public List<SolvingStatistics> getContenders() {
+        return Collections.unmodifiableList(contenders);
+    }
+
+    /**
+     * Get the contender that computed the returned solution.
+     *
+     * @return the contender index
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    @Override
+    public Instance getInstance() {
+        return instance;
+    }
+
+    @Override
+    public long getCoreBuildDuration() {
+        return contenders.get(winner).getCoreBuildDuration();
+    }
+
+    @Override
+    public long getSpecializationDuration() {
+        return contenders.get(winner).getSpecializationDuration();
+    }
+
+    @Override
+    public long getStart() {
+        return start;
+    }
+
+    @Override
+    public List<SolutionStatistics> getSolutions() {
+        return solutions;
+    }
+
+    @Override
+    public int getNbManagedVMs() {
+        return contenders.get(winner).getNbManagedVMs();
+    }
+
+    @Override
+    public Parameters getParameters() {
+        return params;
+    }
+
+    /**
+     * Get the measures of the winner, with the counters of all the contenders.
+     * The time is the longest search time.
+     *
+     * @return measures. {@code null} if the winner did not run
+     */
+    @Override
+    public IMeasures getMeasures() {
+        IMeasures w = contenders.get(winner).getMeasures();
+        if (w == null) {
+            return null;
+        }
+        MeasuresRecorder mr = (MeasuresRecorder) w.duplicate();
+        for (int x = 0; x < contenders.size(); x++) {
+            IMeasures m = contenders.get(x).getMeasures();
+            if (x == winner || m == null) {
+                continue;
+            }
+            mr.backtrackCount += m.getBackTrackCount();
+            mr.failCount += m.getFailCount();
+            mr.nodeCount += m.getNodeCount();
+            mr.restartCount += m.getRestartCount();
+            if (m.getTimeCount() > mr.getTimeCount()) {
+                mr.timeCount += (m.getTimeCount() - mr.getTimeCount()) * 1000 * 1000 * 1000f; //Because it is expressed in nanoseconds
+            }
+        }
+        mr.objectiveOptimal = mr.hasObjective && completed() && !solutions.isEmpty();
+        return mr;
+    }
+
+    /**
+     * Check if a contender proved its result.
+     * A contender that was stopped by the end of the race, or that only managed the mis-placed VMs while
+     * the scheduler manages all the VMs, does not prove anything.
+     *
+     * @return {@code true} iff at least one contender proved its result
+     */
+    @Override
+    public boolean completed() {
+        for (int x = 0; x < contenders.size(); x++) {
+            if (authoritative[x] && contenders.get(x).completed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public ReconfigurationPlan lastSolution() {
+        if (solutions.isEmpty()) {
+            return null;
+        }
+        return solutions.get(solutions.size() - 1).getReconfigurationPlan();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        for (int x = 0; x < contenders.size(); x++) {
+            b.append("---- Contender ").append(x + 1).append("/").append(contenders.size());
+            if (x == winner) {
+                b.append(" (winner)");
+            }
+            b.append(" ----\n");
+            b.append(contenders.get(x).toString()).append("\n");
+        }
+        return b.toString();
+    }
+
+    /**
+     * Print the statistics as a CSV line.
+     * Fields are the ones of the winner, except:
+     * - the longest getMeasures().getTimeCount() * 1000 (so in milliseconds)
+     * - the number of merged solutions
+     * - completed ? 1 if a contender proved its result
+     *
+     * @return a CSV formatted string
+     */
+    @Override
+    public String toCSV() {
+        long d = 0;
+        for (SolvingStatistics st : contenders) {
+            if (st.getMeasures() != null) {
+                d = Math.max(d, (long) (st.getMeasures().getTimeCount() * 1000));
+            }
+        }
+        return String.format("%d;%d;%d;%d;%d;%d", getNbManagedVMs(),
+                getCoreBuildDuration(),
+                getSpecializationDuration(),
+                d,
+                solutions.size(),
+                completed() ? 1 : 0);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.scheduler.choco.runner.portfolio;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The state shared by the contenders of a portfolio: the best objective value computed so far
+ * and the end of the race.
+ *
+ * @author Fabien Hermenier
+ */
+class Race {
+
+    private volatile boolean maximize;
+
+    private final AtomicReference<Integer> best = new AtomicReference<>();
+
+    private final AtomicBoolean over = new AtomicBoolean(false);
+
+    /**
+     * Set the direction of the objective.
+     * Every contender solves the same instance so they all state the same direction.
+     *
+     * @param max {@code true} if the objective is maximised
+     */
+    void setMaximize(boolean max) {
+        maximize = max;
+    }
+
+    /**
+     * Offer the objective value of a solution.
+     *
+     * @param v the value
+     */
+    void offer(int v) {
+        best.accumulateAndGet(v, (a, b) -> a == null || better(b, a) ? b : a);
+    }
+
+    /**
+     * Check if a value is better than another.
+     *
+     * @param a the first value
+     * @param b the second value
+     * @return {@code true} iff {@code a} is strictly better than {@code b}
+     */
+    boolean better(int a, int b) {
+        return maximize ? a > b : a < b;
+    }
+
+    /**
+     * Get the best objective value.
+     *
+     * @return the value. {@code null} if there is no solution so far
+     */
+    Integer getBest() {
+        return best.get();
+    }
+
+    /**
+     * State the race is over.
+     */
+    void end() {
+        over.set(true);
+    }
+
+    /**
+     * Check if the race is over.
+     *
+     * @return {@code true} iff a contender proved its result
+     */
+    boolean isOver() {
+        return over.get();
+    }
+
+    /**
+     * Tell if the objective is maximised.
+     *
+     * @return {@code true} for a maximisation
+     */
+    boolean maximize() {
+        return maximize;
+    }
+}
@@ -26,15 +26,19 @@ import org.btrplace.model.constraint.*;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.DefaultReconfigurationProblemBuilder;
+import org.btrplace.scheduler.choco.EquivalenceClasses;
 import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
 import org.btrplace.scheduler.choco.constraint.ChocoConstraint;
 import org.btrplace.scheduler.choco.constraint.ChocoMapper;
+import org.btrplace.scheduler.choco.lns.LNS;
+import org.btrplace.scheduler.choco.lns.LNSStrategy;
 import org.btrplace.scheduler.choco.runner.SolutionStatistics;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 import org.btrplace.scheduler.choco.view.ChocoView;
 import org.btrplace.scheduler.choco.view.ChocoViews;
 import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.Solver;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
 import org.chocosolver.solver.search.measure.IMeasures;
@@ -43,6 +47,7 @@ import org.chocosolver.solver.trace.Chatterbox;
 
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 /**
  * A basic solver that solve a whole instance.
@@ -73,6 +78,16 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
 
     private List<ChocoView> views;
 
+    /**
+     * The two-phase search, when the placement is fixed first.
+     */
+    private StagedPlacement staging;
+
+    /**
+     * The customisation of the problem right before the solving process.
+     */
+    private Consumer<ReconfigurationProblem> hook;
+
     /**
      * Make a new runner.
      *
@@ -87,10 +102,27 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         params = ps;
     }
 
+    /**
+     * Set an action to perform on the problem once it is specialised, right before the solving process.
+     * Typically to plug monitors or to decorate the search strategy.
+     *
+     * @param h the action. {@code null} for no action
+     * @return {@code this}
+     */
+    public InstanceSolverRunner setSolvingHook(Consumer<ReconfigurationProblem> h) {
+        hook = h;
+        return this;
+    }
+
     @Override
     public SolvingStatistics call() throws SchedulerException {
+        LNS lns = params.getLNS();
+        if (lns != null && lns.getMaxNeighborhoods() == LNS.NO_LIMIT && params.getTimeLimit() <= 0) {
+            throw new SchedulerException(origin, "A Large Neighborhood Search without a limit on the neighborhoods requires a time limit");
+        }
         stats = new SingleRunnerStatistics(params, instance, System.currentTimeMillis());
         rp = null;
+        staging = null;
 
         //Build the core problem
         long d = -System.currentTimeMillis();
@@ -112,26 +144,55 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         stats.setMeasures(rp.getSolver().getMeasures().duplicate());
         rp.getLogger().debug(stats.toString());
 
-        //The solution monitor to store the measures at each solution
-        rp.getSolver().plugMonitor((IMonitorSolution) () -> {
-            Solution solution = new Solution();
-            solution.record(rp.getSolver());
-
-            ReconfigurationPlan plan = rp.buildReconfigurationPlan(solution, origin);
-            views.forEach(v -> v.insertActions(rp, solution, plan));
-
-            IMeasures m = rp.getSolver().getMeasures().duplicate();
-            stats.addSolution(new SolutionStatistics(m, plan));
+        //The solution monitor to store the measures at each solution.
+        //The solution itself is the one recorded by the problem, which monitor is plugged first.
+        //The plan is only built when it is requested
+        ReconfigurationProblem p = rp;
+        List<ChocoView> vs = views;
+        Solver solver = rp.getSolver();
+        solver.plugMonitor((IMonitorSolution) () -> {
+            Solution solution = solver.getSolutionRecorder().getLastSolution();
+            IMeasures m = solver.getMeasures().duplicate();
+            stats.addSolution(new SolutionStatistics(m, () -> {
+                ReconfigurationPlan plan = p.buildReconfigurationPlan(solution, origin);
+                vs.forEach(v -> v.insertActions(p, solution, plan));
+                return plan;
+            }));
         });
 
         setVerbosity();
 
+        if (params.doStagedPlacement()) {
+            staging = new StagedPlacement(rp, views, rp.getSolver().getSearchLoop().getStrategy());
+            rp.getSolver().set(staging);
+        } else if (params.getLNS() != null && params.doOptimize()) {
+            LNSStrategy.install(rp, params.getLNS(), misPlacedVMs(), params.getRandomSeed());
+        }
+        if (hook != null) {
+            hook.accept(rp);
+        }
+
         //The actual solving process
         rp.solve(params.getTimeLimit(), params.doOptimize());
+        if (staging != null && staging.getError() != null) {
+            throw staging.getError();
+        }
         return getStatistics();
     }
 
 
+    /**
+     * Get the VMs that are supposed to be misplaced according to the constraints and the views.
+     *
+     * @return a set of VMs that may be empty
+     */
+    private Set<VM> misPlacedVMs() {
+        Set<VM> vms = new HashSet<>();
+        cConstraints.forEach(c -> vms.addAll(c.getMisPlacedVMs(instance)));
+        views.forEach(v -> vms.addAll(v.getMisPlacedVMs(instance)));
+        return vms;
+    }
+
     private void setVerbosity() {
         if (params.getVerbosity() >=1) {
             Chatterbox.showSolutions(rp.getSolver());
@@ -153,9 +214,15 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         //Resolve the view dependencies, add them and inject them
         views = ChocoViews.resolveDependencies(origin, views, rp.getViews());
         views.forEach(rp::addView);
-        return views.stream().allMatch(v -> v.inject(params, rp)) &&
-                cConstraints.stream().allMatch(c -> c.inject(params, rp)) &&
-                views.stream().allMatch(v -> v.beforeSolve(rp));
+        if (!views.stream().allMatch(v -> v.inject(params, rp)) ||
+                !cConstraints.stream().allMatch(c -> c.inject(params, rp))) {
+            return false;
+        }
+        if (params.doSymmetryBreaking()) {
+            EquivalenceClasses eq = EquivalenceClasses.detect(rp, instance);
+            rp.getLogger().debug("Symmetry breaking: " + eq + ", " + eq.inject(rp) + " constraint(s)");
+        }
+        return views.stream().allMatch(v -> v.beforeSolve(rp));
 
     }
 
@@ -195,6 +262,8 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
             cConstraints.add(build(cstr));
         }
         cConstraints.add(build(obj));
+        //Constraints that are handled better together
+        cConstraints = params.getMapper().aggregate(cConstraints);
 
         views = makeViews();
 
@@ -279,6 +348,9 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         IMeasures m = rp.getSolver().getMeasures().duplicate();
         stats.setMeasures(m);
         stats.setCompleted(!rp.getSolver().hasReachedLimit());
+        if (staging != null) {
+            stats.setPlacementDuration(staging.getPlacementDuration());
+        }
         return stats;
     }
 }
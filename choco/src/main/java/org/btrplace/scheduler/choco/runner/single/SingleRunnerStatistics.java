@@ -21,11 +21,11 @@ package org.btrplace.scheduler.choco.runner.single;
 import org.btrplace.model.Instance;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.SolutionRecording;
 import org.btrplace.scheduler.choco.runner.SolutionStatistics;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 import org.chocosolver.solver.search.measure.IMeasures;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -52,11 +52,16 @@ public class SingleRunnerStatistics implements SolvingStatistics {
      */
     private int nbManagedVMs;
 
-    private List<SolutionStatistics> solutions;
+    private SolutionRecording.Buffer<SolutionStatistics> solutions;
 
 
     private IMeasures status;
 
+    /**
+     * The duration of the placement phase. {@code -1} if the placement was not fixed in a first phase.
+     */
+    private long placementDuration = -1;
+
     /**
      * Make new statistics.
      *
@@ -67,7 +72,7 @@ public class SingleRunnerStatistics implements SolvingStatistics {
     public SingleRunnerStatistics(Parameters ps, Instance i, long st) {
         this.params = ps;
         this.start = st;
-        solutions = new ArrayList<>();
+        solutions = ps.getSolutionRecording().newBuffer();
         this.nbManagedVMs = -1;
         this.coreRPBuildDuration = -1;
         this.speRPDuration = -1;
@@ -106,6 +111,7 @@ public class SingleRunnerStatistics implements SolvingStatistics {
 
     /**
      * Add a solution to the statistics.
+     * The solution is recorded with regards to {@link Parameters#getSolutionRecording()}.
      *
      * @param so the solution to add
      */
@@ -127,9 +133,25 @@ public class SingleRunnerStatistics implements SolvingStatistics {
         this.status = m;
     }
 
+    /**
+     * Get the recorded solutions ordered by time.
+     * Depending on {@link Parameters#getSolutionRecording()}, some of the computed solutions may be missing.
+     * The plan of a solution is built the first time it is requested.
+     *
+     * @return a list of solutions that may be empty
+     */
     @Override
     public List<SolutionStatistics> getSolutions() {
-        return solutions;
+        return solutions.get();
+    }
+
+    /**
+     * Get the number of computed solutions, recorded or not.
+     *
+     * @return a positive number
+     */
+    public int getNbSolutions() {
+        return solutions.count();
     }
 
     @Override
@@ -146,6 +168,26 @@ public class SingleRunnerStatistics implements SolvingStatistics {
         nbManagedVMs = nb;
     }
 
+    /**
+     * Set the time spent in the search phase that fixed the placement.
+     *
+     * @param d a duration in milliseconds. {@code -1} if the placement was never fixed
+     * @see org.btrplace.scheduler.choco.Parameters#doStagedPlacement(boolean)
+     */
+    public void setPlacementDuration(long d) {
+        placementDuration = d;
+    }
+
+    /**
+     * Get the time spent in the search phase that fixed the placement.
+     *
+     * @return a duration in milliseconds. {@code -1} if the placement was not fixed in a first phase
+     * @see org.btrplace.scheduler.choco.Parameters#doStagedPlacement(boolean)
+     */
+    public long getPlacementDuration() {
+        return placementDuration;
+    }
+
     @Override
     public long getStart() {
         return start;
@@ -172,11 +214,17 @@ public class SingleRunnerStatistics implements SolvingStatistics {
         if (params.doOptimize()) {
             b.append("; optimize");
         }
+        if (params.getLNS() != null) {
+            b.append("; ").append(params.getLNS());
+        }
         if (params.getTimeLimit() > 0) {
             b.append("; timeout: ").append(params.getTimeLimit()).append("s");
         }
         b.append("\nBuilding duration: ").append(coreRPBuildDuration).append("ms (core) + ").append(speRPDuration).append("ms (specialization)");
         b.append("\nAfter ").append((long) (status.getTimeCount() * 1000)).append("ms of search");
+        if (placementDuration >= 0) {
+            b.append(" (").append(placementDuration).append("ms to fix the placement)");
+        }
 
         if (completed) {
             b.append(" (terminated)");
@@ -186,15 +234,21 @@ public class SingleRunnerStatistics implements SolvingStatistics {
 
         b.append(": ")
                 .append(status.getNodeCount()).append(" opened search node(s), ")
-                .append(status.getBackTrackCount()).append(" backtrack(s), ")
-                .append(solutions.size()).append(" solution(s)");
-        if (!solutions.isEmpty()) {
+                .append(status.getBackTrackCount()).append(" backtrack(s), ");
+        if (status.getRestartCount() > 0) {
+            b.append(status.getRestartCount()).append(" restart(s), ");
+        }
+        b.append(solutions.count()).append(" solution(s)");
+        if (solutions.count() != solutions.get().size()) {
+            b.append(" (").append(solutions.get().size()).append(" recorded)");
+        }
+        if (!solutions.get().isEmpty()) {
             b.append(":\n");
         } else {
             b.append('.');
         }
         int i = 1;
-        for (SolutionStatistics st : solutions) {
+        for (SolutionStatistics st : solutions.get()) {
             b.append('\t').append(i).append(')').append(st.toString()).append("\n");
             i++;
         }
@@ -203,10 +257,11 @@ public class SingleRunnerStatistics implements SolvingStatistics {
 
     @Override
     public ReconfigurationPlan lastSolution() {
-        if (solutions.isEmpty()) {
+        SolutionStatistics last = solutions.last();
+        if (last == null) {
             return null;
         }
-        return solutions.get(solutions.size() - 1).getReconfigurationPlan();
+        return last.getReconfigurationPlan();
     }
 
     @Override
@@ -236,7 +291,7 @@ public class SingleRunnerStatistics implements SolvingStatistics {
                 coreRPBuildDuration,
                 speRPDuration,
                 d,
-                solutions.size(),
+                solutions.count(),
                 completed ? 1 : 0);
     }
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.scheduler.choco.runner.single;
+
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.Slice;
+import org.btrplace.scheduler.choco.transition.VMTransition;
+import org.btrplace.scheduler.choco.view.ChocoView;
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.constraints.ICF;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.strategy.ISF;
+import org.chocosolver.solver.search.strategy.decision.Decision;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.VF;
+import org.chocosolver.solver.variables.Variable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A search strategy that split the search in two phases.
+ * The first phase computes the placement of the VMs. Once every VM is placed, the views are notified
+ * through {@link ChocoView#afterPlacement(ReconfigurationProblem)} and the second phase computes the remaining variables.
+ * <p>
+ * The second phase starts with a decision on a dedicated stage variable. The constraints posted by the views
+ * are removed when the search backtracks over this decision, so a failure in the second phase backtracks
+ * into the placement, which is then completed again.
+ * <p>
+ * The decisions are taken by the decorated strategy. The VMs it does not place are placed on
+ * the node having the smallest index.
+ *
+ * @author Fabien Hermenier
+ */
+class StagedPlacement extends AbstractStrategy<Variable> {
+
+    private ReconfigurationProblem rp;
+
+    private List<ChocoView> views;
+
+    private AbstractStrategy<?> strategy;
+
+    private AbstractStrategy<IntVar> completion;
+
+    private IntVar[] hosts;
+
+    /**
+     * The index of the first host variable that might not be instantiated.
+     */
+    private IStateInt last;
+
+    /**
+     * Instantiated to 0 once the placement is fixed in the current branch.
+     */
+    private BoolVar stage;
+
+    private AbstractStrategy<IntVar> staging;
+
+    private long duration = -1;
+
+    private SchedulerException error;
+
+    /**
+     * New strategy.
+     *
+     * @param p     the problem to solve
+     * @param views the views to notify once the placement is fixed
+     * @param s     the strategy to decorate. {@code null} if there is none
+     */
+    StagedPlacement(ReconfigurationProblem p, List<ChocoView> views, AbstractStrategy<?> s) {
+        super(p.getSolver().retrieveIntVars());
+        rp = p;
+        this.views = views;
+        hosts = p.getVMActions().stream()
+                .map(VMTransition::getDSlice)
+                .filter(Objects::nonNull)
+                .map(Slice::getHoster)
+                .toArray(IntVar[]::new);
+        strategy = s;
+        completion = ISF.lexico_LB(hosts);
+        last = p.getSolver().getEnvironment().makeInt(0);
+        stage = VF.bool("stage", p.getSolver());
+        staging = ISF.lexico_LB(stage);
+    }
+
+    @Override
+    public void init() throws ContradictionException {
+        if (strategy != null) {
+            strategy.init();
+        }
+        completion.init();
+        staging.init();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Decision<Variable> getDecision() {
+        if (!stage.isInstantiated() && isPlaced()) {
+            fixPlacement();
+            return (Decision) staging.getDecision();
+        }
+        Decision d = strategy == null ? null : strategy.getDecision();
+        if (d == null && !stage.isInstantiated()) {
+            //Some VMs were not placed by the decorated strategy
+            d = completion.getDecision();
+        }
+        return d;
+    }
+
+    private boolean isPlaced() {
+        for (int idx = last.get(); idx < hosts.length; idx++) {
+            if (!hosts[idx].isInstantiated()) {
+                last.set(idx);
+                return false;
+            }
+        }
+        last.set(hosts.length);
+        return true;
+    }
+
+    /**
+     * Notify the views the placement is fixed in the current branch.
+     * The constraints they post are removed when the search backtracks over the branch.
+     * The stage decision can only succeed when the views accepted the placement.
+     */
+    private void fixPlacement() {
+        Solver s = rp.getSolver();
+        long now = (long) (s.getMeasures().getTimeCount() * 1000);
+        if (duration < 0) {
+            duration = now;
+        }
+        rp.getLogger().debug("Placement fixed after {} ms. Starting the second search phase", now);
+        int from = s.getNbCstrs();
+        s.post(ICF.arithm(stage, "=", 0));
+        try {
+            for (ChocoView v : views) {
+                if (!v.afterPlacement(rp)) {
+                    s.post(ICF.FALSE(s));
+                    break;
+                }
+            }
+        } catch (SchedulerException ex) {
+            //Not a matter of placement. The search is over
+            error = ex;
+            s.post(ICF.FALSE(s));
+            return;
+        }
+        Constraint[] cstrs = s.getCstrs();
+        Constraint[] posted = Arrays.copyOfRange(cstrs, from, cstrs.length);
+        s.getEnvironment().save(() -> {
+            for (Constraint c : posted) {
+                s.unpost(c);
+            }
+        });
+    }
+
+    /**
+     * Get the time spent in the first search phase, until the placement was fixed for the first time.
+     *
+     * @return a duration in milliseconds. {@code -1} if the placement was never fixed
+     */
+    long getPlacementDuration() {
+        return duration;
+    }
+
+    /**
+     * Get the error that occurred while completing the problem once the placement was fixed.
+     *
+     * @return the error if any. {@code null} otherwise
+     */
+    SchedulerException getError() {
+        return error;
+    }
+}
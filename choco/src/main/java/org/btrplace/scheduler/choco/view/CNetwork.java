@@ -49,6 +49,9 @@ import java.util.List;
  * of the network elements on each migration path. Then, establish the relation between the
  * migrations duration and their allocated bandwidth based on specific VMs attributes related
  * to VM memory activity.
+ * <p>
+ * The destination of the migrations must be known. Either before the solving, or through
+ * a first search phase that fixes the placement (see {@link Parameters#doStagedPlacement(boolean)}).
  *
  * @author Vincent Kherbache
  */
@@ -62,6 +65,16 @@ public class CNetwork implements ChocoView {
     private Solver solver;
     private Model source;
 
+    /**
+     * {@code true} if the placement is fixed in a first search phase.
+     */
+    private boolean staged;
+
+    /**
+     * {@code true} once the migrations and the network elements are modelled.
+     */
+    private boolean modelled;
+
     /**
      * Make a new network view.
      *
@@ -75,47 +88,91 @@ public class CNetwork implements ChocoView {
     public boolean inject(Parameters ps, ReconfigurationProblem rp) throws SchedulerException {
         solver = rp.getSolver();
         source = rp.getSourceModel();
-
+        staged = ps.doStagedPlacement();
+        modelled = false;
         return true;
     }
 
     @Override
     public String getIdentifier() { return net.getIdentifier(); }
 
+    /**
+     * {@inheritDoc}
+     * The bandwidth and the duration of the migrations depend on the destination nodes.
+     * If they are not known yet and the placement is fixed in a first search phase, the modelling is delayed
+     * until {@link #afterPlacement(ReconfigurationProblem)}.
+     */
     @Override
     public boolean beforeSolve(ReconfigurationProblem rp) throws SchedulerException {
+        boolean placed = true;
+        for (VMTransition migration : rp.getVMActions()) {
+            if (!(migration instanceof RelocatableVM)) {
+                continue;
+            }
+            VM vm = migration.getVM();
+            if (!migration.getDSlice().getHoster().isInstantiated()) {
+                if (!staged) {
+                    throw new SchedulerException(null, "Destination node for VM '" + vm + "' should be known !");
+                }
+                placed = false;
+            }
+
+            if (!rp.getSourceModel().getAttributes().isSet(vm, "memUsed")) {
+                throw new SchedulerException(null, "Unable to retrieve 'memUsed' attribute for the vm '" + vm + "'");
+            }
+        }
+        return !placed || model(rp, true);
+    }
+
+    @Override
+    public boolean afterPlacement(ReconfigurationProblem rp) throws SchedulerException {
+        return modelled || model(rp, false);
+    }
 
+    /**
+     * Model the bandwidth and the duration of the migrations, and the capacity of the network elements.
+     *
+     * @param rp   the problem
+     * @param root {@code true} if the search is not started
+     * @return {@code false} if there will be no solution
+     */
+    private boolean model(ReconfigurationProblem rp, boolean root) {
+        //During the search, the model is removed on backtrack
+        modelled = root;
         Model mo = rp.getSourceModel();
         Attributes attrs = mo.getAttributes();
 
-        // Pre-compute duration and bandwidth for each VM migration
+        List<RelocatableVM> migrations = new ArrayList<>();
+        List<VM> vms = new ArrayList<>();
         for (VMTransition migration : rp.getVMActions()) {
-
-            if (!(migration instanceof RelocatableVM)) {
-                continue;
+            if (migration instanceof RelocatableVM) {
+                migrations.add((RelocatableVM) migration);
+                vms.add(migration.getVM());
             }
+        }
+
+        // Get the attributes of all the VMs at once
+        int[] memUsed = attrs.get(vms, "memUsed", -1);
+        // Get VM memory activity attributes if defined, otherwise set an idle workload on the VM
+        double[] hotDirtySizes = attrs.get(vms, "hotDirtySize", 5.0);// Minimal observed value on idle VM
+        double[] hotDirtyDurations = attrs.get(vms, "hotDirtyDuration", 2.0); // Minimal observed value on idle VM
+        double[] coldDirtyRates = attrs.get(vms, "coldDirtyRate", 0.0);
+
+        // Pre-compute duration and bandwidth for each VM migration
+        for (int i = 0; i < migrations.size(); i++) {
+            RelocatableVM migration = migrations.get(i);
 
             // Get vars from migration
             VM vm = migration.getVM();
-            IntVar bandwidth = ((RelocatableVM) migration).getBandwidth();
+            IntVar bandwidth = migration.getBandwidth();
             IntVar duration = migration.getDuration();
             Node src = rp.getSourceModel().getMapping().getVMLocation(vm);
 
-            // Try to get the destination node
-            Node dst;
-
-            if (!migration.getDSlice().getHoster().isInstantiated()) {
-                throw new SchedulerException(null, "Destination node for VM '" + vm + "' should be known !");
-            }
-
-            if (!mo.getAttributes().isSet(vm, "memUsed")) {
-                throw new SchedulerException(null, "Unable to retrieve 'memUsed' attribute for the vm '" + vm + "'");
-            }
-
-            dst = rp.getNode(migration.getDSlice().getHoster().getValue());
+            // Get the destination node
+            Node dst = rp.getNode(migration.getDSlice().getHoster().getValue());
             if (src.equals(dst)) {
                 try {
-                    ((RelocatableVM) migration).getBandwidth().instantiateTo(0, Cause.Null);
+                    fix(bandwidth, 0, root);
                     continue;
                 } catch (ContradictionException e) {
                     rp.getLogger().error("Contradiction exception when trying to instantiate bandwidth and " +
@@ -124,13 +181,9 @@ public class CNetwork implements ChocoView {
                 }
             }
 
-            // Get attribute vars
-            int memUsed = attrs.get(vm, "memUsed", -1);
-
-            // Get VM memory activity attributes if defined, otherwise set an idle workload on the VM
-            double hotDirtySize = attrs.get(vm, "hotDirtySize", 5.0);// Minimal observed value on idle VM
-            double hotDirtyDuration = attrs.get(vm, "hotDirtyDuration", 2.0); // Minimal observed value on idle VM
-            double coldDirtyRate = attrs.get(vm, "coldDirtyRate", 0.0);
+            double hotDirtySize = hotDirtySizes[i];
+            double hotDirtyDuration = hotDirtyDurations[i];
+            double coldDirtyRate = coldDirtyRates[i];
 
             // Get the maximal bandwidth available on the migration path
             int maxBW = net.getRouting().getMaxBW(src, dst);
@@ -145,7 +198,7 @@ public class CNetwork implements ChocoView {
             double bandwidthOctet = maxBW / 9.0;
 
             // Estimate the duration for the current bandwidth
-            durationMin = memUsed / bandwidthOctet;
+            durationMin = memUsed[i] / bandwidthOctet;
             if (durationMin > hotDirtyDuration) {
 
                 durationColdPages = (hotDirtySize + (durationMin - hotDirtyDuration) * coldDirtyRate) /
@@ -162,8 +215,8 @@ public class CNetwork implements ChocoView {
             try {
                 //prevent from a 0 duration when the memory usage is very low
                 int dd = (int) Math.max(1, Math.round(durationTotal));
-                duration.instantiateTo(dd, Cause.Null);
-                bandwidth.instantiateTo(maxBW, Cause.Null);
+                fix(duration, dd, root);
+                fix(bandwidth, maxBW, root);
             } catch (ContradictionException e) {
                 rp.getLogger().error("Contradiction exception when trying to instantiate bandwidth and " +
                         " duration variables for " + vm + " migration: ", e);
@@ -172,12 +225,24 @@ public class CNetwork implements ChocoView {
         }
 
         // Add links and switches constraints
-        addLinkConstraints(rp);        
+        addLinkConstraints(rp);
         addSwitchConstraints(rp);
 
         return true;
     }
 
+    /**
+     * Instantiate a variable. Before the search, the domain is restricted directly.
+     * During the search, a constraint is posted.
+     */
+    private void fix(IntVar v, int value, boolean root) throws ContradictionException {
+        if (root) {
+            v.instantiateTo(value, Cause.Null);
+        } else {
+            solver.post(ICF.arithm(v, "=", value));
+        }
+    }
+
     /**
      * Add the cumulative constraints for each link.
      *
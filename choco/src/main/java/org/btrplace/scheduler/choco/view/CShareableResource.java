@@ -111,8 +111,10 @@ public class CShareableResource implements ChocoView {
         virtRcUsage = new ArrayList<>(nodes.size());
         this.ratios = new ArrayList<>(nodes.size());
         id = ShareableResource.VIEW_ID_BASE + rc.getResourceIdentifier();
-        for (Node nId : p.getNodes()) {
-            phyRcUsage.add(VariableFactory.bounded(p.makeVarLabel("phyRcUsage('", rc.getResourceIdentifier(), "', '", nId, "')"), 0, rc.getCapacity(nId), p.getSolver()));
+        int[] capacities = rc.getCapacities(nodes);
+        for (int i = 0; i < capacities.length; i++) {
+            Node nId = nodes.get(i);
+            phyRcUsage.add(VariableFactory.bounded(p.makeVarLabel("phyRcUsage('", rc.getResourceIdentifier(), "', '", nId, "')"), 0, capacities[i], p.getSolver()));
             virtRcUsage.add(VariableFactory.bounded(p.makeVarLabel("virtRcUsage('", rc.getResourceIdentifier(), "', '", nId, "')"), 0, Integer.MAX_VALUE / 100, p.getSolver()));
             ratios.add(VariableFactory.real(p.makeVarLabel("overbook('", rc.getResourceIdentifier(), "', '", nId, "')"), 1, UNCHECKED_RATIO, 0.01, p.getSolver()));
         }
@@ -345,11 +347,11 @@ public class CShareableResource implements ChocoView {
                         if (tmp.getVM() == dVM) {
                             if (a instanceof MigrateVM) {
                                 //For a migrated VM, we allocate once the migration over
-                                insertAllocateEvent(a, Action.Hook.POST, dVM);
+                                insertAllocateEvent(s, a, Action.Hook.POST, dVM);
                             } else {
                                 //Resume or Boot VM
                                 //As the VM was not running, we pre-allocate
-                                insertAllocateEvent(a, Action.Hook.PRE, dVM);
+                                insertAllocateEvent(s, a, Action.Hook.PRE, dVM);
                             }
                             break;
                         }
@@ -360,7 +362,7 @@ public class CShareableResource implements ChocoView {
         return true;
     }
 
-    private void insertAllocateEvent(Action a, Action.Hook h, VM vm) {
+    private void insertAllocateEvent(Solution s, Action a, Action.Hook h, VM vm) {
         int prev = 0;
         VM sVM = references.containsKey(vm) ? references.get(vm) : vm;
         if (rc.consumptionDefined(sVM)) {
@@ -369,7 +371,7 @@ public class CShareableResource implements ChocoView {
         int now = 0;
         IntVar nowI = getVMsAllocation(rp.getVM(sVM));
         if (nowI != null) {
-            now = nowI.getLB();
+            now = s.getIntVal(nowI);
         }
         if (prev != now) {
             AllocateEvent ev = new AllocateEvent(vm, getResourceIdentifier(), now);
@@ -427,15 +429,16 @@ public class CShareableResource implements ChocoView {
         TIntArrayList cUse = new TIntArrayList();
         List<IntVar> dUse = new ArrayList<>();
 
+        int[] consumptions = getSourceResource().getConsumptions(rp.getVMs());
         for (VMTransition a : rp.getVMActions()) {
-            VM vm = a.getVM();
+            int vmIdx = rp.getVM(a.getVM());
             Slice c = a.getCSlice();
             Slice d = a.getDSlice();
             if (c != null) {
-                cUse.add(getSourceResource().getConsumption(vm));
+                cUse.add(consumptions[vmIdx]);
             }
             if (d != null) {
-                dUse.add(vmAllocation.get(rp.getVM(vm)));
+                dUse.add(vmAllocation.get(vmIdx));
             }
         }
 
@@ -61,6 +61,22 @@ public interface ChocoView extends Injectable, MisplacedVMsEstimator {
         return true;
     }
 
+    /**
+     * An event that is sent during the search once the placement of every VM is fixed,
+     * when the placement is computed in a first search phase (see {@link Parameters#doStagedPlacement(boolean)}).
+     * The view can then model what depends on the placement. As the search is running, the constraints
+     * must be posted and not restrict directly the variables domain.
+     * The constraints are removed when the search backtracks into the placement, so the event
+     * is sent again for every placement that is tried.
+     *
+     * @param rp the problem
+     * @return {@code false} iff there will be no solution to the RP.
+     * @throws SchedulerException if an error occurred while completing the problem
+     */
+    default boolean afterPlacement(ReconfigurationProblem rp) throws SchedulerException {
+        return true;
+    }
+
     /**
      * Allow the insertion of actions on the plan computed for a given problem.
      *
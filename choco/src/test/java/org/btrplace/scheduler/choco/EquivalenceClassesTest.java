@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Ban;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Preserve;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.migration.Deadline;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for {@link EquivalenceClasses}.
+ *
+ * @author Fabien Hermenier
+ */
+public class EquivalenceClassesTest {
+
+    /**
+     * 4 empty nodes, an overloaded node hosting 6 VMs, 2 VMs to boot.
+     * The first VM is banned from the fourth node.
+     */
+    private static Instance makeInstance() {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        mo.attach(new ShareableResource("cpu", 4, 1));
+        List<Node> ns = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Node n = mo.newNode();
+            map.addOnlineNode(n);
+            ns.add(n);
+        }
+        for (int i = 0; i < 6; i++) {
+            map.addRunningVM(mo.newVM(), ns.get(4));
+        }
+        map.addReadyVM(mo.newVM());
+        map.addReadyVM(mo.newVM());
+        List<SatConstraint> cstrs = new ArrayList<>(Running.newRunning(map.getAllVMs()));
+        cstrs.add(new Ban(new VM(0), Collections.singleton(ns.get(3))));
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    @Test
+    public void testDetection() throws SchedulerException {
+        Instance i = makeInstance();
+        Mapping map = i.getModel().getMapping();
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(i.getModel())
+                .setNextVMsStates(Collections.emptySet(), map.getAllVMs(), Collections.emptySet(), Collections.emptySet())
+                .build();
+        EquivalenceClasses eq = EquivalenceClasses.detect(rp, i);
+        Assert.assertEquals(eq.getNodeClasses(), Collections.singletonList(Arrays.asList(new Node(0), new Node(1), new Node(2))));
+        Assert.assertEquals(eq.getVMClasses(), Arrays.asList(
+                Arrays.asList(new VM(1), new VM(2), new VM(3), new VM(4), new VM(5)),
+                Arrays.asList(new VM(6), new VM(7))));
+        //4 + 1 constraints on the VMs, 2 on the nodes
+        Assert.assertEquals(eq.inject(rp), 7);
+    }
+
+    /**
+     * The constraints on a single VM are compared using their parameters.
+     * A VM with an unknown constraint has no equivalent.
+     */
+    @Test
+    public void testSingleVMConstraints() throws SchedulerException {
+        Instance i = makeInstance();
+        Mapping map = i.getModel().getMapping();
+        i.getSatConstraints().add(new Preserve(new VM(6), "cpu", 2));
+        i.getSatConstraints().add(new Preserve(new VM(7), "cpu", 3));
+        i.getSatConstraints().add(new Deadline(new VM(1), "+00:01"));
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(i.getModel())
+                .setNextVMsStates(Collections.emptySet(), map.getAllVMs(), Collections.emptySet(), Collections.emptySet())
+                .build();
+        EquivalenceClasses eq = EquivalenceClasses.detect(rp, i);
+        Assert.assertEquals(eq.getVMClasses(), Collections.singletonList(
+                Arrays.asList(new VM(2), new VM(3), new VM(4), new VM(5))));
+    }
+
+    @Test
+    public void testSameOptimum() throws SchedulerException {
+        DefaultChocoScheduler ref = new DefaultChocoScheduler();
+        ref.doOptimize(true);
+        ReconfigurationPlan p1 = ref.solve(makeInstance());
+        Assert.assertNotNull(p1);
+
+        DefaultChocoScheduler sym = new DefaultChocoScheduler();
+        sym.doOptimize(true);
+        sym.getParameters().doSymmetryBreaking(true);
+        Assert.assertTrue(new DefaultParameters(sym.getParameters()).doSymmetryBreaking());
+        ReconfigurationPlan p2 = sym.solve(makeInstance());
+        Assert.assertNotNull(p2);
+        Assert.assertEquals(p2.getResult().getMapping().getRunningVMs().size(), 8);
+        Assert.assertEquals(lastValue(sym), lastValue(ref));
+    }
+
+    private static int lastValue(DefaultChocoScheduler s) {
+        return s.getStatistics().getSolutions().get(s.getStatistics().getSolutions().size() - 1)
+                .getMeasures().getBestSolutionValue().intValue();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.constraint.Offline;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Unit tests for {@link SolutionRecording}.
+ *
+ * @author Fabien Hermenier
+ */
+public class SolutionRecordingTest {
+
+    private static SolutionRecording.Buffer<Integer> fill(SolutionRecording p, int nb) {
+        SolutionRecording.Buffer<Integer> b = p.newBuffer();
+        for (int i = 1; i <= nb; i++) {
+            b.add(i);
+        }
+        return b;
+    }
+
+    @Test
+    public void testAll() {
+        SolutionRecording p = SolutionRecording.all();
+        Assert.assertEquals(p.getMaxSolutions(), -1);
+        Assert.assertEquals(p.getPeriod(), 1);
+        SolutionRecording.Buffer<Integer> b = p.newBuffer();
+        Assert.assertNull(b.last());
+        Assert.assertEquals(b.count(), 0);
+        Assert.assertTrue(b.get().isEmpty());
+
+        b = fill(p, 5);
+        Assert.assertEquals(b.count(), 5);
+        Assert.assertEquals(b.get(), Arrays.asList(1, 2, 3, 4, 5));
+        Assert.assertEquals(b.last().intValue(), 5);
+    }
+
+    @Test
+    public void testLast() {
+        SolutionRecording.Buffer<Integer> b = fill(SolutionRecording.last(), 5);
+        Assert.assertEquals(b.count(), 5);
+        Assert.assertEquals(b.get(), Arrays.asList(5));
+        Assert.assertEquals(b.last().intValue(), 5);
+    }
+
+    @Test
+    public void testBest() {
+        SolutionRecording p = SolutionRecording.best(3);
+        Assert.assertEquals(p.getMaxSolutions(), 3);
+        SolutionRecording.Buffer<Integer> b = fill(p, 2);
+        Assert.assertEquals(b.get(), Arrays.asList(1, 2));
+        b = fill(p, 6);
+        Assert.assertEquals(b.count(), 6);
+        Assert.assertEquals(b.get(), Arrays.asList(4, 5, 6));
+    }
+
+    @Test
+    public void testEveryNth() {
+        SolutionRecording p = SolutionRecording.everyNth(3);
+        Assert.assertEquals(p.getPeriod(), 3);
+        //The last solution is always there
+        Assert.assertEquals(fill(p, 2).get(), Arrays.asList(1, 2));
+        Assert.assertEquals(fill(p, 3).get(), Arrays.asList(1, 3));
+        Assert.assertEquals(fill(p, 4).get(), Arrays.asList(1, 4));
+        Assert.assertEquals(fill(p, 5).get(), Arrays.asList(1, 4, 5));
+        Assert.assertEquals(fill(p, 7).get(), Arrays.asList(1, 4, 7));
+    }
+
+    @Test(expectedExceptions = {UnsupportedOperationException.class})
+    public void testUnmodifiable() {
+        fill(SolutionRecording.all(), 2).get().clear();
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testBadBest() {
+        SolutionRecording.best(0);
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testBadPeriod() {
+        SolutionRecording.everyNth(-1);
+    }
+
+    @Test
+    public void testSolvingWithLast() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().addOnlineNode(n1);
+        mo.getMapping().addOnlineNode(n2);
+        for (int i = 0; i < 4; i++) {
+            mo.getMapping().addRunningVM(mo.newVM(), n1);
+        }
+        ChocoScheduler s = new DefaultChocoScheduler();
+        s.doOptimize(true);
+        s.setSolutionRecording(SolutionRecording.last());
+        Assert.assertEquals(s.getSolutionRecording(), SolutionRecording.last());
+        ReconfigurationPlan p = s.solve(mo, Collections.singletonList(new Offline(n1)));
+        Assert.assertNotNull(p);
+        SolvingStatistics st = s.getStatistics();
+        Assert.assertEquals(st.getSolutions().size(), 1);
+        Assert.assertEquals(st.lastSolution(), p);
+    }
+}
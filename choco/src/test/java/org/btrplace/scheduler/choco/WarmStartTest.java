@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.scheduler.choco;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Offline;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link WarmStart}.
+ *
+ * @author Fabien Hermenier
+ */
+public class WarmStartTest {
+
+    /**
+     * 4 nodes. n0 must go offline while it hosts 3 VMs.
+     */
+    private static Model makeModel() {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        Node n0 = mo.newNode();
+        map.addOnlineNode(n0);
+        for (int i = 0; i < 3; i++) {
+            map.addOnlineNode(mo.newNode());
+        }
+        for (int i = 0; i < 3; i++) {
+            map.addRunningVM(mo.newVM(), n0);
+        }
+        return mo;
+    }
+
+    @Test
+    public void testBasics() {
+        Model mo = makeModel();
+        WarmStart ws = WarmStart.of(mo);
+        Assert.assertEquals(ws.getPlacement().size(), 3);
+        Assert.assertEquals(ws.getHost(new VM(0)), new Node(0));
+        Assert.assertNull(ws.getHost(new VM(10)));
+        Assert.assertEquals(ws.getBound(), WarmStart.NO_BOUND);
+        WarmStart b = ws.bound(7);
+        Assert.assertEquals(b.getBound(), 7);
+        Assert.assertEquals(b.getPlacement(), ws.getPlacement());
+        Assert.assertEquals(ws.getBound(), WarmStart.NO_BOUND);
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testBadBound() {
+        new WarmStart(Collections.emptyMap(), -5);
+    }
+
+    @Test
+    public void testParameters() {
+        WarmStart ws = new WarmStart(Collections.emptyMap());
+        Parameters ps = new DefaultParameters();
+        Assert.assertNull(ps.getWarmStart());
+        Assert.assertEquals(ps.setWarmStart(ws), ps);
+        Assert.assertSame(new DefaultParameters(ps).getWarmStart(), ws);
+        DefaultChocoScheduler s = new DefaultChocoScheduler();
+        s.setWarmStart(ws);
+        Assert.assertSame(s.getWarmStart(), ws);
+    }
+
+    @Test
+    public void testHintedPlacement() throws SchedulerException {
+        Model mo = makeModel();
+        Node n0 = new Node(0);
+        Node n3 = new Node(3);
+        Map<VM, Node> hint = new HashMap<>();
+        for (VM v : mo.getMapping().getRunningVMs(n0)) {
+            hint.put(v, n3);
+        }
+        //A hint that is no longer possible
+        hint.put(new VM(1), n0);
+        ChocoScheduler s = new DefaultChocoScheduler();
+        s.setWarmStart(new WarmStart(hint));
+        ReconfigurationPlan p = s.solve(mo, Collections.singletonList(new Offline(n0)));
+        Assert.assertNotNull(p);
+        Mapping res = p.getResult().getMapping();
+        Assert.assertEquals(res.getVMLocation(new VM(0)), n3);
+        Assert.assertEquals(res.getVMLocation(new VM(2)), n3);
+        Assert.assertNotEquals(res.getVMLocation(new VM(1)), n0);
+    }
+
+    @Test
+    public void testFromPreviousSolution() throws SchedulerException {
+        Model mo = makeModel();
+        ChocoScheduler s = new DefaultChocoScheduler();
+        s.doOptimize(true);
+        ReconfigurationPlan p = s.solve(mo, Collections.singletonList(new Offline(new Node(0))));
+        Assert.assertNotNull(p);
+        WarmStart ws = WarmStart.of(s.getStatistics());
+        Assert.assertEquals(ws.getBound(), WarmStart.NO_BOUND);
+        Assert.assertEquals(ws.getPlacement().size(), 3);
+        int previous = s.getStatistics().getMeasures().getBestSolutionValue().intValue();
+
+        //A changed instance may have a worse optimum than the previous one
+        Model mo2 = mo.copy();
+        VM v = mo2.newVM();
+        mo2.getMapping().addReadyVM(v);
+        s.setWarmStart(ws);
+        Assert.assertNotNull(s.solve(mo2, Arrays.asList(new Offline(new Node(0)), new Running(v))));
+        s.setWarmStart(ws.bound(previous));
+        Assert.assertNull(s.solve(mo2, Arrays.asList(new Offline(new Node(0)), new Running(v))));
+
+        //Same instance, bounded by the previous value
+        ws = ws.bound(previous);
+
+        //Same instance. The previous solution is still reachable
+        s.setWarmStart(ws);
+        ReconfigurationPlan p2 = s.solve(mo, Collections.singletonList(new Offline(new Node(0))));
+        Assert.assertNotNull(p2);
+        for (VM v : mo.getMapping().getAllVMs()) {
+            Assert.assertEquals(p2.getResult().getMapping().getVMLocation(v), ws.getHost(v));
+        }
+
+        //No solution below a too tight bound
+        s.setWarmStart(ws.bound(0));
+        Assert.assertNull(s.solve(mo, Collections.singletonList(new Offline(new Node(0)))));
+    }
+}
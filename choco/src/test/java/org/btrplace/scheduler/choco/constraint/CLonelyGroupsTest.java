@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.constraint;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Lonely;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.ChocoScheduler;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Unit tests for {@link CLonelyGroups}.
+ *
+ * @author Fabien Hermenier
+ */
+public class CLonelyGroupsTest {
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testOverlappingGroups() {
+        VM v = new VM(0);
+        new CLonelyGroups(Arrays.asList(new Lonely(Collections.singleton(v)), new Lonely(Collections.singleton(v))));
+    }
+
+    private static void solve(boolean continuous) throws SchedulerException {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        VM vm4 = mo.newVM();
+        VM vm5 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        Node n4 = mo.newNode();
+        mo.getMapping().on(n1, n2, n3, n4)
+                .run(n1, vm1, vm2, vm3)
+                .run(n2, vm4, vm5);
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Lonely(new HashSet<>(Arrays.asList(vm1, vm2)), continuous));
+        cstrs.add(new Lonely(Collections.singleton(vm3), continuous));
+        cstrs.add(new Lonely(Collections.singleton(vm4), continuous));
+        ChocoScheduler cra = new DefaultChocoScheduler();
+        ReconfigurationPlan plan = cra.solve(mo, cstrs);
+        Assert.assertNotNull(plan);
+        for (SatConstraint c : cstrs) {
+            Assert.assertTrue(c.isSatisfied(plan));
+        }
+        //vm5 has to leave vm4, one of the lonely groups on n1 has to leave too
+        Assert.assertTrue(plan.getSize() >= 2);
+    }
+
+    @Test
+    public void testSolveDiscrete() throws SchedulerException {
+        solve(false);
+    }
+
+    @Test
+    public void testSolveContinuous() throws SchedulerException {
+        solve(true);
+    }
+
+    @Test
+    public void testGetMisplaced() {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Mapping map = mo.getMapping().on(n1, n2).run(n1, vm1, vm2).run(n2, vm3);
+        CLonelyGroups c = new CLonelyGroups(Arrays.asList(new Lonely(Collections.singleton(vm1)),
+                new Lonely(Collections.singleton(vm3))));
+        Instance i = new Instance(mo, Collections.emptyList(), new MinMTTR());
+        Assert.assertEquals(c.getMisPlacedVMs(i), map.getRunningVMs(n1));
+    }
+}
@@ -22,6 +22,8 @@ import org.btrplace.json.JSON;
 import org.btrplace.model.*;
 import org.btrplace.model.constraint.*;
 import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.MigrateVM;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.ChocoScheduler;
 import org.btrplace.scheduler.choco.DefaultChocoScheduler;
@@ -89,6 +91,88 @@ public class CSpreadTest {
         Assert.assertNotSame(res.getVMLocation(vm1), res.getVMLocation(vm2));
     }
 
+    /**
+     * Two VMs swap their host. They cannot overlap in continuous mode.
+     * A single pair of VMs relies on the pairwise encoding.
+     */
+    @Test
+    public void testContinuousSwapPairwise() throws SchedulerException {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1, n2).run(n1, vm1).run(n2, vm2);
+
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Fence(vm1, Collections.singleton(n2)));
+        cstrs.add(new Fence(vm2, Collections.singleton(n1)));
+        Assert.assertNotNull(new DefaultChocoScheduler().solve(mo, cstrs));
+
+        cstrs.add(new Spread(mo.getMapping().getAllVMs(), true));
+        Assert.assertNull(new DefaultChocoScheduler().solve(mo, cstrs));
+    }
+
+    /**
+     * Three VMs in a cycle of migrations. This is only viable in discrete mode.
+     * The {@link org.btrplace.scheduler.choco.extensions.DisjointSlices} encoding is used.
+     */
+    @Test
+    public void testContinuousCycle() throws SchedulerException {
+        Model mo = new DefaultModel();
+        List<VM> vms = new ArrayList<>();
+        List<Node> ns = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ns.add(mo.newNode());
+            vms.add(mo.newVM());
+            mo.getMapping().addOnlineNode(ns.get(i));
+            mo.getMapping().addRunningVM(vms.get(i), ns.get(i));
+        }
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            cstrs.add(new Fence(vms.get(i), Collections.singleton(ns.get((i + 1) % 3))));
+        }
+        Assert.assertNotNull(new DefaultChocoScheduler().solve(mo, cstrs));
+        cstrs.add(new Spread(new HashSet<>(vms), false));
+        Assert.assertNotNull(new DefaultChocoScheduler().solve(mo, cstrs));
+        cstrs.set(3, new Spread(new HashSet<>(vms), true));
+        Assert.assertNull(new DefaultChocoScheduler().solve(mo, cstrs));
+    }
+
+    /**
+     * Three VMs in a chain of migrations. Each VM can only arrive once the previous one left.
+     */
+    @Test
+    public void testContinuousChain() throws SchedulerException {
+        Model mo = new DefaultModel();
+        List<VM> vms = new ArrayList<>();
+        List<Node> ns = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ns.add(mo.newNode());
+            mo.getMapping().addOnlineNode(ns.get(i));
+        }
+        for (int i = 0; i < 3; i++) {
+            vms.add(mo.newVM());
+            mo.getMapping().addRunningVM(vms.get(i), ns.get(i));
+        }
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            cstrs.add(new Fence(vms.get(i), Collections.singleton(ns.get(i + 1))));
+        }
+        cstrs.add(new Spread(new HashSet<>(vms), true));
+        ReconfigurationPlan p = new DefaultChocoScheduler().solve(mo, cstrs);
+        Assert.assertNotNull(p);
+        Assert.assertEquals(p.getSize(), 3);
+        Map<VM, Action> migs = new HashMap<>();
+        for (Action a : p) {
+            migs.put(((MigrateVM) a).getVM(), a);
+        }
+        //vm3 leaves before vm2 arrives, vm2 leaves before vm1 arrives
+        Assert.assertTrue(migs.get(vms.get(2)).getEnd() <= migs.get(vms.get(1)).getStart());
+        Assert.assertTrue(migs.get(vms.get(1)).getEnd() <= migs.get(vms.get(0)).getStart());
+        Assert.assertTrue(new Spread(new HashSet<>(vms), true).isSatisfied(p));
+    }
+
     @Test
     public void testGetMisplaced() {
 
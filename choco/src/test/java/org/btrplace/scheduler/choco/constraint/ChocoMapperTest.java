@@ -20,12 +20,19 @@ package org.btrplace.scheduler.choco.constraint;
 
 import org.btrplace.model.DefaultModel;
 import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
 import org.btrplace.model.constraint.Ban;
+import org.btrplace.model.constraint.Lonely;
+import org.btrplace.model.constraint.Quarantine;
 import org.btrplace.model.constraint.Spread;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 
 
 /**
@@ -57,4 +64,33 @@ public class ChocoMapperTest {
         c = map.get(s);
         Assert.assertTrue(c.getClass().equals(CSpread.class));
     }
+
+    @Test
+    public void testAggregate() {
+        Model mo = new DefaultModel();
+        VM v1 = mo.newVM();
+        VM v2 = mo.newVM();
+        VM v3 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        ChocoMapper map = ChocoMapper.newBundle();
+        List<ChocoConstraint> cs = Arrays.asList(
+                map.get(new Spread(Collections.singleton(v1))),
+                map.get(new Lonely(Collections.singleton(v1))),
+                map.get(new Quarantine(n1)),
+                map.get(new Lonely(new HashSet<>(Arrays.asList(v2, v3)))),
+                //Overlap with the previous group
+                map.get(new Lonely(Collections.singleton(v3))),
+                map.get(new Quarantine(n2)));
+        List<ChocoConstraint> res = map.aggregate(cs);
+        Assert.assertEquals(res.size(), 4);
+        Assert.assertEquals(res.get(0), cs.get(0));
+        Assert.assertTrue(res.get(1) instanceof CLonelyGroups);
+        Assert.assertTrue(res.get(2) instanceof CQuarantineZone);
+        Assert.assertEquals(res.get(3), cs.get(4));
+
+        //Nothing to merge
+        cs = Arrays.asList(map.get(new Lonely(Collections.singleton(v1))), map.get(new Quarantine(n1)));
+        Assert.assertEquals(map.aggregate(cs), cs);
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.extensions;
+
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.VF;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link AllEqual}.
+ *
+ * @author Fabien Hermenier
+ */
+public class AllEqualTest {
+
+    @Test
+    public void testFiltering() throws ContradictionException {
+        Solver s = new Solver();
+        IntVar[] vs = {
+                VF.enumerated("a", 0, 5, s),
+                VF.enumerated("b", new int[]{1, 3, 4, 5, 8}, s),
+                VF.enumerated("c", new int[]{0, 1, 3, 5}, s)
+        };
+        s.post(new AllEqual(vs));
+        s.propagate();
+        for (IntVar v : vs) {
+            Assert.assertEquals(v.getDomainSize(), 3);
+            Assert.assertTrue(v.contains(1) && v.contains(3) && v.contains(5));
+        }
+        vs[1].removeValue(3, null);
+        s.propagate();
+        Assert.assertFalse(vs[2].contains(3));
+        vs[0].instantiateTo(5, null);
+        s.propagate();
+        Assert.assertTrue(vs[2].isInstantiatedTo(5));
+    }
+
+    @Test
+    public void testSolutions() {
+        Solver s = new Solver();
+        IntVar[] vs = {
+                VF.enumerated("a", 0, 3, s),
+                VF.enumerated("b", 1, 4, s),
+                VF.enumerated("c", new int[]{0, 2, 3, 4}, s)
+        };
+        s.post(new AllEqual(vs));
+        Assert.assertEquals(s.findAllSolutions(), 2);
+    }
+
+    @Test(expectedExceptions = ContradictionException.class)
+    public void testNoSharedValue() throws ContradictionException {
+        Solver s = new Solver();
+        IntVar[] vs = {
+                VF.enumerated("a", new int[]{0, 2}, s),
+                VF.enumerated("b", new int[]{1, 3}, s)
+        };
+        s.post(new AllEqual(vs));
+        s.propagate();
+    }
+}
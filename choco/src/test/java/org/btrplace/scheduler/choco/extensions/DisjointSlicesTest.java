@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.extensions;
+
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.ICF;
+import org.chocosolver.solver.constraints.LCF;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.VF;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link DisjointSlices}.
+ *
+ * @author Fabien Hermenier
+ */
+public class DisjointSlicesTest {
+
+    private static int[] cHosts = {0, 1, -1, 2};
+
+    private static IntVar[][] makeVars(Solver s) {
+        int nb = cHosts.length;
+        IntVar[][] vs = new IntVar[3][nb];
+        for (int i = 0; i < nb; i++) {
+            if (cHosts[i] >= 0) {
+                vs[0][i] = VF.enumerated("cEnd" + i, 0, 2, s);
+            }
+            //The last VM leaves
+            if (i < nb - 1) {
+                vs[1][i] = VF.enumerated("dHost" + i, 0, 2, s);
+                vs[2][i] = VF.enumerated("dStart" + i, 0, 2, s);
+            }
+        }
+        return vs;
+    }
+
+    /**
+     * Check the constraint has the same solutions than the pairwise encoding.
+     */
+    @Test
+    public void testAgainstPairwise() {
+        Solver s = new Solver();
+        IntVar[][] vs = makeVars(s);
+        s.post(new DisjointSlices(cHosts, vs[0], vs[1], vs[2]));
+        long nb = s.findAllSolutions();
+
+        Solver ref = new Solver();
+        IntVar[][] rs = makeVars(ref);
+        for (int i = 0; i < cHosts.length; i++) {
+            for (int j = 0; j < cHosts.length; j++) {
+                if (i != j && rs[1][i] != null && cHosts[j] >= 0) {
+                    BoolVar eq = VF.bool("eq", ref);
+                    ICF.arithm(rs[1][i], "=", cHosts[j]).reifyWith(eq);
+                    BoolVar leq = VF.bool("leq", ref);
+                    ICF.arithm(rs[0][j], "<=", rs[2][i]).reifyWith(leq);
+                    ref.post(LCF.or(VF.not(eq), leq));
+                }
+            }
+        }
+        Assert.assertTrue(nb > 0);
+        Assert.assertEquals(nb, ref.findAllSolutions());
+    }
+
+    @Test
+    public void testFiltering() throws ContradictionException {
+        Solver s = new Solver();
+        IntVar[][] vs = makeVars(s);
+        s.post(new DisjointSlices(cHosts, vs[0], vs[1], vs[2]));
+        //The slice on node 0 ends late
+        vs[0][0].updateLowerBound(2, null);
+        //No room on node 1 for a early start
+        vs[1][2].removeValue(1, null);
+        vs[2][2].updateUpperBound(1, null);
+        //VM 1 leaves node 1 at 1, VM 0 goes there
+        vs[0][1].updateLowerBound(1, null);
+        vs[1][0].instantiateTo(1, null);
+        s.propagate();
+        Assert.assertEquals(vs[1][2].getValue(), 2);
+        Assert.assertEquals(vs[2][0].getLB(), 1);
+        //Its own slice does not matter
+        Assert.assertTrue(vs[1][0].isInstantiatedTo(1));
+        Assert.assertEquals(vs[0][3].getUB(), vs[2][2].getUB());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.extensions;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link Profile}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ProfileTest {
+
+    @Test
+    public void testCompute() {
+        Profile p = new Profile(2);
+        p.reset(4);
+        p.set(0, 0, new int[]{3, 4}, 1);
+        p.set(1, 5, new int[]{2, 1}, -1);
+        p.set(2, 5, new int[]{1, 1}, 1);
+        p.set(3, 2, new int[]{4, 0}, 1);
+        Assert.assertTrue(p.isChanged());
+        p.compute();
+        Assert.assertFalse(p.isChanged());
+        Assert.assertEquals(p.size(), 3);
+        Assert.assertEquals(p.moment(0), 0);
+        Assert.assertEquals(p.moment(1), 2);
+        Assert.assertEquals(p.moment(2), 5);
+        Assert.assertEquals(p.toString(0), "0:3 2:7 5:6");
+        Assert.assertEquals(p.toString(1), "0:4 2:4 5:4");
+        Assert.assertTrue(p.exceeds(1, new int[]{1, 0}, new int[]{7, 10}));
+        Assert.assertFalse(p.exceeds(2, new int[]{1, 0}, new int[]{7, 10}));
+    }
+
+    @Test
+    public void testIncremental() {
+        Profile p = new Profile(1);
+        p.reset(3);
+        p.set(0, 0, new int[]{1}, 1);
+        p.set(1, 3, new int[]{1}, 1);
+        p.set(2, 6, new int[]{1}, 1);
+        p.compute();
+        Assert.assertEquals(p.toString(0), "0:1 3:2 6:3");
+
+        //Same events, nothing to do
+        p.reset(3);
+        p.set(0, 0, new int[]{1}, 1);
+        p.set(1, 3, new int[]{1}, 1);
+        p.set(2, 6, new int[]{1}, 1);
+        Assert.assertFalse(p.isChanged());
+
+        //A moved event and a new one
+        p.reset(4);
+        p.set(0, 0, new int[]{1}, 1);
+        p.set(1, 8, new int[]{1}, 1);
+        p.set(2, 6, new int[]{1}, 1);
+        p.set(3, 1, new int[]{2}, -1);
+        Assert.assertTrue(p.isChanged());
+        p.compute();
+        Assert.assertEquals(p.toString(0), "0:1 1:-1 6:0 8:1");
+
+        //Less events
+        p.reset(2);
+        p.set(0, 0, new int[]{1}, 1);
+        p.set(1, 8, new int[]{1}, 1);
+        Assert.assertTrue(p.isChanged());
+        p.compute();
+        Assert.assertEquals(p.toString(0), "0:1 8:2");
+    }
+
+    @Test
+    public void testGrowth() {
+        Profile p = new Profile(1);
+        p.reset(100);
+        for (int i = 0; i < 100; i++) {
+            p.set(i, 100 - i, new int[]{1}, 1);
+        }
+        p.compute();
+        Assert.assertEquals(p.size(), 100);
+        Assert.assertEquals(p.moment(0), 1);
+        Assert.assertEquals(p.value(99, 0), 100);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.lns;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.DefaultReconfigurationProblemBuilder;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+
+/**
+ * Unit tests for {@link LNS} and the neighborhoods.
+ *
+ * @author Fabien Hermenier
+ */
+public class LNSTest {
+
+    private static Instance makeInstance() {
+        Model mo = new DefaultModel();
+        ShareableResource cpu = new ShareableResource("cpu", 4, 1);
+        mo.attach(cpu);
+        List<Node> ns = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Node n = mo.newNode();
+            mo.getMapping().addOnlineNode(n);
+            ns.add(n);
+        }
+        for (int i = 0; i < 12; i++) {
+            mo.getMapping().addRunningVM(mo.newVM(), ns.get(i % 2));
+        }
+        for (int i = 0; i < 6; i++) {
+            mo.getMapping().addReadyVM(mo.newVM());
+        }
+        List<SatConstraint> cstrs = new ArrayList<>(Running.newRunning(mo.getMapping().getAllVMs()));
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    @Test
+    public void testConfiguration() {
+        LNS l = new LNS();
+        Assert.assertEquals(l.getNeighborhoods().size(), 3);
+        Assert.assertEquals(l.getMaxNeighborhoods(), LNS.DEFAULT_MAX_NEIGHBORHOODS);
+        Assert.assertEquals(l.setFailLimit(30).setMaxNeighborhoods(5).getFailLimit(), 30);
+        Assert.assertEquals(l.getMaxNeighborhoods(), 5);
+        Assert.assertTrue(new DefaultParameters().setLNS(l).getLNS() == l);
+        Assert.assertTrue(new DefaultParameters(new DefaultParameters().setLNS(l)).getLNS() == l);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadFailLimit() {
+        new LNS().setFailLimit(0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNoNeighborhoods() {
+        new LNS(Collections.emptyList());
+    }
+
+    @Test(expectedExceptions = SchedulerException.class)
+    public void testUnlimitedWithoutTimeLimit() throws SchedulerException {
+        DefaultChocoScheduler cra = new DefaultChocoScheduler();
+        cra.doOptimize(true);
+        cra.getParameters().setLNS(new LNS().setMaxNeighborhoods(LNS.NO_LIMIT));
+        cra.solve(makeInstance());
+    }
+
+    @Test
+    public void testNeighborhoods() throws SchedulerException {
+        Instance i = makeInstance();
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(i.getModel()).build();
+        int[] placement = new int[rp.getVMs().size()];
+        //Every VM moves to the next node in the solution
+        for (int v = 0; v < placement.length; v++) {
+            int cur = rp.getCurrentVMLocation(v);
+            placement[v] = cur < 0 ? -1 : (cur + 1) % rp.getNodes().size();
+        }
+        BitSet misplaced = new BitSet();
+        misplaced.set(3);
+        Random rnd = new Random(0);
+
+        BitSet relaxed = new BitSet();
+        new MisplacedVMs().select(rp, placement, misplaced, rnd, relaxed);
+        Assert.assertEquals(relaxed, misplaced);
+
+        relaxed.clear();
+        new RandomNodes(100).select(rp, placement, misplaced, rnd, relaxed);
+        //At least all the running VMs
+        Assert.assertTrue(relaxed.cardinality() >= 12);
+
+        relaxed.clear();
+        new NodePartitions(3).select(rp, placement, misplaced, rnd, relaxed);
+        Assert.assertFalse(relaxed.isEmpty());
+    }
+
+    @Test
+    public void testSolve() throws SchedulerException {
+        DefaultChocoScheduler ref = new DefaultChocoScheduler();
+        ref.doOptimize(true);
+        Assert.assertNotNull(ref.solve(makeInstance()));
+        int optimum = ref.getStatistics().getSolutions().get(ref.getStatistics().getSolutions().size() - 1)
+                .getMeasures().getBestSolutionValue().intValue();
+
+        DefaultChocoScheduler cra = new DefaultChocoScheduler();
+        cra.doOptimize(true);
+        cra.setTimeLimit(10);
+        cra.getParameters().setLNS(new LNS().setFailLimit(20).setMaxNeighborhoods(10));
+        ReconfigurationPlan plan = cra.solve(makeInstance());
+        Assert.assertNotNull(plan);
+        Assert.assertEquals(plan.getResult().getMapping().getRunningVMs().size(), 18);
+
+        SolvingStatistics st = cra.getStatistics();
+        SortedMap<Long, Number> improvements = st.getImprovements();
+        Assert.assertFalse(improvements.isEmpty());
+        Number prev = null;
+        for (Number n : improvements.values()) {
+            Assert.assertTrue(prev == null || n.intValue() < prev.intValue());
+            prev = n;
+        }
+        //Once the neighborhoods are explored, the search is complete
+        if (st.completed()) {
+            Assert.assertEquals(prev.intValue(), optimum);
+        }
+    }
+}
@@ -27,6 +27,8 @@ import org.chocosolver.solver.search.measure.MeasuresRecorder;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Simple unit tests for {@link org.btrplace.scheduler.choco.runner.SolutionStatistics}.
  *
@@ -44,4 +46,19 @@ public class SolutionStatisticsTest {
         Assert.assertEquals(st.getReconfigurationPlan(), p);
         System.out.println(st);
     }
+
+    @Test
+    public void testLazyPlan() {
+        IMeasures m = new MeasuresRecorder(new Solver());
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(new DefaultModel());
+        AtomicInteger nb = new AtomicInteger();
+        SolutionStatistics st = new SolutionStatistics(m, () -> {
+            nb.incrementAndGet();
+            return p;
+        });
+        Assert.assertEquals(nb.get(), 0);
+        Assert.assertEquals(st.getReconfigurationPlan(), p);
+        Assert.assertEquals(st.getReconfigurationPlan(), p);
+        Assert.assertEquals(nb.get(), 1);
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.runner.portfolio;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.extensions.env.ChunkedTrailing;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for {@link PortfolioRunner}.
+ *
+ * @author Fabien Hermenier
+ */
+public class PortfolioRunnerTest {
+
+    private static Instance makeInstance() {
+        Model mo = new DefaultModel();
+        ShareableResource cpu = new ShareableResource("cpu", 4, 1);
+        mo.attach(cpu);
+        List<Node> ns = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Node n = mo.newNode();
+            mo.getMapping().addOnlineNode(n);
+            ns.add(n);
+        }
+        for (int i = 0; i < 8; i++) {
+            VM v = mo.newVM();
+            mo.getMapping().addRunningVM(v, ns.get(0));
+        }
+        for (int i = 0; i < 4; i++) {
+            mo.getMapping().addReadyVM(mo.newVM());
+        }
+        List<SatConstraint> cstrs = new ArrayList<>(Running.newRunning(mo.getMapping().getAllVMs()));
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    @Test
+    public void testConfigure() {
+        PortfolioRunner r = new PortfolioRunner(4);
+        Assert.assertEquals(r.getWorkersCount(), 4);
+        Parameters ps = new DefaultParameters().setRandomSeed(7);
+        Parameters p0 = r.configure(ps, 0);
+        Assert.assertEquals(p0.getRandomSeed(), 7);
+        Assert.assertEquals(p0.getEnvironmentFactory(), ps.getEnvironmentFactory());
+        Parameters p1 = r.configure(ps, 1);
+        Assert.assertEquals(p1.getRandomSeed(), 8);
+        Assert.assertTrue(p1.getEnvironmentFactory().build(null) instanceof ChunkedTrailing);
+        Assert.assertEquals(p1.doRepair(), ps.doRepair());
+        Assert.assertNotEquals(r.configure(ps, 2).doRepair(), ps.doRepair());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadWorkersCount() {
+        new PortfolioRunner(0);
+    }
+
+    @Test
+    public void testSolve() throws SchedulerException {
+        Instance i = makeInstance();
+        DefaultChocoScheduler cra = new DefaultChocoScheduler();
+        PortfolioRunner r = new PortfolioRunner(3);
+        cra.setInstanceSolver(r);
+        cra.setTimeLimit(10);
+        ReconfigurationPlan plan = cra.solve(i);
+        Assert.assertNotNull(plan);
+        //Every VM must be running, with at most 4 VMs per node
+        Assert.assertEquals(plan.getResult().getMapping().getRunningVMs().size(), 12);
+        for (Node n : plan.getResult().getMapping().getOnlineNodes()) {
+            Assert.assertTrue(plan.getResult().getMapping().getRunningVMs(n).size() <= 4);
+        }
+
+        PortfolioStatistics st = (PortfolioStatistics) r.getStatistics();
+        Assert.assertEquals(st.getContenders().size(), 3);
+        Assert.assertTrue(st.completed());
+        Assert.assertEquals(st.lastSolution(), plan);
+        Assert.assertFalse(st.getSolutions().isEmpty());
+        Assert.assertEquals(st.toCSV().split(";").length, 6);
+        //The solutions are improving, and ordered by wall-clock time
+        for (int x = 1; x < st.getSolutions().size(); x++) {
+            Assert.assertTrue(st.getSolutions().get(x).getTimestamp() >= st.getSolutions().get(x - 1).getTimestamp());
+            Assert.assertTrue(st.getSolutions().get(x).getTimestamp() >= st.getStart());
+            Assert.assertTrue(st.getSolutions().get(x).getMeasures().getBestSolutionValue().intValue()
+                    < st.getSolutions().get(x - 1).getMeasures().getBestSolutionValue().intValue());
+        }
+    }
+}
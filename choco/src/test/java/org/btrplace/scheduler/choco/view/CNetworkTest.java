@@ -21,6 +21,7 @@ package org.btrplace.scheduler.choco.view;
 import org.btrplace.model.*;
 import org.btrplace.model.constraint.Fence;
 import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.migration.Deadline;
 import org.btrplace.model.constraint.migration.MinMTTRMig;
 import org.btrplace.model.view.ShareableResource;
 import org.btrplace.model.view.network.Network;
@@ -30,10 +31,12 @@ import org.btrplace.plan.event.MigrateVM;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.ChocoScheduler;
 import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.btrplace.scheduler.choco.runner.StagedSolvingStatistics;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -134,4 +137,69 @@ public class CNetworkTest {
         Assert.assertNotNull(p);
         System.out.println(p);
     }
+
+    /**
+     * The destination of the migration is not known before the solving.
+     * The placement is fixed by a first search phase then the network is modelled.
+     */
+    @Test
+    public void testStagedPlacement() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        VM v = mo.newVM();
+        mo.getMapping().on(n1, n2, n3).run(n1, v);
+        mo.getAttributes().put(v, "memUsed", 2000);
+        Network net = new Network();
+        mo.attach(net);
+        Switch sw = net.newSwitch();
+        net.connect(1000, sw, n1, n2, n3);
+
+        List<SatConstraint> cstrs = Collections.singletonList(new Fence(v, Arrays.asList(n2, n3)));
+        ChocoScheduler s = new DefaultChocoScheduler();
+        ReconfigurationPlan ref = s.solve(mo, cstrs);
+        Assert.assertNotNull(ref);
+        Assert.assertEquals(((StagedSolvingStatistics) s.getStatistics()).getNbStages(), 2);
+
+        s.doStagedPlacement(true);
+        ReconfigurationPlan p = s.solve(mo, cstrs);
+        Assert.assertNotNull(p);
+        MigrateVM mig = (MigrateVM) p.getActions().stream().filter(a -> a instanceof MigrateVM).findFirst().get();
+        Assert.assertEquals(mig.getBandwidth(), 1000);
+        Assert.assertEquals(p.getDuration(), ref.getDuration());
+
+        StagedSolvingStatistics st = (StagedSolvingStatistics) s.getStatistics();
+        Assert.assertEquals(st.getNbStages(), 1);
+        Assert.assertEquals(st.getStageDurations().size(), 2);
+        Assert.assertTrue(st.getStageDurations().stream().allMatch(d -> d >= 0));
+    }
+
+    /**
+     * The migration to n2 is too slow to meet the deadline, which is only known once the network is modelled.
+     * The search must backtrack into the placement and migrate the VM to n3.
+     */
+    @Test
+    public void testStagedPlacementBacktrack() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        VM v = mo.newVM();
+        mo.getMapping().on(n1, n2, n3).run(n1, v);
+        mo.getAttributes().put(v, "memUsed", 2000);
+        Network net = new Network();
+        mo.attach(net);
+        Switch sw = net.newSwitch();
+        net.connect(1000, sw, n1, n3);
+        net.connect(100, sw, n2);
+
+        List<SatConstraint> cstrs = Arrays.asList(new Fence(v, Arrays.asList(n2, n3)), new Deadline(v, "+00:01:00"));
+        ChocoScheduler s = new DefaultChocoScheduler();
+        s.doStagedPlacement(true);
+        ReconfigurationPlan p = s.solve(mo, cstrs);
+        Assert.assertNotNull(p);
+        MigrateVM mig = (MigrateVM) p.getActions().stream().filter(a -> a instanceof MigrateVM).findFirst().get();
+        Assert.assertEquals(mig.getDestinationNode(), n3);
+    }
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json;
+
+import net.minidev.json.JSONArray;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache for the sets of VMs and nodes that are converted from JSON arrays.
+ * A cache is bound to a single model so sets read for a model are never returned for another one.
+ * The model is only weakly referenced so a cache left in a thread does not retain it.
+ * <p>
+ * Use {@link #newCache(Model, int)} for a cache that is confined to a thread and
+ * {@link #newConcurrentCache(Model, int)} for a cache that can be shared by threads reading the same model.
+ *
+ * @author Fabien Hermenier
+ */
+public final class ElementCache {
+
+    private final WeakReference<Model> mo;
+
+    private final Map<String, List<VM>> vms;
+
+    private final Map<String, List<Node>> nodes;
+
+    private final int size;
+
+    private ElementCache(Model mo, int size, Map<String, List<VM>> vms, Map<String, List<Node>> nodes) {
+        this.mo = new WeakReference<>(mo);
+        this.size = size;
+        this.vms = vms;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Make a new LRU cache that is not thread-safe.
+     *
+     * @param mo   the model the elements belong to
+     * @param size the maximum number of sets of VMs and of sets of nodes to keep
+     * @return the cache
+     */
+    public static ElementCache newCache(Model mo, int size) {
+        return new ElementCache(mo, size, lru(size), lru(size));
+    }
+
+    /**
+     * Make a new cache that can be used concurrently.
+     * Once full, the cache is flushed.
+     *
+     * @param mo   the model the elements belong to
+     * @param size the maximum number of sets of VMs and of sets of nodes to keep
+     * @return the cache
+     */
+    public static ElementCache newConcurrentCache(Model mo, int size) {
+        return new ElementCache(mo, size, new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+    }
+
+    private static <T> Map<String, List<T>> lru(int size) {
+        return new LinkedHashMap<String, List<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<T>> foo) {
+                return size() > size;
+            }
+        };
+    }
+
+    /**
+     * Get the model the cached elements belong to.
+     *
+     * @return the model. {@code null} if the model is no longer referenced
+     */
+    public Model getModel() {
+        return mo.get();
+    }
+
+    private Model model() throws JSONConverterException {
+        Model m = mo.get();
+        if (m == null) {
+            throw new JSONConverterException("The model of the cache is no longer referenced");
+        }
+        return m;
+    }
+
+    /**
+     * Convert an array of VM identifiers to a list of VMs.
+     *
+     * @param a the json array
+     * @return the list of VMs
+     * @throws JSONConverterException if a VM is not declared in the model
+     */
+    public List<VM> vms(JSONArray a) throws JSONConverterException {
+        String json = a.toJSONString();
+        List<VM> s = vms.get(json);
+        if (s != null) {
+            return s;
+        }
+        Model m = model();
+        s = new ArrayList<>(a.size());
+        for (Object o : a) {
+            s.add(JSONs.getVM(m, (int) o));
+        }
+        store(vms, json, s);
+        return s;
+    }
+
+    /**
+     * Convert an array of node identifiers to a list of nodes.
+     *
+     * @param a the json array
+     * @return the list of nodes
+     * @throws JSONConverterException if a node is not declared in the model
+     */
+    public List<Node> nodes(JSONArray a) throws JSONConverterException {
+        String json = a.toJSONString();
+        List<Node> s = nodes.get(json);
+        if (s != null) {
+            return s;
+        }
+        Model m = model();
+        s = new ArrayList<>(a.size());
+        for (Object o : a) {
+            s.add(JSONs.getNode(m, (int) o));
+        }
+        store(nodes, json, s);
+        return s;
+    }
+
+    private <T> void store(Map<String, List<T>> m, String k, List<T> v) {
+        if (m instanceof ConcurrentHashMap && m.size() >= size) {
+            m.clear();
+        }
+        m.put(k, v);
+    }
+
+    /**
+     * Get the number of cached sets of VMs and nodes.
+     *
+     * @return a positive number
+     */
+    public int size() {
+        return vms.size() + nodes.size();
+    }
+
+}
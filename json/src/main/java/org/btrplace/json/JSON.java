@@ -31,6 +31,8 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * Utility class to ease the serialisation and the deserialisation of the main btrplace entities.
+ * Instances and plans are streamed using {@link JSONStreamReader} and {@link JSONStreamWriter}
+ * so no intermediate JSON tree of the whole document is built.
  *
  * @author Fabien Hermenier
  */
@@ -46,11 +48,11 @@ public class JSON {
         return new InputStreamReader(new FileInputStream(f), UTF_8);
     }
 
-    private static OutputStreamWriter makeOut(File f) throws IOException {
+    private static Writer makeOut(File f) throws IOException {
         if (f.getName().endsWith(".gz")) {
-            return new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(f)), UTF_8);
+            return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(f)), UTF_8));
         }
-        return new OutputStreamWriter(new FileOutputStream(f), UTF_8);
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), UTF_8));
     }
 
     /**
@@ -79,7 +81,7 @@ public class JSON {
     public static Instance readInstance(Reader r) {
         try {
             InstanceConverter c = new InstanceConverter();
-            return c.fromJSON(r);
+            return c.fromJSON(new JSONStreamReader(r));
         } catch (JSONConverterException e) {
             throw new IllegalArgumentException(e);
         }
@@ -93,7 +95,7 @@ public class JSON {
      * @throws IllegalArgumentException if an error occurred while writing the json
      */
     public static void write(Instance instance, File f) {
-        try (OutputStreamWriter out = makeOut(f)) {
+        try (Writer out = makeOut(f)) {
             write(instance, out);
         } catch (IOException e) {
             throw new IllegalArgumentException(e);
@@ -110,8 +112,8 @@ public class JSON {
     public static void write(Instance instance, Appendable a) {
         try {
             InstanceConverter c = new InstanceConverter();
-            c.toJSON(instance).writeJSONString(a);
-        } catch (IOException | JSONConverterException e) {
+            c.toJSON(instance, new JSONStreamWriter(a));
+        } catch (JSONConverterException e) {
             throw new IllegalArgumentException(e);
         }
     }
@@ -124,8 +126,10 @@ public class JSON {
      */
     public static String toString(Instance instance) {
         try {
+            StringBuilder b = new StringBuilder();
             InstanceConverter c = new InstanceConverter();
-            return c.toJSON(instance).toJSONString();
+            c.toJSON(instance, new JSONStreamWriter(b));
+            return b.toString();
         } catch (JSONConverterException e) {
             throw new IllegalArgumentException(e);
         }
@@ -158,7 +162,7 @@ public class JSON {
     public static ReconfigurationPlan readReconfigurationPlan(Reader r) {
         try {
             ReconfigurationPlanConverter c = new ReconfigurationPlanConverter();
-            return c.fromJSON(r);
+            return c.fromJSON(new JSONStreamReader(r));
         } catch (JSONConverterException e) {
             throw new IllegalArgumentException(e);
         }
@@ -172,7 +176,7 @@ public class JSON {
      * @throws IllegalArgumentException if an error occurred while writing the json
      */
     public static void write(ReconfigurationPlan plan, File f) {
-        try (OutputStreamWriter out = makeOut(f)) {
+        try (Writer out = makeOut(f)) {
             write(plan, out);
         } catch (IOException e) {
             throw new IllegalArgumentException(e);
@@ -189,8 +193,8 @@ public class JSON {
     public static void write(ReconfigurationPlan plan, Appendable a) {
         try {
             ReconfigurationPlanConverter c = new ReconfigurationPlanConverter();
-            c.toJSON(plan).writeJSONString(a);
-        } catch (IOException | JSONConverterException e) {
+            c.toJSON(plan, new JSONStreamWriter(a));
+        } catch (JSONConverterException e) {
             throw new IllegalArgumentException(e);
         }
     }
@@ -203,8 +207,10 @@ public class JSON {
      */
     public static String toString(ReconfigurationPlan plan) {
         try {
+            StringBuilder b = new StringBuilder();
             ReconfigurationPlanConverter c = new ReconfigurationPlanConverter();
-            return c.toJSON(plan).toJSONString();
+            c.toJSON(plan, new JSONStreamWriter(b));
+            return b.toString();
         } catch (JSONConverterException e) {
             throw new IllegalArgumentException(e);
         }
@@ -0,0 +1,492 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json;
+
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * A token-based JSON reader.
+ * Contrary to a {@link net.minidev.json.parser.JSONParser}, the document is not turned into a tree of
+ * {@link JSONObject} so the converters can fill the entities while reading.
+ * Values that are read through {@link #nextValue()} are typed as they would be by a parser in
+ * {@link net.minidev.json.parser.JSONParser#MODE_RFC4627} mode.
+ * <p>
+ * Members of objects and elements of arrays are browsed using {@link #hasNext()}:
+ * <pre>
+ * in.beginObject();
+ * while (in.hasNext()) {
+ *   String k = in.nextName();
+ *   ...
+ * }
+ * in.endObject();
+ * </pre>
+ *
+ * @author Fabien Hermenier
+ */
+public class JSONStreamReader {
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int OBJECT_AFTER_COMMA = 5;
+    private static final int EMPTY_ARRAY = 6;
+    private static final int NONEMPTY_ARRAY = 7;
+    private static final int ARRAY_AFTER_COMMA = 8;
+
+    private final Reader in;
+
+    private final char[] buf = new char[8192];
+
+    private int pos = 0;
+
+    private int limit = 0;
+
+    /**
+     * The number of characters consumed before the buffer.
+     */
+    private long offset = 0;
+
+    private int[] stack = new int[32];
+
+    private int depth = 1;
+
+    private final StringBuilder sb = new StringBuilder();
+
+    /**
+     * Make a new reader.
+     *
+     * @param in the stream to read
+     */
+    public JSONStreamReader(Reader in) {
+        this.in = in;
+        stack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Consume the beginning of an object.
+     *
+     * @throws JSONConverterException if the next token is not the beginning of an object
+     */
+    public void beginObject() throws JSONConverterException {
+        beforeValue();
+        expect('{');
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * Consume the end of the current object.
+     *
+     * @throws JSONConverterException if the next token is not the end of the current object
+     */
+    public void endObject() throws JSONConverterException {
+        int s = stack[depth - 1];
+        if (s != EMPTY_OBJECT && s != NONEMPTY_OBJECT) {
+            throw error("Unexpected end of object");
+        }
+        expect('}');
+        depth--;
+    }
+
+    /**
+     * Consume the beginning of an array.
+     *
+     * @throws JSONConverterException if the next token is not the beginning of an array
+     */
+    public void beginArray() throws JSONConverterException {
+        beforeValue();
+        expect('[');
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * Consume the end of the current array.
+     *
+     * @throws JSONConverterException if the next token is not the end of the current array
+     */
+    public void endArray() throws JSONConverterException {
+        int s = stack[depth - 1];
+        if (s != EMPTY_ARRAY && s != NONEMPTY_ARRAY) {
+            throw error("Unexpected end of array");
+        }
+        expect(']');
+        depth--;
+    }
+
+    /**
+     * Check if the current object or array has another member.
+     *
+     * @return {@code true} iff there is another member to read
+     * @throws JSONConverterException if an error occurred while reading the stream
+     */
+    public boolean hasNext() throws JSONConverterException {
+        int s = stack[depth - 1];
+        int c = peekNonWhitespace();
+        switch (s) {
+            case EMPTY_OBJECT:
+                return c != '}';
+            case EMPTY_ARRAY:
+                return c != ']';
+            case NONEMPTY_OBJECT:
+            case NONEMPTY_ARRAY:
+                if (c == ',') {
+                    pos++;
+                    stack[depth - 1] = s == NONEMPTY_OBJECT ? OBJECT_AFTER_COMMA : ARRAY_AFTER_COMMA;
+                    return true;
+                }
+                return false;
+            case OBJECT_AFTER_COMMA:
+            case ARRAY_AFTER_COMMA:
+                return true;
+            default:
+                return c != -1;
+        }
+    }
+
+    /**
+     * Read the name of the next member of the current object.
+     *
+     * @return the name
+     * @throws JSONConverterException if the next token is not a member name
+     */
+    public String nextName() throws JSONConverterException {
+        int s = stack[depth - 1];
+        if (s == NONEMPTY_OBJECT) {
+            expect(',');
+        } else if (s != EMPTY_OBJECT && s != OBJECT_AFTER_COMMA) {
+            throw error("Unexpected member name");
+        }
+        expect('"');
+        String k = readString();
+        expect(':');
+        stack[depth - 1] = DANGLING_NAME;
+        return k;
+    }
+
+    /**
+     * Read a string.
+     *
+     * @return the string
+     * @throws JSONConverterException if the next token is not a string
+     */
+    public String nextString() throws JSONConverterException {
+        beforeValue();
+        expect('"');
+        return readString();
+    }
+
+    /**
+     * Read an integer.
+     *
+     * @return the integer
+     * @throws JSONConverterException if the next token is not an integer
+     */
+    public int nextInt() throws JSONConverterException {
+        beforeValue();
+        Object o = readNumber();
+        if (!(o instanceof Integer)) {
+            throw error("int expected but got '" + o + "'");
+        }
+        return (Integer) o;
+    }
+
+    /**
+     * Read any value.
+     * Objects and arrays are returned as {@link JSONObject} and {@link JSONArray} respectively.
+     *
+     * @return the value. {@code null} for the JSON {@code null} literal
+     * @throws JSONConverterException if the next token is not a value
+     */
+    public Object nextValue() throws JSONConverterException {
+        int c = peekNonWhitespace();
+        if (c == '{') {
+            JSONObject o = new JSONObject();
+            beginObject();
+            while (hasNext()) {
+                String k = nextName();
+                o.put(k, nextValue());
+            }
+            endObject();
+            return o;
+        } else if (c == '[') {
+            JSONArray a = new JSONArray();
+            beginArray();
+            while (hasNext()) {
+                a.add(nextValue());
+            }
+            endArray();
+            return a;
+        }
+        beforeValue();
+        switch (c) {
+            case '"':
+                pos++;
+                return readString();
+            case 't':
+                readLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                readLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                readLiteral("null");
+                return null;
+            default:
+                return readNumber();
+        }
+    }
+
+    /**
+     * Read an object.
+     *
+     * @return the object
+     * @throws JSONConverterException if the next value is not an object
+     */
+    public JSONObject nextObject() throws JSONConverterException {
+        if (peekNonWhitespace() != '{') {
+            throw error("object expected");
+        }
+        return (JSONObject) nextValue();
+    }
+
+    /**
+     * Check if the next value is an object.
+     * This must be called once the member name or the array element is announced
+     * using {@link #nextName()} or {@link #hasNext()}.
+     *
+     * @return {@code true} iff the next value starts an object
+     * @throws JSONConverterException if an error occurred while reading the stream
+     */
+    public boolean peekObject() throws JSONConverterException {
+        return peekNonWhitespace() == '{';
+    }
+
+    /**
+     * Skip the next value, whatever its type.
+     *
+     * @throws JSONConverterException if the next token is not a value
+     */
+    public void skipValue() throws JSONConverterException {
+        nextValue();
+    }
+
+    private void push(int s) {
+        if (depth == stack.length) {
+            int[] bigger = new int[depth * 2];
+            System.arraycopy(stack, 0, bigger, 0, depth);
+            stack = bigger;
+        }
+        stack[depth++] = s;
+    }
+
+    private void beforeValue() throws JSONConverterException {
+        int s = stack[depth - 1];
+        switch (s) {
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            case EMPTY_ARRAY:
+            case ARRAY_AFTER_COMMA:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                break;
+            case NONEMPTY_ARRAY:
+                expect(',');
+                break;
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default:
+                throw error("Unexpected value");
+        }
+    }
+
+    private boolean fill() throws JSONConverterException {
+        offset += limit;
+        pos = 0;
+        try {
+            limit = in.read(buf, 0, buf.length);
+        } catch (IOException ex) {
+            throw new JSONConverterException(ex);
+        }
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+    private int peek() throws JSONConverterException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos];
+    }
+
+    private int read() throws JSONConverterException {
+        int c = peek();
+        if (c == -1) {
+            throw error("Unexpected end of stream");
+        }
+        pos++;
+        return c;
+    }
+
+    private int peekNonWhitespace() throws JSONConverterException {
+        while (true) {
+            int c = peek();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            pos++;
+        }
+    }
+
+    private void expect(char x) throws JSONConverterException {
+        int c = peekNonWhitespace();
+        if (c != x) {
+            throw error("'" + x + "' expected but got " + (c == -1 ? "the end of the stream" : "'" + (char) c + "'"));
+        }
+        pos++;
+    }
+
+    private void readLiteral(String lit) throws JSONConverterException {
+        for (int i = 0; i < lit.length(); i++) {
+            if (read() != lit.charAt(i)) {
+                throw error("'" + lit + "' expected");
+            }
+        }
+    }
+
+    /**
+     * Read a string. The opening quote is already consumed.
+     */
+    private String readString() throws JSONConverterException {
+        sb.setLength(0);
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buf[pos];
+                if (c == '"') {
+                    sb.append(buf, start, pos - start);
+                    pos++;
+                    return sb.toString();
+                } else if (c == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            sb.append(buf, start, pos - start);
+            if (pos < limit) {
+                pos++;
+                readEscape();
+            } else if (!fill()) {
+                throw error("Unterminated string");
+            }
+        }
+    }
+
+    private void readEscape() throws JSONConverterException {
+        int c = read();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                sb.append((char) c);
+                break;
+            case 'b':
+                sb.append('\b');
+                break;
+            case 'f':
+                sb.append('\f');
+                break;
+            case 'n':
+                sb.append('\n');
+                break;
+            case 'r':
+                sb.append('\r');
+                break;
+            case 't':
+                sb.append('\t');
+                break;
+            case 'u':
+                int v = 0;
+                for (int i = 0; i < 4; i++) {
+                    int d = Character.digit(read(), 16);
+                    if (d < 0) {
+                        throw error("Invalid unicode escape sequence");
+                    }
+                    v = (v << 4) + d;
+                }
+                sb.append((char) v);
+                break;
+            default:
+                throw error("Invalid escape sequence '\\" + (char) c + "'");
+        }
+    }
+
+    /**
+     * Read a number.
+     * Integers are stored in the smallest type among {@code Integer}, {@code Long}, and {@code BigInteger}.
+     * Reals are stored in a {@code Double} unless they are too long to be accurate.
+     */
+    private Object readNumber() throws JSONConverterException {
+        sb.setLength(0);
+        boolean real = false;
+        int c = peekNonWhitespace();
+        while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+            if (c == '.' || c == 'e' || c == 'E') {
+                real = true;
+            }
+            sb.append((char) c);
+            pos++;
+            c = peek();
+        }
+        String s = sb.toString();
+        if (s.isEmpty()) {
+            throw error("Unexpected character " + (c == -1 ? "(end of stream)" : "'" + (char) c + "'"));
+        }
+        try {
+            if (real) {
+                return s.length() > 18 ? new BigDecimal(s) : (Object) Double.parseDouble(s);
+            }
+            if (s.length() <= 18) {
+                long l = Long.parseLong(s);
+                if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) {
+                    return (int) l;
+                }
+                return l;
+            }
+            BigInteger b = new BigInteger(s);
+            return b.bitLength() < 64 ? (Object) b.longValue() : b;
+        } catch (NumberFormatException ex) {
+            throw error("Invalid number '" + s + "'");
+        }
+    }
+
+    private JSONConverterException error(String msg) {
+        return new JSONConverterException(msg + " at position " + (offset + pos));
+    }
+}
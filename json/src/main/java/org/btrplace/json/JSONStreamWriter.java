@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json;
+
+import net.minidev.json.JSONStyle;
+import net.minidev.json.JSONValue;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A token-based JSON writer.
+ * Contrary to a {@link net.minidev.json.JSONObject}, there is no need to build a tree before writing a document.
+ * The output is the one of json-smart for the same tree using the default {@link JSONValue#COMPRESSION} style,
+ * providing the members of each object are written in the iteration order of the
+ * {@link net.minidev.json.JSONObject} that would be used. See {@link #order(Iterable)}.
+ *
+ * @author Fabien Hermenier
+ */
+public class JSONStreamWriter {
+
+    private final Appendable out;
+
+    private final JSONStyle style;
+
+    /**
+     * For each level, {@code true} if it is an array.
+     */
+    private final BitSet arrays = new BitSet();
+
+    /**
+     * For each level, {@code true} if it has no members yet.
+     */
+    private final BitSet empty = new BitSet();
+
+    private int depth = 0;
+
+    /**
+     * Make a new writer.
+     *
+     * @param out the stream to write on
+     */
+    public JSONStreamWriter(Appendable out) {
+        this.out = out;
+        this.style = JSONValue.COMPRESSION;
+    }
+
+    /**
+     * Get the order a {@link net.minidev.json.JSONObject} would use to write some keys.
+     *
+     * @param keys the keys, in their insertion order
+     * @return the keys, in their writing order
+     */
+    public static List<String> order(Iterable<String> keys) {
+        Map<String, Boolean> m = new HashMap<>();
+        for (String k : keys) {
+            m.put(k, Boolean.TRUE);
+        }
+        return new ArrayList<>(m.keySet());
+    }
+
+    /**
+     * Get the order a {@link net.minidev.json.JSONObject} would use to write some keys.
+     *
+     * @param keys the keys, in their insertion order
+     * @return the keys, in their writing order
+     */
+    public static List<String> order(String... keys) {
+        return order(Arrays.asList(keys));
+    }
+
+    /**
+     * Index some values by their key, in the order a {@link net.minidev.json.JSONObject} would write them.
+     *
+     * @param values the values to index, in their insertion order
+     * @param key    the function to compute the key of a value
+     * @param <T>    the value type
+     * @return a map to browse to write the values in order
+     */
+    public static <T> Map<String, T> order(Iterable<T> values, Function<T, String> key) {
+        Map<String, T> m = new HashMap<>();
+        for (T v : values) {
+            m.put(key.apply(v), v);
+        }
+        return m;
+    }
+
+    /**
+     * Start an object.
+     *
+     * @return {@code this}
+     * @throws JSONConverterException if an error occurred while writing
+     */
+    public JSONStreamWriter beginObject() throws JSONConverterException {
+        try {
+            beforeValue();
+            style.objectStart(out);
+            push(false);
+        } catch (IOException ex) {
+            throw new JSONConverterException(ex);
+        }
+        return this;
+    }
+
+    /**
+     * End the current object.
+     *
+     * @return {@code this}
+     * @throws JSONConverterException if an error occurred while writing
+     */
+    public JSONStreamWriter endObject() throws JSONConverterException {
+        try {
+            depth--;
+            style.objectStop(out);
+            afterValue();
+        } catch (IOException ex) {
+            throw new JSONConverterException(ex);
+        }
+        return this;
+    }
+
+    /**
+     * Start an array.
+     *
+     * @return {@code this}
+     * @throws JSONConverterException if an error occurred while writing
+     */
+    public JSONStreamWriter beginArray() throws JSONConverterException {
+        try {
+            beforeValue();
+            style.arrayStart(out);
+            push(true);
+        } catch (IOException ex) {
+            throw new JSONConverterException(ex);
+        }
+        return this;
+    }
+
+    /**
+     * End the current array.
+     *
+     * @return {@code this}
+     * @throws JSONConverterException if an error occurred while writing
+     */
+    public JSONStreamWriter endArray() throws JSONConverterException {
+        try {
+            depth--;
+            style.arrayStop(out);
+            afterValue();
+        } catch (IOException ex) {
+            throw new JSONConverterException(ex);
+        }
+        return this;
+    }
+
+    /**
+     * Write the name of the next member of the current object.
+     *
+     * @param k the name
+     * @return {@code this}
+     * @throws JSONConverterException if an error occurred while writing
+     */
+    public JSONStreamWriter name(String k) throws JSONConverterException {
+        try {
+            if (empty.get(depth - 1)) {
+                style.objectFirstStart(out);
+                empty.clear(depth - 1);
+            } else {
+                style.objectNext(out);
+            }
+            if (!style.mustProtectKey(k)) {
+                out.append(k);
+            } else {
+                out.append('"');
+                JSONValue.escape(k, out, style);
+                out.append('"');
+            }
+            style.objectEndOfKey(out);
+        } catch (IOException ex) {
+            throw new JSONConverterException(ex);
+        }
+        return this;
+    }
+
+    /**
+     * Write a value.
+     * The value is either a primitive, a {@link net.minidev.json.JSONObject} or a {@link net.minidev.json.JSONArray}.
+     *
+     * @param v the value to write
+     * @return {@code this}
+     * @throws JSONConverterException if an error occurred while writing
+     */
+    public JSONStreamWriter value(Object v) throws JSONConverterException {
+        try {
+            beforeValue();
+            if (v == null) {
+                out.append("null");
+            } else if (v instanceof String) {
+                style.writeString(out, (String) v);
+            } else {
+                JSONValue.writeJSONString(v, out, style);
+            }
+            afterValue();
+        } catch (IOException ex) {
+            throw new JSONConverterException(ex);
+        }
+        return this;
+    }
+
+    /**
+     * Write an integer.
+     *
+     * @param v the value to write
+     * @return {@code this}
+     * @throws JSONConverterException if an error occurred while writing
+     */
+    public JSONStreamWriter value(int v) throws JSONConverterException {
+        try {
+            beforeValue();
+            out.append(Integer.toString(v));
+            afterValue();
+        } catch (IOException ex) {
+            throw new JSONConverterException(ex);
+        }
+        return this;
+    }
+
+    private void push(boolean array) {
+        arrays.set(depth, array);
+        empty.set(depth);
+        depth++;
+    }
+
+    private void beforeValue() throws IOException {
+        if (depth > 0 && arrays.get(depth - 1)) {
+            if (empty.get(depth - 1)) {
+                style.arrayfirstObject(out);
+                empty.clear(depth - 1);
+            } else {
+                style.arrayNextElm(out);
+            }
+        }
+    }
+
+    private void afterValue() throws IOException {
+        if (depth > 0) {
+            if (arrays.get(depth - 1)) {
+                style.arrayObjectEnd(out);
+            } else {
+                style.objectElmStop(out);
+            }
+        }
+    }
+}
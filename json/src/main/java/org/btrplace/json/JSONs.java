@@ -35,37 +35,61 @@ import java.util.*;
 public class JSONs {
 
     /**
-     * The default cache for set of VMs and nodes.
+     * The default cache size for set of VMs and nodes.
      */
     private static final int DEFAULT_CACHE_SIZE = 1024;
 
-    private static Map<String, List<VM>> vmsCache = new LinkedHashMap<String, List<VM>>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<String, List<VM>> foo) {
-            return size() == DEFAULT_CACHE_SIZE;
-        }
-    };
+    private static volatile int cacheSize = DEFAULT_CACHE_SIZE;
 
-    private static Map<String, List<Node>> nodesCache = new LinkedHashMap<String, List<Node>>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<String, List<Node>> foo) {
-            return size() == DEFAULT_CACHE_SIZE;
-        }
-    };
+    /**
+     * The cache in use by the current thread.
+     */
+    private static final ThreadLocal<ElementCache> caches = new ThreadLocal<>();
 
+    /**
+     * Change the size of the caches that are created from now on.
+     * The cache of the current thread is released.
+     *
+     * @param size the maximum number of sets of VMs and of sets of nodes to keep
+     */
     public static void resetCaches(int size) {
-        nodesCache = new LinkedHashMap<String, List<Node>>() {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, List<Node>> foo) {
-                return size() == size;
-            }
-        };
-        vmsCache = new LinkedHashMap<String, List<VM>>() {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, List<VM>> foo) {
-                return size() == size;
-            }
-        };
+        cacheSize = size;
+        releaseCache();
+    }
+
+    /**
+     * Set the cache that the current thread uses to convert sets of VMs and nodes.
+     * It allows, for example, to share a concurrent cache among threads that read the same model.
+     * Without any explicit cache, a thread-confined cache is created for the model being read.
+     * A thread keeps its cache until it reads another model or until {@link #releaseCache()} is called.
+     * The cache does not retain the model it is bound to.
+     *
+     * @param c the cache to use
+     */
+    public static void useCache(ElementCache c) {
+        caches.set(c);
+    }
+
+    /**
+     * Release the cache used by the current thread, if any.
+     */
+    public static void releaseCache() {
+        caches.remove();
+    }
+
+    /**
+     * Get the cache to use for the current thread and a given model.
+     *
+     * @param mo the model
+     * @return a cache bound to the model
+     */
+    private static ElementCache cache(Model mo) {
+        ElementCache c = caches.get();
+        if (c == null || c.getModel() != mo) {
+            c = ElementCache.newCache(mo, cacheSize);
+            caches.set(c);
+        }
+        return c;
     }
 
     private JSONs() {
@@ -123,6 +147,31 @@ public class JSONs {
         }
     }
 
+    /**
+     * Check if an object only contains some keys.
+     *
+     * @param o    the object to parse
+     * @param keys the allowed keys
+     * @throws JSONConverterException when the object contains another key
+     */
+    public static void checkAllowedKeys(JSONObject o, Collection<String> keys) throws JSONConverterException {
+        for (String k : o.keySet()) {
+            if (!keys.contains(k)) {
+                throw unexpectedKey(k);
+            }
+        }
+    }
+
+    /**
+     * Make the error to report an unexpected key.
+     *
+     * @param k the key
+     * @return the exception to throw
+     */
+    public static JSONConverterException unexpectedKey(String k) {
+        return new JSONConverterException("Unexpected key '" + k + "'");
+    }
+
     /**
      * Read an expected string.
      *
@@ -173,44 +222,24 @@ public class JSONs {
 
     /**
      * Convert an array of VM identifiers to a set of VMs.
-     * This operation uses a cache of previously converted set of VMs.
+     * This operation uses a cache of previously converted set of VMs for the given model.
      * @param mo the associated model to browse
      * @param a the json array
      * @return the set of VMs
      */
     public static List<VM> vmsFromJSON(Model mo, JSONArray a) throws JSONConverterException {
-        String json = a.toJSONString();
-        List<VM> s = vmsCache.get(json);
-        if (s != null) {
-            return s;
-        }
-        s = new ArrayList<>(a.size());
-        for (Object o : a) {
-            s.add(getVM(mo, (int) o));
-        }
-        vmsCache.put(json, s);
-        return s;
+        return cache(mo).vms(a);
     }
 
     /**
-     * Convert an array of VM identifiers to a set of VMs.
-     * This operation uses a cache of previously converted set of nodes.
+     * Convert an array of node identifiers to a set of nodes.
+     * This operation uses a cache of previously converted set of nodes for the given model.
      * @param mo the associated model to browse
      * @param a the json array
      * @return the set of nodes
      */
     public static List<Node> nodesFromJSON(Model mo, JSONArray a) throws JSONConverterException {
-        String json = a.toJSONString();
-        List<Node> s = nodesCache.get(json);
-        if (s != null) {
-            return s;
-        }
-        s = new ArrayList<>(a.size());
-        for (Object o : a) {
-            s.add(getNode(mo, (int) o));
-        }
-        nodesCache.put(json, s);
-        return s;
+        return cache(mo).nodes(a);
     }
 
     /**
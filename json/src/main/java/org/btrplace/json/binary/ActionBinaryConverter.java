@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json.binary;
+
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.model.Model;
+import org.btrplace.plan.event.*;
+
+import java.io.IOException;
+
+import static org.btrplace.json.JSONs.getNode;
+import static org.btrplace.json.JSONs.getVM;
+
+/**
+ * Binary converter for {@link Action} and {@link Event}.
+ * <p>
+ * An action is a fixed-width record: a type tag, the start and the end moments, then {@link #NB_SLOTS} integers
+ * that store the element identifiers and the other integer parameters.
+ * The resource identifier of an allocation follows the record.
+ * The events are stored after the action the same way, without the moments.
+ *
+ * @author Fabien Hermenier
+ */
+class ActionBinaryConverter implements ActionVisitor {
+
+    private static final int BOOT_VM = 0;
+    private static final int SHUTDOWN_VM = 1;
+    private static final int SHUTDOWN_NODE = 2;
+    private static final int BOOT_NODE = 3;
+    private static final int FORGE_VM = 4;
+    private static final int KILL_VM = 5;
+    private static final int MIGRATE_VM = 6;
+    private static final int RESUME_VM = 7;
+    private static final int SUSPEND_VM = 8;
+    private static final int ALLOCATE = 9;
+    private static final int ALLOCATE_EVENT = 10;
+    private static final int SUBSTITUTED_VM_EVENT = 11;
+
+    /**
+     * The number of integers in a record, after the moments.
+     */
+    static final int NB_SLOTS = 4;
+
+    private final Model mo;
+
+    /**
+     * The slots of the record being written.
+     */
+    private final int[] slots = new int[NB_SLOTS];
+
+    /**
+     * The resource identifier of the record being written, if any.
+     */
+    private String rc;
+
+    /**
+     * Make a new converter.
+     *
+     * @param mo the model to rely on
+     */
+    ActionBinaryConverter(Model mo) {
+        this.mo = mo;
+    }
+
+    /**
+     * Serialise an action and its events.
+     *
+     * @param a   the action to serialise
+     * @param out the stream to write on
+     * @throws IOException if an I/O error occurred
+     */
+    void write(Action a, BinaryOutput out) throws IOException {
+        writeRecord(a, out, true);
+        int nb = 0;
+        for (Action.Hook k : Action.Hook.values()) {
+            nb += a.getEvents(k).size();
+        }
+        out.writeVarInt(nb);
+        for (Action.Hook k : Action.Hook.values()) {
+            for (Event e : a.getEvents(k)) {
+                out.writeByte(k.ordinal());
+                writeRecord(e, out, false);
+            }
+        }
+    }
+
+    private void writeRecord(Event e, BinaryOutput out, boolean action) throws IOException {
+        rc = null;
+        int tag = (Integer) e.visit(this);
+        out.writeByte(tag);
+        if (action) {
+            Action a = (Action) e;
+            out.writeFixedInt(a.getStart());
+            out.writeFixedInt(a.getEnd());
+        }
+        for (int s : slots) {
+            out.writeFixedInt(s);
+        }
+        if (rc != null) {
+            out.writeString(rc);
+        }
+    }
+
+    private Object record(int tag, int s0, int s1, int s2, int s3) {
+        slots[0] = s0;
+        slots[1] = s1;
+        slots[2] = s2;
+        slots[3] = s3;
+        return tag;
+    }
+
+    /**
+     * Read an action and its events.
+     *
+     * @param in the stream to read
+     * @return the resulting action
+     * @throws IOException            if an I/O error occurred or if the stream is malformed
+     * @throws JSONConverterException if an element is not declared in the model
+     */
+    Action read(BinaryInput in) throws IOException, JSONConverterException {
+        int tag = in.readByte();
+        int st = in.readFixedInt();
+        int ed = in.readFixedInt();
+        readSlots(in);
+        Action a;
+        switch (tag) {
+            case BOOT_VM:
+                a = new BootVM(getVM(mo, slots[0]), getNode(mo, slots[1]), st, ed);
+                break;
+            case SHUTDOWN_VM:
+                a = new ShutdownVM(getVM(mo, slots[0]), getNode(mo, slots[1]), st, ed);
+                break;
+            case SHUTDOWN_NODE:
+                a = new ShutdownNode(getNode(mo, slots[0]), st, ed);
+                break;
+            case BOOT_NODE:
+                a = new BootNode(getNode(mo, slots[0]), st, ed);
+                break;
+            case FORGE_VM:
+                a = new ForgeVM(getVM(mo, slots[0]), st, ed);
+                break;
+            case KILL_VM:
+                a = new KillVM(getVM(mo, slots[0]), getNode(mo, slots[1]), st, ed);
+                break;
+            case MIGRATE_VM:
+                a = new MigrateVM(getVM(mo, slots[0]), getNode(mo, slots[1]), getNode(mo, slots[2]), st, ed, slots[3]);
+                break;
+            case RESUME_VM:
+                a = new ResumeVM(getVM(mo, slots[0]), getNode(mo, slots[1]), getNode(mo, slots[2]), st, ed);
+                break;
+            case SUSPEND_VM:
+                a = new SuspendVM(getVM(mo, slots[0]), getNode(mo, slots[1]), getNode(mo, slots[2]), st, ed);
+                break;
+            case ALLOCATE:
+                a = new Allocate(getVM(mo, slots[0]), getNode(mo, slots[1]), in.readString(), slots[2], st, ed);
+                break;
+            default:
+                throw new IOException("Unsupported action tag " + tag);
+        }
+
+        int nb = in.readVarInt();
+        Action.Hook[] hooks = Action.Hook.values();
+        for (int i = 0; i < nb; i++) {
+            int h = in.readByte();
+            if (h >= hooks.length) {
+                throw new IOException("Unsupported hook " + h);
+            }
+            a.addEvent(hooks[h], readEvent(in));
+        }
+        return a;
+    }
+
+    private Event readEvent(BinaryInput in) throws IOException, JSONConverterException {
+        int tag = in.readByte();
+        readSlots(in);
+        switch (tag) {
+            case ALLOCATE_EVENT:
+                return new AllocateEvent(getVM(mo, slots[0]), in.readString(), slots[1]);
+            case SUBSTITUTED_VM_EVENT:
+                return new SubstitutedVMEvent(getVM(mo, slots[0]), getVM(mo, slots[1]));
+            default:
+                throw new IOException("Unsupported event tag " + tag);
+        }
+    }
+
+    private void readSlots(BinaryInput in) throws IOException {
+        for (int i = 0; i < NB_SLOTS; i++) {
+            slots[i] = in.readFixedInt();
+        }
+    }
+
+    @Override
+    public Object visit(Allocate a) {
+        rc = a.getResourceId();
+        return record(ALLOCATE, a.getVM().id(), a.getHost().id(), a.getAmount(), 0);
+    }
+
+    @Override
+    public Object visit(AllocateEvent a) {
+        rc = a.getResourceId();
+        return record(ALLOCATE_EVENT, a.getVM().id(), a.getAmount(), 0, 0);
+    }
+
+    @Override
+    public Object visit(SubstitutedVMEvent a) {
+        return record(SUBSTITUTED_VM_EVENT, a.getVM().id(), a.getNewVM().id(), 0, 0);
+    }
+
+    @Override
+    public Object visit(BootNode a) {
+        return record(BOOT_NODE, a.getNode().id(), 0, 0, 0);
+    }
+
+    @Override
+    public Object visit(BootVM a) {
+        return record(BOOT_VM, a.getVM().id(), a.getDestinationNode().id(), 0, 0);
+    }
+
+    @Override
+    public Object visit(ForgeVM a) {
+        return record(FORGE_VM, a.getVM().id(), 0, 0, 0);
+    }
+
+    @Override
+    public Object visit(KillVM a) {
+        return record(KILL_VM, a.getVM().id(), a.getNode().id(), 0, 0);
+    }
+
+    @Override
+    public Object visit(MigrateVM a) {
+        return record(MIGRATE_VM, a.getVM().id(), a.getSourceNode().id(), a.getDestinationNode().id(), a.getBandwidth());
+    }
+
+    @Override
+    public Object visit(ResumeVM a) {
+        return record(RESUME_VM, a.getVM().id(), a.getSourceNode().id(), a.getDestinationNode().id(), 0);
+    }
+
+    @Override
+    public Object visit(ShutdownNode a) {
+        return record(SHUTDOWN_NODE, a.getNode().id(), 0, 0, 0);
+    }
+
+    @Override
+    public Object visit(ShutdownVM a) {
+        return record(SHUTDOWN_VM, a.getVM().id(), a.getNode().id(), 0, 0);
+    }
+
+    @Override
+    public Object visit(SuspendVM a) {
+        return record(SUSPEND_VM, a.getVM().id(), a.getSourceNode().id(), a.getDestinationNode().id(), 0);
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json.binary;
+
+import net.minidev.json.JSONObject;
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.model.constraint.ConstraintsConverter;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Model;
+import org.btrplace.model.constraint.Constraint;
+import org.btrplace.model.constraint.OptConstraint;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.plan.DefaultReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Utility class to serialise and deserialise instances and plans using a compact binary format.
+ * <p>
+ * A document starts with a magic number, the format version, and the kind of the document.
+ * Element identifiers and resource values are stored as delta-encoded variable-length integers,
+ * constraints are stored as a type tag followed by their JSON members, and actions as fixed-width records.
+ * Strings are written once then referred by index.
+ * <p>
+ * The format is not meant to be edited. {@link org.btrplace.json.JSON} remains the exchange format;
+ * {@link BinaryConverter} converts JSON documents to this format.
+ *
+ * @author Fabien Hermenier
+ */
+public class Binary {
+
+    /**
+     * The extension of the binary files.
+     */
+    public static final String EXTENSION = ".bin";
+
+    /**
+     * The current version of the format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The first 4 bytes of a document: "BTRB".
+     */
+    private static final int MAGIC = 0x42545242;
+
+    private static final int INSTANCE = 1;
+
+    private static final int PLAN = 2;
+
+    private Binary() {
+    }
+
+    /**
+     * Read an instance from a file.
+     *
+     * @param f the file to read
+     * @return the resulting instance
+     * @throws IllegalArgumentException if an error occurred while reading the file
+     */
+    public static Instance readInstance(File f) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(f))) {
+            return readInstance(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Read an instance.
+     *
+     * @param is the stream to read
+     * @return the resulting instance
+     * @throws IllegalArgumentException if an error occurred while reading the stream
+     */
+    public static Instance readInstance(InputStream is) {
+        try {
+            BinaryInput in = new BinaryInput(is);
+            readHeader(in, INSTANCE);
+            Model mo = new ModelBinaryConverter().read(in);
+            ConstraintsConverter cc = ConstraintsConverter.newBundle();
+            int nb = in.readVarInt();
+            List<SatConstraint> cstrs = new ArrayList<>(nb);
+            for (int i = 0; i < nb; i++) {
+                Constraint c = readConstraint(mo, cc, in);
+                if (!(c instanceof SatConstraint)) {
+                    throw new JSONConverterException("Expected a satisfaction constraint but got " + c);
+                }
+                cstrs.add((SatConstraint) c);
+            }
+            Constraint obj = readConstraint(mo, cc, in);
+            if (!(obj instanceof OptConstraint)) {
+                throw new JSONConverterException("Expected an optimisation constraint but got " + obj);
+            }
+            return new Instance(mo, cstrs, (OptConstraint) obj);
+        } catch (IOException | JSONConverterException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Write an instance.
+     *
+     * @param instance the instance to write
+     * @param f        the output file
+     * @throws IllegalArgumentException if an error occurred while writing the file
+     */
+    public static void write(Instance instance, File f) {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(f))) {
+            write(instance, out);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Write an instance.
+     *
+     * @param instance the instance to write
+     * @param os       the stream to write on
+     * @throws IllegalArgumentException if an error occurred while writing the instance
+     */
+    public static void write(Instance instance, OutputStream os) {
+        try {
+            BinaryOutput out = new BinaryOutput(os);
+            writeHeader(out, INSTANCE);
+            new ModelBinaryConverter().write(instance.getModel(), out);
+            ConstraintsConverter cc = ConstraintsConverter.newBundle();
+            Collection<SatConstraint> cstrs = instance.getSatConstraints();
+            out.writeVarInt(cstrs.size());
+            for (SatConstraint c : cstrs) {
+                writeConstraint(cc, c, out);
+            }
+            writeConstraint(cc, instance.getOptConstraint(), out);
+            out.flush();
+        } catch (IOException | JSONConverterException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Read a reconfiguration plan from a file.
+     *
+     * @param f the file to read
+     * @return the resulting plan
+     * @throws IllegalArgumentException if an error occurred while reading the file
+     */
+    public static ReconfigurationPlan readReconfigurationPlan(File f) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(f))) {
+            return readReconfigurationPlan(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Read a reconfiguration plan.
+     *
+     * @param is the stream to read
+     * @return the resulting plan
+     * @throws IllegalArgumentException if an error occurred while reading the stream
+     */
+    public static ReconfigurationPlan readReconfigurationPlan(InputStream is) {
+        try {
+            BinaryInput in = new BinaryInput(is);
+            readHeader(in, PLAN);
+            Model mo = new ModelBinaryConverter().read(in);
+            ReconfigurationPlan plan = new DefaultReconfigurationPlan(mo);
+            ActionBinaryConverter ac = new ActionBinaryConverter(mo);
+            int nb = in.readVarInt();
+            for (int i = 0; i < nb; i++) {
+                plan.add(ac.read(in));
+            }
+            return plan;
+        } catch (IOException | JSONConverterException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Write a reconfiguration plan.
+     *
+     * @param plan the plan to write
+     * @param f    the output file
+     * @throws IllegalArgumentException if an error occurred while writing the file
+     */
+    public static void write(ReconfigurationPlan plan, File f) {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(f))) {
+            write(plan, out);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Write a reconfiguration plan.
+     *
+     * @param plan the plan to write
+     * @param os   the stream to write on
+     * @throws IllegalArgumentException if an error occurred while writing the plan
+     */
+    public static void write(ReconfigurationPlan plan, OutputStream os) {
+        try {
+            BinaryOutput out = new BinaryOutput(os);
+            writeHeader(out, PLAN);
+            new ModelBinaryConverter().write(plan.getOrigin(), out);
+            ActionBinaryConverter ac = new ActionBinaryConverter(plan.getOrigin());
+            out.writeVarInt(plan.getSize());
+            for (Action a : plan.getActions()) {
+                ac.write(a, out);
+            }
+            out.flush();
+        } catch (IOException | JSONConverterException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static void writeHeader(BinaryOutput out, int kind) throws IOException {
+        out.writeFixedInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(kind);
+    }
+
+    private static void readHeader(BinaryInput in, int kind) throws IOException {
+        if (in.readFixedInt() != MAGIC) {
+            throw new IOException("Not a binary btrplace document");
+        }
+        int v = in.readByte();
+        if (v != VERSION) {
+            throw new IOException("Unsupported format version " + v + ". Expected " + VERSION);
+        }
+        int k = in.readByte();
+        if (k != kind) {
+            throw new IOException("Expected a document of kind " + kind + " but got " + k);
+        }
+    }
+
+    /**
+     * Write a constraint: its JSON identifier as a type tag, then its other members.
+     */
+    private static void writeConstraint(ConstraintsConverter cc, Constraint c, BinaryOutput out) throws IOException, JSONConverterException {
+        JSONObject o = cc.toJSON(c);
+        Object id = o.remove("id");
+        if (!(id instanceof String)) {
+            throw new JSONConverterException("No identifier for constraint " + c);
+        }
+        out.writeString((String) id);
+        out.writeObject(o);
+    }
+
+    private static Constraint readConstraint(Model mo, ConstraintsConverter cc, BinaryInput in) throws IOException, JSONConverterException {
+        String id = in.readString();
+        JSONObject o = in.readObject();
+        o.put("id", id);
+        return cc.fromJSON(mo, o);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json.binary;
+
+import org.btrplace.json.JSON;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Convert JSON instances (possibly gzipped) to the binary format.
+ * Each converted file is stored next to the original one, with the extension {@link Binary#EXTENSION}.
+ * <p>
+ * Usage: {@code BinaryConverter file|directory ...}. Directories are browsed recursively.
+ *
+ * @author Fabien Hermenier
+ */
+public class BinaryConverter {
+
+    private BinaryConverter() {
+    }
+
+    /**
+     * Get the name of the binary file associated to a JSON file.
+     *
+     * @param f the JSON file
+     * @return the binary file
+     */
+    public static File binaryFile(File f) {
+        String name = f.getName();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        if (name.endsWith(".json")) {
+            name = name.substring(0, name.length() - 5);
+        }
+        return new File(f.getParentFile(), name + Binary.EXTENSION);
+    }
+
+    /**
+     * Convert an instance.
+     *
+     * @param f the JSON file to convert
+     * @return the resulting binary file
+     * @throws IllegalArgumentException if an error occurred while converting the instance
+     */
+    public static File convert(File f) {
+        File out = binaryFile(f);
+        Binary.write(JSON.readInstance(f), out);
+        return out;
+    }
+
+    /**
+     * Launcher.
+     *
+     * @param args the files or the directories to convert
+     * @throws IOException if a directory cannot be browsed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: BinaryConverter file|directory ...");
+            System.exit(1);
+        }
+        for (String arg : args) {
+            List<Path> files;
+            try (Stream<Path> s = Files.walk(Paths.get(arg))) {
+                files = s.filter(Files::isRegularFile)
+                        .filter(p -> !p.toString().endsWith(Binary.EXTENSION))
+                        .collect(Collectors.toList());
+            }
+            for (Path p : files) {
+                File out = convert(p.toFile());
+                System.out.println(p + " -> " + out + " (" + Files.size(p) + " -> " + out.length() + " bytes)");
+            }
+        }
+    }
+}
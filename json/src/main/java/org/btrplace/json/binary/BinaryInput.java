@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json.binary;
+
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.btrplace.json.binary.BinaryOutput.*;
+
+/**
+ * Low-level reader for the binary format.
+ *
+ * @author Fabien Hermenier
+ * @see BinaryOutput
+ */
+class BinaryInput {
+
+    private final DataInputStream in;
+
+    private final List<String> strings;
+
+    /**
+     * Make a new reader.
+     *
+     * @param in the stream to read
+     */
+    BinaryInput(InputStream in) {
+        this.in = new DataInputStream(in);
+        strings = new ArrayList<>();
+    }
+
+    int readByte() throws IOException {
+        return in.readUnsignedByte();
+    }
+
+    int readFixedInt() throws IOException {
+        return in.readInt();
+    }
+
+    int readVarInt() throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    int readSignedVarInt() throws IOException {
+        int v = readVarInt();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    long readSignedVarLong() throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("Malformed variable-length long");
+    }
+
+    String readString() throws IOException {
+        int ref = readVarInt();
+        if (ref > 0) {
+            if (ref > strings.size()) {
+                throw new IOException("Unknown string reference " + ref);
+            }
+            return strings.get(ref - 1);
+        }
+        byte[] b = new byte[readVarInt()];
+        in.readFully(b);
+        String s = new String(b, UTF_8);
+        strings.add(s);
+        return s;
+    }
+
+    /**
+     * Read integers written with {@link BinaryOutput#writeDeltas(int[], int)}.
+     */
+    int[] readDeltas() throws IOException {
+        int[] values = new int[readVarInt()];
+        int prev = 0;
+        for (int i = 0; i < values.length; i++) {
+            prev += readSignedVarInt();
+            values[i] = prev;
+        }
+        return values;
+    }
+
+    Object readValue() throws IOException {
+        int t = readByte();
+        switch (t) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INT:
+                return readSignedVarInt();
+            case LONG:
+                return readSignedVarLong();
+            case DOUBLE:
+                return in.readDouble();
+            case BIG_NUMBER:
+                String n = readString();
+                return n.contains(".") || n.contains("e") || n.contains("E") ? new BigDecimal(n) : new BigInteger(n);
+            case STRING:
+                return readString();
+            case INT_ARRAY:
+                JSONArray ints = new JSONArray();
+                for (int v : readDeltas()) {
+                    ints.add(v);
+                }
+                return ints;
+            case ARRAY:
+                int nb = readVarInt();
+                JSONArray a = new JSONArray();
+                for (int i = 0; i < nb; i++) {
+                    a.add(readValue());
+                }
+                return a;
+            case OBJECT:
+                return readObject();
+            default:
+                throw new IOException("Unsupported value type " + t);
+        }
+    }
+
+    JSONObject readObject() throws IOException {
+        int nb = readVarInt();
+        JSONObject o = new JSONObject();
+        for (int i = 0; i < nb; i++) {
+            String k = readString();
+            o.put(k, readValue());
+        }
+        return o;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json.binary;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Low-level writer for the binary format.
+ * Integers are written as variable-length quantities, strings are stored once in a table then referred by index.
+ *
+ * @author Fabien Hermenier
+ */
+class BinaryOutput {
+
+    static final int NULL = 0;
+    static final int TRUE = 1;
+    static final int FALSE = 2;
+    static final int INT = 3;
+    static final int LONG = 4;
+    static final int DOUBLE = 5;
+    static final int STRING = 6;
+    static final int ARRAY = 7;
+    static final int INT_ARRAY = 8;
+    static final int OBJECT = 9;
+    static final int BIG_NUMBER = 10;
+
+    private final DataOutputStream out;
+
+    private final TObjectIntHashMap<String> strings;
+
+    /**
+     * Make a new writer.
+     *
+     * @param out the stream to write on
+     */
+    BinaryOutput(OutputStream out) {
+        this.out = new DataOutputStream(out);
+        strings = new TObjectIntHashMap<>(16, 0.5f, -1);
+    }
+
+    void writeByte(int b) throws IOException {
+        out.writeByte(b);
+    }
+
+    /**
+     * Write a 32-bits integer using 4 bytes.
+     */
+    void writeFixedInt(int v) throws IOException {
+        out.writeInt(v);
+    }
+
+    /**
+     * Write a positive integer as a variable-length quantity.
+     */
+    void writeVarInt(int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    /**
+     * Write an integer as a zigzag-encoded variable-length quantity.
+     */
+    void writeSignedVarInt(int v) throws IOException {
+        writeVarInt((v << 1) ^ (v >> 31));
+    }
+
+    void writeSignedVarLong(long v) throws IOException {
+        long x = (v << 1) ^ (v >> 63);
+        while ((x & ~0x7FL) != 0) {
+            out.writeByte((int) ((x & 0x7F) | 0x80));
+            x >>>= 7;
+        }
+        out.writeByte((int) x);
+    }
+
+    /**
+     * Write a string.
+     * The first occurrence of a string is written in full, the next ones refer to it.
+     */
+    void writeString(String s) throws IOException {
+        int idx = strings.get(s);
+        if (idx >= 0) {
+            writeVarInt(idx + 1);
+            return;
+        }
+        strings.put(s, strings.size());
+        byte[] b = s.getBytes(UTF_8);
+        writeVarInt(0);
+        writeVarInt(b.length);
+        out.write(b);
+    }
+
+    /**
+     * Write integers as deltas between consecutive values.
+     *
+     * @param values the values to write
+     * @param nb     the number of values to consider
+     */
+    void writeDeltas(int[] values, int nb) throws IOException {
+        writeVarInt(nb);
+        int prev = 0;
+        for (int i = 0; i < nb; i++) {
+            writeSignedVarInt(values[i] - prev);
+            prev = values[i];
+        }
+    }
+
+    /**
+     * Write integers whose order does not matter.
+     * They are sorted to get small deltas.
+     *
+     * @param values the values to write. The array is sorted
+     */
+    void writeIdSet(int[] values) throws IOException {
+        Arrays.sort(values);
+        writeDeltas(values, values.length);
+    }
+
+    /**
+     * Write any JSON value.
+     */
+    @SuppressWarnings("unchecked")
+    void writeValue(Object o) throws IOException {
+        if (o == null) {
+            writeByte(NULL);
+        } else if (o instanceof Boolean) {
+            writeByte((Boolean) o ? TRUE : FALSE);
+        } else if (o instanceof Integer) {
+            writeByte(INT);
+            writeSignedVarInt((Integer) o);
+        } else if (o instanceof Long) {
+            writeByte(LONG);
+            writeSignedVarLong((Long) o);
+        } else if (o instanceof Double) {
+            writeByte(DOUBLE);
+            out.writeDouble((Double) o);
+        } else if (o instanceof BigInteger || o instanceof BigDecimal) {
+            writeByte(BIG_NUMBER);
+            writeString(o.toString());
+        } else if (o instanceof String) {
+            writeByte(STRING);
+            writeString((String) o);
+        } else if (o instanceof Collection) {
+            writeArray((Collection<?>) o);
+        } else if (o instanceof Map) {
+            writeByte(OBJECT);
+            writeObject((Map<String, Object>) o);
+        } else {
+            throw new IOException("Unsupported value '" + o + "' (" + o.getClass() + ")");
+        }
+    }
+
+    private void writeArray(Collection<?> a) throws IOException {
+        int[] ints = new int[a.size()];
+        int nb = 0;
+        for (Object x : a) {
+            if (!(x instanceof Integer)) {
+                break;
+            }
+            ints[nb++] = (Integer) x;
+        }
+        if (nb == a.size()) {
+            writeByte(INT_ARRAY);
+            writeDeltas(ints, nb);
+            return;
+        }
+        writeByte(ARRAY);
+        writeVarInt(a.size());
+        for (Object x : a) {
+            writeValue(x);
+        }
+    }
+
+    /**
+     * Write the members of an object.
+     */
+    void writeObject(Map<String, Object> o) throws IOException {
+        writeVarInt(o.size());
+        for (Map.Entry<String, Object> e : o.entrySet()) {
+            writeString(e.getKey());
+            writeValue(e.getValue());
+        }
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json.binary;
+
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.model.AttributesConverter;
+import org.btrplace.json.model.view.ModelViewsConverter;
+import org.btrplace.model.*;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Binary converter for {@link Model}.
+ * <p>
+ * The mapping and the shareable resources are stored as sorted, delta-encoded identifiers.
+ * The attributes and the other views are stored as their JSON tree.
+ *
+ * @author Fabien Hermenier
+ */
+class ModelBinaryConverter {
+
+    /**
+     * Tag for a {@link ShareableResource}.
+     */
+    private static final int SHAREABLE_RESOURCE = 0;
+
+    /**
+     * Tag for a view stored using its JSON converter.
+     */
+    private static final int JSON_VIEW = 1;
+
+    private final ModelViewsConverter viewsConverter;
+
+    /**
+     * Make a new converter.
+     */
+    ModelBinaryConverter() {
+        viewsConverter = ModelViewsConverter.newBundle();
+    }
+
+    /**
+     * Serialise a model.
+     *
+     * @param mo  the model to serialise
+     * @param out the stream to write on
+     * @throws IOException            if an I/O error occurred
+     * @throws JSONConverterException if a view or the attributes cannot be converted
+     */
+    void write(Model mo, BinaryOutput out) throws IOException, JSONConverterException {
+        Mapping map = mo.getMapping();
+        out.writeIdSet(ids(map.getOfflineNodes()));
+        out.writeIdSet(ids(map.getReadyVMs()));
+        int[] online = ids(map.getOnlineNodes());
+        out.writeIdSet(online);
+        for (int id : online) {
+            Node n = new Node(id);
+            out.writeIdSet(ids(map.getRunningVMs(n)));
+            out.writeIdSet(ids(map.getSleepingVMs(n)));
+        }
+
+        out.writeObject(AttributesConverter.toJSON(mo.getAttributes()));
+
+        Collection<ModelView> views = mo.getViews();
+        out.writeVarInt(views.size());
+        for (ModelView v : views) {
+            if (v.getClass() == ShareableResource.class) {
+                out.writeByte(SHAREABLE_RESOURCE);
+                write((ShareableResource) v, out);
+            } else {
+                out.writeByte(JSON_VIEW);
+                out.writeObject(viewsConverter.toJSON(v));
+            }
+        }
+    }
+
+    private static void write(ShareableResource rc, BinaryOutput out) throws IOException {
+        out.writeString(rc.getResourceIdentifier());
+        out.writeSignedVarInt(rc.getDefaultCapacity());
+        out.writeSignedVarInt(rc.getDefaultConsumption());
+
+        int[] nodes = ids(rc.getDefinedNodes());
+        out.writeIdSet(nodes);
+        int[] values = rc.getCapacities(nodes, new int[nodes.length]);
+        out.writeDeltas(values, values.length);
+
+        int[] vms = ids(rc.getDefinedVMs());
+        out.writeIdSet(vms);
+        values = rc.getConsumptions(vms, new int[vms.length]);
+        out.writeDeltas(values, values.length);
+    }
+
+    /**
+     * Read a model.
+     *
+     * @param in the stream to read
+     * @return the resulting model
+     * @throws IOException            if an I/O error occurred or if the stream is malformed
+     * @throws JSONConverterException if a view or the attributes cannot be converted
+     */
+    Model read(BinaryInput in) throws IOException, JSONConverterException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        for (int id : in.readDeltas()) {
+            map.addOfflineNode(newNode(mo, id));
+        }
+        for (int id : in.readDeltas()) {
+            map.addReadyVM(newVM(mo, id));
+        }
+        for (int id : in.readDeltas()) {
+            Node n = newNode(mo, id);
+            map.addOnlineNode(n);
+            for (int v : in.readDeltas()) {
+                map.addRunningVM(newVM(mo, v), n);
+            }
+            for (int v : in.readDeltas()) {
+                map.addSleepingVM(newVM(mo, v), n);
+            }
+        }
+
+        mo.setAttributes(AttributesConverter.fromJSON(mo, in.readObject()));
+
+        int nb = in.readVarInt();
+        for (int i = 0; i < nb; i++) {
+            int tag = in.readByte();
+            if (tag == SHAREABLE_RESOURCE) {
+                mo.attach(readShareableResource(in));
+            } else if (tag == JSON_VIEW) {
+                mo.attach(viewsConverter.fromJSON(mo, in.readObject()));
+            } else {
+                throw new IOException("Unsupported view tag " + tag);
+            }
+        }
+        return mo;
+    }
+
+    private static ShareableResource readShareableResource(BinaryInput in) throws IOException {
+        ShareableResource rc = new ShareableResource(in.readString(), in.readSignedVarInt(), in.readSignedVarInt());
+        int[] ids = in.readDeltas();
+        int[] values = in.readDeltas();
+        if (ids.length != values.length) {
+            throw new IOException("Expected " + ids.length + " capacities for resource '" + rc.getResourceIdentifier() + "'. Got " + values.length);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            rc.setCapacity(new Node(ids[i]), values[i]);
+        }
+        ids = in.readDeltas();
+        values = in.readDeltas();
+        if (ids.length != values.length) {
+            throw new IOException("Expected " + ids.length + " consumptions for resource '" + rc.getResourceIdentifier() + "'. Got " + values.length);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            rc.setConsumption(new VM(ids[i]), values[i]);
+        }
+        return rc;
+    }
+
+    private static int[] ids(Set<? extends Element> elements) {
+        int[] ids = new int[elements.size()];
+        int i = 0;
+        for (Element e : elements) {
+            ids[i++] = e.id();
+        }
+        return ids;
+    }
+
+    private static Node newNode(Model mo, int id) throws JSONConverterException {
+        Node n = mo.newNode(id);
+        if (n == null) {
+            throw new JSONConverterException("Node '" + id + "' already declared");
+        }
+        return n;
+    }
+
+    private static VM newVM(Model mo, int id) throws JSONConverterException {
+        VM vm = mo.newVM(id);
+        if (vm == null) {
+            throw new JSONConverterException("VM '" + id + "' already declared");
+        }
+        return vm;
+    }
+}
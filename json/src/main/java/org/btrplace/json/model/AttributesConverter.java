@@ -20,12 +20,18 @@ package org.btrplace.json.model;
 
 import net.minidev.json.JSONObject;
 import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.JSONStreamReader;
+import org.btrplace.json.JSONStreamWriter;
 import org.btrplace.model.*;
 
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
+import static org.btrplace.json.JSONs.checkAllowedKeys;
 import static org.btrplace.json.JSONs.getNode;
 import static org.btrplace.json.JSONs.getVM;
+import static org.btrplace.json.JSONs.unexpectedKey;
 
 
 /**
@@ -38,24 +44,37 @@ import static org.btrplace.json.JSONs.getVM;
  */
 public class AttributesConverter {
 
+    private static final String VMS_LABEL = "vms";
+
+    private static final String NODES_LABEL = "nodes";
+
+    /**
+     * The keys of the attributes, in their writing order.
+     */
+    private static final List<String> KEYS = JSONStreamWriter.order(VMS_LABEL, NODES_LABEL);
+
     private AttributesConverter() {
     }
 
     private static void putAttributes(Attributes attrs, Element e, JSONObject entries) {
         for (Map.Entry<String, Object> entry : entries.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-            if (value.getClass().equals(Boolean.class)) {
-                attrs.put(e, key, (Boolean) value);
-            } else if (value.getClass().equals(String.class)) {
-                attrs.put(e, key, (String) value);
-            } else if (value.getClass().equals(Double.class)) {
-                attrs.put(e, key, (Double) value);
-            } else if (value.getClass().equals(Integer.class)) {
-                attrs.put(e, key, (Integer) value);
-            } else {
-                throw new ClassCastException(value.toString() + " is not a primitive (" + value.getClass() + ")");
-            }
+            putAttribute(attrs, e, entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void putAttribute(Attributes attrs, Element e, String key, Object value) {
+        if (value == null) {
+            throw new ClassCastException("null is not a primitive");
+        } else if (value.getClass().equals(Boolean.class)) {
+            attrs.put(e, key, (Boolean) value);
+        } else if (value.getClass().equals(String.class)) {
+            attrs.put(e, key, (String) value);
+        } else if (value.getClass().equals(Double.class)) {
+            attrs.put(e, key, (Double) value);
+        } else if (value.getClass().equals(Integer.class)) {
+            attrs.put(e, key, (Integer) value);
+        } else {
+            throw new ClassCastException(value.toString() + " is not a primitive (" + value.getClass() + ")");
         }
     }
 
@@ -68,10 +87,11 @@ public class AttributesConverter {
      * @throws JSONConverterException if the conversion failed
      */
     public static Attributes fromJSON(Model mo, JSONObject o) throws JSONConverterException {
+        checkAllowedKeys(o, KEYS);
         Attributes attrs = new DefaultAttributes();
         try {
 
-            JSONObject vms = (JSONObject) o.get("vms");
+            JSONObject vms = (JSONObject) o.get(VMS_LABEL);
             if (vms != null) {
                 for (Map.Entry<String, Object> e : vms.entrySet()) {
                     String el = e.getKey();
@@ -81,7 +101,7 @@ public class AttributesConverter {
                 }
             }
 
-            JSONObject nodes = (JSONObject) o.get("nodes");
+            JSONObject nodes = (JSONObject) o.get(NODES_LABEL);
             if (nodes != null) {
                 for (Map.Entry<String, Object> e : nodes.entrySet()) {
                     String el = e.getKey();
@@ -116,8 +136,73 @@ public class AttributesConverter {
                 nodes.put(Integer.toString(e.id()), el);
             }
         }
-        res.put("vms", vms);
-        res.put("nodes", nodes);
+        res.put(VMS_LABEL, vms);
+        res.put(NODES_LABEL, nodes);
         return res;
     }
+
+    /**
+     * Decode attributes from a stream.
+     *
+     * @param mo the model to rely on
+     * @param in the stream to read
+     * @return the resulting attributes
+     * @throws JSONConverterException if the conversion failed
+     */
+    public static Attributes fromJSON(Model mo, JSONStreamReader in) throws JSONConverterException {
+        Attributes attrs = new DefaultAttributes();
+        try {
+            in.beginObject();
+            while (in.hasNext()) {
+                String k = in.nextName();
+                if (!VMS_LABEL.equals(k) && !NODES_LABEL.equals(k)) {
+                    throw unexpectedKey(k);
+                }
+                in.beginObject();
+                while (in.hasNext()) {
+                    int id = Integer.parseInt(in.nextName());
+                    Element e = VMS_LABEL.equals(k) ? getVM(mo, id) : getNode(mo, id);
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String key = in.nextName();
+                        putAttribute(attrs, e, key, in.nextValue());
+                    }
+                    in.endObject();
+                }
+                in.endObject();
+            }
+            in.endObject();
+        } catch (ClassCastException | NumberFormatException ex) {
+            throw new JSONConverterException(ex);
+        }
+        return attrs;
+    }
+
+    /**
+     * Serialise attributes on a stream.
+     *
+     * @param attributes the attributes
+     * @param out        the stream to write on
+     * @throws JSONConverterException if an error occurred while writing
+     */
+    public static void toJSON(Attributes attributes, JSONStreamWriter out) throws JSONConverterException {
+        out.beginObject();
+        for (String k : KEYS) {
+            out.name(k).beginObject();
+            boolean vms = VMS_LABEL.equals(k);
+            List<Element> elements = attributes.getDefined().stream()
+                    .filter(x -> (x instanceof VM) == vms)
+                    .collect(Collectors.toList());
+            for (Map.Entry<String, Element> e : JSONStreamWriter.order(elements, x -> Integer.toString(x.id())).entrySet()) {
+                Element el = e.getValue();
+                out.name(e.getKey()).beginObject();
+                for (String key : JSONStreamWriter.order(attributes.getKeys(el))) {
+                    out.name(key).value(attributes.get(el, key));
+                }
+                out.endObject();
+            }
+            out.endObject();
+        }
+        out.endObject();
+    }
 }
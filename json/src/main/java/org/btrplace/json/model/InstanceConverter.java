@@ -22,12 +22,19 @@ import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
 import org.btrplace.json.JSONConverterException;
 import org.btrplace.json.JSONObjectConverter;
+import org.btrplace.json.JSONStreamReader;
+import org.btrplace.json.JSONStreamWriter;
 import org.btrplace.json.model.constraint.ConstraintsConverter;
 import org.btrplace.model.Instance;
 import org.btrplace.model.Model;
 import org.btrplace.model.constraint.OptConstraint;
+import org.btrplace.model.constraint.SatConstraint;
 
+import java.util.List;
+
+import static org.btrplace.json.JSONs.checkAllowedKeys;
 import static org.btrplace.json.JSONs.checkKeys;
+import static org.btrplace.json.JSONs.unexpectedKey;
 
 /**
  * A JSON converter for {@link org.btrplace.model.Instance}.
@@ -51,9 +58,15 @@ public class InstanceConverter implements JSONObjectConverter<Instance> {
      */
     private static final String OBJ_LABEL = "objective";
 
+    /**
+     * The keys of an instance, in their writing order.
+     */
+    private static final List<String> KEYS = JSONStreamWriter.order(MODEL_LABEL, CONSTRAINTS_LABEL, OBJ_LABEL);
+
     @Override
     public Instance fromJSON(JSONObject in) throws JSONConverterException {
         checkKeys(in, MODEL_LABEL, CONSTRAINTS_LABEL, OBJ_LABEL);
+        checkAllowedKeys(in, KEYS);
         ModelConverter moc = new ModelConverter();
         ConstraintsConverter cConverter = ConstraintsConverter.newBundle();
         Model mo = moc.fromJSON((JSONObject) in.get(MODEL_LABEL));
@@ -71,4 +84,82 @@ public class InstanceConverter implements JSONObjectConverter<Instance> {
         ob.put(OBJ_LABEL, cstrc.toJSON(instance.getOptConstraint()));
         return ob;
     }
+
+    /**
+     * Read an instance from a stream.
+     * The model is built while reading, then the constraints are converted one by one.
+     * If the constraints precede the model, they are buffered until the model is read.
+     *
+     * @param in the stream to read
+     * @return the resulting instance
+     * @throws JSONConverterException if the conversion failed
+     */
+    public Instance fromJSON(JSONStreamReader in) throws JSONConverterException {
+        ModelConverter moc = new ModelConverter();
+        ConstraintsConverter cConverter = ConstraintsConverter.newBundle();
+        Model mo = null;
+        List<SatConstraint> cstrs = null;
+        OptConstraint obj = null;
+        JSONArray pendingCstrs = null;
+        JSONObject pendingObj = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String k = in.nextName();
+            if (MODEL_LABEL.equals(k)) {
+                mo = moc.fromJSON(in);
+            } else if (CONSTRAINTS_LABEL.equals(k)) {
+                if (mo != null) {
+                    cstrs = cConverter.listFromJSON(mo, in);
+                } else {
+                    pendingCstrs = (JSONArray) in.nextValue();
+                }
+            } else if (OBJ_LABEL.equals(k)) {
+                if (mo != null) {
+                    obj = (OptConstraint) cConverter.fromJSON(mo, in.nextObject());
+                } else {
+                    pendingObj = in.nextObject();
+                }
+            } else {
+                throw unexpectedKey(k);
+            }
+        }
+        in.endObject();
+        if (mo == null) {
+            throw new JSONConverterException("Missing key '" + MODEL_LABEL + "'");
+        }
+        if (pendingCstrs != null) {
+            cstrs = cConverter.listFromJSON(mo, pendingCstrs);
+        }
+        if (pendingObj != null) {
+            obj = (OptConstraint) cConverter.fromJSON(mo, pendingObj);
+        }
+        if (cstrs == null || obj == null) {
+            throw new JSONConverterException("Missing key '" + (cstrs == null ? CONSTRAINTS_LABEL : OBJ_LABEL) + "'");
+        }
+        return new Instance(mo, cstrs, obj);
+    }
+
+    /**
+     * Serialise an instance on a stream.
+     *
+     * @param instance the instance to serialise
+     * @param out      the stream to write on
+     * @throws JSONConverterException if the conversion failed
+     */
+    public void toJSON(Instance instance, JSONStreamWriter out) throws JSONConverterException {
+        ModelConverter moc = new ModelConverter();
+        ConstraintsConverter cstrc = ConstraintsConverter.newBundle();
+        out.beginObject();
+        for (String k : KEYS) {
+            out.name(k);
+            if (MODEL_LABEL.equals(k)) {
+                moc.toJSON(instance.getModel(), out);
+            } else if (CONSTRAINTS_LABEL.equals(k)) {
+                cstrc.toJSON(instance.getSatConstraints(), out);
+            } else {
+                out.value(cstrc.toJSON(instance.getOptConstraint()));
+            }
+        }
+        out.endObject();
+    }
 }
@@ -22,11 +22,15 @@ import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
 import org.btrplace.json.JSONConverterException;
 import org.btrplace.json.JSONObjectConverter;
+import org.btrplace.json.JSONStreamReader;
+import org.btrplace.json.JSONStreamWriter;
 import org.btrplace.json.model.view.ModelViewsConverter;
 import org.btrplace.model.*;
 import org.btrplace.model.view.ModelView;
 
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -54,6 +58,31 @@ public class ModelConverter implements JSONObjectConverter<Model> {
      */
     public static final String ATTRS_LABEL = "attributes";
 
+    private static final String OFFLINE_NODES_LABEL = "offlineNodes";
+
+    private static final String READY_VMS_LABEL = "readyVMs";
+
+    private static final String ONLINE_NODES_LABEL = "onlineNodes";
+
+    private static final String RUNNING_VMS_LABEL = "runningVMs";
+
+    private static final String SLEEPING_VMS_LABEL = "sleepingVMs";
+
+    /**
+     * The keys of a model, in their writing order.
+     */
+    private static final List<String> KEYS = JSONStreamWriter.order(MAPPING_LABEL, ATTRS_LABEL, VIEWS_LABEL);
+
+    /**
+     * The keys of a mapping, in their writing order.
+     */
+    private static final List<String> MAPPING_KEYS = JSONStreamWriter.order(OFFLINE_NODES_LABEL, READY_VMS_LABEL, ONLINE_NODES_LABEL);
+
+    /**
+     * The keys of an online node, in their writing order.
+     */
+    private static final List<String> NODE_KEYS = JSONStreamWriter.order(RUNNING_VMS_LABEL, SLEEPING_VMS_LABEL);
+
     private ModelViewsConverter viewsConverter;
 
     /**
@@ -98,6 +127,7 @@ public class ModelConverter implements JSONObjectConverter<Model> {
     @Override
     public Model fromJSON(JSONObject o) throws JSONConverterException {
         checkKeys(o, MAPPING_LABEL, ATTRS_LABEL, VIEWS_LABEL);
+        checkAllowedKeys(o, KEYS);
 
         Model i = new DefaultModel();
         fillMapping(i, (JSONObject) o.get(MAPPING_LABEL));
@@ -111,6 +141,233 @@ public class ModelConverter implements JSONObjectConverter<Model> {
         return i;
     }
 
+    /**
+     * Serialise a model on a stream.
+     * The mapping, the attributes and the shareable resources are written without building an intermediate tree.
+     *
+     * @param mo  the model to serialise
+     * @param out the stream to write on
+     * @throws JSONConverterException if the conversion failed
+     */
+    public void toJSON(Model mo, JSONStreamWriter out) throws JSONConverterException {
+        out.beginObject();
+        for (String k : KEYS) {
+            out.name(k);
+            if (MAPPING_LABEL.equals(k)) {
+                toJSON(mo.getMapping(), out);
+            } else if (ATTRS_LABEL.equals(k)) {
+                AttributesConverter.toJSON(mo.getAttributes(), out);
+            } else {
+                out.beginArray();
+                for (ModelView v : mo.getViews()) {
+                    viewsConverter.toJSON(v, out);
+                }
+                out.endArray();
+            }
+        }
+        out.endObject();
+    }
+
+    /**
+     * Read a model from a stream.
+     * The elements are directly inserted into the mapping.
+     * If the attributes or the views precede the mapping, they are buffered until the mapping is read.
+     *
+     * @param in the stream to read
+     * @return the resulting model
+     * @throws JSONConverterException if the conversion failed
+     */
+    public Model fromJSON(JSONStreamReader in) throws JSONConverterException {
+        Model mo = new DefaultModel();
+        boolean mapping = false;
+        boolean attrs = false;
+        boolean views = false;
+        JSONObject pendingAttrs = null;
+        Object pendingViews = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String k = in.nextName();
+            if (MAPPING_LABEL.equals(k)) {
+                fillMapping(mo, in);
+                mapping = true;
+            } else if (ATTRS_LABEL.equals(k)) {
+                if (mapping) {
+                    mo.setAttributes(AttributesConverter.fromJSON(mo, in));
+                } else {
+                    pendingAttrs = in.nextObject();
+                }
+                attrs = true;
+            } else if (VIEWS_LABEL.equals(k)) {
+                if (mapping) {
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        mo.attach(viewsConverter.fromJSON(mo, in));
+                    }
+                    in.endArray();
+                } else {
+                    pendingViews = in.nextValue();
+                }
+                views = true;
+            } else {
+                throw unexpectedKey(k);
+            }
+        }
+        in.endObject();
+        if (!mapping || !attrs || !views) {
+            throw new JSONConverterException("Missing key '" + (!mapping ? MAPPING_LABEL : !attrs ? ATTRS_LABEL : VIEWS_LABEL) + "'");
+        }
+        if (pendingAttrs != null) {
+            mo.setAttributes(AttributesConverter.fromJSON(mo, pendingAttrs));
+        }
+        if (pendingViews != null) {
+            for (Object view : (JSONArray) pendingViews) {
+                mo.attach(viewsConverter.fromJSON(mo, (JSONObject) view));
+            }
+        }
+        return mo;
+    }
+
+    /**
+     * Serialise a mapping on a stream.
+     *
+     * @param c   the mapping
+     * @param out the stream to write on
+     * @throws JSONConverterException if the conversion failed
+     */
+    private static void toJSON(Mapping c, JSONStreamWriter out) throws JSONConverterException {
+        out.beginObject();
+        for (String k : MAPPING_KEYS) {
+            out.name(k);
+            if (OFFLINE_NODES_LABEL.equals(k)) {
+                writeIds(c.getOfflineNodes(), out);
+            } else if (READY_VMS_LABEL.equals(k)) {
+                writeIds(c.getReadyVMs(), out);
+            } else {
+                out.beginObject();
+                for (Map.Entry<String, Node> e : JSONStreamWriter.order(c.getOnlineNodes(), n -> Integer.toString(n.id())).entrySet()) {
+                    Node n = e.getValue();
+                    out.name(e.getKey()).beginObject();
+                    for (String x : NODE_KEYS) {
+                        out.name(x);
+                        writeIds(RUNNING_VMS_LABEL.equals(x) ? c.getRunningVMs(n) : c.getSleepingVMs(n), out);
+                    }
+                    out.endObject();
+                }
+                out.endObject();
+            }
+        }
+        out.endObject();
+    }
+
+    private static void writeIds(Collection<? extends Element> elements, JSONStreamWriter out) throws JSONConverterException {
+        out.beginArray();
+        for (Element e : elements) {
+            out.value(e.id());
+        }
+        out.endArray();
+    }
+
+    /**
+     * Create the elements inside the model and fill the mapping while reading a stream.
+     *
+     * @param mo the model where to attach the elements
+     * @param in the stream to read
+     * @throws JSONConverterException if the conversion failed
+     */
+    public void fillMapping(Model mo, JSONStreamReader in) throws JSONConverterException {
+        Mapping c = mo.getMapping();
+        boolean offline = false;
+        boolean ready = false;
+        boolean online = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            String k = in.nextName();
+            if (OFFLINE_NODES_LABEL.equals(k)) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    c.addOfflineNode(newNode(mo, in.nextInt()));
+                }
+                in.endArray();
+                offline = true;
+            } else if (READY_VMS_LABEL.equals(k)) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    c.addReadyVM(newVM(mo, in.nextInt()));
+                }
+                in.endArray();
+                ready = true;
+            } else if (ONLINE_NODES_LABEL.equals(k)) {
+                fillOnlineNodes(mo, in);
+                online = true;
+            } else {
+                throw unexpectedKey(k);
+            }
+        }
+        in.endObject();
+        if (!offline || !ready || !online) {
+            throw new JSONConverterException("Missing key '" + (!offline ? OFFLINE_NODES_LABEL : !ready ? READY_VMS_LABEL : ONLINE_NODES_LABEL) + "'");
+        }
+    }
+
+    private static void fillOnlineNodes(Model mo, JSONStreamReader in) throws JSONConverterException {
+        Mapping c = mo.getMapping();
+        in.beginObject();
+        while (in.hasNext()) {
+            int id;
+            try {
+                id = Integer.parseInt(in.nextName());
+            } catch (NumberFormatException ex) {
+                throw new JSONConverterException(ex);
+            }
+            Node n = newNode(mo, id);
+            c.addOnlineNode(n);
+            boolean running = false;
+            boolean sleeping = false;
+            in.beginObject();
+            while (in.hasNext()) {
+                String k = in.nextName();
+                if (RUNNING_VMS_LABEL.equals(k) || SLEEPING_VMS_LABEL.equals(k)) {
+                    boolean r = RUNNING_VMS_LABEL.equals(k);
+                    running |= r;
+                    sleeping |= !r;
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        VM v = newVM(mo, in.nextInt());
+                        if (r) {
+                            c.addRunningVM(v, n);
+                        } else {
+                            c.addSleepingVM(v, n);
+                        }
+                    }
+                    in.endArray();
+                } else {
+                    throw unexpectedKey(k);
+                }
+            }
+            in.endObject();
+            if (!running || !sleeping) {
+                throw new JSONConverterException("Missing key '" + (!running ? RUNNING_VMS_LABEL : SLEEPING_VMS_LABEL) + "'");
+            }
+        }
+        in.endObject();
+    }
+
+    private static Node newNode(Model mo, int id) throws JSONConverterException {
+        Node n = mo.newNode(id);
+        if (n == null) {
+            throw new JSONConverterException("Node '" + id + "' already declared");
+        }
+        return n;
+    }
+
+    private static VM newVM(Model mo, int id) throws JSONConverterException {
+        VM vm = mo.newVM(id);
+        if (vm == null) {
+            throw new JSONConverterException("VM '" + id + "' already declared");
+        }
+        return vm;
+    }
+
     /**
      * Serialise the mapping.
      *
@@ -119,17 +376,17 @@ public class ModelConverter implements JSONObjectConverter<Model> {
      */
     private static JSONObject toJSON(Mapping c) {
         JSONObject o = new JSONObject();
-        o.put("offlineNodes", nodesToJSON(c.getOfflineNodes()));
-        o.put("readyVMs", vmsToJSON(c.getReadyVMs()));
+        o.put(OFFLINE_NODES_LABEL, nodesToJSON(c.getOfflineNodes()));
+        o.put(READY_VMS_LABEL, vmsToJSON(c.getReadyVMs()));
 
         JSONObject ons = new JSONObject();
         for (Node n : c.getOnlineNodes()) {
             JSONObject w = new JSONObject();
-            w.put("runningVMs", vmsToJSON(c.getRunningVMs(n)));
-            w.put("sleepingVMs", vmsToJSON(c.getSleepingVMs(n)));
+            w.put(RUNNING_VMS_LABEL, vmsToJSON(c.getRunningVMs(n)));
+            w.put(SLEEPING_VMS_LABEL, vmsToJSON(c.getSleepingVMs(n)));
             ons.put(Integer.toString(n.id()), w);
         }
-        o.put("onlineNodes", ons);
+        o.put(ONLINE_NODES_LABEL, ons);
         return o;
     }
 
@@ -141,14 +398,16 @@ public class ModelConverter implements JSONObjectConverter<Model> {
      * @throws JSONConverterException
      */
     public void fillMapping(Model mo, JSONObject o) throws JSONConverterException {
+        checkKeys(o, ONLINE_NODES_LABEL);
+        checkAllowedKeys(o, MAPPING_KEYS);
         Mapping c = mo.getMapping();
-        for (Node u : newNodes(mo, o, "offlineNodes")) {
+        for (Node u : newNodes(mo, o, OFFLINE_NODES_LABEL)) {
             c.addOfflineNode(u);
         }
-        for (VM u : newVMs(mo, o, "readyVMs")) {
+        for (VM u : newVMs(mo, o, READY_VMS_LABEL)) {
             c.addReadyVM(u);
         }
-        JSONObject ons = (JSONObject) o.get("onlineNodes");
+        JSONObject ons = (JSONObject) o.get(ONLINE_NODES_LABEL);
         for (Map.Entry<String, Object> e : ons.entrySet()) {
             int id = Integer.parseInt(e.getKey());
             Node u = mo.newNode(id);
@@ -156,11 +415,12 @@ public class ModelConverter implements JSONObjectConverter<Model> {
                 throw new JSONConverterException("Node '" + id + "' already declared");
             }
             JSONObject on = (JSONObject) e.getValue();
+            checkAllowedKeys(on, NODE_KEYS);
             c.addOnlineNode(u);
-            for (VM vm : newVMs(mo, on, "runningVMs")) {
+            for (VM vm : newVMs(mo, on, RUNNING_VMS_LABEL)) {
                 c.addRunningVM(vm, u);
             }
-            for (VM vm : newVMs(mo, on, "sleepingVMs")) {
+            for (VM vm : newVMs(mo, on, SLEEPING_VMS_LABEL)) {
                 c.addSleepingVM(vm, u);
             }
         }
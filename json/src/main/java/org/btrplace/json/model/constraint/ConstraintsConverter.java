@@ -21,6 +21,8 @@ package org.btrplace.json.model.constraint;
 import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
 import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.JSONStreamReader;
+import org.btrplace.json.JSONStreamWriter;
 import org.btrplace.json.model.constraint.migration.MinMTTRMigConverter;
 import org.btrplace.model.Model;
 import org.btrplace.model.constraint.Constraint;
@@ -176,4 +178,41 @@ public class ConstraintsConverter {
         }
         return arr;
     }
+
+    /**
+     * Read a list of json-encoded sat-constraints from a stream.
+     * Only one constraint is materialised as a {@link JSONObject} at a time.
+     *
+     * @param mo the model to rely on
+     * @param in the stream to read
+     * @return the constraint list. Might be empty
+     * @throws JSONConverterException if the conversion failed
+     */
+    public List<SatConstraint> listFromJSON(Model mo, JSONStreamReader in) throws JSONConverterException {
+        List<SatConstraint> l = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (!in.peekObject()) {
+                throw new JSONConverterException("Expected an array of JSONObject but got an array of " + in.nextValue());
+            }
+            l.add((SatConstraint) fromJSON(mo, in.nextObject()));
+        }
+        in.endArray();
+        return l;
+    }
+
+    /**
+     * Serialise a list of sat-constraints on a stream.
+     *
+     * @param e   the list to serialise
+     * @param out the stream to write on
+     * @throws JSONConverterException if the conversion failed
+     */
+    public void toJSON(Collection<SatConstraint> e, JSONStreamWriter out) throws JSONConverterException {
+        out.beginArray();
+        for (SatConstraint cstr : e) {
+            out.value(toJSON(cstr));
+        }
+        out.endArray();
+    }
 }
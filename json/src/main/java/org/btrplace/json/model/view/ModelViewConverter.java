@@ -20,6 +20,7 @@ package org.btrplace.json.model.view;
 
 import net.minidev.json.JSONObject;
 import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.JSONStreamWriter;
 import org.btrplace.model.Model;
 import org.btrplace.model.view.ModelView;
 
@@ -61,4 +62,16 @@ public interface ModelViewConverter<E extends ModelView> {
      */
     JSONObject toJSON(E o) throws JSONConverterException;
 
+    /**
+     * Serialise a view on a stream.
+     * By default, the view is converted using {@link #toJSON(ModelView)} then written.
+     *
+     * @param o   the view
+     * @param out the stream to write on
+     * @throws JSONConverterException if the conversion failed
+     */
+    default void toJSON(E o, JSONStreamWriter out) throws JSONConverterException {
+        out.value(toJSON(o));
+    }
+
 }
@@ -18,8 +18,11 @@
 
 package org.btrplace.json.model.view;
 
+import gnu.trove.list.array.TIntArrayList;
 import net.minidev.json.JSONObject;
 import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.JSONStreamReader;
+import org.btrplace.json.JSONStreamWriter;
 import org.btrplace.json.model.view.network.NetworkConverter;
 import org.btrplace.model.Model;
 import org.btrplace.model.view.ModelView;
@@ -125,4 +128,115 @@ public class ModelViewsConverter {
         }
         return c.toJSON(o);
     }
+
+    /**
+     * Read a json-encoded view from a stream.
+     * Members that are maps of integers, such as the consumptions and the capacities of a
+     * {@link org.btrplace.model.view.ShareableResource}, are read in a compact form.
+     *
+     * @param mo the model to rely on
+     * @param in the stream to read
+     * @return the resulting view
+     * @throws JSONConverterException if the conversion failed
+     */
+    public ModelView fromJSON(Model mo, JSONStreamReader in) throws JSONConverterException {
+        JSONObject o = new JSONObject();
+        Map<String, TIntArrayList> ints = new HashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String k = in.nextName();
+            if (in.peekObject()) {
+                Object v = readIntMap(in);
+                if (v instanceof TIntArrayList) {
+                    ints.put(k, (TIntArrayList) v);
+                } else {
+                    o.put(k, v);
+                }
+            } else {
+                o.put(k, in.nextValue());
+            }
+        }
+        in.endObject();
+
+        checkKeys(o, "id");
+        Object id = o.get("id");
+        ModelViewConverter<? extends ModelView> c = json2java.get(id.toString());
+        if (c == null) {
+            throw new JSONConverterException("No converter available for a view having id '" + id + "'");
+        }
+        if (c.getClass() == ShareableResourceConverter.class) {
+            return ((ShareableResourceConverter) c).fromJSON(mo, o, ints);
+        }
+        for (Map.Entry<String, TIntArrayList> e : ints.entrySet()) {
+            JSONObject m = new JSONObject();
+            TIntArrayList l = e.getValue();
+            for (int i = 0; i < l.size(); i += 2) {
+                m.put(Integer.toString(l.getQuick(i)), l.getQuick(i + 1));
+            }
+            o.put(e.getKey(), m);
+        }
+        return c.fromJSON(mo, o);
+    }
+
+    /**
+     * Read an object that may be a map of integers.
+     *
+     * @param in the stream to read
+     * @return the keys and the values, interleaved, if the object is a map of integers. A {@link JSONObject} otherwise
+     * @throws JSONConverterException if the object cannot be read
+     */
+    private static Object readIntMap(JSONStreamReader in) throws JSONConverterException {
+        TIntArrayList l = new TIntArrayList();
+        JSONObject o = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String k = in.nextName();
+            Object v = in.nextValue();
+            if (o == null) {
+                Integer key = v instanceof Integer ? asInt(k) : null;
+                if (key != null) {
+                    l.add(key);
+                    l.add((Integer) v);
+                    continue;
+                }
+                o = new JSONObject();
+                for (int i = 0; i < l.size(); i += 2) {
+                    o.put(Integer.toString(l.getQuick(i)), l.getQuick(i + 1));
+                }
+            }
+            o.put(k, v);
+        }
+        in.endObject();
+        return o == null ? l : o;
+    }
+
+    /**
+     * Parse a key that is expected to be the canonical representation of an integer.
+     *
+     * @param k the key
+     * @return the integer. {@code null} if the key is not an integer or has not the canonical representation
+     */
+    private static Integer asInt(String k) {
+        try {
+            int i = Integer.parseInt(k);
+            return Integer.toString(i).equals(k) ? i : null;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Serialise a view on a stream.
+     *
+     * @param o   the view
+     * @param out the stream to write on
+     * @throws JSONConverterException if the conversion failed
+     */
+    public void toJSON(ModelView o, JSONStreamWriter out) throws JSONConverterException {
+        ModelViewConverter c = java2json.get(o.getClass());
+        if (c == null) {
+            throw new JSONConverterException("No converter available for a view with the '" + o.getClass() + "' className");
+        }
+        c.toJSON(o, out);
+    }
 }
@@ -18,13 +18,16 @@
 
 package org.btrplace.json.model.view;
 
+import gnu.trove.list.array.TIntArrayList;
 import net.minidev.json.JSONObject;
 import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.JSONStreamWriter;
 import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.VM;
 import org.btrplace.model.view.ShareableResource;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -52,6 +55,16 @@ public class ShareableResourceConverter implements ModelViewConverter<ShareableR
      */
     public static final String NODES_LABEL = "nodes";
 
+    /**
+     * The label describing VMs.
+     */
+    public static final String VMS_LABEL = "vms";
+
+    /**
+     * The keys of a resource, in their writing order.
+     */
+    private static final List<String> KEYS = JSONStreamWriter.order("id", DEFAULT_CONSUMPTION, DEFAULT_CAPACITY, "rcId", VMS_LABEL, NODES_LABEL);
+
     @Override
     public Class<ShareableResource> getSupportedView() {
         return ShareableResource.class;
@@ -75,7 +88,7 @@ public class ShareableResourceConverter implements ModelViewConverter<ShareableR
         for (VM u : vms) {
             values.put(Integer.toString(u.id()), rc.getConsumption(u));
         }
-        o.put("vms", values);
+        o.put(VMS_LABEL, values);
 
         Set<Node> nodes = rc.getDefinedNodes();
         values = new JSONObject();
@@ -89,7 +102,7 @@ public class ShareableResourceConverter implements ModelViewConverter<ShareableR
 
     @Override
     public ShareableResource fromJSON(Model mo, JSONObject o) throws JSONConverterException {
-        checkKeys(o, "vms", NODES_LABEL, DEFAULT_CAPACITY, DEFAULT_CONSUMPTION);
+        checkKeys(o, VMS_LABEL, NODES_LABEL, DEFAULT_CAPACITY, DEFAULT_CONSUMPTION);
 
         String id = requiredString(o, "id");
         if (!id.equals(getJSONId())) {
@@ -102,12 +115,93 @@ public class ShareableResourceConverter implements ModelViewConverter<ShareableR
 
         ShareableResource rc = new ShareableResource(rcId, defCapacity, defConsumption);
 
-        parseVMs(mo, rc, o.get("vms"));
+        parseVMs(mo, rc, o.get(VMS_LABEL));
         parseNodes(mo, rc, o.get(NODES_LABEL));
 
         return rc;
     }
 
+    @Override
+    public void toJSON(ShareableResource rc, JSONStreamWriter out) throws JSONConverterException {
+        out.beginObject();
+        for (String k : KEYS) {
+            out.name(k);
+            switch (k) {
+                case "id":
+                    out.value(getJSONId());
+                    break;
+                case DEFAULT_CONSUMPTION:
+                    out.value(rc.getDefaultConsumption());
+                    break;
+                case DEFAULT_CAPACITY:
+                    out.value(rc.getDefaultCapacity());
+                    break;
+                case "rcId":
+                    out.value(rc.getResourceIdentifier());
+                    break;
+                case VMS_LABEL:
+                    out.beginObject();
+                    for (Map.Entry<String, VM> e : JSONStreamWriter.order(rc.getDefinedVMs(), v -> Integer.toString(v.id())).entrySet()) {
+                        out.name(e.getKey()).value(rc.getConsumption(e.getValue()));
+                    }
+                    out.endObject();
+                    break;
+                default:
+                    out.beginObject();
+                    for (Map.Entry<String, Node> e : JSONStreamWriter.order(rc.getDefinedNodes(), n -> Integer.toString(n.id())).entrySet()) {
+                        out.name(e.getKey()).value(rc.getCapacity(e.getValue()));
+                    }
+                    out.endObject();
+            }
+        }
+        out.endObject();
+    }
+
+    /**
+     * Convert a json-encoded resource where the consumptions and the capacities may have been
+     * read apart in a compact form.
+     *
+     * @param mo     the model to rely on
+     * @param o      the resource to decode
+     * @param values the members that denote integer maps. For each, the element identifiers and their values, interleaved
+     * @return the resulting resource. {@code null} if the object does not denote a resource
+     * @throws JSONConverterException if the conversion failed
+     */
+    public ShareableResource fromJSON(Model mo, JSONObject o, Map<String, TIntArrayList> values) throws JSONConverterException {
+        for (String k : new String[]{VMS_LABEL, NODES_LABEL}) {
+            if (!values.containsKey(k)) {
+                checkKeys(o, k);
+            }
+        }
+        checkKeys(o, DEFAULT_CAPACITY, DEFAULT_CONSUMPTION);
+        String id = requiredString(o, "id");
+        if (!id.equals(getJSONId())) {
+            return null;
+        }
+
+        ShareableResource rc = new ShareableResource(requiredString(o, "rcId"),
+                requiredInt(o, DEFAULT_CAPACITY),
+                requiredInt(o, DEFAULT_CONSUMPTION));
+
+        TIntArrayList vms = values.get(VMS_LABEL);
+        if (vms == null) {
+            parseVMs(mo, rc, o.get(VMS_LABEL));
+        } else {
+            for (int i = 0; i < vms.size(); i += 2) {
+                rc.setConsumption(getVM(mo, vms.getQuick(i)), vms.getQuick(i + 1));
+            }
+        }
+        TIntArrayList nodes = values.get(NODES_LABEL);
+        if (nodes == null) {
+            parseNodes(mo, rc, o.get(NODES_LABEL));
+        } else {
+            for (int i = 0; i < nodes.size(); i += 2) {
+                rc.setCapacity(getNode(mo, nodes.getQuick(i)), nodes.getQuick(i + 1));
+            }
+        }
+        return rc;
+    }
+
     private static void parseVMs(Model mo, ShareableResource rc, Object o) throws JSONConverterException {
         if (o != null) {
             try {
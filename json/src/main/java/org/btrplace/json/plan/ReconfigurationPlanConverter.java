@@ -22,13 +22,19 @@ import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
 import org.btrplace.json.JSONConverterException;
 import org.btrplace.json.JSONObjectConverter;
+import org.btrplace.json.JSONStreamReader;
+import org.btrplace.json.JSONStreamWriter;
 import org.btrplace.json.model.ModelConverter;
 import org.btrplace.model.Model;
 import org.btrplace.plan.DefaultReconfigurationPlan;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.plan.event.Action;
 
+import java.util.List;
+
+import static org.btrplace.json.JSONs.checkAllowedKeys;
 import static org.btrplace.json.JSONs.checkKeys;
+import static org.btrplace.json.JSONs.unexpectedKey;
 
 /**
  * JSON converter for {@link ReconfigurationPlan}.
@@ -49,6 +55,11 @@ public class ReconfigurationPlanConverter implements JSONObjectConverter<Reconfi
      */
     public static final String ACTIONS_LABEL = "actions";
 
+    /**
+     * The keys of a plan, in their writing order.
+     */
+    private static final List<String> KEYS = JSONStreamWriter.order(ORIGIN_LABEL, ACTIONS_LABEL);
+
     /**
      * Make a new converter that relies on a given ModelConverter
      *
@@ -68,6 +79,7 @@ public class ReconfigurationPlanConverter implements JSONObjectConverter<Reconfi
     @Override
     public ReconfigurationPlan fromJSON(JSONObject ob) throws JSONConverterException {
         checkKeys(ob, ORIGIN_LABEL, ACTIONS_LABEL);
+        checkAllowedKeys(ob, KEYS);
         Model m = mc.fromJSON((JSONObject) ob.get(ORIGIN_LABEL));
         ActionConverter ac = new ActionConverter(m);
         ReconfigurationPlan plan = new DefaultReconfigurationPlan(m);
@@ -101,4 +113,79 @@ public class ReconfigurationPlanConverter implements JSONObjectConverter<Reconfi
         return ob;
     }
 
+    /**
+     * Read a plan from a stream.
+     * The origin model is built while reading, then the actions are converted one by one.
+     * If the actions precede the origin, they are buffered until the origin is read.
+     *
+     * @param in the stream to read
+     * @return the resulting plan
+     * @throws JSONConverterException if the conversion failed
+     */
+    public ReconfigurationPlan fromJSON(JSONStreamReader in) throws JSONConverterException {
+        ReconfigurationPlan plan = null;
+        JSONArray pending = null;
+        boolean actions = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            String k = in.nextName();
+            if (ORIGIN_LABEL.equals(k)) {
+                plan = new DefaultReconfigurationPlan(mc.fromJSON(in));
+            } else if (ACTIONS_LABEL.equals(k)) {
+                actions = true;
+                if (plan == null) {
+                    pending = (JSONArray) in.nextValue();
+                    continue;
+                }
+                ActionConverter ac = new ActionConverter(plan.getOrigin());
+                in.beginArray();
+                while (in.hasNext()) {
+                    if (!in.peekObject()) {
+                        throw new JSONConverterException("Expected an array of JSONObject but got an array of " + in.nextValue());
+                    }
+                    plan.add(ac.fromJSON(in.nextObject()));
+                }
+                in.endArray();
+            } else {
+                throw unexpectedKey(k);
+            }
+        }
+        in.endObject();
+        if (plan == null || !actions) {
+            throw new JSONConverterException("Missing key '" + (plan == null ? ORIGIN_LABEL : ACTIONS_LABEL) + "'");
+        }
+        if (pending != null) {
+            ActionConverter ac = new ActionConverter(plan.getOrigin());
+            for (Action a : ac.listFromJSON(pending)) {
+                plan.add(a);
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Serialise a plan on a stream.
+     *
+     * @param plan the plan to serialise
+     * @param out  the stream to write on
+     * @throws JSONConverterException if the conversion failed
+     */
+    public void toJSON(ReconfigurationPlan plan, JSONStreamWriter out) throws JSONConverterException {
+        Model src = plan.getOrigin();
+        ActionConverter ac = new ActionConverter(src);
+        out.beginObject();
+        for (String k : KEYS) {
+            out.name(k);
+            if (ORIGIN_LABEL.equals(k)) {
+                mc.toJSON(src, out);
+            } else {
+                out.beginArray();
+                for (Action a : plan.getActions()) {
+                    out.value(ac.toJSON(a));
+                }
+                out.endArray();
+            }
+        }
+        out.endObject();
+    }
 }
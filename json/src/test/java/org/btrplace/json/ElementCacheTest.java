@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json;
+
+import net.minidev.json.JSONArray;
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Unit tests for {@link ElementCache}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ElementCacheTest {
+
+    @DataProvider(name = "caches")
+    public Object[][] caches() {
+        BiFunction<Model, Integer, ElementCache> seq = ElementCache::newCache;
+        BiFunction<Model, Integer, ElementCache> conc = ElementCache::newConcurrentCache;
+        return new Object[][]{{seq}, {conc}};
+    }
+
+    @Test(dataProvider = "caches")
+    public void testConversion(BiFunction<Model, Integer, ElementCache> maker) throws JSONConverterException {
+        Model mo = new DefaultModel();
+        VM v1 = mo.newVM();
+        VM v2 = mo.newVM();
+        Node n1 = mo.newNode();
+        ElementCache c = maker.apply(mo, 2);
+        Assert.assertEquals(c.getModel(), mo);
+        Assert.assertEquals(c.size(), 0);
+
+        JSONArray a = JSONs.vmsToJSON(Arrays.asList(v2, v1));
+        List<VM> vms = c.vms(a);
+        Assert.assertEquals(vms, Arrays.asList(v2, v1));
+        Assert.assertSame(c.vms(a), vms);
+
+        List<Node> ns = c.nodes(JSONs.nodesToJSON(Arrays.asList(n1)));
+        Assert.assertEquals(ns, Arrays.asList(n1));
+        Assert.assertEquals(c.size(), 2);
+
+        //The size is bounded
+        c.vms(JSONs.vmsToJSON(Arrays.asList(v1)));
+        c.vms(JSONs.vmsToJSON(Arrays.asList(v2)));
+        c.vms(JSONs.vmsToJSON(Arrays.asList(v1, v2)));
+        Assert.assertTrue(c.size() <= 4);
+    }
+
+    @Test(dataProvider = "caches", expectedExceptions = {JSONConverterException.class})
+    public void testUnknownVM(BiFunction<Model, Integer, ElementCache> maker) throws JSONConverterException {
+        Model mo = new DefaultModel();
+        ElementCache c = maker.apply(mo, 2);
+        JSONArray a = new JSONArray();
+        a.add(3);
+        c.vms(a);
+    }
+
+    @Test(dataProvider = "caches", expectedExceptions = {JSONConverterException.class})
+    public void testUnknownNode(BiFunction<Model, Integer, ElementCache> maker) throws JSONConverterException {
+        Model mo = new DefaultModel();
+        ElementCache c = maker.apply(mo, 2);
+        JSONArray a = new JSONArray();
+        a.add(3);
+        c.nodes(a);
+    }
+
+    @Test(dataProvider = "caches")
+    public void testModelNotRetained(BiFunction<Model, Integer, ElementCache> maker) throws InterruptedException {
+        ElementCache c = maker.apply(new DefaultModel(), 2);
+        for (int i = 0; i < 100 && c.getModel() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(c.getModel());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json;
+
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+import net.minidev.json.parser.JSONParser;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Unit tests for {@link JSONStreamReader}.
+ *
+ * @author Fabien Hermenier
+ */
+public class JSONStreamReaderTest {
+
+    private static JSONStreamReader reader(String s) {
+        return new JSONStreamReader(new StringReader(s));
+    }
+
+    @Test
+    public void testTokens() throws JSONConverterException {
+        JSONStreamReader in = reader(" {\"a\" : [1, 2,3], \"b\": {}, \"c\":\"x\\\"y\\u0041\\n\", \"d\": [] }");
+        in.beginObject();
+        Assert.assertTrue(in.hasNext());
+        Assert.assertEquals(in.nextName(), "a");
+        in.beginArray();
+        int sum = 0;
+        while (in.hasNext()) {
+            sum += in.nextInt();
+        }
+        in.endArray();
+        Assert.assertEquals(sum, 6);
+        Assert.assertTrue(in.hasNext());
+        Assert.assertEquals(in.nextName(), "b");
+        Assert.assertTrue(in.peekObject());
+        in.beginObject();
+        Assert.assertFalse(in.hasNext());
+        in.endObject();
+        Assert.assertEquals(in.nextName(), "c");
+        Assert.assertEquals(in.nextString(), "x\"yA\n");
+        Assert.assertEquals(in.nextName(), "d");
+        in.skipValue();
+        Assert.assertFalse(in.hasNext());
+        in.endObject();
+        Assert.assertFalse(in.hasNext());
+    }
+
+    @Test
+    public void testValueTypes() throws JSONConverterException {
+        JSONArray a = (JSONArray) reader("[1, -5, 3000000000, 123456789012345678901234, 1.5, 2e3, true, false, null, \"\"]").nextValue();
+        Assert.assertEquals(a.get(0), 1);
+        Assert.assertEquals(a.get(1), -5);
+        Assert.assertEquals(a.get(2), 3000000000L);
+        Assert.assertEquals(a.get(3), new BigInteger("123456789012345678901234"));
+        Assert.assertEquals(a.get(4), 1.5d);
+        Assert.assertEquals(a.get(5), 2000d);
+        Assert.assertEquals(a.get(6), true);
+        Assert.assertEquals(a.get(7), false);
+        Assert.assertNull(a.get(8));
+        Assert.assertEquals(a.get(9), "");
+        Assert.assertTrue(reader("0.12345678901234567890").nextValue() instanceof BigDecimal);
+    }
+
+    /**
+     * A document read with the stream reader must be the same as with the json-smart parser.
+     */
+    @Test
+    public void testSameAsParser() throws Exception {
+        String doc = "{\"a\":[1,{\"b\":[true,null,-1.25]}],\"c\":{\"d\":\"\\u00e9\\t\"},\"e\":2147483648}";
+        Object expected = new JSONParser(JSONParser.MODE_RFC4627).parse(doc);
+        Object got = reader(doc).nextValue();
+        Assert.assertEquals(got, expected);
+        Assert.assertEquals(((JSONObject) got).toJSONString(), ((JSONObject) expected).toJSONString());
+    }
+
+    /**
+     * Large strings exceed the internal buffer.
+     */
+    @Test
+    public void testLongString() throws JSONConverterException {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            b.append((char) ('a' + i % 26));
+        }
+        JSONStreamReader in = reader("[\"" + b + "\", \"" + b + "\\\\\"]");
+        in.beginArray();
+        Assert.assertEquals(in.nextString(), b.toString());
+        Assert.assertEquals(in.nextString(), b + "\\");
+        in.endArray();
+    }
+
+    @DataProvider(name = "malformed")
+    public Object[][] malformed() {
+        return new Object[][]{
+                {"{\"a\":1"},
+                {"{\"a\" 1}"},
+                {"[1,,2]"},
+                {"[1 2]"},
+                {"{\"a\":tru}"},
+                {"\"abc"},
+                {"[\"\\x\"]"},
+                {"[-]"},
+                {"{1:2}"},
+                {"[1}"},
+        };
+    }
+
+    @Test(dataProvider = "malformed", expectedExceptions = {JSONConverterException.class})
+    public void testMalformed(String doc) throws JSONConverterException {
+        reader(doc).nextValue();
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testNotAnInt() throws JSONConverterException {
+        reader("1.5").nextInt();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json;
+
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link JSONStreamWriter}.
+ *
+ * @author Fabien Hermenier
+ */
+public class JSONStreamWriterTest {
+
+    @Test
+    public void testWriter() throws JSONConverterException {
+        JSONObject o = new JSONObject();
+        JSONArray a = new JSONArray();
+        a.add(1);
+        a.add("x\"");
+        a.add(new JSONObject());
+        o.put("k", a);
+        o.put("v", 1.5);
+        o.put("z", null);
+
+        StringBuilder b = new StringBuilder();
+        JSONStreamWriter out = new JSONStreamWriter(b);
+        out.beginObject();
+        for (String k : JSONStreamWriter.order("k", "v", "z")) {
+            out.name(k);
+            if (k.equals("k")) {
+                out.beginArray().value(1).value("x\"").beginObject().endObject().endArray();
+            } else {
+                out.value(o.get(k));
+            }
+        }
+        out.endObject();
+        Assert.assertEquals(b.toString(), o.toJSONString());
+    }
+
+    @Test
+    public void testOrder() {
+        JSONObject o = new JSONObject();
+        List<String> keys = Arrays.asList("id", "defConsumption", "defCapacity", "rcId", "vms", "nodes");
+        for (String k : keys) {
+            o.put(k, 1);
+        }
+        Assert.assertEquals(JSONStreamWriter.order(keys), Arrays.asList(o.keySet().toArray()));
+
+        Map<String, Integer> m = JSONStreamWriter.order(Arrays.asList(10, 3, 200), i -> Integer.toString(i));
+        o.clear();
+        o.put("10", 10);
+        o.put("3", 3);
+        o.put("200", 200);
+        Assert.assertEquals(Arrays.asList(m.keySet().toArray()), Arrays.asList(o.keySet().toArray()));
+    }
+}
@@ -18,11 +18,16 @@
 
 package org.btrplace.json;
 
+import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Model;
+import org.btrplace.model.VM;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.util.List;
 import java.util.Random;
 
 
@@ -96,4 +101,47 @@ public class JSONsTest {
         obj.put(storeKey, o);
         JSONs.requiredDouble(obj, readKey);
     }
+
+    /**
+     * The cached sets of VMs must be bound to their model.
+     */
+    @Test
+    public void testCachePerModel() throws JSONConverterException {
+        Model mo1 = new DefaultModel();
+        VM v = mo1.newVM();
+        Model mo2 = new DefaultModel();
+        mo2.newVM();
+        mo2.newVM();
+
+        JSONArray a = JSONs.vmsToJSON(mo1.getMapping().getAllVMs());
+        a.add(v.id());
+        List<VM> l1 = JSONs.vmsFromJSON(mo1, a);
+        Assert.assertSame(JSONs.vmsFromJSON(mo1, a), l1);
+
+        JSONs.vmsFromJSON(mo2, JSONs.vmsToJSON(mo2.getMapping().getAllVMs()));
+        //Previously cached for mo1 but unknown in mo2
+        JSONArray unknown = new JSONArray();
+        unknown.add(v.id() + 5);
+        try {
+            JSONs.vmsFromJSON(mo2, unknown);
+            Assert.fail();
+        } catch (JSONConverterException ex) {
+            //expected
+        }
+        Assert.assertNotSame(JSONs.vmsFromJSON(mo1, a), l1);
+        Assert.assertEquals(JSONs.vmsFromJSON(mo1, a), l1);
+        JSONs.releaseCache();
+    }
+
+    @Test
+    public void testUseCache() throws JSONConverterException {
+        Model mo = new DefaultModel();
+        mo.getMapping().addReadyVM(mo.newVM());
+        ElementCache c = ElementCache.newConcurrentCache(mo, 10);
+        JSONs.useCache(c);
+        List<VM> l = JSONs.vmsFromJSON(mo, JSONs.vmsToJSON(mo.getMapping().getAllVMs()));
+        Assert.assertEquals(c.size(), 1);
+        Assert.assertSame(c.vms(JSONs.vmsToJSON(mo.getMapping().getAllVMs())), l);
+        JSONs.releaseCache();
+    }
 }
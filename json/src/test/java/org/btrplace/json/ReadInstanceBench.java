@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json;
+
+import org.btrplace.model.*;
+import org.btrplace.model.constraint.*;
+import org.btrplace.model.view.ShareableResource;
+
+import java.io.StringReader;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measure the throughput of {@link JSON#readInstance(java.io.Reader)}
+ * when instances are read by several threads.
+ * <p>
+ * Usage: {@code ReadInstanceBench [nbNodes] [duration in seconds] [max nb. of threads]}
+ *
+ * @author Fabien Hermenier
+ */
+public class ReadInstanceBench {
+
+    private static String makeInstance(int nbNodes, Random rnd) {
+        Model mo = new DefaultModel();
+        ShareableResource cpu = new ShareableResource("cpu", 32, 1);
+        ShareableResource mem = new ShareableResource("mem", 64, 2);
+        mo.attach(cpu);
+        mo.attach(mem);
+        List<Node> nodes = new ArrayList<>();
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (int i = 0; i < nbNodes; i++) {
+            Node n = mo.newNode();
+            mo.getMapping().addOnlineNode(n);
+            nodes.add(n);
+        }
+        for (int i = 0; i < nbNodes; i++) {
+            List<VM> app = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                VM v = mo.newVM();
+                mo.getMapping().addRunningVM(v, nodes.get(rnd.nextInt(nbNodes)));
+                cpu.setConsumption(v, rnd.nextInt(4) + 1);
+                app.add(v);
+            }
+            cstrs.add(new Spread(new HashSet<>(app), false));
+            cstrs.add(new Fence(app.get(0), nodes.subList(0, nbNodes / 2)));
+        }
+        return JSON.toString(new Instance(mo, cstrs, new MinMTTR()));
+    }
+
+    private static double bench(List<String> jsons, int nbThreads, long duration) throws Exception {
+        ExecutorService exe = Executors.newFixedThreadPool(nbThreads);
+        AtomicInteger nb = new AtomicInteger();
+        long end = System.currentTimeMillis() + duration;
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < nbThreads; t++) {
+            final int offset = t;
+            tasks.add(exe.submit(() -> {
+                int i = offset;
+                while (System.currentTimeMillis() < end) {
+                    JSON.readInstance(new StringReader(jsons.get(i++ % jsons.size())));
+                    nb.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> f : tasks) {
+            f.get();
+        }
+        exe.shutdown();
+        return nb.get() * 1000d / duration;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int nbNodes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long duration = (args.length > 1 ? Integer.parseInt(args[1]) : 5) * 1000L;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Random rnd = new Random(0);
+        List<String> jsons = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            jsons.add(makeInstance(nbNodes, rnd));
+        }
+        //Warm-up
+        bench(jsons, 1, duration);
+        System.out.println("threads;instances/s");
+        for (int t = 1; t <= maxThreads; t *= 2) {
+            System.out.println(t + ";" + String.format(Locale.US, "%.1f", bench(jsons, t, duration)));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.json.binary;
+
+import org.btrplace.json.JSON;
+import org.btrplace.model.*;
+import org.btrplace.model.constraint.*;
+import org.btrplace.model.view.NamingService;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.DefaultReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.*;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for {@link Binary}.
+ *
+ * @author Fabien Hermenier
+ */
+public class BinaryTest {
+
+    private static Model makeModel() {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode(0);
+        Node n2 = mo.newNode(1);
+        Node n3 = mo.newNode(100);
+        VM vm1 = mo.newVM(0);
+        VM vm2 = mo.newVM(1);
+        VM vm3 = mo.newVM(2);
+        VM vm4 = mo.newVM(50);
+        mo.getMapping().on(n1, n2).off(n3).run(n1, vm1, vm2).sleep(n2, vm3).ready(vm4);
+
+        ShareableResource cpu = new ShareableResource("cpu", 8, 1);
+        cpu.setCapacity(n1, 32).setCapacity(n3, 4);
+        cpu.setConsumption(vm1, 4).setConsumption(vm4, 0);
+        mo.attach(cpu);
+        mo.attach(new ShareableResource("mem"));
+
+        NamingService<VM> ns = NamingService.newVMNS();
+        ns.register(vm1, "foo");
+        mo.attach(ns);
+
+        mo.getAttributes().put(n1, "boot", 7);
+        mo.getAttributes().put(vm2, "template", "small");
+        mo.getAttributes().put(vm3, "clone", true);
+        mo.getAttributes().put(vm4, "cost", 1.5);
+        return mo;
+    }
+
+    @Test
+    public void testInstance() {
+        Model mo = makeModel();
+        List<Node> ns = Arrays.asList(mo.getMapping().getAllNodes().toArray(new Node[0]));
+        List<VM> vms = Arrays.asList(mo.getMapping().getAllVMs().toArray(new VM[0]));
+        List<SatConstraint> cstrs = Arrays.asList(
+                new Spread(Collections.singleton(vms.get(0))),
+                new Fence(vms.get(1), ns),
+                new Among(vms, Collections.singleton(ns)),
+                new Offline(ns.get(2)),
+                new Seq(Arrays.asList(vms.get(2), vms.get(0), vms.get(1))));
+        Instance i = new Instance(mo, cstrs, new MinMTTR());
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Binary.write(i, bos);
+        Instance res = Binary.readInstance(new ByteArrayInputStream(bos.toByteArray()));
+        Assert.assertEquals(res, i);
+        Assert.assertEquals(JSON.toString(res), JSON.toString(i));
+        Assert.assertTrue(bos.size() < JSON.toString(i).length());
+    }
+
+    @Test
+    public void testPlan() {
+        Model mo = makeModel();
+        VM vm1 = new VM(0);
+        VM vm2 = new VM(1);
+        VM vm4 = new VM(50);
+        Node n1 = new Node(0);
+        Node n2 = new Node(1);
+        Node n3 = new Node(100);
+        ReconfigurationPlan plan = new DefaultReconfigurationPlan(mo);
+        plan.add(new BootNode(n3, 0, 5));
+        MigrateVM mig = new MigrateVM(vm2, n1, n2, 5, 7, 300);
+        mig.addEvent(Action.Hook.PRE, new AllocateEvent(vm2, "cpu", 3));
+        mig.addEvent(Action.Hook.POST, new SubstitutedVMEvent(vm2, vm1));
+        plan.add(mig);
+        plan.add(new BootVM(vm4, n3, 5, 6));
+        plan.add(new Allocate(vm1, n1, "cpu", 7, 6, 7));
+        plan.add(new ShutdownNode(n2, 7, 9));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Binary.write(plan, bos);
+        ReconfigurationPlan res = Binary.readReconfigurationPlan(new ByteArrayInputStream(bos.toByteArray()));
+        Assert.assertEquals(res, plan);
+        Assert.assertEquals(JSON.toString(res), JSON.toString(plan));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadKind() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Binary.write(new DefaultReconfigurationPlan(makeModel()), bos);
+        Binary.readInstance(new ByteArrayInputStream(bos.toByteArray()));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNotBinary() {
+        Binary.readInstance(new ByteArrayInputStream("{\"model\":{}}".getBytes()));
+    }
+
+    @Test
+    public void testConverter() throws IOException {
+        Model mo = makeModel();
+        Instance i = new Instance(mo, Collections.singletonList(new Running(new VM(0))), new MinMTTR());
+        File f = File.createTempFile("instance", ".json.gz");
+        f.deleteOnExit();
+        JSON.write(i, f);
+        File b = BinaryConverter.convert(f);
+        b.deleteOnExit();
+        Assert.assertEquals(b.getName(), f.getName().replace(".json.gz", Binary.EXTENSION));
+        Assert.assertEquals(Binary.readInstance(b), i);
+    }
+}
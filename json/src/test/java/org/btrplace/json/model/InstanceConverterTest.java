@@ -18,17 +18,21 @@
 
 package org.btrplace.json.model;
 
+import net.minidev.json.JSONObject;
+import org.btrplace.json.JSON;
 import org.btrplace.json.JSONConverterException;
 import org.btrplace.model.*;
-import org.btrplace.model.constraint.MinMTTR;
-import org.btrplace.model.constraint.Online;
-import org.btrplace.model.constraint.Running;
-import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.*;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Unit tests for {@link InstanceConverter}.
@@ -61,4 +65,59 @@ public class InstanceConverterTest {
         Assert.assertEquals(i, res);
     }
 
+    /**
+     * Read distinct instances sharing the same identifiers in parallel.
+     */
+    @Test
+    public void testConcurrentReads() {
+        List<Instance> instances = IntStream.range(0, 16).mapToObj(x -> {
+            Model mo = new DefaultModel();
+            Node n = mo.newNode();
+            mo.getMapping().addOnlineNode(n);
+            List<VM> vms = new ArrayList<>();
+            for (int i = 0; i <= x; i++) {
+                VM v = mo.newVM();
+                mo.getMapping().addRunningVM(v, n);
+                vms.add(v);
+            }
+            List<SatConstraint> cstrs = new ArrayList<>();
+            cstrs.add(new Spread(new HashSet<>(vms)));
+            cstrs.add(new Ban(vms.get(0), Arrays.asList(n)));
+            return new Instance(mo, cstrs, new MinMTTR());
+        }).collect(Collectors.toList());
+        List<String> jsons = instances.stream().map(JSON::toString).collect(Collectors.toList());
+        for (int r = 0; r < 10; r++) {
+            List<Instance> res = jsons.parallelStream()
+                    .map(j -> JSON.readInstance(new StringReader(j)))
+                    .collect(Collectors.toList());
+            Assert.assertEquals(res, instances);
+        }
+    }
+
+    @Test
+    public void testStreaming() throws JSONConverterException {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        mo.getMapping().on(n1, n2).run(n1, vm1).ready(vm2);
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Running(vm2));
+        cstrs.add(new Fence(vm1, Arrays.asList(n1, n2)));
+        cstrs.add(new Spread(new HashSet<>(Arrays.asList(vm1, vm2))));
+        Instance i = new Instance(mo, cstrs, new MinMTTR());
+
+        InstanceConverter conv = new InstanceConverter();
+        String o = conv.toJSONString(i);
+        Assert.assertEquals(JSON.toString(i), o);
+        Assert.assertEquals(JSON.readInstance(new StringReader(o)), i);
+
+        //Constraints and objective before the model
+        JSONObject ob = conv.toJSON(i);
+        String reversed = "{\"objective\":" + ob.get("objective")
+                + ",\"constraints\":" + ob.get("constraints")
+                + ",\"model\":" + ob.get("model") + "}";
+        Assert.assertEquals(JSON.readInstance(new StringReader(reversed)), i);
+    }
 }
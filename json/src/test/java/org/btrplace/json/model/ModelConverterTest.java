@@ -20,12 +20,18 @@ package org.btrplace.json.model;
 
 import net.minidev.json.JSONObject;
 import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.JSONStreamReader;
+import org.btrplace.json.JSONStreamWriter;
 import org.btrplace.json.model.view.ModelViewsConverter;
 import org.btrplace.model.*;
+import org.btrplace.model.view.NamingService;
 import org.btrplace.model.view.ShareableResource;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.StringReader;
+
 /**
  * Unit tests for {@link ModelConverterTest}.
  *
@@ -91,4 +97,97 @@ public class ModelConverterTest {
         System.out.println(o);
         Assert.assertEquals(conv.fromJSON(o), mo);
     }
+
+    private static Model makeModel() {
+        Model mo = new DefaultModel();
+        Mapping c = mo.getMapping();
+        for (int i = 0; i < 50; i++) {
+            Node n = mo.newNode();
+            if (i % 5 == 0) {
+                c.addOfflineNode(n);
+                continue;
+            }
+            c.addOnlineNode(n);
+            c.addRunningVM(mo.newVM(), n);
+            c.addSleepingVM(mo.newVM(), n);
+            mo.getAttributes().put(n, "name", "n\"" + i);
+        }
+        VM v = mo.newVM();
+        c.addReadyVM(v);
+        mo.getAttributes().put(v, "boot", 5);
+        mo.getAttributes().put(v, "load", 0.7);
+        mo.getAttributes().put(v, "template", true);
+        ShareableResource cpu = new ShareableResource("cpu", 8, 1);
+        for (VM x : c.getAllVMs()) {
+            cpu.setConsumption(x, x.id() % 4);
+        }
+        for (Node n : c.getOnlineNodes()) {
+            cpu.setCapacity(n, 16);
+        }
+        mo.attach(cpu);
+        mo.attach(new ShareableResource("mem"));
+        NamingService<VM> ns = NamingService.newVMNS();
+        ns.register(v, "foo");
+        mo.attach(ns);
+        return mo;
+    }
+
+    /**
+     * The streaming path must produce and accept the same documents than the tree-based one.
+     */
+    @Test
+    public void testStreaming() throws JSONConverterException {
+        Model mo = makeModel();
+        ModelConverter conv = new ModelConverter();
+        String tree = conv.toJSONString(mo);
+        StringBuilder b = new StringBuilder();
+        conv.toJSON(mo, new JSONStreamWriter(b));
+        Assert.assertEquals(b.toString(), tree);
+        Assert.assertEquals(conv.fromJSON(new JSONStreamReader(new StringReader(tree))), mo);
+    }
+
+    @Test
+    public void testStreamingWithUnorderedKeys() throws JSONConverterException {
+        Model mo = makeModel();
+        ModelConverter conv = new ModelConverter();
+        JSONObject o = conv.toJSON(mo);
+        //The views and the attributes are written before the mapping
+        String json = "{\"views\":" + ((java.util.List) o.get(ModelConverter.VIEWS_LABEL)).toString()
+                + ",\"attributes\":" + o.get(ModelConverter.ATTRS_LABEL)
+                + ",\"mapping\":" + o.get(ModelConverter.MAPPING_LABEL) + "}";
+        Assert.assertEquals(conv.fromJSON(new JSONStreamReader(new StringReader(json))), mo);
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testStreamingWithDuplicatedVM() throws JSONConverterException {
+        String json = "{\"mapping\":{\"readyVMs\":[1,1],\"offlineNodes\":[],\"onlineNodes\":{}},\"attributes\":{},\"views\":[]}";
+        new ModelConverter().fromJSON(new JSONStreamReader(new StringReader(json)));
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testStreamingWithMissingKey() throws JSONConverterException {
+        String json = "{\"mapping\":{\"readyVMs\":[],\"offlineNodes\":[],\"onlineNodes\":{}},\"views\":[]}";
+        new ModelConverter().fromJSON(new JSONStreamReader(new StringReader(json)));
+    }
+
+    @DataProvider(name = "badKeys")
+    public Object[][] getBadKeys() {
+        return new Object[][]{
+                {"{\"mapping\":{\"readyVMs\":[],\"offlineNodes\":[],\"onlineNodes\":{}},\"attributes\":{},\"views\":[],\"foo\":1}"},
+                {"{\"mapping\":{\"readyVMs\":[],\"offlineNodes\":[],\"onlineNodes\":{},\"foo\":[]},\"attributes\":{},\"views\":[]}"},
+                {"{\"mapping\":{\"readyVMs\":[],\"offlineNodes\":[],\"onlineNodes\":{\"0\":{\"runningVMs\":[],\"sleepingVMs\":[],\"foo\":[]}}},\"attributes\":{},\"views\":[]}"},
+                {"{\"mapping\":{\"readyVMs\":[],\"offlineNodes\":[],\"onlineNodes\":{\"0\":{\"runningVMs\":[]}}},\"attributes\":{},\"views\":[]}"},
+                {"{\"mapping\":{\"readyVMs\":[],\"offlineNodes\":[],\"onlineNodes\":{}},\"attributes\":{\"foo\":{}},\"views\":[]}"},
+        };
+    }
+
+    @Test(dataProvider = "badKeys", expectedExceptions = {JSONConverterException.class})
+    public void testTreeWithBadKeys(String json) throws JSONConverterException {
+        new ModelConverter().fromJSON(json);
+    }
+
+    @Test(dataProvider = "badKeys", expectedExceptions = {JSONConverterException.class})
+    public void testStreamingWithBadKeys(String json) throws JSONConverterException {
+        new ModelConverter().fromJSON(new JSONStreamReader(new StringReader(json)));
+    }
 }
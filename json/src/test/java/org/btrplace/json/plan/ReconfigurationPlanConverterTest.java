@@ -18,6 +18,8 @@
 
 package org.btrplace.json.plan;
 
+import net.minidev.json.JSONObject;
+import org.btrplace.json.JSON;
 import org.btrplace.json.JSONConverterException;
 import org.btrplace.json.model.ModelConverter;
 import org.btrplace.model.*;
@@ -30,6 +32,8 @@ import org.btrplace.plan.event.MigrateVM;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.io.StringReader;
+
 /**
  * Unit tests for {@link ReconfigurationPlanConverter}.
  *
@@ -78,4 +82,29 @@ public class ReconfigurationPlanConverterTest {
         ReconfigurationPlan p2 = rcp.fromJSON(j);
         Assert.assertEquals(p2, plan);
     }
+
+    @Test
+    public void testStreaming() throws JSONConverterException {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1).off(n2).run(n1, vm2).ready(vm1);
+        ReconfigurationPlan plan = new DefaultReconfigurationPlan(mo);
+        plan.add(new BootNode(n2, 0, 5));
+        plan.add(new MigrateVM(vm2, n1, n2, 5, 7));
+        plan.add(new BootVM(vm1, n1, 1, 2));
+
+        ReconfigurationPlanConverter rcp = new ReconfigurationPlanConverter();
+        String j = rcp.toJSONString(plan);
+        Assert.assertEquals(JSON.toString(plan), j);
+        Assert.assertEquals(JSON.readReconfigurationPlan(new StringReader(j)), plan);
+
+        //Actions before the origin
+        JSONObject o = rcp.toJSON(plan);
+        String reversed = "{\"actions\":" + o.get(ReconfigurationPlanConverter.ACTIONS_LABEL)
+                + ",\"origin\":" + o.get(ReconfigurationPlanConverter.ORIGIN_LABEL) + "}";
+        Assert.assertEquals(JSON.readReconfigurationPlan(new StringReader(reversed)), plan);
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.perf;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.Spread;
+import org.btrplace.plan.DefaultReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlanChecker;
+import org.btrplace.plan.SatConstraintViolationException;
+import org.btrplace.plan.event.MigrateVM;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the linear, the indexed, and the parallel checking of a plan
+ * by {@link ReconfigurationPlanChecker}.
+ * <p>
+ * A synthetic plan migrates half of the VMs. Each VM is subject to a continuous {@link Fence}
+ * and the VMs are spread by pairs.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CheckerDispatchBenchmark {
+
+    private static final int NB_NODES = 5000;
+
+    /**
+     * A plan and its constraints.
+     */
+    @State(Scope.Benchmark)
+    public static class Pairs {
+
+        /**
+         * The number of VMs.
+         */
+        @Param({"20000"})
+        public int nbVMs;
+
+        /**
+         * {@code true} to notify the checkers only about the actions involving their elements.
+         */
+        @Param({"false", "true"})
+        public boolean indexed;
+
+        /**
+         * The number of threads to check the plan.
+         */
+        @Param({"1", "4"})
+        public int parallelism;
+
+        private List<SatConstraint> cstrs;
+
+        private ReconfigurationPlan plan;
+
+        /**
+         * Generate the plan and the constraints.
+         */
+        @Setup(Level.Trial)
+        public void generate() {
+            Random rnd = new Random(0);
+            Model mo = new DefaultModel();
+            Mapping map = mo.getMapping();
+            List<Node> nodes = new ArrayList<>(NB_NODES);
+            for (int i = 0; i < NB_NODES; i++) {
+                Node n = mo.newNode();
+                map.addOnlineNode(n);
+                nodes.add(n);
+            }
+            cstrs = new ArrayList<>();
+            plan = new DefaultReconfigurationPlan(mo);
+            VM prev = null;
+            for (int i = 0; i < nbVMs; i++) {
+                VM v = mo.newVM();
+                //The VMs of a pair are on distinct nodes
+                Node src = nodes.get((2 * i) % NB_NODES);
+                Node dst = nodes.get((2 * i + 1) % NB_NODES);
+                map.addRunningVM(v, src);
+                cstrs.add(new Fence(v, Arrays.asList(src, dst), true));
+                if (i % 2 == 1) {
+                    cstrs.add(new Spread(new HashSet<>(Arrays.asList(prev, v)), true));
+                    //The migration of the second VM of each pair
+                    int st = rnd.nextInt(100);
+                    plan.add(new MigrateVM(v, src, dst, st, st + 1 + rnd.nextInt(10)));
+                }
+                prev = v;
+            }
+        }
+    }
+
+    /**
+     * Check the plan.
+     *
+     * @param p the plan
+     * @return the checker
+     * @throws SatConstraintViolationException if the plan violates a constraint. This is a bug
+     */
+    @Benchmark
+    public ReconfigurationPlanChecker check(Pairs p) throws SatConstraintViolationException {
+        ReconfigurationPlanChecker chk = new ReconfigurationPlanChecker()
+                .setIndexed(p.indexed)
+                .setParallelism(p.parallelism);
+        for (SatConstraint c : p.cstrs) {
+            chk.addChecker(c.getChecker());
+        }
+        chk.check(p.plan);
+        return chk;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.perf;
+
+import org.btrplace.json.JSON;
+import org.btrplace.model.Instance;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+
+/**
+ * The instances the benchmarks are parameterised on.
+ * They are picked from the {@code std-perf} and the {@code wkld-tdsc} workloads.
+ *
+ * @author Fabien Hermenier
+ */
+@State(Scope.Benchmark)
+public class InstanceState {
+
+    /**
+     * The property to override the directory of the instances.
+     */
+    public static final String INSTANCES_PROPERTY = "btrplace.perf.instances";
+
+    private static final String[] DEFAULT_ROOTS = {"bench/src/test/resources", "../bench/src/test/resources"};
+
+    /**
+     * The path of the instance, relative to the instances directory.
+     */
+    @Param({"std-perf/li3.gz", "std-perf/nr3.gz", "wkld-tdsc/li/r3/p5000/c33/1.gz", "wkld-tdsc/nr/r3/p5000/c33/1.gz"})
+    public String instance;
+
+    /**
+     * The instance file.
+     */
+    public File file;
+
+    /**
+     * The instance read from {@link #file}.
+     */
+    public Instance origin;
+
+    /**
+     * Read the instance.
+     */
+    @Setup(Level.Trial)
+    public void read() {
+        file = locate(instance);
+        origin = JSON.readInstance(file);
+    }
+
+    /**
+     * Locate an instance file.
+     *
+     * @param path the path relative to the instances directory
+     * @return the file
+     * @throws IllegalArgumentException if the file does not exist
+     */
+    public static File locate(String path) {
+        String root = System.getProperty(INSTANCES_PROPERTY);
+        if (root != null) {
+            File f = new File(root, path);
+            if (f.isFile()) {
+                return f;
+            }
+        } else {
+            for (String r : DEFAULT_ROOTS) {
+                File f = new File(r, path);
+                if (f.isFile()) {
+                    return f;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unable to locate '" + path + "'. Set the property '" + INSTANCES_PROPERTY + "'");
+    }
+}
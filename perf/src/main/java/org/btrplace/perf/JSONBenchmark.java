@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.perf;
+
+import org.btrplace.json.JSON;
+import org.btrplace.model.Instance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the reading and the writing of JSON instances.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JSONBenchmark {
+
+    /**
+     * Read the (gzipped) instance file.
+     *
+     * @param st the instance
+     * @return the instance
+     */
+    @Benchmark
+    public Instance read(InstanceState st) {
+        return JSON.readInstance(st.file);
+    }
+
+    /**
+     * Write the instance in memory.
+     *
+     * @param st the instance
+     * @return the output
+     */
+    @Benchmark
+    public StringWriter write(InstanceState st) {
+        StringWriter out = new StringWriter();
+        JSON.write(st.origin, out);
+        return out;
+    }
+}
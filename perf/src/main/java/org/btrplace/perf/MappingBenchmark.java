@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.perf;
+
+import org.btrplace.model.ArrayMapping;
+import org.btrplace.model.DefaultMapping;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the common operations of a {@link Mapping}, for {@link DefaultMapping}
+ * and {@link ArrayMapping}.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MappingBenchmark {
+
+    /**
+     * The mapping of the instance.
+     */
+    @State(Scope.Benchmark)
+    public static class Placement {
+
+        /**
+         * The implementation to use.
+         */
+        @Param({"default", "array"})
+        public String impl;
+
+        private Mapping map;
+
+        private List<Node> nodes;
+
+        private List<VM> vms;
+
+        /**
+         * Copy the mapping of the instance into the implementation.
+         *
+         * @param st the instance
+         */
+        @Setup(Level.Trial)
+        public void fill(InstanceState st) {
+            map = make(st.origin.getModel().getMapping());
+            nodes = new ArrayList<>(map.getOnlineNodes());
+            vms = new ArrayList<>(map.getRunningVMs());
+        }
+
+        private Mapping make(Mapping src) {
+            return "array".equals(impl) ? new ArrayMapping(src) : new DefaultMapping(src);
+        }
+    }
+
+    /**
+     * Make a new mapping from the one of the instance.
+     *
+     * @param p the mapping
+     * @return the new mapping
+     */
+    @Benchmark
+    public Mapping fill(Placement p) {
+        return p.make(p.map);
+    }
+
+    /**
+     * Copy the mapping.
+     *
+     * @param p the mapping
+     * @return the copy
+     */
+    @Benchmark
+    public Mapping copy(Placement p) {
+        return p.map.copy();
+    }
+
+    /**
+     * Copy the mapping then move every running VM to the next online node.
+     *
+     * @param p the mapping
+     * @return the modified copy
+     */
+    @Benchmark
+    public Mapping relocate(Placement p) {
+        Mapping m = p.map.copy();
+        int i = 0;
+        for (VM v : p.vms) {
+            m.addRunningVM(v, p.nodes.get(i++ % p.nodes.size()));
+        }
+        return m;
+    }
+
+    /**
+     * Browse the VMs running on each online node.
+     *
+     * @param p the mapping
+     * @return the number of running VMs
+     */
+    @Benchmark
+    public int hosted(Placement p) {
+        int nb = 0;
+        for (Node n : p.nodes) {
+            for (VM v : p.map.getRunningVMs(n)) {
+                nb += v.id() >= 0 ? 1 : 0;
+            }
+        }
+        return nb;
+    }
+
+    /**
+     * Get the state and the location of every running VM.
+     *
+     * @param p the mapping
+     * @return the number of running VMs
+     */
+    @Benchmark
+    public int lookup(Placement p) {
+        int nb = 0;
+        for (VM v : p.vms) {
+            if (p.map.isRunning(v) && p.map.getVMLocation(v) != null) {
+                nb++;
+            }
+        }
+        return nb;
+    }
+}
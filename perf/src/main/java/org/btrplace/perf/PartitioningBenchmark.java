@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.perf;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.Node;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.runner.disjoint.FixedNodeSetsPartitioning;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark {@link FixedNodeSetsPartitioning#split(Parameters, Instance)}.
+ * The nodes are partitioned by ranges of identifiers of a same size.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PartitioningBenchmark {
+
+    /**
+     * The partitioning algorithm.
+     */
+    @State(Scope.Benchmark)
+    public static class Partitioning {
+
+        /**
+         * The number of partitions.
+         */
+        @Param({"4", "16"})
+        public int nbPartitions;
+
+        private FixedNodeSetsPartitioning algo;
+
+        private Parameters ps;
+
+        /**
+         * Make the partitions.
+         *
+         * @param st the instance
+         */
+        @Setup(Level.Trial)
+        public void partition(InstanceState st) {
+            List<Node> nodes = new ArrayList<>(st.origin.getModel().getMapping().getAllNodes());
+            nodes.sort(Comparator.comparingInt(Node::id));
+            int size = (nodes.size() + nbPartitions - 1) / nbPartitions;
+            Collection<Collection<Node>> parts = new ArrayList<>();
+            for (int from = 0; from < nodes.size(); from += size) {
+                parts.add(new ArrayList<>(nodes.subList(from, Math.min(nodes.size(), from + size))));
+            }
+            algo = new FixedNodeSetsPartitioning(parts);
+            ps = new DefaultParameters();
+        }
+    }
+
+    /**
+     * Split the instance.
+     *
+     * @param st the instance
+     * @param p  the partitioning algorithm
+     * @return the sub-instances
+     * @throws SchedulerException if the instance cannot be split
+     */
+    @Benchmark
+    public List<Instance> split(InstanceState st, Partitioning p) throws SchedulerException {
+        return p.algo.split(p.ps, st.origin);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.perf;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.plan.DefaultReconfigurationPlan;
+import org.btrplace.plan.DependenciesExtractor;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.TimeBasedPlanApplier;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.MigrateVM;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the queries a plan executor performs on a {@link DefaultReconfigurationPlan}
+ * against their recomputation from scratch at each call.
+ * <p>
+ * Each invocation iterates over the actions, gets the duration, the resulting model, and the direct
+ * dependencies of every action.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PlanBenchmark {
+
+    private static final int NB_NODES = 1000;
+
+    /**
+     * A plan of migrations, inserted out of order.
+     */
+    @State(Scope.Benchmark)
+    public static class Migrations {
+
+        /**
+         * The number of actions.
+         */
+        @Param({"5000", "20000"})
+        public int nbActions;
+
+        private Model mo;
+
+        private ReconfigurationPlan plan;
+
+        /**
+         * Generate the plan.
+         */
+        @Setup(Level.Trial)
+        public void generate() {
+            Random rnd = new Random(0);
+            mo = new DefaultModel();
+            Mapping map = mo.getMapping();
+            List<Node> nodes = new ArrayList<>(NB_NODES);
+            for (int i = 0; i < NB_NODES; i++) {
+                Node n = mo.newNode();
+                map.addOnlineNode(n);
+                nodes.add(n);
+            }
+            plan = new DefaultReconfigurationPlan(mo);
+            for (int i = 0; i < nbActions; i++) {
+                VM v = mo.newVM();
+                Node src = nodes.get(i % NB_NODES);
+                Node dst = nodes.get((i + 1) % NB_NODES);
+                map.addRunningVM(v, src);
+                int st = rnd.nextInt(1000);
+                plan.add(new MigrateVM(v, src, dst, st, st + 1 + rnd.nextInt(10)));
+            }
+        }
+    }
+
+    /**
+     * Recompute the answers at each query, as it was performed by the plan before the memoisation.
+     *
+     * @param m the plan
+     * @return a checksum
+     */
+    @Benchmark
+    public long recomputed(Migrations m) {
+        ReconfigurationPlan p = m.plan;
+        TreeSet<Action> sorted = new TreeSet<>((a1, a2) -> {
+            int d = a1.getStart() - a2.getStart();
+            if (d == 0) {
+                d = a1.getEnd() - a2.getEnd();
+            }
+            return d == 0 ? a1.hashCode() - a2.hashCode() : d;
+        });
+        sorted.addAll(p.getActions());
+        int duration = 0;
+        for (Action a : p.getActions()) {
+            duration = Math.max(duration, a.getEnd());
+        }
+        long sum = sorted.size() + duration;
+        sum += new TimeBasedPlanApplier().apply(p).getMapping().getNbNodes();
+        DependenciesExtractor ex = new DependenciesExtractor(m.mo);
+        for (Action a : sorted) {
+            a.visit(ex);
+        }
+        for (Action a : sorted) {
+            sum += ex.getDependencies(a).size();
+        }
+        return sum;
+    }
+
+    /**
+     * Query the plan.
+     *
+     * @param m the plan
+     * @return a checksum
+     */
+    @Benchmark
+    public long cached(Migrations m) {
+        ReconfigurationPlan p = m.plan;
+        long sum = 0;
+        for (Action a : p) {
+            sum += a.getStart();
+        }
+        sum += p.getDuration();
+        sum += p.getResult().getMapping().getNbNodes();
+        for (Action a : p) {
+            sum += p.getDirectDependencies(a).size();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.perf;
+
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlanChecker;
+import org.btrplace.plan.SatConstraintViolationException;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.ChocoScheduler;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark {@link ReconfigurationPlanChecker#check(ReconfigurationPlan)}
+ * against the constraints of an instance and a plan computed once.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PlanCheckerBenchmark {
+
+    /**
+     * A plan that solves the instance.
+     */
+    @State(Scope.Benchmark)
+    public static class Plan {
+
+        /**
+         * The number of threads to check the plan.
+         */
+        @Param({"1", "4"})
+        public int parallelism;
+
+        private ReconfigurationPlan plan;
+
+        /**
+         * Solve the instance.
+         *
+         * @param st the instance
+         * @throws SchedulerException if the instance cannot be solved
+         */
+        @Setup(Level.Trial)
+        public void solve(InstanceState st) throws SchedulerException {
+            ChocoScheduler s = new DefaultChocoScheduler();
+            s.doRepair(true);
+            s.setTimeLimit(60);
+            plan = s.solve(st.origin);
+            if (plan == null) {
+                throw new SchedulerException(st.origin.getModel(), "No solution for '" + st.instance + "'");
+            }
+        }
+    }
+
+    /**
+     * Check the plan.
+     *
+     * @param st the instance
+     * @param p  the plan
+     * @return the checker
+     * @throws SatConstraintViolationException if the plan violates a constraint
+     */
+    @Benchmark
+    public ReconfigurationPlanChecker check(InstanceState st, Plan p) throws SatConstraintViolationException {
+        ReconfigurationPlanChecker chk = new ReconfigurationPlanChecker().setParallelism(p.parallelism);
+        for (SatConstraint c : st.origin.getSatConstraints()) {
+            chk.addChecker(c.getChecker());
+        }
+        chk.check(p.plan);
+        return chk;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.perf;
+
+import org.btrplace.scheduler.choco.extensions.DisjointSlices;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.ICF;
+import org.chocosolver.solver.constraints.LCF;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.VF;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the propagation of a continuous spread with {@link DisjointSlices}
+ * against the pairwise encoding with reified constraints.
+ * <p>
+ * Each VM of the group runs on its own node and may move to any node among twice as many.
+ * The end of the consuming slices and the start of the demanding slices are partially known.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SpreadBenchmark {
+
+    private static final int HORIZON = 100;
+
+    /**
+     * A solver with a spread over a group of VMs.
+     */
+    @State(Scope.Thread)
+    public static class Spreading {
+
+        /**
+         * The number of VMs in the group.
+         */
+        @Param({"50", "200"})
+        public int nbVMs;
+
+        /**
+         * The encoding of the constraint.
+         */
+        @Param({"global", "pairwise"})
+        public String encoding;
+
+        private int[] cHosts;
+
+        private int[] minEnds;
+
+        private int[] maxStarts;
+
+        private Solver solver;
+
+        /**
+         * Generate the slices.
+         */
+        @Setup(Level.Trial)
+        public void slices() {
+            Random rnd = new Random(0);
+            cHosts = new int[nbVMs];
+            minEnds = new int[nbVMs];
+            maxStarts = new int[nbVMs];
+            for (int i = 0; i < nbVMs; i++) {
+                cHosts[i] = i;
+                minEnds[i] = rnd.nextInt(HORIZON / 2);
+                maxStarts[i] = HORIZON / 4 + rnd.nextInt(HORIZON / 2);
+            }
+        }
+
+        /**
+         * Post the constraint on a new solver.
+         */
+        @Setup(Level.Invocation)
+        public void post() {
+            solver = new Solver();
+            IntVar[] cEnds = new IntVar[nbVMs];
+            IntVar[] dHosts = VF.enumeratedArray("dHost", nbVMs, 0, 2 * nbVMs - 1, solver);
+            IntVar[] dStarts = new IntVar[nbVMs];
+            for (int i = 0; i < nbVMs; i++) {
+                cEnds[i] = VF.bounded("cEnd" + i, minEnds[i], HORIZON, solver);
+                dStarts[i] = VF.bounded("dStart" + i, 0, maxStarts[i], solver);
+            }
+            solver.post(ICF.alldifferent(dHosts, "BC"));
+            if ("global".equals(encoding)) {
+                solver.post(new DisjointSlices(cHosts, cEnds, dHosts, dStarts));
+                return;
+            }
+            for (int i = 0; i < nbVMs; i++) {
+                for (int j = 0; j < nbVMs; j++) {
+                    if (i != j) {
+                        BoolVar eq = VF.bool("eq", solver);
+                        ICF.arithm(dHosts[i], "=", cHosts[j]).reifyWith(eq);
+                        BoolVar leq = VF.bool("leq", solver);
+                        ICF.arithm(cEnds[j], "<=", dStarts[i]).reifyWith(leq);
+                        solver.post(LCF.or(VF.not(eq), leq));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Propagate the constraints.
+     *
+     * @param s the solver
+     * @return the solver
+     * @throws ContradictionException if the spread is not viable
+     */
+    @Benchmark
+    public Solver propagate(Spreading s) throws ContradictionException {
+        s.solver.propagate();
+        return s.solver;
+    }
+}
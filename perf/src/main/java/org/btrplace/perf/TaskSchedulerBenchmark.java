@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.perf;
+
+import org.btrplace.scheduler.choco.extensions.LocalTaskScheduler;
+import org.btrplace.scheduler.choco.extensions.TaskScheduler;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.VF;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the propagation of {@link TaskScheduler} on dense nodes.
+ * <p>
+ * Each node hosts a given number of VMs. One VM out of four stays on its node and changes its
+ * consumption, the others migrate to the next node. The placement is known, so the propagation
+ * computes the resource profile of every node.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TaskSchedulerBenchmark {
+
+    private static final int HORIZON = 100;
+
+    private static final int NB_DIMS = 2;
+
+    /**
+     * A solver with a single task scheduler constraint.
+     */
+    @State(Scope.Thread)
+    public static class Scheduling {
+
+        /**
+         * The number of nodes.
+         */
+        @Param({"64", "256"})
+        public int nbNodes;
+
+        /**
+         * The number of VMs per node.
+         */
+        @Param({"20", "50"})
+        public int density;
+
+        private int[][] capacities;
+
+        private int[] cHosts;
+
+        private int[][] cUsages;
+
+        private int[] dHosts;
+
+        private int[][] dUsages;
+
+        private int[] assocs;
+
+        private Solver solver;
+
+        /**
+         * Generate the tasks.
+         */
+        @Setup(Level.Trial)
+        public void tasks() {
+            Random rnd = new Random(0);
+            int nbVMs = nbNodes * density;
+            capacities = new int[nbNodes][NB_DIMS];
+            for (int n = 0; n < nbNodes; n++) {
+                for (int d = 0; d < NB_DIMS; d++) {
+                    capacities[n][d] = density * 3;
+                }
+            }
+            cHosts = new int[nbVMs];
+            cUsages = new int[nbVMs][NB_DIMS];
+            dHosts = new int[nbVMs];
+            dUsages = new int[nbVMs][NB_DIMS];
+            assocs = new int[nbVMs];
+            for (int i = 0; i < nbVMs; i++) {
+                cHosts[i] = i % nbNodes;
+                boolean stay = i % 4 == 0;
+                dHosts[i] = stay ? cHosts[i] : (cHosts[i] + 1) % nbNodes;
+                assocs[i] = stay ? i : LocalTaskScheduler.NO_ASSOCIATIONS;
+                for (int d = 0; d < NB_DIMS; d++) {
+                    cUsages[i][d] = 1 + rnd.nextInt(4);
+                    dUsages[i][d] = 1 + rnd.nextInt(4);
+                }
+            }
+        }
+
+        /**
+         * Post the constraint on a new solver.
+         */
+        @Setup(Level.Invocation)
+        public void post() {
+            solver = new Solver();
+            IntVar[] earlyStarts = VF.boundedArray("early", nbNodes, 0, HORIZON, solver);
+            IntVar[] lastEnds = VF.boundedArray("last", nbNodes, 0, HORIZON, solver);
+            int nbVMs = cHosts.length;
+            IntVar[] cHosters = new IntVar[nbVMs];
+            IntVar[] dHosters = new IntVar[nbVMs];
+            for (int i = 0; i < nbVMs; i++) {
+                cHosters[i] = VF.fixed(cHosts[i], solver);
+                dHosters[i] = VF.fixed(dHosts[i], solver);
+            }
+            IntVar[] cEnds = VF.boundedArray("cEnd", nbVMs, 0, HORIZON, solver);
+            IntVar[] dStarts = VF.boundedArray("dStart", nbVMs, 0, HORIZON, solver);
+            solver.post(new TaskScheduler(earlyStarts, lastEnds, capacities,
+                    cHosters, cUsages, cEnds,
+                    dHosters, dUsages, dStarts, assocs));
+        }
+    }
+
+    /**
+     * Propagate the constraint.
+     *
+     * @param s the solver
+     * @return the solver
+     * @throws ContradictionException if the schedule is not viable
+     */
+    @Benchmark
+    public Solver propagate(Scheduling s) throws ContradictionException {
+        s.solver.propagate();
+        return s.solver;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.perf;
+
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.scheduler.choco.extensions.pack.VectorPacking;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.VF;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the initial propagation of {@link org.btrplace.scheduler.choco.extensions.pack.VectorPackingPropagator}.
+ * <p>
+ * The VMs of the instance are the items, the online nodes the bins. Each dimension is a shareable resource.
+ * Each VM can be placed on any online node.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class VectorPackingBenchmark {
+
+    /**
+     * A solver with a single vector packing constraint.
+     */
+    @State(Scope.Thread)
+    public static class Packing {
+
+        private String[] names;
+
+        private int[][] capacities;
+
+        private int[][] sizes;
+
+        private Solver solver;
+
+        /**
+         * Extract the items and the bins from the instance.
+         *
+         * @param st the instance
+         */
+        @Setup(Level.Trial)
+        public void dimensions(InstanceState st) {
+            Model mo = st.origin.getModel();
+            Mapping map = mo.getMapping();
+            List<Node> nodes = new ArrayList<>(map.getOnlineNodes());
+            List<VM> vms = new ArrayList<>(map.getRunningVMs());
+            List<ShareableResource> rcs = new ArrayList<>();
+            for (ModelView v : mo.getViews()) {
+                if (v instanceof ShareableResource) {
+                    rcs.add((ShareableResource) v);
+                }
+            }
+            names = new String[rcs.size()];
+            capacities = new int[rcs.size()][];
+            sizes = new int[rcs.size()][];
+            for (int d = 0; d < rcs.size(); d++) {
+                names[d] = rcs.get(d).getResourceIdentifier();
+                capacities[d] = rcs.get(d).getCapacities(nodes);
+                sizes[d] = rcs.get(d).getConsumptions(vms);
+            }
+        }
+
+        /**
+         * Post the constraint on a new solver.
+         */
+        @Setup(Level.Invocation)
+        public void post() {
+            solver = new Solver();
+            int nbBins = capacities.length == 0 ? 0 : capacities[0].length;
+            int nbItems = sizes.length == 0 ? 0 : sizes[0].length;
+            IntVar[][] loads = new IntVar[names.length][nbBins];
+            for (int d = 0; d < names.length; d++) {
+                for (int b = 0; b < nbBins; b++) {
+                    loads[d][b] = VF.bounded("l" + d + "." + b, 0, capacities[d][b], solver);
+                }
+            }
+            IntVar[] bins = VF.enumeratedArray("b", nbItems, 0, Math.max(0, nbBins - 1), solver);
+            solver.post(new VectorPacking(names, loads, sizes, bins, true, true));
+        }
+    }
+
+    /**
+     * Propagate the constraint.
+     *
+     * @param p the solver
+     * @return the solver
+     * @throws ContradictionException if the packing is not viable
+     */
+    @Benchmark
+    public Solver propagate(Packing p) throws ContradictionException {
+        p.solver.propagate();
+        return p.solver;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.perf;
+
+import org.btrplace.model.Model;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.model.view.network.Network;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.DefaultReconfigurationProblemBuilder;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.view.CNetwork;
+import org.btrplace.scheduler.choco.view.CShareableResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark {@link org.btrplace.scheduler.choco.view.ChocoView#inject(Parameters, ReconfigurationProblem)}
+ * for {@link CShareableResource} and {@link CNetwork}.
+ * Each injection is performed on a freshly built problem that does not have the views yet.
+ *
+ * @author Fabien Hermenier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ViewInjectionBenchmark {
+
+    /**
+     * A problem without the views to inject.
+     */
+    @State(Scope.Thread)
+    public static class Problem {
+
+        private Model mo;
+
+        private List<ShareableResource> resources;
+
+        private Network net;
+
+        private Parameters ps;
+
+        private ReconfigurationProblem rp;
+
+        /**
+         * Extract the views from the instance.
+         *
+         * @param st the instance
+         */
+        @Setup(Level.Trial)
+        public void views(InstanceState st) {
+            mo = st.origin.getModel().copy();
+            resources = new ArrayList<>();
+            for (ModelView v : new ArrayList<>(mo.getViews())) {
+                if (v instanceof ShareableResource) {
+                    resources.add((ShareableResource) v);
+                    mo.detach(v);
+                }
+            }
+            net = Network.createDefaultNetwork(mo);
+            mo.detach(net);
+            ps = new DefaultParameters();
+        }
+
+        /**
+         * Build the problem.
+         *
+         * @throws SchedulerException if the problem cannot be built
+         */
+        @Setup(Level.Invocation)
+        public void build() throws SchedulerException {
+            rp = new DefaultReconfigurationProblemBuilder(mo).setParams(ps).build();
+        }
+    }
+
+    /**
+     * Inject all the shareable resources of the instance.
+     *
+     * @param p the problem
+     * @return {@code true} if the injection succeeded
+     * @throws SchedulerException if an error occurred
+     */
+    @Benchmark
+    public boolean shareableResources(Problem p) throws SchedulerException {
+        boolean ok = true;
+        for (ShareableResource rc : p.resources) {
+            ok &= new CShareableResource(rc).inject(p.ps, p.rp);
+        }
+        return ok;
+    }
+
+    /**
+     * Inject a default network.
+     *
+     * @param p the problem
+     * @return {@code true} if the injection succeeded
+     * @throws SchedulerException if an error occurred
+     */
+    @Benchmark
+    public boolean network(Problem p) throws SchedulerException {
+        return new CNetwork(p.net).inject(p.ps, p.rp);
+    }
+}
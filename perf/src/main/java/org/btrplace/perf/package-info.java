@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/**
+ * JMH micro-benchmarks for the hot paths of the scheduler.
+ * <p>
+ * The benchmarks rely on the instances of the {@code bench} module. To run them from the
+ * root of the project:
+ * <pre>
+ * mvn -pl perf -am package -DskipTests
+ * java -jar perf/target/benchmarks.jar
+ * </pre>
+ * The property {@code btrplace.perf.instances} overrides the directory of the instances.
+ */
+package org.btrplace.perf;
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.runner.disjoint;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.VM;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A dispatcher that places the VMs with regards to the free
+ * capacity of each partition using a first-fit-decreasing heuristic.
+ * <p>
+ * The free capacity of a partition is computed for each {@link ShareableResource}
+ * from its online nodes and its running VMs. The VMs are then sorted by decreasing
+ * consumption (each dimension being normalised by the overall capacity of the resource)
+ * and each VM goes to the first partition that can host it on every dimension.
+ * When no partition can host a VM, it goes to the partition with the largest free capacity.
+ * <p>
+ * Without any {@link ShareableResource}, the VMs are dispatched using a {@link RoundRobinDispatcher}.
+ *
+ * @author Fabien Hermenier
+ */
+public class FirstFitDecreasingDispatcher implements VMsDispatcher {
+
+    @Override
+    public int[] dispatch(Instance origin, List<Instance> parts, List<VM> vms) {
+        Model mo = origin.getModel();
+        List<ShareableResource> rcs = new ArrayList<>();
+        for (ModelView v : mo.getViews()) {
+            if (v instanceof ShareableResource) {
+                rcs.add((ShareableResource) v);
+            }
+        }
+        if (rcs.isEmpty()) {
+            return new RoundRobinDispatcher().dispatch(origin, parts, vms);
+        }
+
+        //The free capacity of each partition, per resource
+        int[][] free = new int[parts.size()][rcs.size()];
+        double[] total = new double[rcs.size()];
+        for (int p = 0; p < parts.size(); p++) {
+            Mapping m = parts.get(p).getModel().getMapping();
+            for (int r = 0; r < rcs.size(); r++) {
+                ShareableResource rc = rcs.get(r);
+                int capa = rc.sumCapacities(m.getOnlineNodes(), true);
+                free[p][r] = capa - rc.sumConsumptions(m.getRunningVMs(), true) - rc.sumConsumptions(m.getReadyVMs(), true);
+                total[r] += capa;
+            }
+        }
+
+        //The consumption vector of each VM
+        int[][] cons = new int[vms.size()][rcs.size()];
+        double[] weights = new double[vms.size()];
+        for (int i = 0; i < vms.size(); i++) {
+            for (int r = 0; r < rcs.size(); r++) {
+                cons[i][r] = rcs.get(r).getConsumption(vms.get(i));
+                if (total[r] > 0) {
+                    weights[i] += cons[i][r] / total[r];
+                }
+            }
+        }
+
+        Integer[] order = new Integer[vms.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> weights[i]).reversed());
+
+        int[] res = new int[vms.size()];
+        for (int i : order) {
+            int p = firstFit(free, cons[i]);
+            if (p < 0) {
+                p = mostFree(free, total);
+            }
+            res[i] = p;
+            for (int r = 0; r < cons[i].length; r++) {
+                free[p][r] -= cons[i][r];
+            }
+        }
+        return res;
+    }
+
+    private static int firstFit(int[][] free, int[] cons) {
+        for (int p = 0; p < free.length; p++) {
+            boolean fit = true;
+            for (int r = 0; r < cons.length && fit; r++) {
+                fit = free[p][r] >= cons[r];
+            }
+            if (fit) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    private static int mostFree(int[][] free, double[] total) {
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int p = 0; p < free.length; p++) {
+            double score = 0;
+            for (int r = 0; r < total.length; r++) {
+                if (total[r] > 0) {
+                    score += free[p][r] / total[r];
+                }
+            }
+            if (score > bestScore) {
+                best = p;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+}
@@ -36,8 +36,9 @@ import java.util.*;
  * into multiple disjoint sub-instances from a
  * specific node partitioning.
  * Running and sleeping VMs are spread on the sub-instances
- * depending on their current location while ready VMs are spread
- * evenly.
+ * depending on their current location while the VMs to launch are
+ * dispatched using a {@link VMsDispatcher}. By default, they are spread
+ * evenly using a {@link RoundRobinDispatcher}.
  * <p>
  * The {@link SatConstraint}s are split when necessary using
  * splitters available through the {@link ConstraintSplitterMapper}.
@@ -50,12 +51,13 @@ public class FixedNodeSetsPartitioning extends StaticPartitioning {
 
     private Collection<Collection<Node>> partitions;
 
-    private ConstraintSplitterMapper cstrMapper;
+    private VMsDispatcher dispatcher;
 
     /**
      * Make a new partitioning algorithm.
      * By default, the partition algorithm use the {@link ConstraintSplitterMapper}
-     * returned by {@link ConstraintSplitterMapper#newBundle()}.
+     * returned by {@link ConstraintSplitterMapper#newBundle()} and
+     * a {@link RoundRobinDispatcher} to dispatch the VMs to launch.
      *
      * @param parts the node partitions to rely on
      */
@@ -66,25 +68,25 @@ public class FixedNodeSetsPartitioning extends StaticPartitioning {
 
         }
         partitions = parts;
-        cstrMapper = ConstraintSplitterMapper.newBundle();
+        dispatcher = new RoundRobinDispatcher();
     }
 
     /**
-     * Get the mapper that is used to split the constraints.
+     * Get the dispatcher that is used to spread the VMs to launch among the partitions.
      *
-     * @return a mapper
+     * @return the dispatcher
      */
-    public ConstraintSplitterMapper getSplitterMapper() {
-        return cstrMapper;
+    public VMsDispatcher getDispatcher() {
+        return dispatcher;
     }
 
     /**
-     * Set the mapper to use to split constraints.
+     * Set the dispatcher to use to spread the VMs to launch among the partitions.
      *
-     * @param m the mapper
+     * @param d the dispatcher
      */
-    public void setSplitterMapper(ConstraintSplitterMapper m) {
-        this.cstrMapper = m;
+    public void setDispatcher(VMsDispatcher d) {
+        this.dispatcher = d;
     }
 
     /**
@@ -127,7 +129,7 @@ public class FixedNodeSetsPartitioning extends StaticPartitioning {
 
         int partNumber = 0;
 
-        Set<VM> toLaunch = getVMsToLaunch(i);
+        List<VM> toLaunch = new ArrayList<>(getVMsToLaunch(i));
 
         for (Collection<Node> s : partitions) {
             SubModel partModel = new SubModel(mo, eb, s, new HashSet<>(toLaunch.size() / partitions.size()));
@@ -143,19 +145,20 @@ public class FixedNodeSetsPartitioning extends StaticPartitioning {
             partNumber++;
         }
 
-        //Round-robin placement for the VMs to launch
-        int p = 0;
-        for (VM v : toLaunch) {
+        //Dispatch the VMs to launch
+        int[] dispatched = dispatcher.dispatch(i, parts, toLaunch);
+        for (int x = 0; x < dispatched.length; x++) {
+            VM v = toLaunch.get(x);
+            int p = dispatched[x];
             if (!parts.get(p).getModel().getMapping().addReadyVM(v)) {
                 throw new SchedulerException(parts.get(p).getModel(), "Unable to dispatch the VM to launch '" + v + "'");
             }
             vmPosition.put(v.id(), p);
-            p = (p + 1) % parts.size();
         }
 
         //Split the constraints
         for (SatConstraint cstr : i.getSatConstraints()) {
-            if (!cstrMapper.split(cstr, i, parts, vmPosition, nodePosition)) {
+            if (!getSplitterMapper().split(cstr, i, parts, vmPosition, nodePosition)) {
                 throw new SchedulerException(i.getModel(), "Unable to split " + cstr);
             }
         }
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.runner.disjoint;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.VM;
+
+import java.util.List;
+
+/**
+ * A dispatcher that spreads the VMs among the partitions
+ * in a round-robin fashion.
+ *
+ * @author Fabien Hermenier
+ */
+public class RoundRobinDispatcher implements VMsDispatcher {
+
+    @Override
+    public int[] dispatch(Instance origin, List<Instance> parts, List<VM> vms) {
+        int[] res = new int[vms.size()];
+        int p = 0;
+        for (int i = 0; i < res.length; i++) {
+            res[i] = p;
+            p = (p + 1) % parts.size();
+        }
+        return res;
+    }
+}
@@ -18,20 +18,40 @@
 
 package org.btrplace.scheduler.runner.disjoint;
 
-import org.btrplace.model.Instance;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.set.hash.THashSet;
+import org.btrplace.model.*;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
 import org.btrplace.plan.DefaultReconfigurationPlan;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.plan.event.Action;
 import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
 import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.WarmStart;
+import org.btrplace.scheduler.choco.constraint.CObjective;
+import org.btrplace.scheduler.choco.constraint.ChocoConstraint;
 import org.btrplace.scheduler.choco.runner.InstanceSolver;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+import org.btrplace.scheduler.runner.disjoint.model.SubModel;
+import org.btrplace.scheduler.runner.disjoint.splitter.ConstraintSplitterMapper;
+import org.chocosolver.solver.search.loop.monitors.SMF;
+import org.chocosolver.solver.search.measure.IMeasures;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * An abstract solver that decompose statically an instance
@@ -42,6 +62,18 @@ import java.util.concurrent.*;
  * <p>
  * The solving process relies on a master/worker paradigm with a number
  * of workers equals to the number of available cores by default.
+ * <p>
+ * When the recovery mode is enabled (see {@link #doRecovery(boolean)}), the
+ * solved partitions are kept while each partition without a solution is joined
+ * with the neighbour partition having the most spare capacity. Only the joined
+ * partitions are then solved again, using the remaining time budget.
+ * <p>
+ * The partitions are solved using a work-stealing pool, the hardest partitions first
+ * (see {@link #estimateDifficulty(Instance)}). When there is a time limit, the time
+ * budget is shared among the partitions depending on their difficulty, so the time left
+ * by the partitions that are solved quickly is given to the remaining ones.
+ * In addition, when the solver optimises, the time left at the end is used to solve again
+ * the partitions that hit their time limit.
  *
  * @author Fabien Hermenier
  */
@@ -49,14 +81,41 @@ public abstract class StaticPartitioning implements InstanceSolver {
 
     private int workersCount;
 
+    private boolean recovery;
+
+    private ConstraintSplitterMapper cstrMapper;
+
     private StaticPartitioningStatistics stats;
 
     /**
      * Make a new partitioning algorithm.
      * The number of workers is set to the number of available cores.
+     * The recovery mode is disabled.
+     * The constraints are split using the {@link ConstraintSplitterMapper} returned by
+     * {@link ConstraintSplitterMapper#newBundle()}.
      */
     public StaticPartitioning() {
         workersCount = Runtime.getRuntime().availableProcessors();
+        recovery = false;
+        cstrMapper = ConstraintSplitterMapper.newBundle();
+    }
+
+    /**
+     * Get the mapper that is used to split the constraints.
+     *
+     * @return a mapper
+     */
+    public ConstraintSplitterMapper getSplitterMapper() {
+        return cstrMapper;
+    }
+
+    /**
+     * Set the mapper to use to split constraints.
+     *
+     * @param m the mapper
+     */
+    public void setSplitterMapper(ConstraintSplitterMapper m) {
+        this.cstrMapper = m;
     }
 
     /**
@@ -77,6 +136,23 @@ public abstract class StaticPartitioning implements InstanceSolver {
         this.workersCount = s;
     }
 
+    /**
+     * State if the solver must try to recover from partitions that have no solution.
+     *
+     * @param b {@code true} to join the failing partitions with a neighbour and solve them again
+     */
+    public void doRecovery(boolean b) {
+        this.recovery = b;
+    }
+
+    /**
+     * Indicate if the solver tries to recover from partitions that have no solution.
+     *
+     * @return {@code true} iff the recovery mode is enabled
+     */
+    public boolean doRecovery() {
+        return recovery;
+    }
 
     @Override
     public ReconfigurationPlan solve(Parameters cra, Instance orig) throws SchedulerException {
@@ -86,19 +162,53 @@ public abstract class StaticPartitioning implements InstanceSolver {
         d += System.currentTimeMillis();
 
         stats.setSplittingStatistics(partitions.size(), d);
-        ExecutorService exe = Executors.newFixedThreadPool(this.workersCount);
-        CompletionService<SolvingStatistics> completionService = new ExecutorCompletionService<>(exe);
-        List<SolvingStatistics> results = new ArrayList<>(partitions.size());
+        ExecutorService exe = Executors.newWorkStealingPool(this.workersCount);
+        try {
+            long start = System.currentTimeMillis();
+            long deadline = cra.getTimeLimit() > 0 ? start + cra.getTimeLimit() * 1000L : -1;
+            List<Partition> parts = new ArrayList<>(partitions.size());
+            partitions.forEach(p -> parts.add(new Partition(p)));
+            solve(exe, cra, orig, parts, deadline);
+            if (recovery) {
+                recover(exe, cra, orig, parts, deadline);
+            }
+            if (cra.doOptimize()) {
+                improve(exe, cra, orig, parts, deadline);
+            }
+            stats.setSolvingDuration(System.currentTimeMillis() - start);
+
+            List<SolvingStatistics> results = new ArrayList<>(parts.size());
+            parts.forEach(p -> results.add(p.result));
+            return merge(orig, results);
+        } finally {
+            exe.shutdown();
+        }
+    }
 
+    /**
+     * Solve the given partitions in parallel and store their results.
+     * The partitions are submitted by decreasing difficulty. When there is a time limit,
+     * each partition gets, when it starts, a share of the remaining time that is
+     * proportional to its difficulty.
+     */
+    private void solve(ExecutorService exe, Parameters ps, Instance orig, List<Partition> parts, long deadline) throws SchedulerException {
+        List<Partition> ordered = new ArrayList<>(parts);
+        for (Partition p : ordered) {
+            if (p.difficulty < 0) {
+                p.difficulty = estimateDifficulty(p.instance);
+            }
+        }
+        ordered.sort(Comparator.comparingInt((Partition p) -> p.difficulty).reversed());
 
-        long duration = -System.currentTimeMillis();
-        for (Instance partition : partitions) {
-            completionService.submit(new InstanceSolverRunner(cra, partition));
+        TimeBudget budget = new TimeBudget(ps, deadline, workersCount, ordered);
+        List<Future<SolvingStatistics>> futures = new ArrayList<>(ordered.size());
+        for (Partition p : ordered) {
+            futures.add(exe.submit(() -> budget.take(p).call()));
         }
 
-        for (int i = 0; i < partitions.size(); i++) {
+        for (int i = 0; i < ordered.size(); i++) {
             try {
-                results.add(completionService.take().get());
+                ordered.get(i).result = futures.get(i).get();
             } catch (ExecutionException ignore) {
                 Throwable cause = ignore.getCause();
                 if (cause != null) {
@@ -109,17 +219,231 @@ public abstract class StaticPartitioning implements InstanceSolver {
                 throw new SchedulerException(orig.getModel(), e.getMessage(), e);
             }
         }
-        duration += System.currentTimeMillis();
-        stats.setSolvingDuration(duration);
-        exe.shutdown();
+    }
+
+    /**
+     * Join every failing partition with a neighbour and solve the joined partitions again
+     * until every partition is solved, the time budget is consumed or there is a single partition left.
+     */
+    private void recover(ExecutorService exe, Parameters ps, Instance orig, List<Partition> parts, long deadline) throws SchedulerException {
+        int rounds = 0;
+        int joins = 0;
+        while (parts.size() > 1) {
+            List<Partition> failed = new ArrayList<>();
+            parts.stream().filter(Partition::failed).forEach(failed::add);
+            if (failed.isEmpty() || (deadline > 0 && deadline - System.currentTimeMillis() < 1000)) {
+                break;
+            }
+
+            List<Partition> toSolve = new ArrayList<>();
+            for (Partition f : failed) {
+                int idx = parts.indexOf(f);
+                if (idx < 0 || parts.size() == 1) {
+                    //Already absorbed during this round
+                    continue;
+                }
+                Partition n = neighbour(orig, f, parts);
+                Partition joined = new Partition(join(orig, f.instance, n.instance));
+                parts.set(idx, joined);
+                parts.remove(n);
+                toSolve.remove(n);
+                toSolve.add(joined);
+                joins++;
+            }
+            rounds++;
+            solve(exe, ps, orig, toSolve, deadline);
+        }
+        stats.setRecoveryStatistics(rounds, joins);
+    }
+
+    /**
+     * Use the time left by the partitions that completed their search to solve again
+     * the partitions that hit their time limit. The retries use another random seed and
+     * only look for solutions that are better than the current ones. This requires an objective
+     * that enforces the bound of a warm-start hint, otherwise there is no retry.
+     * For each of these partitions, the best of the two solutions is kept.
+     */
+    private void improve(ExecutorService exe, Parameters ps, Instance orig, List<Partition> parts, long deadline) throws SchedulerException {
+        if (deadline < 0 || deadline - System.currentTimeMillis() < 1000 || !enforcesBound(ps, orig)) {
+            return;
+        }
+        List<Partition> toImprove = new ArrayList<>();
+        List<Partition> retries = new ArrayList<>();
+        for (Partition p : parts) {
+            if (!p.failed() && !p.result.completed()) {
+                IMeasures m = p.result.getMeasures();
+                if (m == null || !m.hasObjective()) {
+                    continue;
+                }
+                int best = m.getBestSolutionValue().intValue();
+                if (best == 0) {
+                    //Cannot be improved
+                    continue;
+                }
+                Partition r = new Partition(p.instance);
+                r.difficulty = p.difficulty;
+                r.warmStart = new WarmStart(Collections.emptyMap(), best - 1);
+                toImprove.add(p);
+                retries.add(r);
+            }
+        }
+        if (toImprove.isEmpty()) {
+            return;
+        }
+        solve(exe, new DefaultParameters(ps).setRandomSeed(ps.getRandomSeed() + 1), orig, retries, deadline);
+        int improved = 0;
+        for (int i = 0; i < toImprove.size(); i++) {
+            if (better(retries.get(i).result, toImprove.get(i).result)) {
+                toImprove.get(i).result = retries.get(i).result;
+                improved++;
+            }
+        }
+        stats.setImprovementStatistics(toImprove.size(), improved);
+    }
+
+    /**
+     * Check if a result has a better solution than another one with regards to a minimisation objective.
+     */
+    private static boolean better(SolvingStatistics a, SolvingStatistics b) {
+        if (a == null || a.lastSolution() == null || a.getMeasures() == null || !a.getMeasures().hasObjective()) {
+            return false;
+        }
+        if (b == null || b.lastSolution() == null || b.getMeasures() == null || !b.getMeasures().hasObjective()) {
+            return true;
+        }
+        return a.getMeasures().getBestSolutionValue().intValue() < b.getMeasures().getBestSolutionValue().intValue();
+    }
+
+    /**
+     * Check if the objective of an instance enforces the bound stated by a warm-start hint.
+     */
+    private static boolean enforcesBound(Parameters ps, Instance i) {
+        if (i.getOptConstraint() == null) {
+            return false;
+        }
+        ChocoConstraint c = ps.getMapper().get(i.getOptConstraint());
+        return c instanceof CObjective && ((CObjective) c).enforcesBound();
+    }
+
+    /**
+     * Estimate the difficulty of solving a partition.
+     * The partitions are submitted by decreasing difficulty and the time budget
+     * is shared proportionally to the difficulty.
+     * By default, the difficulty is the number of VMs, plus the number of VMs involved
+     * in constraints that are not satisfied by the current model, plus the number of constraints.
+     *
+     * @param i the partition
+     * @return a positive number
+     */
+    protected int estimateDifficulty(Instance i) {
+        Model mo = i.getModel();
+        int misplaced = 0;
+        for (SatConstraint c : i.getSatConstraints()) {
+            if (!c.isSatisfied(mo)) {
+                misplaced += c.getInvolvedVMs().size();
+            }
+        }
+        return mo.getMapping().getNbVMs() + misplaced + i.getSatConstraints().size();
+    }
+
+    /**
+     * Get the partition, other than the given one, that has the most spare capacity.
+     */
+    private static Partition neighbour(Instance orig, Partition f, List<Partition> parts) {
+        Partition best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (Partition p : parts) {
+            if (p == f) {
+                continue;
+            }
+            double score = spareCapacity(orig.getModel(), p.instance.getModel().getMapping());
+            if (score > bestScore) {
+                best = p;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
 
-        return merge(orig, results);
+    /**
+     * Estimate the spare capacity of a partition.
+     * For each resource, the free capacity of the online nodes is normalised
+     * by the overall capacity of the resource. Without resources, the spare capacity
+     * is the number of nodes.
+     */
+    private static double spareCapacity(Model mo, Mapping m) {
+        double score = 0;
+        boolean hasResources = false;
+        for (ModelView v : mo.getViews()) {
+            if (v instanceof ShareableResource) {
+                hasResources = true;
+                ShareableResource rc = (ShareableResource) v;
+                int total = rc.sumCapacities(mo.getMapping().getOnlineNodes(), true);
+                if (total > 0) {
+                    int free = rc.sumCapacities(m.getOnlineNodes(), true)
+                            - rc.sumConsumptions(m.getRunningVMs(), true)
+                            - rc.sumConsumptions(m.getReadyVMs(), true);
+                    score += (double) free / total;
+                }
+            }
+        }
+        return hasResources ? score : m.getNbNodes();
+    }
+
+    /**
+     * Join two partitions into a single one.
+     * The resulting partition contains the nodes and the VMs of the two partitions.
+     * Its constraints are the constraints of the original instance, split again over the joined partition
+     * using {@link #getSplitterMapper()}: a constraint that was split between the two partitions is then
+     * enforced over the joined partition as a whole.
+     * By default, only partitions backed by a {@link SubModel} can be joined.
+     *
+     * @param orig the instance that was split
+     * @param a    the first partition
+     * @param b    the second partition
+     * @return the joined partition
+     * @throws SchedulerException if the partitions cannot be joined
+     */
+    protected Instance join(Instance orig, Instance a, Instance b) throws SchedulerException {
+        if (!(a.getModel() instanceof SubModel) || !(b.getModel() instanceof SubModel)) {
+            throw new SchedulerException(orig.getModel(), "Unable to join partitions that are not sub-models");
+        }
+        SubModel ma = (SubModel) a.getModel();
+        SubModel mb = (SubModel) b.getModel();
+
+        Set<Node> scope = new THashSet<>(ma.getScope());
+        scope.addAll(mb.getScope());
+        Set<VM> ready = new THashSet<>(ma.getMapping().getReadyVMs());
+        ready.addAll(mb.getMapping().getReadyVMs());
+
+        Model mo = orig.getModel();
+        SubModel joined = new SubModel(mo, new SynchronizedElementBuilder(mo), scope, ready);
+
+        //The joined partition is the first one, the elements out of its scope belong to the second one
+        TIntIntHashMap vmPosition = new TIntIntHashMap(mo.getMapping().getNbVMs(), 0.5f, -1, 1);
+        TIntIntHashMap nodePosition = new TIntIntHashMap(mo.getMapping().getNbNodes(), 0.5f, -1, 1);
+        joined.getMapping().fillVMIndex(vmPosition, 0);
+        for (Node n : scope) {
+            nodePosition.put(n.id(), 0);
+        }
+        List<Instance> parts = Arrays.asList(
+                new Instance(joined, new THashSet<>(), orig.getOptConstraint()),
+                new Instance(new DefaultModel(), new THashSet<>(), orig.getOptConstraint()));
+        for (SatConstraint cstr : orig.getSatConstraints()) {
+            if (!cstrMapper.split(cstr, orig, parts, vmPosition, nodePosition)) {
+                throw new SchedulerException(mo, "Unable to split " + cstr);
+            }
+        }
+        return parts.get(0);
     }
 
     private ReconfigurationPlan merge(Instance i, Collection<SolvingStatistics> results) throws SchedulerException {
         ReconfigurationPlan plan = new DefaultReconfigurationPlan(i.getModel());
         //Only if there is a solution
         for (SolvingStatistics result : results) {
+            if (result == null) {
+                return null;
+            }
             getStatistics().addPartitionStatistics(result);
             ReconfigurationPlan p = result.lastSolution();
             if (p == null) {
@@ -149,4 +473,78 @@ public abstract class StaticPartitioning implements InstanceSolver {
      * @throws org.btrplace.scheduler.SchedulerException if an error prevent the splitting process
      */
     public abstract List<Instance> split(Parameters ps, Instance i) throws SchedulerException;
+
+    /**
+     * A partition and its solving result.
+     */
+    private static class Partition {
+
+        private Instance instance;
+
+        private SolvingStatistics result;
+
+        private int difficulty = -1;
+
+        /**
+         * An optional hint for the solving.
+         */
+        private WarmStart warmStart;
+
+        Partition(Instance i) {
+            instance = i;
+        }
+
+        boolean failed() {
+            return result == null || result.lastSolution() == null;
+        }
+    }
+
+    /**
+     * Share the time left before a deadline among partitions, depending on their difficulty.
+     */
+    private static class TimeBudget {
+
+        private Parameters params;
+
+        private long deadline;
+
+        private int workers;
+
+        private long pending;
+
+        TimeBudget(Parameters ps, long d, int w, List<Partition> parts) {
+            params = ps;
+            deadline = d;
+            workers = w;
+            parts.forEach(p -> pending += weight(p));
+        }
+
+        private static long weight(Partition p) {
+            return p.difficulty + 1L;
+        }
+
+        /**
+         * Get the solver for a partition that is about to be solved.
+         *
+         * @param p the partition
+         * @return the solver, with a time limit that is a share of the remaining time
+         */
+        synchronized InstanceSolverRunner take(Partition p) {
+            Parameters ps = params;
+            if (p.warmStart != null) {
+                ps = new DefaultParameters(ps).setWarmStart(p.warmStart);
+            }
+            if (deadline < 0) {
+                return new InstanceSolverRunner(ps, p.instance);
+            }
+            long w = weight(p);
+            long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            long share = Math.min(remaining, remaining * workers * w / pending);
+            pending -= w;
+            //The time limit of the parameters is in seconds and cannot be zero,
+            //the exact share is given to the solver directly
+            InstanceSolverRunner r = new InstanceSolverRunner(new DefaultParameters(ps).setTimeLimit((int) Math.max(1, share / 1000)), p.instance);
+            return r.setSolvingHook(rp -> SMF.limitTime(rp.getSolver(), Math.max(1, share)));
+        }
+    }
 }
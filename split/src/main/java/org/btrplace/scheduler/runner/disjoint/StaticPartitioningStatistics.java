@@ -42,6 +42,10 @@ public class StaticPartitioningStatistics implements SolvingStatistics {
     private long splitDuration;
     private long solvingDuration;
     private int managed = 0;
+    private int recoveryRounds;
+    private int joins;
+    private int retried;
+    private int improved;
 
     private Instance instance;
     private Parameters params;
@@ -235,6 +239,64 @@ public class StaticPartitioningStatistics implements SolvingStatistics {
         partResults.add(stats);
     }
 
+    /**
+     * Set statistics about the recovery process.
+     *
+     * @param rounds the number of recovery rounds
+     * @param nbJoins the number of partitions joins
+     */
+    public void setRecoveryStatistics(int rounds, int nbJoins) {
+        recoveryRounds = rounds;
+        joins = nbJoins;
+    }
+
+    /**
+     * Get the number of rounds performed to recover from partitions without solutions.
+     *
+     * @return a positive number. {@code 0} if there was no recovery
+     */
+    public int getNbRecoveryRounds() {
+        return recoveryRounds;
+    }
+
+    /**
+     * Get the number of partitions joins performed while recovering.
+     *
+     * @return a positive number
+     */
+    public int getNbJoins() {
+        return joins;
+    }
+
+    /**
+     * Set statistics about the partitions that were solved again to improve their solution.
+     *
+     * @param nbRetried  the number of partitions solved again
+     * @param nbImproved the number of partitions that got a better solution
+     */
+    public void setImprovementStatistics(int nbRetried, int nbImproved) {
+        retried = nbRetried;
+        improved = nbImproved;
+    }
+
+    /**
+     * Get the number of partitions that were solved again to improve their solution.
+     *
+     * @return a positive number
+     */
+    public int getNbRetriedPartitions() {
+        return retried;
+    }
+
+    /**
+     * Get the number of partitions that got a better solution when solved again.
+     *
+     * @return a positive number
+     */
+    public int getNbImprovedPartitions() {
+        return improved;
+    }
+
     /**
      * Get the partition splitting duration in milliseconds.
      *
@@ -22,6 +22,7 @@ import org.btrplace.model.*;
 import org.btrplace.model.constraint.MaxOnline;
 import org.btrplace.model.constraint.MinMTTR;
 import org.btrplace.model.constraint.Running;
+import org.btrplace.model.view.ShareableResource;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.DefaultChocoScheduler;
@@ -81,6 +82,11 @@ public class FixedNodeSetsPartitioningTest {
         Assert.assertTrue(f.setPartitions(parts));
         Assert.assertEquals(f.getPartitions(), parts);
 
+        Assert.assertTrue(f.getDispatcher() instanceof RoundRobinDispatcher);
+        VMsDispatcher d = new FirstFitDecreasingDispatcher();
+        f.setDispatcher(d);
+        Assert.assertEquals(f.getDispatcher(), d);
+
         //Make the set not disjoint
         parts.get(1).addAll(parts.get(0));
         Assert.assertFalse(f.setPartitions(parts));
@@ -112,6 +118,43 @@ public class FixedNodeSetsPartitioningTest {
         System.out.flush();
     }
 
+    @Test
+    public void testSplitWithFirstFitDecreasingDispatcher() throws SchedulerException {
+        Model mo = new DefaultModel();
+        ShareableResource cpu = new ShareableResource("cpu", 4, 2);
+        mo.attach(cpu);
+        List<Node> ns = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Node n = mo.newNode();
+            mo.getMapping().addOnlineNode(n);
+            ns.add(n);
+        }
+        //The nodes of the first partition are full
+        for (Node n : ns.subList(0, 2)) {
+            VM v = mo.newVM();
+            mo.getMapping().addRunningVM(v, n);
+            cpu.setConsumption(v, 4);
+        }
+        //4 VMs to launch. They can only fit in the second partition
+        for (int i = 0; i < 4; i++) {
+            mo.getMapping().addReadyVM(mo.newVM());
+        }
+        Instance origin = new Instance(mo, Running.newRunning(mo.getMapping().getAllVMs()), new MinMTTR());
+
+        List<Collection<Node>> parts = Arrays.asList(new HashSet<>(ns.subList(0, 2)), new HashSet<>(ns.subList(2, 4)));
+        FixedNodeSetsPartitioning f = new FixedNodeSetsPartitioning(parts);
+        f.setDispatcher(new FirstFitDecreasingDispatcher());
+        List<Instance> subs = f.split(new DefaultParameters(), origin);
+        Assert.assertEquals(subs.get(0).getModel().getMapping().getReadyVMs().size(), 0);
+        Assert.assertEquals(subs.get(1).getModel().getMapping().getReadyVMs().size(), 4);
+
+        DefaultChocoScheduler cra = new DefaultChocoScheduler();
+        cra.setInstanceSolver(f);
+        ReconfigurationPlan plan = cra.solve(origin);
+        Assert.assertNotNull(plan);
+        Assert.assertEquals(plan.getSize(), 4);
+    }
+
     @Test(expectedExceptions = {SchedulerException.class})
     public void testSplitWithUnsplittableConstraint() throws SchedulerException {
         Instance orig = makeInstance();
@@ -22,6 +22,8 @@ import org.btrplace.model.*;
 import org.btrplace.model.constraint.MinMTTR;
 import org.btrplace.model.constraint.Offline;
 import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.Spread;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.DefaultChocoScheduler;
@@ -30,8 +32,11 @@ import org.btrplace.scheduler.runner.disjoint.model.SubModel;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -103,6 +108,140 @@ public class StaticPartitioningTest {
         Assert.assertEquals(st.getStatistics().getSolutions().size(), 0);
     }
 
+    @Test
+    public void testRecovery() throws SchedulerException {
+
+        SynchronizedElementBuilder eb = new SynchronizedElementBuilder(new DefaultElementBuilder());
+        Model origin = new DefaultModel(eb);
+
+        Node n1 = origin.newNode();
+        Node n2 = origin.newNode();
+        VM vm1 = origin.newVM();
+        VM vm2 = origin.newVM();
+
+        /*
+         * 2 nodes among 2 instances, 2 VMs to boot on the nodes.
+         * vm2 cannot be booted in its partition as n2 must go offline.
+         */
+        origin.getMapping().addOnlineNode(n1);
+        origin.getMapping().addOnlineNode(n2);
+        origin.getMapping().addReadyVM(vm1);
+        origin.getMapping().addReadyVM(vm2);
+
+        Model s1 = new SubModel(origin, eb, Collections.singletonList(n1), Collections.singleton(vm1));
+        Model s2 = new SubModel(origin, eb, Collections.singletonList(n2), Collections.singleton(vm2));
+
+        //The joined partitions get the constraints of the original instance
+        Instance i0 = new Instance(origin, new MinMTTR());
+        i0.getSatConstraints().addAll(Running.newRunning(Arrays.asList(vm1, vm2)));
+        i0.getSatConstraints().add(new Offline(n2));
+        final Instance i1 = new Instance(s1, Running.newRunning(Collections.singletonList(vm1)), new MinMTTR());
+        final Instance i2 = new Instance(s2, new MinMTTR());
+        i2.getSatConstraints().add(new Running(vm2));
+        i2.getSatConstraints().add(new Offline(n2));
+
+        StaticPartitioning st = new StaticPartitioning() {
+            @Override
+            public List<Instance> split(Parameters ps, Instance i) throws SchedulerException {
+                return Arrays.asList(i1, i2);
+            }
+        };
+        Assert.assertFalse(st.doRecovery());
+        Parameters p = new DefaultChocoScheduler();
+        Assert.assertNull(st.solve(p, i0));
+
+        st.doRecovery(true);
+        Assert.assertTrue(st.doRecovery());
+        ReconfigurationPlan plan = st.solve(p, i0);
+        Assert.assertNotNull(plan);
+        Model dst = plan.getResult();
+        Assert.assertEquals(dst.getMapping().getRunningVMs(n1).size(), 2);
+        Assert.assertTrue(dst.getMapping().isOffline(n2));
+        Assert.assertEquals(st.getStatistics().getNbRecoveryRounds(), 1);
+        Assert.assertEquals(st.getStatistics().getNbJoins(), 1);
+    }
+
+    /**
+     * The VMs of a Spread are in two partitions. Once the partitions are joined,
+     * the Spread must be enforced over all its VMs.
+     */
+    @Test
+    public void testRecoveryWithSplitConstraint() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        mo.getMapping().on(n1, n2, n3).run(n1, vm1).run(n2, vm2);
+
+        //vm1 cannot stay in its partition as n1 must go offline
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Spread(new HashSet<>(Arrays.asList(vm1, vm2)), false));
+        cstrs.add(new Offline(n1));
+        Instance i = new Instance(mo, cstrs, new MinMTTR());
+
+        List<Collection<Node>> parts = Arrays.asList(Collections.singleton(n1), new HashSet<>(Arrays.asList(n2, n3)));
+        FixedNodeSetsPartitioning st = new FixedNodeSetsPartitioning(parts);
+        st.doRecovery(true);
+        ReconfigurationPlan plan = st.solve(new DefaultChocoScheduler(), i);
+        Assert.assertNotNull(plan);
+        Assert.assertEquals(st.getStatistics().getNbJoins(), 1);
+        Mapping res = plan.getResult().getMapping();
+        Assert.assertEquals(res.getVMLocation(vm1), n3);
+        Assert.assertEquals(res.getVMLocation(vm2), n2);
+        for (SatConstraint c : cstrs) {
+            Assert.assertTrue(c.isSatisfied(plan), c.toString());
+        }
+    }
+
+    @Test
+    public void testEstimateDifficulty() {
+        StaticPartitioning st = new StaticPartitioning() {
+            @Override
+            public List<Instance> split(Parameters ps, Instance i) throws SchedulerException {
+                throw new UnsupportedOperationException();
+            }
+        };
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        mo.getMapping().addOnlineNode(n1);
+        mo.getMapping().addRunningVM(vm1, n1);
+        mo.getMapping().addReadyVM(vm2);
+        Instance i = new Instance(mo, new MinMTTR());
+        //2 VMs
+        Assert.assertEquals(st.estimateDifficulty(i), 2);
+        //+ 1 satisfied constraint
+        i.getSatConstraints().add(new Running(vm1));
+        Assert.assertEquals(st.estimateDifficulty(i), 3);
+        //+ 1 constraint, not satisfied, with 1 VM
+        i.getSatConstraints().add(new Running(vm2));
+        Assert.assertEquals(st.estimateDifficulty(i), 5);
+    }
+
+    @Test
+    public void testSolveWithTimeBudget() throws SchedulerException {
+        Model mo = new DefaultModel();
+        for (int i = 0; i < 20; i++) {
+            Node n = mo.newNode();
+            mo.getMapping().addOnlineNode(n);
+            mo.getMapping().addRunningVM(mo.newVM(), n);
+        }
+        for (int i = 0; i < 30; i++) {
+            mo.getMapping().addReadyVM(mo.newVM());
+        }
+        Instance i = new Instance(mo, Running.newRunning(mo.getMapping().getAllVMs()), new MinMTTR());
+        FixedSizePartitioning st = new FixedSizePartitioning(3);
+        st.setWorkersCount(2);
+        Parameters p = new DefaultChocoScheduler().setTimeLimit(5).doOptimize(true);
+        ReconfigurationPlan plan = st.solve(p, i);
+        Assert.assertNotNull(plan);
+        Assert.assertEquals(plan.getSize(), 30);
+        Assert.assertTrue(st.getStatistics().getSolvingDuration() <= 6000);
+    }
+
     @Test(expectedExceptions = {SchedulerException.class})
     public void testSolvingIncorrectPartitioning() throws SchedulerException {
 